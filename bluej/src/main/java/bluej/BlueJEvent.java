@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2014,2016,2019,2024  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2010,2014,2016,2019,2024,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -55,7 +55,8 @@ import threadchecker.Tag;
   *
   *  GENERATING_DOCU    (unused)            documentation generation started
   *
-  *  DOCU_GENERATED     (unused)            documentation generation finished
+  *  DOCU_GENERATED     Long (or null)      documentation generation finished; the time
+  *                                         taken in milliseconds, if it was generated
   *
   *  DOCU_ABORTED       (unused)            documentation generation aborted
   *
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2021,2022,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2021,2022,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -22,13 +22,16 @@
 package bluej;
 
 import bluej.collect.DataCollector;
+import bluej.compiler.JobQueue;
 import bluej.extensions2.event.ApplicationEvent;
 import bluej.extmgr.ExtensionWrapper;
 import bluej.extmgr.ExtensionsManager;
+import bluej.pkgmgr.PackageFileWriter;
 import bluej.pkgmgr.Project;
 import bluej.prefmgr.PrefMgr;
 import bluej.utility.Debug;
 import bluej.utility.DialogManager;
+import bluej.utility.StartupMonitor;
 import bluej.utility.Utility;
 import bluej.utility.javafx.FXPlatformRunnable;
 import bluej.utility.javafx.JavaFXUtil;
@@ -117,6 +120,8 @@ public class Main
         File bluejLibDir = Boot.getBluejLibDir();
 
         Config.initialise(bluejLibDir, commandLineProps, boot.isGreenfoot());
+        StartupMonitor.logBootPhases();
+        StartupMonitor.phase("configuration loaded");
 
         CompletableFuture<Stage> futureMainWindow = new CompletableFuture<>();
         // Must do this after Config initialisation:
@@ -162,19 +167,20 @@ public class Main
         // process command line arguments, start BlueJ!
         Platform.runLater(() -> {
             List<ExtensionWrapper> loadedExtensions = ExtensionsManager.getInstance().getLoadedExtensions(null);
+            StartupMonitor.phase("extensions loaded");
             DataCollector.bluejOpened(getOperatingSystem(), getJavaVersion(), getBlueJVersion(), getInterfaceLanguage(), loadedExtensions);
             Stage stage = processArgs(args);
             futureMainWindow.complete(stage);
         });
 
-        // Send usage data back to bluej.org
-        new Thread("Updating central stats") {
+        // Send usage data back to bluej.org, once the first window is up:
+        StartupMonitor.whenStarted(() -> new Thread("Updating central stats") {
             @Override
             public void run()
             {
                 updateStats();
             }
-        }.start();
+        }.start());
     }
 
     /**
@@ -223,10 +229,12 @@ public class Main
             }
         }
 
+        StartupMonitor.phase("projects opened");
         Stage window = guiHandler.initialOpenComplete(oneOpened.get());
         
         Boot.getInstance().disposeSplashWindow();
         ExtensionsManager.getInstance().delegateEvent(new ApplicationEvent(ApplicationEvent.EventType.APP_READY_EVENT));
+        StartupMonitor.startupComplete();
         
         return window;
     }
@@ -469,6 +477,8 @@ public class Main
     private static void exit()
     {
         DataCollector.bluejClosed();
+        JobQueue.logStatistics();
+        PackageFileWriter.logStatistics();
         
         // save configuration properties
         Config.handleExit();
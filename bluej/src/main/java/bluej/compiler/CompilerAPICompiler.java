@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2018  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2018,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -22,10 +22,15 @@
 package bluej.compiler;
 
 import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -34,7 +39,11 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.tools.Diagnostic;
 import javax.tools.DiagnosticListener;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.ForwardingJavaFileObject;
 import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
 import javax.tools.JavaFileObject;
 import javax.tools.StandardJavaFileManager;
 import javax.tools.StandardLocation;
@@ -227,7 +236,7 @@ public class CompilerAPICompiler extends Compiler
             optionsList.addAll(userOptions);
             
             //compile
-            result = jc.getTask(null, sjfm, diagListener, optionsList, null, compilationUnits1).call();
+            result = jc.getTask(null, new AtomicOutputFileManager(sjfm), diagListener, optionsList, null, compilationUnits1).call();
             sjfm.close();
             if (tempDir != null)
                 tempDir.delete();
@@ -241,6 +250,77 @@ public class CompilerAPICompiler extends Compiler
         return result;
     }
 
+    /**
+     * A file manager which writes each class file to a temporary file, and then moves it into
+     * place.  Jobs in different lanes (see JobQueue) may both compile a class which they depend
+     * on (since the destination directory is also the source path) and so write its class file
+     * at the same time; this way, the class file is always one complete copy or the other.
+     */
+    private static class AtomicOutputFileManager extends ForwardingJavaFileManager<StandardJavaFileManager>
+    {
+        AtomicOutputFileManager(StandardJavaFileManager fileManager)
+        {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className,
+                JavaFileObject.Kind kind, FileObject sibling) throws IOException
+        {
+            JavaFileObject file = super.getJavaFileForOutput(location, className, kind, sibling);
+            if (kind != JavaFileObject.Kind.CLASS || ! "file".equals(file.toUri().getScheme()))
+            {
+                return file;
+            }
+            Path target = Path.of(file.toUri());
+            return new ForwardingJavaFileObject<JavaFileObject>(file)
+            {
+                @Override
+                public OutputStream openOutputStream() throws IOException
+                {
+                    Files.createDirectories(target.getParent());
+                    Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+                    return new FilterOutputStream(Files.newOutputStream(temp))
+                    {
+                        private boolean closed = false;
+
+                        @Override
+                        public void write(byte[] b, int off, int len) throws IOException
+                        {
+                            out.write(b, off, len);
+                        }
+
+                        @Override
+                        public void close() throws IOException
+                        {
+                            if (closed)
+                            {
+                                return;
+                            }
+                            closed = true;
+                            try
+                            {
+                                super.close();
+                                try
+                                {
+                                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                                }
+                                catch (AtomicMoveNotSupportedException e)
+                                {
+                                    Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+                                }
+                            }
+                            finally
+                            {
+                                Files.deleteIfExists(temp);
+                            }
+                        }
+                    };
+                }
+            };
+        }
+    }
+
     /**
      * Processes messages returned from the compiler. This just slightly adjusts the format of some
      * messages.
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2014  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2014,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -24,71 +24,44 @@ package bluej.compiler;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 import bluej.Config;
-import bluej.utility.Queue;
 
 /**
- * The compiler thread. BlueJ uses exactly one thread for compilation. Jobs are
- * queued, and this thread processes tham one by one. If there is no job, this
- * thread just sleeps.
+ * A compiler thread. BlueJ uses a small pool of these threads for compilation.
+ * Jobs are queued in the JobQueue, and each thread takes jobs from it one by
+ * one. If there is no job, the thread just sleeps.
  * 
  * @author Michael Cahill
  * @author Michael Kolling
  */
 class CompilerThread extends Thread
 {
-    private Queue jobs;
-    private boolean busy = true;
+    private final JobQueue queue;
+    // Each thread has its own compiler, as a compiler holds the settings for its job:
+    private final Compiler compiler = new CompilerAPICompiler();
 
     /**
-     * Create a new compiler thread that holds its own job queue.
+     * Create a new compiler thread that takes its jobs from the given queue.
      */
-    public CompilerThread()
+    @OnThread(Tag.Any)
+    public CompilerThread(JobQueue queue, int number)
     {
-        super(Config.getString("compiler.thread.title"));
-        jobs = new Queue();
+        super(Config.getString("compiler.thread.title") + " " + number);
+        this.queue = queue;
     }
 
     /**
      * Start running this thread. The compiler thread will run infinitely in a
      * loop. It will compile jobs as long as there are any jobs pending, and
-     * then wait for new jobs to be scheduled. New jobs are scheduled using the
-     * addJob method.
+     * then wait for new jobs to be scheduled. New jobs are scheduled using
+     * JobQueue.addJob.
      */
     public void run()
     {
-        Job job;
         while (true) {
-            synchronized (this) {
-                while ((job = (Job) jobs.dequeue()) == null) {
-                    busy = false;
-                    notifyAll();
-                    try {
-                        wait();
-                    }
-                    catch (InterruptedException e) {}
-                }
-            }
-
-            job.compile();
+            JobQueue.QueuedJob job = queue.takeJob();
+            long start = System.nanoTime();
+            job.getJob().compile(compiler);
+            queue.jobFinished(job, System.nanoTime() - start);
         }
     }
-
-    /**
-     * Add a new job to this thread's job queue. The job will be processed by
-     * this thread some tim ein the near future. This method returns
-     * immediately.
-     */
-    @OnThread(Tag.Any)
-    public synchronized void addJob(Job job)
-    {
-        jobs.enqueue(job);
-        busy = true;
-        notifyAll();
-    }
-
-    @OnThread(Tag.Any)
-    public boolean isBusy()
-    {
-        return busy;
-    }
-}
\ No newline at end of file
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2012,2013,2016  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2011,2012,2013,2016,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -24,18 +24,50 @@ package bluej.compiler;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import bluej.Config;
 import bluej.classmgr.BPClassLoader;
 import bluej.utility.Debug;
 import bluej.utility.Utility;
+import threadchecker.OnThread;
+import threadchecker.Tag;
 
 /**
  * Reasonably generic interface between the BlueJ IDE and the Java compiler.
  * 
+ * <p>Jobs are compiled by a small pool of compiler threads.  Each project (identified by
+ * its destination directory) has its own queue of jobs, and only one job per project is
+ * compiled at a time, so that jobs for a project can't interfere with each other's
+ * class files; but a long compile in one project doesn't hold up compiles in another.
+ * 
+ * <p>When a thread is free, it takes the job which has been waiting longest, from any
+ * project which isn't already being compiled, except that a user-requested
+ * (EXPLICIT_USER_COMPILE) job is taken before any other kind.  Within a project, the
+ * jobs are taken in order, except that a user-requested job may overtake error-checking
+ * jobs, which don't keep their classes.  A job which is added while an equivalent job
+ * (the same files and settings) is still waiting replaces the waiting job, with the
+ * newer reason, and both observers are told about the compile.
+ * 
+ * <p>A caller which knows that some jobs for a project don't depend on each other (such
+ * as a rebuild, see Package.rebuild) can give them different lane numbers, so that they
+ * may be compiled at the same time.  Such jobs are never compiled at the same time as
+ * other (lane 0) jobs for the project, and while the caller has a rebuild in progress
+ * (see beginRebuild) the project's other jobs wait until it has finished.
+ * 
  * @author Michael Cahill
  */
+@OnThread(Tag.Any)
 public class JobQueue
 {
     private static JobQueue queue = null;
@@ -48,25 +80,83 @@ public class JobQueue
         return queue;
     }
 
+    /**
+     * Log the compile statistics (queue waiting times and compile times) for this session,
+     * if there have been any compiles.
+     */
+    public static synchronized void logStatistics()
+    {
+        if (queue != null) {
+            queue.logQueueStatistics();
+        }
+    }
+
+    /**
+     * A job in the queue, with the time at which it was queued.
+     */
+    static class QueuedJob
+    {
+        private Job job;
+        private final QueueKey key;
+        private final long queuedAt = System.nanoTime();
+
+        private QueuedJob(Job job, QueueKey key)
+        {
+            this.job = job;
+            this.key = key;
+        }
+
+        public Job getJob()
+        {
+            return job;
+        }
+    }
+
+    /**
+     * Identifies a queue of jobs which must be compiled one at a time: a project
+     * (destination directory) and a lane within the project.
+     */
+    private record QueueKey(File destDir, int lane) {}
+
     // ---- instance ----
 
-    private CompilerThread thread = null;
-    private Compiler compiler = null;
+    // The jobs waiting in each queue in the order they were added.  Queues with no
+    // waiting jobs are removed.
+    private final Map<QueueKey, LinkedList<QueuedJob>> waiting = new LinkedHashMap<>();
+    // The queues with a job currently being compiled:
+    private final Set<QueueKey> compiling = new HashSet<>();
+    // The destination directories with a rebuild in progress, and how many:
+    private final Map<File, Integer> rebuilding = new HashMap<>();
+    private final int numThreads;
+
+    // Statistics:
+    private long jobsCompiled = 0;
+    private long jobsCoalesced = 0;
+    private long totalWaitNanos = 0;
+    private long maxWaitNanos = 0;
+    private long totalCompileNanos = 0;
+    private long maxCompileNanos = 0;
 
     /**
      * Construct the JobQueue. This is private; use getJobQueue() to get the job queue instance.
      */
     private JobQueue()
     {
-        compiler = new CompilerAPICompiler();
-        thread = new CompilerThread();
+        // A few threads are enough to compile several projects at once; more would just
+        // compete with each other (and the GUI) for processors:
+        int defaultThreads = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() / 2));
+        numThreads = Math.max(1, Config.getPropInteger("bluej.compiler.threads", defaultThreads));
 
         // Lower priority to improve GUI response time during compilation
         int priority = Thread.currentThread().getPriority() - 1;
         priority = Math.max(priority, Thread.MIN_PRIORITY);
-        thread.setPriority(priority);
-
-        thread.start();
+        
+        for (int i = 1; i <= numThreads; i++) {
+            CompilerThread thread = new CompilerThread(this, i);
+            thread.setPriority(priority);
+            thread.setDaemon(true);
+            thread.start();
+        }
     }
 
     /**
@@ -81,13 +171,233 @@ public class JobQueue
      */
     public void addJob(CompileInputFile[] sources, CompileObserver observer, BPClassLoader bpClassLoader, File destDir,
             boolean suppressUnchecked, Charset fileCharset, CompileReason reason, CompileType type)
+    {
+        addJob(sources, observer, bpClassLoader, destDir, suppressUnchecked, fileCharset, reason, type, 0);
+    }
+
+    /**
+     * Adds a job to the compile queue for a particular lane.  Jobs for the same destination
+     * directory in different lanes (other than 0) may be compiled at the same time, so must
+     * not depend on each other's classes; lane 0 is used by all other compiles, which are
+     * compiled one at a time.
+     */
+    public void addJob(CompileInputFile[] sources, CompileObserver observer, BPClassLoader bpClassLoader, File destDir,
+            boolean suppressUnchecked, Charset fileCharset, CompileReason reason, CompileType type, int lane)
     {
         List<String> options = new ArrayList<String>();
         String optionString = Config.getPropString(Compiler.COMPILER_OPTIONS, "");
         options.addAll(Utility.dequoteCommandLine(optionString));
         
-        thread.addJob(new Job(sources, compiler, observer, bpClassLoader,
-                destDir, suppressUnchecked, options, fileCharset, type, reason));
+        Job job = new Job(sources, observer, bpClassLoader, destDir, suppressUnchecked, options, fileCharset, type, reason);
+        synchronized (this) {
+            QueueKey key = new QueueKey(destDir, lane);
+            LinkedList<QueuedJob> queueJobs = waiting.computeIfAbsent(key, k -> new LinkedList<>());
+            for (QueuedJob queued : queueJobs) {
+                if (isEquivalent(queued.job, job)) {
+                    // Compile once, for both observers, keeping the older job's place in the queue:
+                    queued.job = new Job(sources, combine(queued.job.observer(), observer), bpClassLoader, destDir,
+                            suppressUnchecked, options, fileCharset, type, reason);
+                    jobsCoalesced++;
+                    return;
+                }
+            }
+            queueJobs.add(new QueuedJob(job, key));
+            notifyAll();
+        }
+    }
+
+    /**
+     * Begin a rebuild for the given destination directory, whose jobs will be added in
+     * lanes other than 0.  Until the matching call to endRebuild, lane 0 jobs for the
+     * directory are held back, so that they can't write into it at the same time as the
+     * rebuild's jobs.
+     */
+    public synchronized void beginRebuild(File destDir)
+    {
+        rebuilding.merge(destDir, 1, Integer::sum);
+    }
+
+    /**
+     * End a rebuild started by beginRebuild, once all of its jobs have been compiled.
+     */
+    public synchronized void endRebuild(File destDir)
+    {
+        rebuilding.computeIfPresent(destDir, (d, count) -> count == 1 ? null : count - 1);
+        notifyAll();
+    }
+
+    /**
+     * Check whether two jobs would compile the same files in the same way.
+     */
+    private static boolean isEquivalent(Job a, Job b)
+    {
+        return a.type() == b.type() && a.internal() == b.internal() && a.bpClassLoader() == b.bpClassLoader()
+                && Objects.equals(a.fileCharset(), b.fileCharset())
+                && a.userCompileOptions().equals(b.userCompileOptions())
+                && inputFiles(a).equals(inputFiles(b));
+    }
+
+    private static Set<File> inputFiles(Job job)
+    {
+        return Arrays.stream(job.sources()).map(CompileInputFile::getJavaCompileInputFile).collect(Collectors.toSet());
+    }
+
+    /**
+     * Get an observer which passes all events to both of the given observers (either of
+     * which may be null).
+     */
+    private static CompileObserver combine(CompileObserver first, CompileObserver second)
+    {
+        if (first == null || second == null) {
+            return first == null ? second : first;
+        }
+        return new CompileObserver()
+        {
+            @Override
+            public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+            {
+                first.startCompile(sources, reason, type, compilationSequence);
+                second.startCompile(sources, reason, type, compilationSequence);
+            }
+
+            @Override
+            public void compilerMessage(Diagnostic diagnostic, CompileType type)
+            {
+                first.compilerMessage(diagnostic, type);
+                second.compilerMessage(diagnostic, type);
+            }
+
+            @Override
+            public void endCompile(CompileInputFile[] sources, boolean succesful, CompileType type, int compilationSequence)
+            {
+                first.endCompile(sources, succesful, type, compilationSequence);
+                second.endCompile(sources, succesful, type, compilationSequence);
+            }
+        };
+    }
+
+    /**
+     * Take the next job to compile, waiting until there is one.  The caller must call
+     * jobFinished once the job has been compiled.
+     */
+    synchronized QueuedJob takeJob()
+    {
+        while (true) {
+            QueuedJob best = null;
+            QueueKey bestQueue = null;
+            for (Map.Entry<QueueKey, LinkedList<QueuedJob>> entry : waiting.entrySet()) {
+                if (! canStart(entry.getKey())) {
+                    continue;
+                }
+                QueuedJob candidate = nextJob(entry.getValue());
+                if (best == null || isUserCompile(candidate) && ! isUserCompile(best)
+                        || isUserCompile(candidate) == isUserCompile(best) && candidate.queuedAt < best.queuedAt) {
+                    best = candidate;
+                    bestQueue = entry.getKey();
+                }
+            }
+            
+            if (best != null) {
+                LinkedList<QueuedJob> queueJobs = waiting.get(bestQueue);
+                queueJobs.remove(best);
+                if (queueJobs.isEmpty()) {
+                    waiting.remove(bestQueue);
+                }
+                compiling.add(bestQueue);
+                long waited = System.nanoTime() - best.queuedAt;
+                totalWaitNanos += waited;
+                maxWaitNanos = Math.max(maxWaitNanos, waited);
+                return best;
+            }
+            
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {}
+        }
+    }
+
+    /**
+     * Check whether a job from the given queue may be compiled now: no other job from the
+     * queue is being compiled, and lane 0 and the other lanes for a directory are not
+     * compiled at the same time, nor lane 0 during a rebuild.
+     */
+    private boolean canStart(QueueKey key)
+    {
+        if (compiling.contains(key) || key.lane() == 0 && rebuilding.containsKey(key.destDir())) {
+            return false;
+        }
+        for (QueueKey other : compiling) {
+            if (other.destDir().equals(key.destDir()) && (other.lane() == 0) != (key.lane() == 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the next job to compile from a (non-empty) list of waiting jobs:
+     * the first job, unless a user-requested compile is waiting behind only
+     * error-checking jobs.
+     */
+    private static QueuedJob nextJob(LinkedList<QueuedJob> queueJobs)
+    {
+        for (QueuedJob queued : queueJobs) {
+            if (isUserCompile(queued)) {
+                return queued;
+            }
+            if (queued.job.type() != CompileType.ERROR_CHECK_ONLY) {
+                break;
+            }
+        }
+        return queueJobs.getFirst();
+    }
+
+    private static boolean isUserCompile(QueuedJob queued)
+    {
+        return queued.job.type() == CompileType.EXPLICIT_USER_COMPILE;
+    }
+
+    /**
+     * A job returned by takeJob has been compiled.
+     */
+    synchronized void jobFinished(QueuedJob job, long compileNanos)
+    {
+        compiling.remove(job.key);
+        jobsCompiled++;
+        totalCompileNanos += compileNanos;
+        maxCompileNanos = Math.max(maxCompileNanos, compileNanos);
+        notifyAll();
+    }
+
+    /**
+     * Get the number of compiler threads, that is, the most jobs which can be compiled at once.
+     */
+    public int getThreadCount()
+    {
+        return numThreads;
+    }
+
+    /**
+     * Check whether any jobs are being compiled, or are waiting to be.  Jobs held back by
+     * a rebuild are not counted: the rebuild only ends (and adds its later jobs) on the
+     * FX thread, which may be the thread waiting for us.
+     */
+    private synchronized boolean isBusy()
+    {
+        return ! compiling.isEmpty() || waiting.keySet().stream()
+                .anyMatch(key -> key.lane() != 0 || ! rebuilding.containsKey(key.destDir()));
+    }
+
+    private synchronized void logQueueStatistics()
+    {
+        if (jobsCompiled > 0) {
+            Debug.log("Compile jobs: " + jobsCompiled + " compiled (" + jobsCoalesced + " more combined with waiting jobs), "
+                    + "waited average " + TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / jobsCompiled) + "ms, maximum "
+                    + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms; compiled average "
+                    + TimeUnit.NANOSECONDS.toMillis(totalCompileNanos / jobsCompiled) + "ms, maximum "
+                    + TimeUnit.NANOSECONDS.toMillis(maxCompileNanos) + "ms");
+        }
     }
 
     /**
@@ -95,10 +405,10 @@ public class JobQueue
      */
     public void waitForEmptyQueue()
     {
-        synchronized (thread) {
-            while (thread.isBusy()) {
+        synchronized (this) {
+            while (isBusy()) {
                 try {
-                    thread.wait();
+                    wait();
                 }
                 catch (InterruptedException ex) {}
             }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -26,6 +26,7 @@ import java.net.URL;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import bluej.classmgr.BPClassLoader;
 import bluej.debugger.jdi.JdiDebugger;
@@ -70,6 +71,9 @@ public abstract class Debugger
     // persist through calls to removeBreakpointsForClass, and through the clear-all breakpoint
     // removal that happens, for example, when a new class loader is added to the VM
     public static final String PERSIST_BREAKPOINT_PROPERTY = "VMReference.PERSIST_BREAKPOINT";    
+    // Set this key on a breakpoint to make it stop only on every Nth hit, where the value is N
+    // (at least 1).  The hits are counted in the debug VM, so the others do not stop the thread.
+    public static final String BREAKPOINT_HIT_COUNT_PROPERTY = "VMReference.HIT_COUNT";
     
     public static final int NORMAL_EXIT = 0;
     public static final int EXCEPTION = 2;
@@ -219,6 +223,18 @@ public abstract class Debugger
      */
     @OnThread(Tag.Any)
     public abstract TestResultsWithRunTime runTestMethod(String className, String methodName);
+
+    /**
+     * Run all the test methods in the given test classes, passing each result to the given
+     * listener (on the calling thread) as soon as it is available.
+     * 
+     * @param  classNames  the fully qualified names of the classes
+     * @param  parallel    whether the classes may be run in parallel
+     * @param  resultListener  the listener to receive each result
+     * @return the runtime of executing all the tests, in milliseconds
+     */
+    @OnThread(Tag.Any)
+    public abstract int runTestBatch(List<String> classNames, boolean parallel, Consumer<DebuggerTestResult> resultListener);
     
     /**
      * Dispose all top level windows in the remote machine.
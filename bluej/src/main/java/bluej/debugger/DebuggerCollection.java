@@ -0,0 +1,72 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A logical view of a collection object (a list, set or map) in the debugged VM,
+ * giving its entries rather than the fields of its implementation.
+ * 
+ * <p>Entries are fetched from the VM only as they are asked for, and are then kept, so
+ * a view describes the collection as it was when its entries were fetched.  A view should
+ * be discarded, and a new one obtained, whenever the VM may have run.
+ */
+public abstract class DebuggerCollection
+{
+    public static enum Kind { LIST, SET, MAP }
+    
+    /**
+     * Get the kind of collection.
+     */
+    public abstract Kind getKind();
+    
+    /**
+     * Get the number of entries in the collection.
+     */
+    public abstract int size();
+    
+    /**
+     * Get the number of entries which can be shown; this may be fewer than size() for
+     * collections whose entries can only be fetched one after another.
+     */
+    public abstract int getEntryCount();
+    
+    /**
+     * Get a string representation (as per DebuggerField.getValueString()) of the key of
+     * the entry at the given position, for maps.  For other collections, returns null.
+     */
+    public abstract String getKeyString(int index);
+    
+    /**
+     * Get a string representation (as per DebuggerField.getValueString()) of the value of
+     * the entry at the given position (for sets, the value is the element).
+     */
+    public abstract String getValueString(int index);
+    
+    /**
+     * Get the value of the entry at the given position, as an object.
+     */
+    @OnThread(Tag.FXPlatform)
+    public abstract DebuggerObject getValueObject(int index);
+}
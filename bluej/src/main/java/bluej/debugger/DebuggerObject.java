@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2013,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2013,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -128,6 +128,33 @@ public abstract class DebuggerObject
      */
     public abstract String getElementValueString(int index);
 
+    /**
+     * Return string representations (as per getElementValueString) of a range of
+     * array elements.  Implementations may fetch the elements together, which is
+     * much quicker than fetching them one at a time.
+     * 
+     * @param from   The index of the first element
+     * @param count  The number of elements
+     */
+    public String[] getElementValueStrings(int from, int count)
+    {
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++)
+        {
+            strings[i] = getElementValueString(from + i);
+        }
+        return strings;
+    }
+
+    /**
+     * Get a logical view of the entries of this object, if it is a collection of a type
+     * which the debugger recognises.  Otherwise (including for arrays), return null.
+     */
+    public DebuggerCollection getCollection()
+    {
+        return null;
+    }
+
     /**
      * Return the JDI object. This exposes the JDI to Inspectors.
      * If JDI is not being used, it should return null.
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2000-2009,2010,2011,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 2000-2009,2010,2011,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,6 +21,8 @@
  */
 package bluej.debugger.jdi;
 
+import java.util.List;
+
 import bluej.debugger.DebuggerObject;
 import bluej.debugger.gentype.GenTypeArray;
 import bluej.debugger.gentype.GenTypeArrayClass;
@@ -44,6 +46,8 @@ import threadchecker.Tag;
 public class JdiArray extends JdiObject
 {
     private JavaType componentType;
+    // The array length, once known (an array's length never changes):
+    private int length = -1;
 
     @OnThread(Tag.Any)
     protected JdiArray(ArrayReference obj)
@@ -166,9 +170,12 @@ public class JdiArray extends JdiObject
     }
 
     @Override
-    public int getElementCount()
+    public synchronized int getElementCount()
     {
-        return ((ArrayReference) obj).length();
+        if (length == -1) {
+            length = ((ArrayReference) obj).length();
+        }
+        return length;
     }
     
     @Override
@@ -184,6 +191,21 @@ public class JdiArray extends JdiObject
         return JdiUtils.getJdiUtils().getValueString(val);
     }
 
+    @Override
+    public String[] getElementValueStrings(int from, int count)
+    {
+        String[] strings = new String[count];
+        if (count == 0) {
+            return strings;
+        }
+        List<Value> vals = ((ArrayReference) obj).getValues(from, count);
+        JdiUtils jdiUtils = JdiUtils.getJdiUtils();
+        for (int i = 0; i < count; i++) {
+            strings[i] = jdiUtils.getValueString(vals.get(i));
+        }
+        return strings;
+    }
+
     /*
      * Return the object in object field 'slot'.
      *
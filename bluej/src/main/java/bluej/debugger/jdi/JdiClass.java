@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2010,2011,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,6 +23,7 @@ package bluej.debugger.jdi;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import bluej.debugger.DebuggerClass;
 import bluej.debugger.DebuggerField;
@@ -32,6 +33,7 @@ import com.sun.jdi.ClassType;
 import com.sun.jdi.Field;
 import com.sun.jdi.InterfaceType;
 import com.sun.jdi.ReferenceType;
+import com.sun.jdi.Value;
 
 /**
  * Represents an class running on the user (remote) machine.
@@ -43,6 +45,9 @@ public class JdiClass extends DebuggerClass
 {
     ReferenceType remoteClass;  // the remote class represented
     List<Field> staticFields;
+    // Whether to keep the result of getStaticFields() (see keepFieldValues()):
+    private boolean keepFieldValues;
+    private List<DebuggerField> keptFields;
 
     // -- instance methods --
 
@@ -69,17 +74,39 @@ public class JdiClass extends DebuggerClass
         return remoteClass.name();
     }
 
+    /**
+     * Get the static fields of this class.  The values of all the fields are fetched
+     * together, in a single request to the debug VM, and the returned fields keep those values.
+     */
     @Override
-    public List<DebuggerField> getStaticFields()
+    public synchronized List<DebuggerField> getStaticFields()
     {
+        if (keptFields != null) {
+            return new ArrayList<>(keptFields);
+        }
+        
         List<Field> visibleFields = remoteClass.visibleFields();
+        Map<Field, Value> values = remoteClass.getValues(staticFields);
         List<DebuggerField> rlist = new ArrayList<DebuggerField>(staticFields.size());
         for (Field field : staticFields) {
-            rlist.add(new JdiField(field, null, ! visibleFields.contains(field)));
+            rlist.add(new JdiField(field, null, ! visibleFields.contains(field), values.get(field)));
+        }
+        if (keepFieldValues) {
+            keptFields = new ArrayList<>(rlist);
         }
         return rlist;
     }
 
+    /**
+     * Make getStaticFields() return the same field values each time, rather than fetching
+     * them again.  This is for classes which are discarded when the thread that they were
+     * found in is resumed.
+     */
+    synchronized void keepFieldValues()
+    {
+        keepFieldValues = true;
+    }
+
     /*
      * Returns true if this represents a Java interface
      */
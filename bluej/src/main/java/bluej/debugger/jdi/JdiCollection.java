@@ -0,0 +1,353 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugger.jdi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import bluej.debugger.DebuggerCollection;
+import bluej.debugger.DebuggerObject;
+
+import com.sun.jdi.ArrayReference;
+import com.sun.jdi.Field;
+import com.sun.jdi.IntegerValue;
+import com.sun.jdi.ObjectCollectedException;
+import com.sun.jdi.ObjectReference;
+import com.sun.jdi.ReferenceType;
+import com.sun.jdi.StringReference;
+import com.sun.jdi.VMDisconnectedException;
+import com.sun.jdi.Value;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A logical view of a collection from the standard library whose implementation we know:
+ * the array-backed lists (ArrayList, Vector and Stack) and the hash-based maps and sets
+ * (HashMap, LinkedHashMap, HashSet and LinkedHashSet).
+ * 
+ * <p>The entries are read directly from the fields of the collection, rather than by calling
+ * its methods, so that no code has to run in the debug VM (which would need a thread to
+ * run it on, and might not return).  Array-backed lists are read a page at a time, from any
+ * position.  Hash-based collections can only be read in iteration order, by following the
+ * links from each entry to the next; they are also read a page at a time, as entries are
+ * asked for, but only up to MAX_SEQUENTIAL_ENTRIES, so that the cost of any request is bounded.
+ */
+class JdiCollection extends DebuggerCollection
+{
+    private static final int PAGE_SIZE = 64;
+    // The number of pages of an array-backed list which are kept:
+    private static final int MAX_PAGES = 16;
+    private static final int MAX_SEQUENTIAL_ENTRIES = 10000;
+    // The number of hash table slots fetched at a time:
+    private static final int TABLE_CHUNK_SIZE = 256;
+    
+    private static final Set<String> BOXED_TYPES = Set.of("java.lang.Boolean", "java.lang.Byte",
+            "java.lang.Character", "java.lang.Short", "java.lang.Integer", "java.lang.Long",
+            "java.lang.Float", "java.lang.Double");
+    
+    private final Kind kind;
+    private final int size;
+    
+    // For array-backed lists, the backing array, and the most recently used pages of it:
+    private final ArrayReference elementData;
+    private final Map<Integer, List<Value>> pages = new LinkedHashMap<>(MAX_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Value>> eldest)
+        {
+            return size() > MAX_PAGES;
+        }
+    };
+    
+    // For hash-based collections, the entries read so far:
+    private final List<Value> keys = new ArrayList<>();
+    private final List<Value> values = new ArrayList<>();
+    // The hash table (null for a linked map, which is read in insertion order instead):
+    private final ArrayReference table;
+    private final int tableLength;
+    // The next table slot to look at, and the most recently fetched table slots:
+    private int tableIndex;
+    private List<Value> tableChunk = Collections.emptyList();
+    private int tableChunkStart;
+    // The next node to read (if null, the next node is found from the table):
+    private ObjectReference nextNode;
+    // The name of the field linking each node to the next ("next" in a bucket, or "after" in a linked map):
+    private final String nextFieldName;
+    // The key, value and link fields of the nodes, once known:
+    private List<Field> nodeFields;
+    private boolean exhausted;
+    
+    /**
+     * Construct a view of an array-backed list.
+     */
+    private JdiCollection(ArrayReference elementData, int size)
+    {
+        this.kind = Kind.LIST;
+        this.elementData = elementData;
+        this.size = Math.min(size, elementData.length());
+        this.table = null;
+        this.tableLength = 0;
+        this.nextFieldName = null;
+    }
+    
+    /**
+     * Construct a view of a hash-based map or set, from either its table (for a hash map)
+     * or its first node (for a linked hash map).
+     */
+    private JdiCollection(Kind kind, int size, ArrayReference table, ObjectReference firstNode, String nextFieldName)
+    {
+        this.kind = kind;
+        this.size = size;
+        this.elementData = null;
+        this.table = table;
+        this.tableLength = table == null ? 0 : table.length();
+        this.nextNode = firstNode;
+        this.nextFieldName = nextFieldName;
+    }
+    
+    /**
+     * Get a view of the given object, if it is a recognised collection.  Otherwise returns null.
+     */
+    static JdiCollection forObject(ObjectReference obj)
+    {
+        try {
+            switch (obj.referenceType().name()) {
+                case "java.util.ArrayList":
+                    return arrayBacked(obj, "elementData", "size");
+                case "java.util.Vector":
+                case "java.util.Stack":
+                    return arrayBacked(obj, "elementData", "elementCount");
+                case "java.util.HashMap":
+                case "java.util.LinkedHashMap":
+                    return hashBased(obj, Kind.MAP);
+                case "java.util.HashSet":
+                case "java.util.LinkedHashSet":
+                    Field mapField = obj.referenceType().fieldByName("map");
+                    Value map = mapField == null ? null : obj.getValue(mapField);
+                    return map instanceof ObjectReference ? hashBased((ObjectReference) map, Kind.SET) : null;
+                default:
+                    return null;
+            }
+        }
+        catch (VMDisconnectedException | ObjectCollectedException e) {
+            return null;
+        }
+    }
+    
+    private static JdiCollection arrayBacked(ObjectReference list, String dataFieldName, String sizeFieldName)
+    {
+        ReferenceType type = list.referenceType();
+        Field dataField = type.fieldByName(dataFieldName);
+        Field sizeField = type.fieldByName(sizeFieldName);
+        if (dataField == null || sizeField == null) {
+            // Not the implementation we know
+            return null;
+        }
+        Map<Field, Value> fieldValues = list.getValues(Arrays.asList(dataField, sizeField));
+        Value data = fieldValues.get(dataField);
+        Value size = fieldValues.get(sizeField);
+        if (! (data instanceof ArrayReference) || ! (size instanceof IntegerValue)) {
+            return null;
+        }
+        return new JdiCollection((ArrayReference) data, ((IntegerValue) size).value());
+    }
+    
+    private static JdiCollection hashBased(ObjectReference map, Kind kind)
+    {
+        ReferenceType type = map.referenceType();
+        boolean linked = type.name().equals("java.util.LinkedHashMap");
+        if (! linked && ! type.name().equals("java.util.HashMap")) {
+            // e.g. a set backed by a user-defined map
+            return null;
+        }
+        Field sizeField = type.fieldByName("size");
+        Field startField = type.fieldByName(linked ? "head" : "table");
+        if (sizeField == null || startField == null) {
+            return null;
+        }
+        Map<Field, Value> fieldValues = map.getValues(Arrays.asList(sizeField, startField));
+        Value size = fieldValues.get(sizeField);
+        Value start = fieldValues.get(startField);
+        if (! (size instanceof IntegerValue)) {
+            return null;
+        }
+        if (linked) {
+            ObjectReference head = start instanceof ObjectReference ? (ObjectReference) start : null;
+            return new JdiCollection(kind, ((IntegerValue) size).value(), null, head, "after");
+        }
+        else {
+            ArrayReference table = start instanceof ArrayReference ? (ArrayReference) start : null;
+            return new JdiCollection(kind, ((IntegerValue) size).value(), table, null, "next");
+        }
+    }
+    
+    @Override
+    public Kind getKind()
+    {
+        return kind;
+    }
+    
+    @Override
+    public int size()
+    {
+        return size;
+    }
+    
+    @Override
+    public int getEntryCount()
+    {
+        return elementData != null ? size : Math.min(size, MAX_SEQUENTIAL_ENTRIES);
+    }
+    
+    @Override
+    public String getKeyString(int index)
+    {
+        if (kind != Kind.MAP) {
+            return null;
+        }
+        readEntries(index);
+        return index < keys.size() ? describeKey(keys.get(index)) : "";
+    }
+    
+    @Override
+    public String getValueString(int index)
+    {
+        try {
+            return JdiUtils.getJdiUtils().getValueString(getValue(index));
+        }
+        catch (VMDisconnectedException | ObjectCollectedException e) {
+            return "";
+        }
+    }
+    
+    @Override
+    @OnThread(Tag.FXPlatform)
+    public DebuggerObject getValueObject(int index)
+    {
+        Value value = getValue(index);
+        return JdiObject.getDebuggerObject(value instanceof ObjectReference ? (ObjectReference) value : null);
+    }
+    
+    /**
+     * Get the value at the given position, fetching the page that it is in if necessary.
+     */
+    private Value getValue(int index)
+    {
+        if (elementData != null) {
+            int pageStart = index - index % PAGE_SIZE;
+            List<Value> page = pages.get(pageStart);
+            if (page == null) {
+                page = elementData.getValues(pageStart, Math.min(PAGE_SIZE, size - pageStart));
+                pages.put(pageStart, page);
+            }
+            return page.get(index - pageStart);
+        }
+        else {
+            readEntries(index);
+            if (index >= values.size()) {
+                // The collection must have changed since we read its size
+                return null;
+            }
+            return kind == Kind.SET ? keys.get(index) : values.get(index);
+        }
+    }
+    
+    /**
+     * Read the entries of a hash-based collection up to the end of the page containing
+     * the given position (or as far as there are entries).
+     */
+    private void readEntries(int index)
+    {
+        int target = Math.min(getEntryCount(), index - index % PAGE_SIZE + PAGE_SIZE);
+        try {
+            while (keys.size() < target && ! exhausted) {
+                exhausted = ! readNextEntry();
+            }
+        }
+        catch (VMDisconnectedException | ObjectCollectedException e) {
+            exhausted = true;
+        }
+    }
+    
+    /**
+     * Read the next entry, by following the link from the previous node, or else by finding
+     * the next non-empty table slot.  Returns false if there are no more entries.
+     */
+    private boolean readNextEntry()
+    {
+        while (nextNode == null) {
+            if (tableIndex >= tableLength) {
+                return false;
+            }
+            if (tableIndex >= tableChunkStart + tableChunk.size()) {
+                tableChunkStart = tableIndex;
+                tableChunk = table.getValues(tableIndex, Math.min(TABLE_CHUNK_SIZE, tableLength - tableIndex));
+            }
+            nextNode = (ObjectReference) tableChunk.get(tableIndex - tableChunkStart);
+            tableIndex++;
+        }
+        
+        if (nodeFields == null) {
+            // All nodes share the fields (tree nodes in large buckets are a subclass of the plain node):
+            ReferenceType nodeType = nextNode.referenceType();
+            Field keyField = nodeType.fieldByName("key");
+            Field valueField = nodeType.fieldByName("value");
+            Field nextField = nodeType.fieldByName(nextFieldName);
+            if (keyField == null || valueField == null || nextField == null) {
+                return false;
+            }
+            nodeFields = Arrays.asList(keyField, valueField, nextField);
+        }
+        
+        // Fetch the key, value and link all together:
+        Map<Field, Value> nodeValues = nextNode.getValues(nodeFields);
+        keys.add(nodeValues.get(nodeFields.get(0)));
+        values.add(nodeValues.get(nodeFields.get(1)));
+        nextNode = (ObjectReference) nodeValues.get(nodeFields.get(2));
+        return true;
+    }
+    
+    /**
+     * Describe a map key.  Boxed primitives (the most common keys, after strings) are shown
+     * as their primitive value, rather than as an object reference.
+     */
+    private static String describeKey(Value key)
+    {
+        try {
+            if (key instanceof ObjectReference && ! (key instanceof StringReference)) {
+                ReferenceType type = ((ObjectReference) key).referenceType();
+                Field valueField = BOXED_TYPES.contains(type.name()) ? type.fieldByName("value") : null;
+                if (valueField != null) {
+                    key = ((ObjectReference) key).getValue(valueField);
+                }
+            }
+            return JdiUtils.getJdiUtils().getValueString(key);
+        }
+        catch (VMDisconnectedException | ObjectCollectedException e) {
+            return "";
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2014,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2014,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -24,6 +24,7 @@ package bluej.debugger.jdi;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -31,11 +32,13 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import bluej.BlueJEvent;
 import bluej.BlueJEventListener;
 import bluej.debugger.*;
 import bluej.pkgmgr.Project;
+import bluej.runtime.ExecServer;
 import bluej.utility.javafx.FXPlatformSupplier;
 import com.sun.jdi.*;
 import threadchecker.OnThread;
@@ -616,39 +619,13 @@ public class JdiDebugger extends Debugger
                 int i = 1;
                 while (i < arrayRef.length())
                 {
-                    
-                    String actualMethodName = ((StringReference) arrayRef.getValue(i)).value();
-                    String displayTestName = ((StringReference) arrayRef.getValue(i + 1)).value();
-                    String failureType = ((StringReference) arrayRef.getValue(i + 8)).value();
-                    
-                    if (failureType.equals("success"))
+                    List<String> items = new ArrayList<>(9);
+                    for (int j = 0; j < 9; j++)
                     {
-                        results.add(new JdiTestResult(className, actualMethodName, displayTestName, 0));
-                        
-                    }
-                    else
-                    {
-                        String exMsg = ((StringReference) arrayRef.getValue(i + 2)).value();
-                        String traceMsg = ((StringReference) arrayRef.getValue(i + 3)).value();
-                        String failureClass = ((StringReference) arrayRef.getValue(i + 4)).value();
-                        String failureSource = ((StringReference) arrayRef.getValue(i + 5)).value();
-                        String failureMethod = ((StringReference) arrayRef.getValue(i + 6)).value();
-                        int lineNo = Integer.parseInt(((StringReference) arrayRef.getValue(i + 7)).value());
-                        SourceLocation failPoint = new SourceLocation(failureClass, failureSource,
-                                failureMethod, lineNo);
-
-                        if (failureType.equals("failure"))
-                        {
-                            results.add(new JdiTestResultFailure(className, actualMethodName, displayTestName, exMsg, traceMsg,
-                                    failPoint, 0));
-                        }
-                        else
-                        {
-                            results.add(new JdiTestResultError(className, actualMethodName, displayTestName, exMsg, traceMsg,
-                                    failPoint, 0));
-                        }
+                        StringReference item = (StringReference) arrayRef.getValue(i + j);
+                        items.add(item == null ? null : item.value());
                     }
-
+                    results.add(makeTestResult(className, items, 0));
                     i = i + 9;
                 }
                 testResultsWithRunTime.setTotalRunTime(runTimeMs);
@@ -675,6 +652,93 @@ public class JdiDebugger extends Debugger
         }
     }
     
+    /**
+     * Make a test result from the nine items describing it (see ExecServer.runTestMethod).
+     */
+    @OnThread(Tag.Any)
+    private static DebuggerTestResult makeTestResult(String className, List<String> items, int runTimeMs)
+    {
+        String actualMethodName = items.get(0);
+        String displayTestName = items.get(1);
+        String failureType = items.get(8);
+
+        if (failureType.equals("success"))
+        {
+            return new JdiTestResult(className, actualMethodName, displayTestName, runTimeMs);
+        }
+
+        String exMsg = items.get(2);
+        String traceMsg = items.get(3);
+        String failureClass = items.get(4);
+        String failureSource = items.get(5);
+        String failureMethod = items.get(6);
+        int lineNo = items.get(7).isEmpty() ? 0 : Integer.parseInt(items.get(7));
+        SourceLocation failPoint = new SourceLocation(failureClass, failureSource,
+                failureMethod, lineNo);
+
+        if (failureType.equals("failure"))
+        {
+            return new JdiTestResultFailure(className, actualMethodName, displayTestName, exMsg, traceMsg,
+                    failPoint, runTimeMs);
+        }
+        else
+        {
+            return new JdiTestResultError(className, actualMethodName, displayTestName, exMsg, traceMsg,
+                    failPoint, runTimeMs);
+        }
+    }
+
+    /**
+     * Run all the test methods in the given test classes, in a single invocation on the
+     * debug VM, passing each result to the listener as it arrives.
+     */
+    @Override
+    @OnThread(Tag.Any)
+    public int runTestBatch(List<String> classNames, boolean parallel, Consumer<DebuggerTestResult> resultListener)
+    {
+        // Each chunk holds several results, each of ExecServer.TEST_RESULT_FIELDS fields:
+        Consumer<String> chunkParser = chunk -> {
+            String[] fields = chunk.split(String.valueOf(ExecServer.TEST_RESULT_SEPARATOR), -1);
+            // There is a separator after the last field, so one extra (empty) field:
+            for (int i = 0; i + ExecServer.TEST_RESULT_FIELDS < fields.length; i += ExecServer.TEST_RESULT_FIELDS)
+            {
+                List<String> items = Arrays.asList(fields).subList(i + 1, i + 10);
+                resultListener.accept(makeTestResult(fields[i], items, Integer.parseInt(fields[i + 10])));
+            }
+        };
+        
+        try
+        {
+            VMReference vmr = getVM();
+            synchronized (serverThreadLock)
+            {
+                StringReference runTime = null;
+                if (vmr != null)
+                {
+                    runTime = (StringReference) vmr.invokeRunTestBatch(classNames, parallel, chunkParser);
+                }
+                if (runTime == null)
+                {
+                    resultListener.accept(new JdiTestResultError(String.join(", ", classNames), "", "",
+                            "VM returned unknown result", "", null, 0));
+                    return 0;
+                }
+                return Integer.parseInt(runTime.value());
+            }
+        }
+        catch (InvocationException ie)
+        {
+            resultListener.accept(new JdiTestResultError(String.join(", ", classNames), "", "",
+                    "Internal invocation error", "", null, 0));
+            return 0;
+        }
+        catch (VMDisconnectedException vmde)
+        {
+            resultListener.accept(new JdiTestResultError("", "", "", "VM restarted", "", null, 0));
+            return 0;
+        }
+    }
+
     /**
      * Dispose all top level windows in the remote machine.
      */
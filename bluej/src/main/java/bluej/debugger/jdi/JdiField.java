@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2011,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 2011,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -44,6 +44,11 @@ public class JdiField extends DebuggerField
     @OnThread(Tag.Any)
     private final JdiObject object;
     private boolean hidden;
+    // Whether the value was fetched when this JdiField was created:
+    @OnThread(Tag.Any)
+    private final boolean prefetched;
+    @OnThread(Tag.Any)
+    private final Value value;
     
     @OnThread(Tag.Any)
     public JdiField(Field field, JdiObject object, boolean hidden)
@@ -51,6 +56,23 @@ public class JdiField extends DebuggerField
         this.field = field;
         this.object = object;
         this.hidden = hidden;
+        this.prefetched = false;
+        this.value = null;
+    }
+
+    /**
+     * Create a JdiField whose value has already been fetched (typically together with the
+     * values of the other fields of the same object, in a single request to the debug VM).
+     * The value is then not fetched again.
+     */
+    @OnThread(Tag.Any)
+    JdiField(Field field, JdiObject object, boolean hidden, Value value)
+    {
+        this.field = field;
+        this.object = object;
+        this.hidden = hidden;
+        this.prefetched = true;
+        this.value = value;
     }
 
     @Override
@@ -83,28 +105,32 @@ public class JdiField extends DebuggerField
     @SuppressWarnings("threadchecker")
     public String getValueString()
     {
-        Value value;
-        if (object != null) {
-            value = object.obj.getValue(field);
+        return JdiUtils.getJdiUtils().getValueString(getValue());
+    }
+
+    /**
+     * Get the field's value: the prefetched value if there is one, otherwise fetched now.
+     */
+    @OnThread(Tag.Any)
+    @SuppressWarnings("threadchecker")
+    private Value getValue()
+    {
+        if (prefetched) {
+            return value;
+        }
+        else if (object != null) {
+            return object.obj.getValue(field);
         }
         else {
-            value = field.declaringType().getValue(field);
+            return field.declaringType().getValue(field);
         }
-
-        return JdiUtils.getJdiUtils().getValueString(value);
     }
 
     @Override
     @OnThread(Tag.FXPlatform)
     public DebuggerObject getValueObject(JavaType expectedType)
     {
-        Value value;
-        if (object != null) {
-            value = object.obj.getValue(field);
-        }
-        else {
-            value = field.declaringType().getValue(field);
-        }
+        Value value = getValue();
         
         if (value == null) {
             return JdiObject.getDebuggerObject(null);
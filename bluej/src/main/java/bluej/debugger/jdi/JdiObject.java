@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2018,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2018,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,9 +23,11 @@ package bluej.debugger.jdi;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
 import bluej.debugger.DebuggerClass;
+import bluej.debugger.DebuggerCollection;
 import bluej.debugger.DebuggerField;
 import bluej.debugger.DebuggerObject;
 import bluej.debugger.gentype.GenTypeClass;
@@ -36,6 +38,7 @@ import com.sun.jdi.ArrayReference;
 import com.sun.jdi.Field;
 import com.sun.jdi.ObjectReference;
 import com.sun.jdi.ReferenceType;
+import com.sun.jdi.Value;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
@@ -111,6 +114,11 @@ public class JdiObject extends DebuggerObject
     GenTypeClass genType = null; // the generic type, if known
     @OnThread(Tag.Any)
     private final List<Field> fields = new ArrayList<>();
+    // Whether to keep the result of getFields() (see keepFieldValues()):
+    @OnThread(Tag.Any)
+    private boolean keepFieldValues;
+    @OnThread(Tag.Any)
+    private List<DebuggerField> keptFields;
     
     // used by JdiArray.
     protected JdiObject()
@@ -261,21 +269,54 @@ public class JdiObject extends DebuggerObject
         return obj;
     }
     
+    /**
+     * Get the fields of this object.  The values of all the fields are fetched together,
+     * in a single request to the debug VM, and the returned fields keep those values.
+     */
     @Override
     @OnThread(Tag.Any)
-    public List<DebuggerField> getFields()
+    public synchronized List<DebuggerField> getFields()
     {
+        if (keptFields != null) {
+            return new ArrayList<>(keptFields);
+        }
+        
         List<Field> visibleFields = obj.referenceType().visibleFields();
-        List<DebuggerField> rlist = new ArrayList<DebuggerField>(fields.size());
+        List<Field> shownFields = new ArrayList<>(fields.size());
         for (Field field : fields) {
             if (! checkIgnoreField(field)) {
-                boolean visible = visibleFields.remove(field);
-                rlist.add(new JdiField(field, this, !visible));
+                shownFields.add(field);
             }
         }
+        Map<Field, Value> values = obj.getValues(shownFields);
+        List<DebuggerField> rlist = new ArrayList<DebuggerField>(shownFields.size());
+        for (Field field : shownFields) {
+            boolean visible = visibleFields.remove(field);
+            rlist.add(new JdiField(field, this, !visible, values.get(field)));
+        }
+        if (keepFieldValues) {
+            keptFields = new ArrayList<>(rlist);
+        }
         return rlist;
     }
 
+    @Override
+    public DebuggerCollection getCollection()
+    {
+        return obj == null ? null : JdiCollection.forObject(obj);
+    }
+
+    /**
+     * Make getFields() return the same field values each time, rather than fetching them
+     * again.  This is for objects which are discarded when the thread that they were
+     * found in is resumed (such as the "this" object of a stack frame).
+     */
+    @OnThread(Tag.Any)
+    synchronized void keepFieldValues()
+    {
+        keepFieldValues = true;
+    }
+
     @OnThread(Tag.Any)
     private static boolean checkIgnoreField(Field f)
     {
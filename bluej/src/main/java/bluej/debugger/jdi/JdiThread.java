@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2018,2019,2020,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2018,2019,2020,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -117,6 +117,38 @@ class JdiThread extends DebuggerThread
     @OnThread(Tag.VMEventHandler)
     private final JdiDebugger debugger;
 
+    /**
+     * Values fetched from this thread's stack frames, by frame number, so that they are
+     * not fetched again (each fetch being a round-trip to the debug VM) when the same frame
+     * is shown again.  They are only valid while the thread stays suspended, so the cache
+     * is cleared whenever we resume the thread; as a safeguard, each entry also records the
+     * StackFrame it came from, since JDI gives out new StackFrames after any resume.
+     * Only accessed while synchronized on this.
+     */
+    @OnThread(Tag.Any)
+    private final Map<Integer, FrameValues> frameValues = new HashMap<>();
+
+    /**
+     * The values from one stack frame during one suspension of the thread.
+     */
+    private static class FrameValues
+    {
+        private final StackFrame frame;
+        // The visible local variables, or null if there is no debug information:
+        private final List<LocalVariable> vars;
+        private final Map<LocalVariable, Value> values;
+        // Fetched on demand:
+        private JdiObject thisObject;
+        private JdiClass declaringClass;
+
+        private FrameValues(StackFrame frame, List<LocalVariable> vars, Map<LocalVariable, Value> values)
+        {
+            this.frame = frame;
+            this.vars = vars;
+            this.values = values;
+        }
+    }
+
     // ---- instance: ----
 
     @OnThread(Tag.Any)
@@ -374,6 +406,47 @@ class JdiThread extends DebuggerThread
     }
 
 
+    /**
+     * Get the values for the given stack frame, fetching them (all the local variables in
+     * one request) if they are not already cached for the current suspension.
+     */
+    @OnThread(Tag.VMEventHandler)
+    private FrameValues getFrameValues(int frameNo) throws IncompatibleThreadStateException
+    {
+        StackFrame frame = rt.frame(frameNo);
+        synchronized (this) {
+            FrameValues cached = frameValues.get(frameNo);
+            if (cached != null && cached.frame == frame) {
+                return cached;
+            }
+        }
+        
+        List<LocalVariable> vars;
+        Map<LocalVariable, Value> values;
+        try {
+            vars = frame.visibleVariables();
+            values = frame.getValues(vars);
+        }
+        catch (AbsentInformationException aie) {
+            vars = null;
+            values = Collections.emptyMap();
+        }
+        FrameValues fetched = new FrameValues(frame, vars, values);
+        synchronized (this) {
+            frameValues.put(frameNo, fetched);
+        }
+        return fetched;
+    }
+
+    /**
+     * Forget the cached frame values, because the thread is being resumed.
+     */
+    @OnThread(Tag.Any)
+    private synchronized void clearFrameValues()
+    {
+        frameValues.clear();
+    }
+
     /**
      * Return strings listing the local variables.
      *
@@ -386,14 +459,18 @@ class JdiThread extends DebuggerThread
     {
         try {
             if(rt.isSuspended()) {
-                StackFrame frame = rt.frame(frameNo);
-                List<LocalVariable> vars = frame.visibleVariables();
+                FrameValues frameVals = getFrameValues(frameNo);
+                if (frameVals.vars == null) {
+                    return new ArrayList<>();
+                }
+                StackFrame frame = frameVals.frame;
+                List<LocalVariable> vars = frameVals.vars;
                 List<FXPlatformSupplier<VarDisplayInfo>> localVars = new ArrayList<>();
                 
                 // To work around a JDI bug (probably related to the other one described
                 // below) we collect information we need about the variables on the
                 // stack frame before we do anything which might cause types to be
-                // loaded:
+                // loaded.  The values themselves were all fetched together, already.
                 
                 List<String> localVals = new ArrayList<String>();
                 List<Type> localTypes = new ArrayList<Type>();
@@ -403,7 +480,7 @@ class JdiThread extends DebuggerThread
                 
                 for(int i = 0; i < vars.size(); i++) {
                     LocalVariable var = vars.get(i);
-                    String val = JdiUtils.getJdiUtils().getValueString(frame.getValue(var));
+                    String val = JdiUtils.getJdiUtils().getValueString(frameVals.values.get(var));
                     localVals.add(val);
                     
                     try {
@@ -436,7 +513,6 @@ class JdiThread extends DebuggerThread
             }
         }
         catch (IncompatibleThreadStateException itse) { }
-        catch (AbsentInformationException ase) { }
         catch (VMDisconnectedException vmde) { }
         catch (InvalidStackFrameException e) {
             // This shouldn't happen, as we've checked the thread status, 
@@ -445,6 +521,7 @@ class JdiThread extends DebuggerThread
             // Occurs (at least) in JDK 1.6.0_25.
             try {
                 Thread.sleep(100);
+                clearFrameValues();
                 return getLocalVariables(frameNo);
             }
             catch (InterruptedException ie) {}
@@ -462,14 +539,12 @@ class JdiThread extends DebuggerThread
         {
             if (rt.isSuspended())
             {
-                StackFrame frame = rt.frame(frameNo);
-                List<LocalVariable> vars = frame.visibleVariables();
-                if (index >= vars.size())
+                FrameValues frameVals = getFrameValues(frameNo);
+                if (frameVals.vars == null || index >= frameVals.vars.size())
                 {
                     return false;
                 }
-                LocalVariable var = vars.get(index);
-                Value val = frame.getValue(var);
+                Value val = frameVals.values.get(frameVals.vars.get(index));
                 return (val instanceof ObjectReference);
             }
             else
@@ -500,11 +575,10 @@ class JdiThread extends DebuggerThread
     {
         try {
             if(rt.isSuspended()) {
-                StackFrame frame = rt.frame(frameNo);
-                List<LocalVariable> vars = frame.visibleVariables();
-                LocalVariable var = vars.get(index);
-                FXPlatformSupplier<JavaType> vartype = JdiReflective.fromLocalVar(frame, var);
-                ObjectReference val = (ObjectReference)frame.getValue(var);
+                FrameValues frameVals = getFrameValues(frameNo);
+                LocalVariable var = frameVals.vars.get(index);
+                FXPlatformSupplier<JavaType> vartype = JdiReflective.fromLocalVar(frameVals.frame, var);
+                ObjectReference val = (ObjectReference)frameVals.values.get(var);
                 return () -> JdiObject.getDebuggerObject(val, vartype.get());
             }
             else
@@ -526,10 +600,8 @@ class JdiThread extends DebuggerThread
     {
         try {
             if(rt.isSuspended()) {
-                StackFrame frame = rt.frame(frameNo);
-                List<LocalVariable> vars = frame.visibleVariables();
-                LocalVariable var = vars.get(index);
-                ObjectReference val = (ObjectReference)frame.getValue(var);
+                FrameValues frameVals = getFrameValues(frameNo);
+                ObjectReference val = (ObjectReference)frameVals.values.get(frameVals.vars.get(index));
                 return JdiObject.getDebuggerObject(val);
             }
             else
@@ -543,14 +615,25 @@ class JdiThread extends DebuggerThread
         return null;
     }
 
+    /**
+     * Get the "this" object for the given frame.  The object's field values are fetched
+     * (together) the first time they are asked for, and then kept for as long as this
+     * thread stays suspended.
+     */
     @Override
     @OnThread(Tag.VMEventHandler)
     public DebuggerObject getCurrentObject(int frameNo)
     {
         try {
             if(rt.isSuspended()) {
-                StackFrame frame = rt.frame(frameNo);
-                return JdiObject.getDebuggerObject(frame.thisObject());
+                FrameValues frameVals = getFrameValues(frameNo);
+                synchronized (this) {
+                    if (frameVals.thisObject == null) {
+                        frameVals.thisObject = JdiObject.getDebuggerObject(frameVals.frame.thisObject());
+                        frameVals.thisObject.keepFieldValues();
+                    }
+                    return frameVals.thisObject;
+                }
             }
         }
         catch (IndexOutOfBoundsException e) { }
@@ -560,14 +643,24 @@ class JdiThread extends DebuggerThread
         return JdiObject.getDebuggerObject(null);
     }
 
+    /**
+     * Get the class for the given frame.  As with getCurrentObject, the values of its
+     * static fields are kept for as long as this thread stays suspended.
+     */
     @Override
     @OnThread(Tag.VMEventHandler)
     public DebuggerClass getCurrentClass(int frameNo)
     {
         try {
             if(rt.isSuspended()) {
-                StackFrame frame = rt.frame(frameNo);
-                return new JdiClass(frame.location().declaringType());
+                FrameValues frameVals = getFrameValues(frameNo);
+                synchronized (this) {
+                    if (frameVals.declaringClass == null) {
+                        frameVals.declaringClass = new JdiClass(frameVals.frame.location().declaringType());
+                        frameVals.declaringClass.keepFieldValues();
+                    }
+                    return frameVals.declaringClass;
+                }
             }
         }
         catch (InvalidStackFrameException isfe) { }
@@ -617,6 +710,7 @@ class JdiThread extends DebuggerThread
         try {
             if (isSuspended) {
                 debugger.emitThreadResumedEvent(this);
+                clearFrameValues();
                 rt.resume();
                 isSuspended = false;
             }
@@ -634,6 +728,8 @@ class JdiThread extends DebuggerThread
         synchronized (this)
         {
             isSuspended = true;
+            // Anything cached is from before the thread last ran:
+            frameValues.clear();
         }
         clearPreviousStep(rt);
     }
@@ -680,6 +776,7 @@ class JdiThread extends DebuggerThread
         synchronized (this) {
             if (isSuspended) {
                 debugger.emitThreadResumedEvent(this);
+                clearFrameValues();
                 rt.resume();
                 isSuspended = false;
             }
@@ -751,6 +848,7 @@ class JdiThread extends DebuggerThread
     @SuppressWarnings("threadchecker") // The server thread is special, and can be resumed from another thread.
     public synchronized void contServerThread()
     {
+        clearFrameValues();
         rt.resume();
         isSuspended = false;
     }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2012,2014,2019,2020,2021,2023  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2012,2014,2019,2020,2021,2023,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -177,6 +177,10 @@ class VMEventHandler extends Thread
                     {
                         Event ev = it.nextEvent();
 
+                        if (ev instanceof BreakpointEvent)
+                        {
+                            vm.rearmBreakpoint((BreakpointEvent) ev);
+                        }
                         examineSaidSkipUpdates |= screenEvent(ev);
 
                         // for breakpoint and step events, we may want
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -39,6 +39,7 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import bluej.debugger.Debugger.EventHandlerRunnable;
 import bluej.debugger.RunOnThread;
@@ -88,6 +89,7 @@ import com.sun.jdi.VirtualMachineManager;
 import com.sun.jdi.connect.Connector;
 import com.sun.jdi.connect.Connector.Argument;
 import com.sun.jdi.connect.ListeningConnector;
+import com.sun.jdi.event.BreakpointEvent;
 import com.sun.jdi.event.ExceptionEvent;
 import com.sun.jdi.event.LocatableEvent;
 import com.sun.jdi.event.ThreadDeathEvent;
@@ -148,6 +150,12 @@ public class VMReference
     // the name of the method used to show  the terminal on input
     public static final String SERVER_SHOW_TERMINAL_ON_INPUT_NAME = "showTerminalOnInput";
 
+    // the breakpoint request property holding the properties the breakpoint was set with
+    // (for breakpoints which must be recreated after they fire)
+    private static final String BREAKPOINT_PROPERTIES = "VMReference.BREAKPOINT_PROPERTIES";
+    // How often to fetch results while running a batch of tests:
+    private static final int TEST_RESULT_POLL_MS = 100;
+
     // A map which can be used to map instances of VirtualMachine to VMReference 
     private static Map<VirtualMachine, VMReference> vmToReferenceMap = new HashMap<VirtualMachine, VMReference>();
     
@@ -1400,17 +1408,7 @@ public class VMReference
         if (location == null) {
             return false;
         }
-        EventRequestManager erm = machine.eventRequestManager();
-        BreakpointRequest bpreq = erm.createBreakpointRequest(location);
-        bpreq.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
-        bpreq.putProperty(VMEventHandler.DONT_RESUME, "yes");
-        if (properties != null) {
-            for (Map.Entry<String, String> property : properties.entrySet()) {
-                bpreq.putProperty(property.getKey(), property.getValue());
-            }
-        }
-        bpreq.enable();
-
+        setBreakpoint(location, properties);
         return true;
     }
 
@@ -1430,8 +1428,30 @@ public class VMReference
         }
     }
     
+    /**
+     * Set a breakpoint at the given location.  If the properties include a hit count
+     * (Debugger.BREAKPOINT_HIT_COUNT_PROPERTY), the hits are counted by the debug VM, so
+     * the thread is only suspended (and the IDE only told) on every Nth hit; a count of 1
+     * stops on every hit, and a count below 1 throws an IllegalArgumentException.
+     */
     void setBreakpoint(Location location, Map<String,String> properties)
     {
+        int hitCount = 0;
+        if (properties != null) {
+            String hitCountText = properties.get(Debugger.BREAKPOINT_HIT_COUNT_PROPERTY);
+            if (hitCountText != null) {
+                try {
+                    hitCount = Integer.parseInt(hitCountText.trim());
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid breakpoint hit count: " + hitCountText);
+                }
+                if (hitCount < 1) {
+                    throw new IllegalArgumentException("Breakpoint hit count must be at least 1: " + hitCountText);
+                }
+            }
+        }
+        
         EventRequestManager erm = machine.eventRequestManager();
         BreakpointRequest bpreq = erm.createBreakpointRequest(location);
         bpreq.setSuspendPolicy(EventRequest.SUSPEND_EVENT_THREAD);
@@ -1441,8 +1461,34 @@ public class VMReference
                 bpreq.putProperty(property.getKey(), property.getValue());
             }
         }
+        if (hitCount > 1) {
+            bpreq.addCountFilter(hitCount);
+            // Kept so that the request can be recreated (see rearmBreakpoint):
+            bpreq.putProperty(BREAKPOINT_PROPERTIES, new HashMap<>(properties));
+        }
         bpreq.enable();
     }
+
+    /**
+     * A breakpoint has been hit.  If it has a hit count, its count filter has now expired
+     * (a count filter only fires once), so replace the request to count the next N hits.
+     */
+    @OnThread(Tag.VMEventHandler)
+    void rearmBreakpoint(BreakpointEvent event)
+    {
+        EventRequest request = event.request();
+        if (! (request instanceof BreakpointRequest)) {
+            return;
+        }
+        BreakpointRequest bpreq = (BreakpointRequest) request;
+        
+        @SuppressWarnings("unchecked")
+        Map<String, String> properties = (Map<String, String>) bpreq.getProperty(BREAKPOINT_PROPERTIES);
+        if (properties != null) {
+            machine.eventRequestManager().deleteEventRequest(bpreq);
+            setBreakpoint(bpreq.location(), properties);
+        }
+    }
     
     // As above but sets the breakpoint on the first line of a given method
     @OnThread(Tag.FXPlatform)
@@ -1899,6 +1945,78 @@ public class VMReference
         return rval;
     }
 
+    /**
+     * Run all the tests in the given test classes, in a single invocation.  While the
+     * tests run, the chunks of results which the debug VM publishes (see
+     * ExecServer.runTestBatch) are fetched every TEST_RESULT_POLL_MS and passed to the
+     * given consumer, on this thread.
+     * 
+     * @param classNames  The test classes to run
+     * @param parallel    Whether the classes may be run in parallel
+     * @param resultChunks  The consumer for each chunk of results
+     * @return  The runtime of executing all the tests in milliseconds, as a StringReference,
+     *          or null if the execution failed.
+     * @throws InvocationException
+     */
+    public Value invokeRunTestBatch(List<String> classNames, boolean parallel, Consumer<String> resultChunks)
+        throws InvocationException
+    {
+        // Calls to this method are serialized via serverThreadLock in JdiDebugger
+
+        serverThreadStartWait();
+        
+        setStaticFieldObject(serverClass, ExecServer.CLASS_TO_RUN_NAME, String.join("\n", classNames));
+        setStaticFieldValue(serverClass, ExecServer.TESTS_IN_PARALLEL_NAME, machine.mirrorOf(parallel));
+        setStaticFieldValue(serverClass, ExecServer.EXEC_ACTION_NAME, machine.mirrorOf(ExecServer.TEST_RUN_BATCH));
+
+        // Resume the thread, and fetch results until it finishes and the new thread starts
+        serverThreadStarted = false;
+        resumeServerThread();
+        Field countField = serverClass.fieldByName(ExecServer.TEST_RESULT_CHUNK_COUNT_NAME);
+        int chunksRead = 0;
+        boolean finished = false;
+        while (! finished) {
+            synchronized (this) {
+                try {
+                    if (!serverThreadStarted) {
+                        if (exitStatus == Debugger.TERMINATED_BY_BLUEJ || exitStatus == Debugger.TERMINATED_BY_USER_SYSTEM_EXIT)
+                            throw new VMDisconnectedException();
+                        wait(TEST_RESULT_POLL_MS);
+                    }
+                }
+                catch (InterruptedException ie) {}
+                finished = serverThreadStarted;
+            }
+            
+            // Reading static fields doesn't need the VM to be suspended:
+            int chunkCount = ((IntegerValue) serverClass.getValue(countField)).value();
+            if (chunkCount > chunksRead) {
+                try {
+                    // The array is only replaced by a larger copy, so it holds at least chunkCount chunks:
+                    ArrayReference chunks = (ArrayReference) getStaticFieldObject(serverClass, ExecServer.TEST_RESULT_CHUNKS_NAME);
+                    for (Value chunk : chunks.getValues(chunksRead, chunkCount - chunksRead)) {
+                        resultChunks.accept(((StringReference) chunk).value());
+                    }
+                    chunksRead = chunkCount;
+                }
+                catch (ObjectCollectedException oce) {
+                    // The array was replaced just after we read it, so read it again:
+                    finished = false;
+                }
+            }
+        }
+        
+        Value rval = getStaticFieldObject(serverClass, ExecServer.METHOD_RETURN_NAME);
+        if (rval == null) {
+            ObjectReference e = getStaticFieldObject(serverClass, ExecServer.EXCEPTION_NAME);
+            if (e != null) {
+                exceptionEvent(new InvocationException(e));
+                throw new InvocationException(e);
+            }
+        }
+        return rval;
+    }
+
     /**
      * Dispose of all gui windows opened from the debug vm.
      */
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -34,6 +34,7 @@ import bluej.debugger.VarDisplayInfo;
 import bluej.pkgmgr.Project;
 import bluej.pkgmgr.Project.DebuggerThreadDetails;
 import bluej.prefmgr.PrefMgr;
+import bluej.utility.Debug;
 import bluej.utility.JavaNames;
 import bluej.utility.Utility;
 import bluej.utility.javafx.FXAbstractAction;
@@ -77,6 +78,8 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import com.sun.jdi.VMDisconnectedException;
 
@@ -151,6 +154,20 @@ public class ExecControls
     @OnThread(value = Tag.Any, requireSynchronized = true)
     private DebuggerThreadDetails selectedThread;
     private Label stackPlaceholder;
+    // Incremented whenever the details shown for the selected thread become out of date
+    // (because it has been suspended again, or another thread has been selected).  Details
+    // fetched for an older generation are not shown, so that when the user steps repeatedly,
+    // only the latest suspension is fetched and shown:
+    @OnThread(Tag.Any)
+    private final AtomicInteger detailsGeneration = new AtomicInteger();
+    // When the user last asked to step (from System.nanoTime()), or 0 if none is pending:
+    @OnThread(Tag.Any)
+    private final AtomicLong stepRequestTime = new AtomicLong();
+    // Statistics for the time from asking to step to seeing the result:
+    private int stepsTimed;
+    private long totalStepMillis;
+    private long maxStepMillis;
+    private static final long SLOW_STEP_MILLIS = 500;
 
 
     /**
@@ -213,6 +230,7 @@ public class ExecControls
         window.setOnHidden(e -> {
             DataCollector.debuggerChangeVisible(project, false);
             showingProperty.set(false);
+            logStepTimes();
         });
         // showingProperty should mirror the window state.  Note that it
         // can be set either externally as a request to show the window,
@@ -307,7 +325,10 @@ public class ExecControls
             {
                 sel.update();
             }
-            setThreadDetails(sel);
+            // Fetch the details after any events which are already waiting (such as a
+            // further step), so that a run of steps only fetches the last one's details:
+            int generation = detailsGeneration.incrementAndGet();
+            project.getDebugger().runOnEventHandler(() -> setThreadDetails(sel, generation));
             if (!isSingleThreadMode())
             {
                 Platform.runLater(() -> {
@@ -342,6 +363,7 @@ public class ExecControls
             {
                 selectedThread = null;
             }
+            detailsGeneration.incrementAndGet();
             cannotHalt.set(true);
             cannotStepOrContinue.set(true);
             stackList.getItems().clear();
@@ -353,7 +375,8 @@ public class ExecControls
             {
                 selectedThread = dt;
             }
-            project.getDebugger().runOnEventHandler(() -> setThreadDetails(dt));
+            int generation = detailsGeneration.incrementAndGet();
+            project.getDebugger().runOnEventHandler(() -> setThreadDetails(dt, generation));
             stackPlaceholder.setText(removeHTML(Config.getString("debugger.threadRunning")));
         }
     }
@@ -361,17 +384,41 @@ public class ExecControls
     /**
      * Display the details for the currently selected thread.
      * These details include showing the threads stack, and displaying 
-     * the details for the top stack frame.
+     * the details for the top stack frame.  The details of other frames
+     * are only fetched if the user selects them.
+     * 
+     * If the given generation is no longer the latest, the thread has been
+     * suspended again (or another selected) since this was requested, and
+     * nothing is fetched or shown.
      */
     @OnThread(Tag.VMEventHandler)
-    private void setThreadDetails(DebuggerThreadDetails dt)
+    private void setThreadDetails(DebuggerThreadDetails dt, int generation)
     {
+        if (generation != detailsGeneration.get())
+        {
+            return;
+        }
+        
         //Copy the list because we may alter it:
         List<SourceLocation> stack = new ArrayList<>(dt.getThread().getStack());
         List<SourceLocation> filtered = Arrays.asList(getFilteredStack(stack));
 
         boolean isSuspended = dt.isSuspended();
+        // Fetch the top frame's details along with the stack, rather than after the
+        // stack has been shown and its top frame selected:
+        FrameDetails topFrame = null;
+        if (isSuspended && filtered.size() > 0)
+        {
+            topFrame = getStackFrameDetails(dt.getThread(), 0);
+            dt.getThread().setSelectedFrame(0);
+        }
+        FrameDetails topFrameFinal = topFrame;
         Platform.runLater(() -> {
+            if (generation != detailsGeneration.get())
+            {
+                // Superseded while we were fetching:
+                return;
+            }
             cannotHalt.set(isSuspended);
             cannotStepOrContinue.set(!isSuspended);
 
@@ -382,9 +429,57 @@ public class ExecControls
                 autoSelectionEvent = true;
                 stackList.getSelectionModel().select(0);
                 autoSelectionEvent = false;
+                if (topFrameFinal != null)
+                {
+                    showStackFrameDetails(topFrameFinal);
+                }
+                else
+                {
+                    DebuggerThread thread = dt.getThread();
+                    project.getDebugger().runOnEventHandler(() -> stackFrameSelectionChanged(thread, 0, false, generation));
+                }
+            }
+            if (isSuspended)
+            {
+                recordStepShown();
             }
         });
     }
+
+    /**
+     * Record the time from the user asking to step to the result being shown.
+     */
+    private void recordStepShown()
+    {
+        long requested = stepRequestTime.getAndSet(0);
+        if (requested == 0)
+        {
+            return;
+        }
+        long millis = (System.nanoTime() - requested) / 1_000_000;
+        stepsTimed += 1;
+        totalStepMillis += millis;
+        maxStepMillis = Math.max(maxStepMillis, millis);
+        if (millis >= SLOW_STEP_MILLIS)
+        {
+            Debug.log("Debugger step took " + millis + "ms to display");
+        }
+    }
+
+    /**
+     * Log (and reset) the statistics for step-to-display times.
+     */
+    private void logStepTimes()
+    {
+        if (stepsTimed > 0)
+        {
+            Debug.log("Debugger step-to-display times: " + stepsTimed + " steps, mean "
+                    + (totalStepMillis / stepsTimed) + "ms, max " + maxStepMillis + "ms");
+            stepsTimed = 0;
+            totalStepMillis = 0;
+            maxStepMillis = 0;
+        }
+    }
     
     @OnThread(Tag.Any)
     public static SourceLocation [] getFilteredStack(List<SourceLocation> stack)
@@ -461,10 +556,17 @@ public class ExecControls
      * displayed, as well as the current source position being marked.
      */
     @OnThread(Tag.VMEventHandler)
-    private void stackFrameSelectionChanged(DebuggerThread thread, int index, boolean showSource)
+    private void stackFrameSelectionChanged(DebuggerThread thread, int index, boolean showSource, int generation)
     {
-        if (index >= 0) {
-            setStackFrameDetails(thread, index);
+        if (thread != null && index >= 0 && generation == detailsGeneration.get()) {
+            FrameDetails details = getStackFrameDetails(thread, index);
+            if (details != null) {
+                Platform.runLater(() -> {
+                    if (generation == detailsGeneration.get()) {
+                        showStackFrameDetails(details);
+                    }
+                });
+            }
             thread.setSelectedFrame(index);
                 
             if (showSource) {
@@ -485,11 +587,31 @@ public class ExecControls
     }
 
     /**
-     * Display the detail information (current object fields and local var's)
-     * for a specific stack frame.
+     * The detail information (current object fields and local var's) for a stack frame.
+     */
+    private static class FrameDetails
+    {
+        private final List<FXPlatformSupplier<VarDisplayInfo>> staticVars;
+        private final List<FXPlatformSupplier<VarDisplayInfo>> instanceVars;
+        private final List<FXPlatformSupplier<VarDisplayInfo>> localVars;
+
+        @OnThread(Tag.Any)
+        private FrameDetails(List<FXPlatformSupplier<VarDisplayInfo>> staticVars,
+                List<FXPlatformSupplier<VarDisplayInfo>> instanceVars,
+                List<FXPlatformSupplier<VarDisplayInfo>> localVars)
+        {
+            this.staticVars = staticVars;
+            this.instanceVars = instanceVars;
+            this.localVars = localVars;
+        }
+    }
+
+    /**
+     * Fetch the detail information (current object fields and local var's)
+     * for a specific stack frame.  Returns null if the VM has gone.
      */
     @OnThread(Tag.VMEventHandler)
-    private void setStackFrameDetails(DebuggerThread thread, int frameNo)
+    private FrameDetails getStackFrameDetails(DebuggerThread thread, int frameNo)
     {
         try {
             DebuggerClass currentClass = thread.getCurrentClass(frameNo);
@@ -527,20 +649,24 @@ public class ExecControls
             
             List<FXPlatformSupplier<VarDisplayInfo>> localVariables = thread.getLocalVariables(frameNo);
             
-            Platform.runLater(() -> {
-                staticList.getItems().setAll(Utility.mapList(staticVars, v -> v.get()));
-                instanceList.getItems().setAll(Utility.mapList(instanceVars, v -> v.get()));
-                localList.getItems().setAll(Utility.mapList(localVariables, v -> v.get()));
-            });
-            
-            
+            return new FrameDetails(staticVars, instanceVars, localVariables);
         }
         catch (VMDisconnectedException vmde)
         {
-            // Do nothing.
+            return null;
         }
     }
 
+    /**
+     * Display the detail information fetched for a stack frame.
+     */
+    private void showStackFrameDetails(FrameDetails details)
+    {
+        staticList.getItems().setAll(Utility.mapList(details.staticVars, v -> v.get()));
+        instanceList.getItems().setAll(Utility.mapList(details.instanceVars, v -> v.get()));
+        localList.getItems().setAll(Utility.mapList(details.localVars, v -> v.get()));
+    }
+
     /**
      * Create and arrange the GUI components.
      * @param debuggerThreads
@@ -578,10 +704,14 @@ public class ExecControls
         JavaFXUtil.addStyleClass(stackList, "debugger-stack");
         stackList.styleProperty().bind(PrefMgr.getEditorFontCSS(PrefMgr.FontCSS.EDITOR_SIZE_ONLY));
         JavaFXUtil.addChangeListenerPlatform(stackList.getSelectionModel().selectedIndexProperty(), index -> {
+            // The top frame is selected automatically when the stack is shown, and its
+            // details are fetched along with the stack, so there's nothing to do then:
+            if (autoSelectionEvent)
+                return;
             DebuggerThread thread = getSelectedThreadDetails() == null ? null : getSelectedThreadDetails().getThread();
-            boolean showSource = !autoSelectionEvent;
+            int generation = detailsGeneration.get();
             project.getDebugger().runOnEventHandler(() -> {
-                stackFrameSelectionChanged(thread, index.intValue(), showSource);
+                stackFrameSelectionChanged(thread, index.intValue(), true, generation);
             });
         });
         stackPlaceholder = new Label(removeHTML(Config.getString("debugger.threadRunning")));
@@ -711,6 +841,7 @@ public class ExecControls
             clearThreadDetails();
             project.removeStepMarks();
             if (details.isSuspended()) {
+                stepRequestTime.set(System.nanoTime());
                 project.getDebugger().runOnEventHandler(() -> details.getThread().step());
             }
             project.updateInspectors();
@@ -771,6 +902,7 @@ public class ExecControls
             clearThreadDetails();
             project.removeStepMarks();
             if (details.isSuspended()) {
+                stepRequestTime.set(System.nanoTime());
                 project.getDebugger().runOnEventHandler(() -> details.getThread().stepInto());
             }
         }
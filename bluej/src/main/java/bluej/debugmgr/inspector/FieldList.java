@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2013,2016,2017,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2013,2016,2017,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -59,11 +59,17 @@ public class FieldList extends ScrollPane
 {
     private final static Image objectrefIcon = Config.getImageAsFXImage("image.inspector.objectref");
     private static final double ROW_HEIGHT = 30;
+    // In paged mode, the number of rows either side of the visible rows which also get nodes:
+    private static final int PAGED_MARGIN_ROWS = 10;
     
     // The actual list of fields, inside our ScrollPane:
     private final ContentPane content = new ContentPane();
     // The latest data:
     private final List<FieldInfo> curData = new ArrayList<>();
+    // The latest data, if it is paged (in which case curData is empty).  Only the rows
+    // near the visible part of the list have nodes; the first of those is firstShownRow:
+    private LazyFieldInfoList pagedData;
+    private int firstShownRow;
     // The currently selected row index:
     private final IntegerProperty selectedRow = new SimpleIntegerProperty(-1);
     // A placeholder shown where are no fields:
@@ -82,6 +88,8 @@ public class FieldList extends ScrollPane
         setVbarPolicy(ScrollBarPolicy.AS_NEEDED);
         setHbarPolicy(ScrollBarPolicy.NEVER);
         setFitToWidth(true);
+        JavaFXUtil.addChangeListenerPlatform(vvalueProperty(), v -> showPagedRows(false));
+        JavaFXUtil.addChangeListenerPlatform(viewportBoundsProperty(), b -> showPagedRows(false));
     }
 
     /**
@@ -89,7 +97,7 @@ public class FieldList extends ScrollPane
      */
     public void down()
     {
-        select(Math.min(curData.size() - 1, selectedRow.get() + 1));
+        select(Math.min(getRowCount() - 1, selectedRow.get() + 1));
     }
 
     /**
@@ -102,46 +110,120 @@ public class FieldList extends ScrollPane
 
     /**
      * Sets the new fields and values.  If this is identical, the update is skipped.
+     * 
+     * If the data is a LazyFieldInfoList, the list is paged: only the rows near the
+     * visible part of the list are fetched and given nodes, as the list is scrolled.
      */
     public void setData(List<FieldInfo> listData)
     {
-        if (listData.equals(curData))
-            return;
-        
-        List<Node> children = new ArrayList<>();
-        for (int i = 0; i < listData.size(); i++)
+        if (listData instanceof LazyFieldInfoList)
+        {
+            pagedData = (LazyFieldInfoList) listData;
+            curData.clear();
+            content.setRowCount(pagedData.size());
+            showPagedRows(true);
+        }
+        else
         {
-            FieldInfo field = listData.get(i);
-            Label valueLabel = new Label(field.getValue());
-            if (OBJECT_REFERENCE.equals(valueLabel.getText()))
+            if (pagedData == null && listData.equals(curData))
+                return;
+            
+            pagedData = null;
+            firstShownRow = 0;
+            content.setRowCount(-1);
+            content.setFirstRow(0);
+            List<Node> children = new ArrayList<>();
+            for (int i = 0; i < listData.size(); i++)
             {
-                valueLabel.setGraphic(new ImageView(objectrefIcon));
-                valueLabel.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+                addRowNodes(children, listData.get(i), i);
             }
-            Pane wrapper = new BorderPane(valueLabel);
-            JavaFXUtil.addStyleClass(wrapper, "inspector-field-value-wrapper");
-            JavaFXUtil.addStyleClass(valueLabel, "inspector-field-value-label");
-            Label descriptionLabel = new Label(field.getDescription());
-            JavaFXUtil.addStyleClass(descriptionLabel, "inspector-field-description");
-            descriptionLabel.setTextOverrun(OverrunStyle.LEADING_WORD_ELLIPSIS);
-            children.add(descriptionLabel);
-            children.add(wrapper);
-
-            int iFinal = i;
-            descriptionLabel.setOnMouseClicked(e -> select(iFinal));
-            wrapper.setOnMouseClicked(e -> select(iFinal));
+            content.getChildren().setAll(children);
+            content.setVisible(!children.isEmpty());
+            placeholderLabel.setVisible(children.isEmpty());
+            curData.clear();
+            curData.addAll(listData);
         }
-        content.getChildren().setAll(children);
-        content.setVisible(!children.isEmpty());
-        placeholderLabel.setVisible(children.isEmpty());
-        curData.clear();
-        curData.addAll(listData);
         // Make sure graphics are refreshed by changing the selection back and forth:
         int sel = selectedRow.get();
         select(-1);
         select(sel);
         requestLayout();
     }
+
+    /**
+     * Adds the nodes (description, then value) for the given row.
+     */
+    private void addRowNodes(List<Node> children, FieldInfo field, int row)
+    {
+        Label valueLabel = new Label(field.getValue());
+        if (OBJECT_REFERENCE.equals(valueLabel.getText()))
+        {
+            valueLabel.setGraphic(new ImageView(objectrefIcon));
+            valueLabel.setContentDisplay(ContentDisplay.GRAPHIC_ONLY);
+        }
+        Pane wrapper = new BorderPane(valueLabel);
+        JavaFXUtil.addStyleClass(wrapper, "inspector-field-value-wrapper");
+        JavaFXUtil.addStyleClass(valueLabel, "inspector-field-value-label");
+        Label descriptionLabel = new Label(field.getDescription());
+        JavaFXUtil.addStyleClass(descriptionLabel, "inspector-field-description");
+        descriptionLabel.setTextOverrun(OverrunStyle.LEADING_WORD_ELLIPSIS);
+        children.add(descriptionLabel);
+        children.add(wrapper);
+
+        descriptionLabel.setOnMouseClicked(e -> select(row));
+        wrapper.setOnMouseClicked(e -> select(row));
+    }
+
+    /**
+     * In paged mode, makes sure that the rows near the visible part of the list have
+     * nodes (and no others do).  If force is true, the nodes are remade even if the
+     * same rows already have nodes, because the data has changed.
+     */
+    private void showPagedRows(boolean force)
+    {
+        if (pagedData == null)
+            return;
+        
+        int rowCount = pagedData.size();
+        double viewportHeight = getViewportBounds().getHeight();
+        double top = getScrollTop(viewportHeight);
+        int first = Math.max(0, (int)(top / ROW_HEIGHT) - PAGED_MARGIN_ROWS);
+        int last = Math.min(rowCount, (int)Math.ceil((top + viewportHeight) / ROW_HEIGHT) + PAGED_MARGIN_ROWS);
+        if (!force && first == firstShownRow && content.getChildren().size() == (last - first) * 2)
+            return;
+        
+        List<Node> children = new ArrayList<>();
+        for (int i = first; i < last; i++)
+        {
+            addRowNodes(children, pagedData.get(i), i);
+        }
+        firstShownRow = first;
+        content.setFirstRow(first);
+        content.getChildren().setAll(children);
+        content.setVisible(rowCount > 0);
+        placeholderLabel.setVisible(rowCount == 0);
+        for (int i = 0; i < children.size(); i += 2)
+        {
+            boolean selected = firstShownRow + i / 2 == selectedRow.get();
+            JavaFXUtil.setPseudoclass("bj-selected", selected, children.get(i), children.get(i + 1));
+        }
+    }
+
+    /**
+     * Gets the position of the top of the viewport, within the content, for paged mode
+     * (where all rows are known to be ROW_HEIGHT high).
+     */
+    private double getScrollTop(double viewportHeight)
+    {
+        double contentHeight = pagedData.size() * ROW_HEIGHT;
+        double range = getVmax() - getVmin();
+        return range == 0 ? 0 : Math.max(0, contentHeight - viewportHeight) * (getVvalue() - getVmin()) / range;
+    }
+
+    private int getRowCount()
+    {
+        return pagedData != null ? pagedData.size() : curData.size();
+    }
     
     /**
      * Sets the text to show when the list is empty
@@ -168,12 +250,25 @@ public class FieldList extends ScrollPane
             return;
         
         selectedRow.set(index);
+        if (pagedData != null && index >= 0)
+        {
+            // Scroll the row into view; that will also give it nodes, if it has none:
+            double viewportHeight = getViewportBounds().getHeight();
+            double contentHeight = pagedData.size() * ROW_HEIGHT;
+            double top = getScrollTop(viewportHeight);
+            double rowTop = index * ROW_HEIGHT;
+            double newTop = rowTop < top ? rowTop : (rowTop + ROW_HEIGHT > top + viewportHeight ? rowTop + ROW_HEIGHT - viewportHeight : top);
+            if (newTop != top && contentHeight > viewportHeight)
+            {
+                setVvalue(getVmin() + (getVmax() - getVmin()) * newTop / (contentHeight - viewportHeight));
+            }
+        }
         ObservableList<Node> children = content.getChildren();
         for (int i = 0; i < children.size(); i += 2)
         {
-            boolean selected = i / 2 == index;
+            boolean selected = firstShownRow + i / 2 == index;
             JavaFXUtil.setPseudoclass("bj-selected", selected, children.get(i), children.get(i + 1));
-            if (selected && (children.get(i).localToScene(0, 0).getY() < localToScene(0, 0).getY() || children.get(i).localToScene(0, ROW_HEIGHT).getY() > localToScene(0, getHeight()).getY()))
+            if (selected && pagedData == null && (children.get(i).localToScene(0, 0).getY() < localToScene(0, 0).getY() || children.get(i).localToScene(0, ROW_HEIGHT).getY() > localToScene(0, getHeight()).getY()))
             {
                 JavaFXUtil.scrollTo(this, children.get(i));
             }
@@ -190,11 +285,27 @@ public class FieldList extends ScrollPane
     {
         private static final int MIN_LEFT = 50;
         private static final int LARGEST_SENSIBLE_RIGHT = 500;
+        // The row of the first pair of children, and the total number of rows (if the list
+        // is paged, and so not all rows have children; otherwise -1):
+        private int firstRow = 0;
+        private int rowCount = -1;
 
         public ContentPane()
         {
             getStyleClass().add("field-list-content");
         }
+
+        public void setFirstRow(int firstRow)
+        {
+            this.firstRow = firstRow;
+            requestLayout();
+        }
+
+        public void setRowCount(int rowCount)
+        {
+            this.rowCount = rowCount;
+            requestLayout();
+        }
         
         @Override
         protected void layoutChildren()
@@ -247,7 +358,7 @@ public class FieldList extends ScrollPane
             
             double rightWidth = widthMinusPadding - leftWidth;
             
-            double y = outerPadding.getTop();
+            double y = outerPadding.getTop() + firstRow * ROW_HEIGHT;
             for (int i = 0; i < children.size(); i += 2)
             {
                 children.get(i).resizeRelocate(outerPadding.getLeft(), y, leftWidth, ROW_HEIGHT);
@@ -263,6 +374,17 @@ public class FieldList extends ScrollPane
             return super.getChildren();
         }
 
+        @Override
+        protected double computePrefHeight(double width)
+        {
+            if (rowCount >= 0)
+            {
+                // Paged: make room for all the rows, not just those with children:
+                return rowCount * ROW_HEIGHT + getInsets().getTop() + getInsets().getBottom();
+            }
+            return super.computePrefHeight(width);
+        }
+
         @Override
         protected double computePrefWidth(double height)
         {
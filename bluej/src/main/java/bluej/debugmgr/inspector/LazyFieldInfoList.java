@@ -0,0 +1,118 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.debugmgr.inspector;
+
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A list of field rows which are only fetched, a page at a time, when they are asked for.
+ * This is for inspecting objects with very many rows, such as large arrays and collections:
+ * a FieldList given one of these only asks for the rows near the visible part of the list.
+ * 
+ * <p>The most recently used pages are kept for the life of the list.  An inspector makes
+ * a new list each time it is updated (that is, whenever the debug VM may have run), so
+ * nothing is kept from before then.
+ */
+@OnThread(Tag.FXPlatform)
+public class LazyFieldInfoList extends AbstractList<FieldInfo> implements RandomAccess
+{
+    private static final int PAGE_SIZE = 64;
+    private static final int MAX_PAGES = 32;
+    
+    /**
+     * Fetches a range of rows.
+     */
+    @FunctionalInterface
+    public static interface PageLoader
+    {
+        /**
+         * Fetch the rows from index "from" (inclusive), "count" rows in total.
+         */
+        public List<FieldInfo> load(int from, int count);
+    }
+    
+    private final int size;
+    private final PageLoader loader;
+    // The pages fetched, by the index of their first row, least recently used first:
+    private final Map<Integer, List<FieldInfo>> pages = new LinkedHashMap<>(MAX_PAGES, 0.75f, true) {
+        @Override
+        @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<FieldInfo>> eldest)
+        {
+            return size() > MAX_PAGES;
+        }
+    };
+    
+    /**
+     * Construct a list with the given number of rows, which are fetched using the given loader.
+     */
+    public LazyFieldInfoList(int size, PageLoader loader)
+    {
+        this.size = size;
+        this.loader = loader;
+    }
+    
+    @Override
+    @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+    public FieldInfo get(int index)
+    {
+        Objects.checkIndex(index, size);
+        int pageStart = index - index % PAGE_SIZE;
+        List<FieldInfo> page = pages.get(pageStart);
+        if (page == null) {
+            page = loader.load(pageStart, Math.min(PAGE_SIZE, size - pageStart));
+            pages.put(pageStart, page);
+        }
+        return page.get(index - pageStart);
+    }
+    
+    @Override
+    @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+    public int size()
+    {
+        return size;
+    }
+    
+    // Comparing the contents would fetch every row, so lists are only equal to themselves:
+    
+    @Override
+    @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+    public boolean equals(Object o)
+    {
+        return this == o;
+    }
+    
+    @Override
+    @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+    public int hashCode()
+    {
+        return System.identityHashCode(this);
+    }
+}
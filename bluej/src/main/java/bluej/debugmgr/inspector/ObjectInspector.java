@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2013,2014,2016,2017,2018,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2013,2014,2016,2017,2018,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,7 +23,6 @@ package bluej.debugmgr.inspector;
 
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,6 +42,7 @@ import javafx.stage.StageStyle;
 import javafx.stage.Window;
 
 import bluej.Config;
+import bluej.debugger.DebuggerCollection;
 import bluej.debugger.DebuggerField;
 import bluej.debugger.DebuggerObject;
 import bluej.debugger.gentype.GenTypeClass;
@@ -53,7 +53,6 @@ import bluej.testmgr.record.ArrayElementInspectorRecord;
 import bluej.testmgr.record.GetInvokerRecord;
 import bluej.testmgr.record.InvokerRecord;
 import bluej.testmgr.record.ObjectInspectInvokerRecord;
-import bluej.utility.DialogManager;
 import bluej.utility.JavaNames;
 import bluej.utility.javafx.JavaFXUtil;
 import threadchecker.OnThread;
@@ -87,25 +86,14 @@ public class ObjectInspector extends Inspector
      */
     protected String objName;
 
-    protected boolean queryArrayElementSelected = false;
     private int selectedIndex;
 
     /**
-     * List of indexes from a large array that have been selected for viewing:
-     * extraArrayIndexesToShow is the list of array indexes that are not shown in the UI ([...]) but explicitly requested by the user
-     * extraArraySlotIndex is a request array index (slot) by the user
-     * extraArraySlotIndex is the corresponding index of the requested array index (extraArraySlotIndex) in the UI list,
-     *                     as a large array is truncated, the index of the array and the index in the UI list may be different
+     * The logical view of the object's entries, if it is a recognised collection
+     * (otherwise null).  A new view is obtained on each update, as the entries
+     * it has fetched may be out of date once the VM has run.
      */
-    private List<Integer> extraArrayIndexesToShow = new ArrayList<>();
-    private int extraArrayIndexInList = -1;
-    private int extraArraySlotIndex = -1;
-
-    /**
-     * list which is built when viewing an array that records the object slot
-     * corresponding to each array index
-     */
-    protected List<Integer> indexToSlotList = null;
+    private DebuggerCollection collection;
     private StackPane stackPane;
 
     /**
@@ -241,10 +229,14 @@ public class ObjectInspector extends Inspector
     @OnThread(Tag.FXPlatform)
     protected List<FieldInfo> getListData()
     {
-        // if is an array (we potentially will compress the array if it is
-        // large)
+        // Arrays and collections may be huge, so their rows are fetched only as they are shown:
         if (obj.isArray()) {
-            return compressArrayList(obj);
+            collection = null;
+            return getArrayRows();
+        }
+        collection = obj.getCollection();
+        if (collection != null) {
+            return getCollectionRows(collection);
         }
         else {
             List<DebuggerField> fields = obj.getFields();
@@ -272,46 +264,45 @@ public class ObjectInspector extends Inspector
             return;
         }
         
-        // add index to slot method for truncated arrays
         if (obj.isArray()) {
-            slot = indexToSlot(slot);
-            if (slot >= 0) {
-                selectedIndex = slot;
-            }
-            // if selection is the first field containing array length
-            // we treat as special case and do nothing more
-            if (slot == ARRAY_LENGTH_SLOT_VALUE) {
+            // The first row is the length:
+            int index = slot - 1;
+            if (index < 0) {
                 setCurrentObj(null, null, null);
                 setButtonsEnabled(false, false);
                 return;
             }
-
-            queryArrayElementSelected = (slot == (ARRAY_QUERY_SLOT_VALUE));
-            // for array compression..
-            if (queryArrayElementSelected) { // "..." in Array inspector
-                setCurrentObj(null, null, null); //  selected
-                if (! obj.getElementType().isPrimitive()) {
-                    setButtonsEnabled(true, false);
-                }
-                else {
-                    setButtonsEnabled(false, false);
+            selectedIndex = index;
+            if (!obj.getElementType().isPrimitive()) {
+                DebuggerObject elementObj = obj.getElementObject(index);
+                if (! elementObj.isNullObject()) {
+                    setCurrentObj(elementObj, "[" + index + "]", obj.getElementType().toString());
+                    setButtonsEnabled(true, true);
+                    return;
                 }
             }
-            else {
-                if (!obj.getElementType().isPrimitive()) {
-                    DebuggerObject elementObj = obj.getElementObject(slot);
-                    if (! elementObj.isNullObject()) {
-                        setCurrentObj(elementObj, "[" + slot + "]", obj.getElementType().toString());
-                        setButtonsEnabled(true, true);
-                        return;
-                    }
+            
+            // primitive or null
+            setCurrentObj(null, null, null);
+            setButtonsEnabled(false, false);
+            return;
+        }
+        
+        if (collection != null) {
+            // The first row is the size, and there may be a last row for entries not shown:
+            int index = slot - 1;
+            if (index >= 0 && index < collection.getEntryCount()) {
+                DebuggerObject value = collection.getValueObject(index);
+                if (! value.isNullObject()) {
+                    selectedIndex = index;
+                    // There is no expression for getting an entry, so it can only be inspected:
+                    setCurrentObj(value, "[" + index + "]", value.getClassName());
+                    setButtonsEnabled(true, false);
+                    return;
                 }
-                
-                // primitive or null
-                setCurrentObj(null, null, null);
-                setButtonsEnabled(false, false);
             }
-            
+            setCurrentObj(null, null, null);
+            setButtonsEnabled(false, false);
             return;
         }
 
@@ -352,10 +343,7 @@ public class ObjectInspector extends Inspector
     @Override
     protected void doInspect()
     {
-        if (queryArrayElementSelected) {
-            selectArrayElement();
-        }
-        else if (selectedField != null) {
+        if (selectedField != null) {
             boolean isPublic = !getButton.isDisable();
             
             if (! obj.isArray()) {
@@ -400,208 +388,56 @@ public class ObjectInspector extends Inspector
     }
 
     /**
-     * Shows a dialog to select array element for inspection
+     * Get the rows for an array: its length, then its elements.
      */
-    private void selectArrayElement()
+    private List<FieldInfo> getArrayRows()
     {
-        String response = DialogManager.askStringFX(this, "ask-index");
-        if (response != null) {
-            try {
-                int slot = Integer.parseInt(response);
-                // check if within bounds of array
-                if (slot >= 0 && slot < obj.getElementCount()) {
-                    // if its an object set as current object
-                    if (! obj.getElementType().isPrimitive() && ! obj.getElementObject(slot).isNullObject()) {
-                        boolean isPublic = !getButton.isDisable();
-                        InvokerRecord newIr = new ArrayElementInspectorRecord(ir, slot);
-                        setCurrentObj(obj.getElementObject(slot), "[" + slot + "]", obj.getElementType().toString());
-                        inspectorManager.getInspectorInstance(selectedField, selectedFieldName, pkg,
-                                isPublic ? newIr : null, this, null);
-                    }
-                    else {
-                        // It is not an object - a primitive, we update the array list display,
-                        // we add this element as an "extra" index to show (unless it is already there, then just select
-                        extraArraySlotIndex = slot; // set the slot index to be able to retrieve it's position in the list
-                        if (!extraArrayIndexesToShow.contains(slot))
-                        {
-                            extraArrayIndexesToShow.add(slot);
-                            // The call to update will redraw the list, which will set a value for extraArrayIndexInList
-                            // that informs of the actual position of the request slot in the UI list.
-                            update();
-                            // There is a strange behaviour with ScrollPane being overwriting our scroll values (after
-                            // the selection has been made). The only way we found to get through it is to call the helper
-                            // JavaFXUtil.runAfterNextLayout twice (once doesn't work)
-                            JavaFXUtil.runAfterNextLayout(this.getScene(), () -> {
-                                JavaFXUtil.runAfterNextLayout(this.getScene(), () -> {
-                                    // As we redraw the containers, we need to refresh the selection to make sure it can be shown properly
-                                    if (fieldList != null)
-                                    {
-                                        int currentSelectIndex = fieldList.selectedIndexProperty().get();
-                                        fieldList.select(-1);
-                                        fieldList.select(currentSelectIndex);
-                                    }
-                                });
-                            });
-                        }
-                        else 
-                        {
-                            // Retrieve the right index in the list
-                            extraArrayIndexInList = indexToSlotList.indexOf(extraArraySlotIndex);
-                        }
-                        
-                        // Select the right row (as we have [...], the actual index and slot index maybe different, we need it find it)
-                        // Make sure graphics are refreshed by changing the selection back and forth:
-                        fieldList.select(-1);
-                        fieldList.select(extraArrayIndexInList);
-                        
-                        //reset the indexes indicators
-                        extraArraySlotIndex = -1;
-                        extraArrayIndexInList = -1;
-                    }
-                }
-                else { // not within array bounds
-                    DialogManager.showErrorFX(this, "out-of-bounds");
-                }
+        DebuggerObject arrayObject = obj;
+        int length = arrayObject.getElementCount();
+        return new LazyFieldInfoList(length + 1, (from, count) -> {
+            List<FieldInfo> rows = new ArrayList<>(count);
+            if (from == 0) {
+                // mimic the public length field that arrays possess
+                // according to the java spec...
+                rows.add(new FieldInfo("int length", "" + length));
             }
-            catch (NumberFormatException e) {
-                // input could not be parsed, eg. non integer value
-                setCurrentObj(null, null, null);
-                DialogManager.showErrorFX(this, "cannot-access-element");
+            // Fetch all the elements in the page together:
+            int firstElement = Math.max(from, 1) - 1;
+            int lastElement = from + count - 1;
+            String[] values = arrayObject.getElementValueStrings(firstElement, lastElement - firstElement);
+            for (int i = 0; i < values.length; i++) {
+                rows.add(new FieldInfo("[" + (firstElement + i) + "]", values[i]));
             }
-        }
-        else {
-            // set current object to null to avoid re-inspection of
-            // previously selected wildcard
-            setCurrentObj(null, null, null);
-        }
+            return rows;
+        });
     }
 
-    private final static int VISIBLE_ARRAY_START = 40; // show at least the
-                                                       // first 40 elements
-    private final static int VISIBLE_ARRAY_TAIL = 5; // and the last five
-                                                     // elements
-
-    private final static int ARRAY_QUERY_SLOT_VALUE = -2; // signal marker of
-                                                          // the [...] slot in
-                                                          // our
-    private final static int ARRAY_LENGTH_SLOT_VALUE = -1; // marker for having
-                                                           // selected the slot
-                                                           // containing array
-                                                           // length
-
     /**
-     * Compress a potentially large array into a more displayable shortened
-     * form.
-     * 
-     * Compresses an array field name list to a maximum of VISIBLE_ARRAY_START
-     * which are guaranteed to be displayed at the start, then some [..]
-     * expansion slots, followed by VISIBLE_ARRAY_TAIL elements from the end of
-     * the array. When a selected element is chosen indexToSlot allows the
-     * selection to be converted to the original array element position.
-     * 
-     * When an element from the [...] section is queried, we had it inside the list
-     * (depending on the index, we can have more than [...] eventually.
-     * 
-     * @param arrayObject
-     *            the full field list for an array
-     * @return the compressed array
+     * Get the rows for a collection: its size, then its entries.  If not all entries can
+     * be shown, there is a last row showing that there are more.
      */
-    private List<FieldInfo> compressArrayList(DebuggerObject arrayObject)
+    private List<FieldInfo> getCollectionRows(DebuggerCollection collection)
     {
-        // mimic the public length field that arrays possess
-        // according to the java spec...
-        indexToSlotList = new LinkedList<Integer>();
-        indexToSlotList.add(0, Integer.valueOf(ARRAY_LENGTH_SLOT_VALUE));
-        
-        int arrayTotalLength = arrayObject.getElementCount();
-
-        // the +1 here is due to the fact that if we do not have at least one
-        // more than
-        // the sum of start elements and tail elements, then there is no point
-        // in displaying
-        // the ... elements because there would be no elements for them to
-        // reveal
-        if (arrayTotalLength > (VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL + extraArrayIndexesToShow.size() + 2))
-        {
-            // the destination list
-            List<FieldInfo> newArray = new ArrayList<FieldInfo>(2 + VISIBLE_ARRAY_START + VISIBLE_ARRAY_TAIL);
-            newArray.add(0, new FieldInfo("int length", "" + arrayTotalLength));
-            for (int i = 0; i <= VISIBLE_ARRAY_START; i++)
-            {
-                // first 40 elements are displayed as per normal
-                newArray.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                indexToSlotList.add(i);
-                //set the list position index for the request slot
-                if(i == extraArraySlotIndex)
-                {
-                    extraArrayIndexInList = newArray.size() - 1;
+        int entryCount = collection.getEntryCount();
+        boolean truncated = entryCount < collection.size();
+        return new LazyFieldInfoList(1 + entryCount + (truncated ? 1 : 0), (from, count) -> {
+            List<FieldInfo> rows = new ArrayList<>(count);
+            for (int row = from; row < from + count; row++) {
+                if (row == 0) {
+                    rows.add(new FieldInfo("int size", "" + collection.size()));
                 }
-            }
-
-            // now the first of our expansion slots unless when an extra queried value was requested
-            boolean hasExpansion = false;
-            for(int i = VISIBLE_ARRAY_START + 1; i < arrayTotalLength - VISIBLE_ARRAY_TAIL; i++)
-            {
-                if(extraArrayIndexesToShow.contains(i))
-                {
-                    //add a normal field
-                    newArray.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                    indexToSlotList.add(i);
-                    hasExpansion = false;
-                    //set the list position index for the request slot
-                    if(i == extraArraySlotIndex)
-                    {
-                        extraArrayIndexInList = newArray.size() - 1;
-                    }
-                }
-                else if(!hasExpansion)
-                {
-                    newArray.add(new FieldInfo("[...]", ""));
-                    indexToSlotList.add(Integer.valueOf(ARRAY_QUERY_SLOT_VALUE));
-                    hasExpansion = true;
+                else if (row <= entryCount) {
+                    int index = row - 1;
+                    String description = collection.getKind() == DebuggerCollection.Kind.MAP
+                            ? collection.getKeyString(index) : "[" + index + "]";
+                    rows.add(new FieldInfo(description, collection.getValueString(index)));
                 }
-            }
-
-            // tail part
-            for (int i = VISIBLE_ARRAY_TAIL; i > 0; i--)
-            {
-                // last 5 elements are displayed
-                int elNum = arrayTotalLength - i;
-                newArray.add(new FieldInfo("[" + elNum + "]", arrayObject.getElementValueString(elNum)));
-                indexToSlotList.add(arrayTotalLength - i);
-                //set the list position index for the request slot
-                if((arrayTotalLength-i) == extraArraySlotIndex)
-                {
-                    extraArrayIndexInList = newArray.size() - 1;
+                else {
+                    rows.add(new FieldInfo("[...]", ""));
                 }
             }
-            return newArray;
-        }
-        else {
-            List<FieldInfo> fullArrayFieldList = new ArrayList<FieldInfo>(arrayObject.getElementCount() + 1);
-            fullArrayFieldList.add(0, new FieldInfo("int length", "" + arrayObject.getElementCount()));
-            
-            for (int i = 0; i < arrayObject.getElementCount(); i++) {
-                fullArrayFieldList.add(new FieldInfo("[" + i + "]", arrayObject.getElementValueString(i)));
-                indexToSlotList.add(i);
-            }
-            return fullArrayFieldList;
-        }
-    }
-
-    /**
-     * Converts list index position to that of array element position in arrays.
-     * Uses the List built in compressArrayList to do the mapping.
-     * 
-     * @param listIndexPosition
-     *            the position selected in the list
-     * @return the translated index of field array element
-     */
-    private int indexToSlot(int listIndexPosition)
-    {
-        Integer slot = indexToSlotList.get(listIndexPosition);
-
-        return slot.intValue();
+            return rows;
+        });
     }
 
     protected int getPreferredRows()
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2015,2016,2017,2018,2019,2020,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2015,2016,2017,2018,2019,2020,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -138,7 +138,10 @@ public class ObjectWrapper extends StackPane implements InvokeListener, NamedVal
     @OnThread(value = Tag.Any, requireSynchronized = true)
     private String objInstanceName;
     protected String displayClassName;
+    // The popup menu, created when first shown:
     protected ContextMenu menu;
+    // The class whose methods the menu shows:
+    private final Class<?> menuClass;
     
     protected final Rectangle highlight = new ResizableRectangle();
             
@@ -200,12 +203,10 @@ public class ObjectWrapper extends StackPane implements InvokeListener, NamedVal
             displayClassName = objType.toString(true);
         }
 
-        Class<?> cl = findIType();
-        ExtensionsManager extMgr = ExtensionsManager.getInstance();
+        menuClass = findIType();
 
-        createMenu(extMgr, cl);
         JavaFXUtil.listenForContextMenu(this, (x, y) -> {
-            menu.show(this, x, y);
+            getMenu().show(this, x, y);
             return true;
         }, KeyCode.SPACE, KeyCode.ENTER);
 
@@ -423,6 +424,19 @@ public class ObjectWrapper extends StackPane implements InvokeListener, NamedVal
         return cl;
     }
     
+    /**
+     * Get the popup menu, creating it if this is the first time it is needed.
+     * Most objects on the bench never have their menu shown, so it is
+     * not created until then.
+     */
+    private ContextMenu getMenu()
+    {
+        if (menu == null) {
+            createMenu(ExtensionsManager.getInstance(), menuClass);
+        }
+        return menu;
+    }
+
     /**
      * Creates the popup menu structure by parsing the object's
      * class inheritance hierarchy.
@@ -754,7 +768,7 @@ public class ObjectWrapper extends StackPane implements InvokeListener, NamedVal
 
     public void showMenu()
     {
-        menu.show(this, Side.LEFT, 5, 5);
+        getMenu().show(this, Side.LEFT, 5, 5);
     }
 
     public void animateIn(Optional<Point2D> animateFromScenePoint)
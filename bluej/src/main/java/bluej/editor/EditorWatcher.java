@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2012,2013,2014,2016,2017,2018,2020,2021,2022,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2012,2013,2014,2016,2017,2018,2020,2021,2022,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,6 +23,7 @@ package bluej.editor;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import bluej.collect.DiagnosticWithShown;
 import bluej.collect.StrideEditReason;
@@ -65,7 +66,20 @@ public interface EditorWatcher
      * @param set    whether the breakpoint is set (true) or cleared
      * @return             True if there is now a breakpoint on the line, false if not
      */
-    boolean breakpointToggleEvent(int lineNo, boolean set);
+    default boolean breakpointToggleEvent(int lineNo, boolean set)
+    {
+        return breakpointToggleEvent(lineNo, set, null);
+    }
+
+    /**
+     * Called by Editor to set/clear a breakpoint with properties, such as a hit count
+     * (see Debugger.BREAKPOINT_HIT_COUNT_PROPERTY)
+     * @param lineNo     the line number of the breakpoint
+     * @param set        whether the breakpoint is set (true) or cleared
+     * @param properties the properties of the breakpoint (ignored when clearing); may be null
+     * @return             True if there is now a breakpoint on the line, false if not
+     */
+    boolean breakpointToggleEvent(int lineNo, boolean set, Map<String, String> properties);
 
     /**
      * Called by Editor when documentation is to be compiled
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2021,2022,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 2021,2022,2023,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -652,6 +652,10 @@ public abstract class BaseEditorPane extends Region
         // Returns true if breakpoint was successfully toggled for that line, false if there was a problem.
         public boolean marginClickedForLine(int lineIndex);
 
+        // The user asked (from the left-hand margin's menu) to set the hit count of the
+        // breakpoint on (zero-based) lineIndex.
+        public void marginHitCountRequestedForLine(int lineIndex);
+
         /**
          * Gets the context menu to show.  If necessary, should be hidden before being returned
          * by this method.
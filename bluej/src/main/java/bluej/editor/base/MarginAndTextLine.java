@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2021,2023,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -25,6 +25,7 @@ import bluej.Config;
 import bluej.prefmgr.PrefMgr;
 import bluej.utility.javafx.FXConsumer;
 import bluej.utility.javafx.FXPlatformConsumer;
+import bluej.utility.javafx.FXPlatformRunnable;
 import bluej.utility.javafx.FXPlatformSupplier;
 import bluej.utility.javafx.JavaFXUtil;
 import javafx.beans.binding.StringExpression;
@@ -104,7 +105,7 @@ public class MarginAndTextLine extends Region
         return showLeftMargin ? 27 : 2;
     }
     
-    public MarginAndTextLine(int lineNumberToDisplay, TextLine textLine, boolean showLeftMargin, FXPlatformSupplier<Boolean> onClick, FXPlatformSupplier<ContextMenu> getContextMenuToShow, FXPlatformConsumer<ScrollEvent> onScroll)
+    public MarginAndTextLine(int lineNumberToDisplay, TextLine textLine, boolean showLeftMargin, FXPlatformSupplier<Boolean> onClick, FXPlatformRunnable onEditHitCount, FXPlatformSupplier<ContextMenu> getContextMenuToShow, FXPlatformConsumer<ScrollEvent> onScroll)
     {
         this.showLeftMargin = showLeftMargin;
         if (showLeftMargin)
@@ -200,6 +201,13 @@ public class MarginAndTextLine extends Region
                 null
             )
         );
+        contextMenu.getItems().add(
+            JavaFXUtil.makeMenuItem(
+                Config.getString("editor.breakpoint-hitCountLabel"),
+                onEditHitCount,
+                null
+            )
+        );
         contextMenu.getItems().add(
             JavaFXUtil.makeMenuItem(
                 Config.getString("prefmgr.edit.displaylinenumbers"),
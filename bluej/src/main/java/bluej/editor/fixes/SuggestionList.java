@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2018,2019,2020,2021,2024 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2018,2019,2020,2021,2024,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -73,6 +73,7 @@ import javafx.util.Duration;
 
 import bluej.utility.javafx.FXPlatformConsumer;
 import bluej.utility.javafx.FXPlatformRunnable;
+import bluej.utility.javafx.FXPlatformSupplier;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 import bluej.Config;
@@ -105,6 +106,7 @@ public class SuggestionList
     private final int suggestionListId;
 
     private final SuggestionListListener listener;
+    private final SuggestionListParent listParent;
 
     @OnThread(Tag.FXPlatform)
     private static class SuggestionListView extends ListView<SuggestionListItem>
@@ -155,6 +157,10 @@ public class SuggestionList
      * List of choices available for the user.  Each entry represents a different item.
      */
     private final List<SuggestionDetails> choices;
+    /**
+     * The type expected in the completion context, used to mark choices whose type matches.  Can be null.
+     */
+    private final String targetType;
     /**
      * This array contains two entries per choice.  There is one complete set from
      * 0 to choices.size() - 1 which are the direct suggestions, and a second
@@ -222,6 +228,12 @@ public class SuggestionList
 
     private final BooleanProperty moreLabelAtBottom = new SimpleBooleanProperty(true);
 
+    /**
+     * Whether more choices may yet arrive via setChoices (e.g. from a completion search
+     * which is still running).  While true, we don't auto-complete a single eligible choice.
+     */
+    private boolean moreChoicesPending = false;
+
     private static class EligibleDetail implements Comparable<EligibleDetail>
     {
         // The offset into the suggestion string of the matching part
@@ -369,15 +381,26 @@ public class SuggestionList
 
     public static class SuggestionDetailsWithHTMLDoc extends SuggestionDetails
     {
-        private final String docHTML;
+        private final FXPlatformSupplier<String> docHTML;
 
         public SuggestionDetailsWithHTMLDoc(String choice, SuggestionShown shown, String docHTML)
         {
             super(choice, null, null, shown);
-            this.docHTML = docHTML;
+            this.docHTML = () -> docHTML;
         }
 
         public SuggestionDetailsWithHTMLDoc(String choice, String suffix, String type, SuggestionShown shown, String docHTML)
+        {
+            super(choice, suffix, type, shown);
+            this.docHTML = () -> docHTML;
+        }
+
+        /**
+         * Constructs details where the HTML documentation is only generated when it is
+         * first displayed (i.e. when the suggestion is highlighted), because generating
+         * it may be costly (e.g. fetching Javadoc can involve parsing source).
+         */
+        public SuggestionDetailsWithHTMLDoc(String choice, String suffix, String type, SuggestionShown shown, FXPlatformSupplier<String> docHTML)
         {
             super(choice, suffix, type, shown);
             this.docHTML = docHTML;
@@ -396,7 +419,7 @@ public class SuggestionList
             Pane docDisplay = new BorderPane(webView);
             JavaFXUtil.addStyleClass(docDisplay, "suggestion-javadoc");
             webView.getEngine().setJavaScriptEnabled(false);
-            webView.getEngine().loadContent(docHTML);
+            webView.getEngine().loadContent(docHTML.get());
 
             docDisplay.setMaxWidth(400);
             docDisplay.setMaxHeight(300);
@@ -445,8 +468,10 @@ public class SuggestionList
 
         this.suggestionListId = nextSuggListId.getAndIncrement();
         this.choices = FXCollections.observableArrayList(choices);
+        this.targetType = targetType;
         this.shownState.set(startShown);
         this.listener = listener;
+        this.listParent = listParent;
         this.highlightListener = highlightListener;
         this.similarLabel = new ScalableHeightLabel("Related:", false);
         similarLabel.setMaxWidth(9999);
@@ -490,8 +515,7 @@ public class SuggestionList
         listAndMoreAndTransPane.setBackground(null);
         listAndMoreAndTransPane.setPickOnBounds(false);
         listBox.setMaxHeight(300.0);
-        // This is a heuristic: double the font size for each item, but it seems to work well:
-        listBox.setPrefHeight(choices.isEmpty() ? 100.0 : 2 * listParent.getFontSize() * choices.size());
+        updatePrefHeight();
         listAndDocBorderPane.setCenter(listAndMoreAndTransPane);
         BorderPane.setMargin(listAndMoreAndTransPane, new Insets(0, 1, 0, 0));
         listAndDocBorderPane.setRight(docPane);
@@ -555,15 +579,7 @@ public class SuggestionList
 
         listParent.setupSuggestionWindow(window);
         
-        for (int j = 0; j <= 1; j++)
-        {
-            for (int i = 0; i < choices.size(); i++)
-            {
-                SuggestionDetails choice = choices.get(i);
-                SuggestionListItem sugg = new SuggestionListItem(i, targetType != null && choice.type != null ? targetType.equals(choice.type) : false, j == 0);
-                doubleSuggestions.add(sugg);
-            }
-        }
+        makeDoubleSuggestions();
         listBox.setPlaceholder(noneLabel);
 
         JavaFXUtil.addFocusListener(window, focused -> {
@@ -662,11 +678,82 @@ public class SuggestionList
         });
     }
 
+    private void updatePrefHeight()
+    {
+        // This is a heuristic: double the font size for each item, but it seems to work well:
+        listBox.setPrefHeight(choices.isEmpty() ? 100.0 : 2 * listParent.getFontSize() * choices.size());
+    }
+
+    /**
+     * Fills doubleSuggestions from the current choices (see the doubleSuggestions comment).
+     */
+    private void makeDoubleSuggestions()
+    {
+        doubleSuggestions.clear();
+        for (int j = 0; j <= 1; j++)
+        {
+            for (int i = 0; i < choices.size(); i++)
+            {
+                SuggestionDetails choice = choices.get(i);
+                SuggestionListItem sugg = new SuggestionListItem(i, targetType != null && choice.type != null ? targetType.equals(choice.type) : false, j == 0);
+                doubleSuggestions.add(sugg);
+            }
+        }
+    }
+
+    /**
+     * Replaces the choices in the list, for example because more completions have
+     * been found by a search which is still running.  The eligible choices are recalculated
+     * using the last prefix, and the visual is updated.  If the highlighted choice is
+     * still present in the new choices, it stays highlighted.
+     *
+     * @param newChoices The new list of choices.
+     * @param morePending Whether further calls to setChoices may follow.
+     */
+    public void setChoices(List<? extends SuggestionDetails> newChoices, boolean morePending)
+    {
+        this.moreChoicesPending = morePending;
+        SuggestionDetails highlightedChoice = getHighlighted() == -1 ? null : choices.get(getHighlighted());
+        boolean highlightedDirect = highlighted < choices.size();
+        if (highlighted != -1)
+            doubleSuggestions.get(highlighted).highlighted.set(false);
+        highlighted = -1;
+
+        choices.clear();
+        choices.addAll(newChoices);
+        makeDoubleSuggestions();
+        updatePrefHeight();
+
+        if (lastPrefix != null)
+            calculateEligible(lastPrefix, lastAllowSimilar, false);
+        int newIndex = highlightedChoice == null ? -1 : choices.indexOf(highlightedChoice);
+        if (newIndex != -1)
+        {
+            // Set directly rather than using setHighlighted, to avoid reloading the docs for the same choice:
+            highlighted = newIndex + (highlightedDirect ? 0 : choices.size());
+            doubleSuggestions.get(highlighted).highlighted.set(true);
+        }
+        if (lastPrefix != null)
+            updateVisual(lastPrefix);
+        if (highlighted == -1 && highlightedChoice != null)
+            highlightFirstEligible();
+    }
+
+    /**
+     * Sets whether more choices may yet arrive via setChoices.  While they may,
+     * a single eligible choice is not auto-completed by show().
+     */
+    public void setMoreChoicesPending(boolean morePending)
+    {
+        this.moreChoicesPending = morePending;
+    }
+
     @OnThread(Tag.FXPlatform)
     public void show(final Node reference, final Bounds textBoundsWithinReference)
     {
-        // If there's only one option, don't bother showing, just choose it right off the bat:
-        if (eligibleCount() == 1)
+        // If there's only one option, don't bother showing, just choose it right off the bat
+        // (unless other options may still be coming):
+        if (eligibleCount() == 1 && !moreChoicesPending)
         {
             boolean singleOptionAvailable = true;
             // We need to make sure there are no rare options available:
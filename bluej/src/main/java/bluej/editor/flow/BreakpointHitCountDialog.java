@@ -0,0 +1,90 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javafx.geometry.Pos;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextFormatter;
+import javafx.scene.layout.GridPane;
+import javafx.stage.Modality;
+import javafx.stage.Window;
+
+import bluej.Config;
+import bluej.debugger.Debugger;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A dialog for setting the hit count of a breakpoint.  The result is the breakpoint's
+ * properties (see Debugger.BREAKPOINT_HIT_COUNT_PROPERTY), empty if no count was given.
+ */
+@OnThread(Tag.FXPlatform)
+public class BreakpointHitCountDialog extends Dialog<Map<String, String>>
+{
+    /**
+     * Creates a dialog for the breakpoint on the given line.
+     * 
+     * @param current The breakpoint's current properties (may be empty).
+     */
+    public BreakpointHitCountDialog(Window owner, int lineNo, Map<String, String> current)
+    {
+        setTitle(Config.getString("editor.breakpointHitCount.title").replace("$", Integer.toString(lineNo)));
+        initOwner(owner);
+        initModality(Modality.WINDOW_MODAL);
+        Config.addDialogStylesheets(getDialogPane());
+        getDialogPane().getButtonTypes().setAll(ButtonType.CANCEL, ButtonType.OK);
+
+        TextField hitCountField = new TextField(current.getOrDefault(Debugger.BREAKPOINT_HIT_COUNT_PROPERTY, ""));
+        hitCountField.setPromptText(Config.getString("editor.breakpointHitCount.hitCountPrompt"));
+        hitCountField.setPrefColumnCount(6);
+        // Only allow digits, with no leading zero, so that the count is always at least 1:
+        hitCountField.setTextFormatter(new TextFormatter<String>(change ->
+                change.getControlNewText().matches("([1-9][0-9]{0,8})?") ? change : null));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(8);
+        grid.setAlignment(Pos.CENTER_LEFT);
+        grid.addRow(0, new Label(Config.getString("editor.breakpointHitCount.hitCount")), hitCountField);
+        getDialogPane().setContent(grid);
+        setOnShown(e -> hitCountField.requestFocus());
+
+        setResultConverter(bt -> {
+            if (bt == ButtonType.OK)
+            {
+                Map<String, String> properties = new HashMap<>();
+                if (!hitCountField.getText().isEmpty())
+                {
+                    properties.put(Debugger.BREAKPOINT_HIT_COUNT_PROPERTY, hitCountField.getText());
+                }
+                return properties;
+            }
+            return null;
+        });
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2022  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2022,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -25,74 +25,268 @@ import bluej.extensions2.editor.DocumentListener;
 import bluej.utility.javafx.FXPlatformRunnable;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  * An implementation of undo and redo for the Document interface.
  * 
  * This class works on the basis of remembering the replacements, including old and new text,
  * then using these to perform the replacements (or inverse for undo).
+ *
+ * To keep the memory use down for long editing sessions, the text of all the changes is
+ * held in a single shared buffer (which is only appended to, apart from trimming the ends
+ * when changes are forgotten), and each change just records positions in that buffer.
+ * The estimated size of the history is capped.  Once the cap is exceeded, the oldest changes
+ * are forgotten until the history is down to three quarters of the cap, so that this work
+ * is only done once in a while rather than for every change.  Optionally, consecutive typed characters can be
+ * coalesced into a single change, so that each keypress does not need its own entry.
  */
 public class DocumentUndoStack implements DocumentListener
 {
-    private static class Change
+    /** The default cap on the estimated memory use of the history, in bytes */
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    // Estimated memory use of each undo entry, and of each change within an entry,
+    // excluding the text (which is counted separately from the buffer length):
+    private static final int ENTRY_OVERHEAD_BYTES = 48;
+    private static final int CHANGE_OVERHEAD_BYTES = 4 * 4;
+    // The longest run of typing that we coalesce into one undo entry:
+    private static final int MAX_COALESCED_LENGTH = 256;
+
+    /**
+     * An item that a single undo or redo will perform.  It contains one or more changes
+     * (several if it is a compound edit, e.g. auto-indent makes many small changes that will
+     * all be undone/redone as part of a group), held in parallel arrays.  For each change, the
+     * replaced text is held in the buffer, immediately followed by the replacement text.
+     */
+    private static class UndoEntry
     {
-        private final int targetStartIncl;
-        private final String replaced;
-        private final String replacement;
+        // The position in the buffer of the start of this entry's text (the text of
+        // any changes added to the entry will follow on from here):
+        private int bufferStart;
+        private int count = 0;
+        private int[] targetStartIncl = new int[1];
+        private int[] textStart = new int[1];
+        private int[] replacedLength = new int[1];
+        private int[] replacementLength = new int[1];
+        // Can more typing be coalesced into this entry?
+        private boolean typing;
+
+        private UndoEntry(int bufferStart)
+        {
+            this.bufferStart = bufferStart;
+        }
+
+        private void add(int targetStart, int bufferStart, int replacedLen, int replacementLen)
+        {
+            if (count == targetStartIncl.length)
+            {
+                int newSize = count * 2;
+                targetStartIncl = Arrays.copyOf(targetStartIncl, newSize);
+                textStart = Arrays.copyOf(textStart, newSize);
+                replacedLength = Arrays.copyOf(replacedLength, newSize);
+                replacementLength = Arrays.copyOf(replacementLength, newSize);
+            }
+            targetStartIncl[count] = targetStart;
+            textStart[count] = bufferStart;
+            replacedLength[count] = replacedLen;
+            replacementLength[count] = replacementLen;
+            count += 1;
+        }
 
-        public Change(int targetStartIncl, String replaced, String replacement)
+        private long overheadBytes()
         {
-            this.targetStartIncl = targetStartIncl;
-            this.replaced = replaced;
-            this.replacement = replacement;
+            return ENTRY_OVERHEAD_BYTES + (long)targetStartIncl.length * CHANGE_OVERHEAD_BYTES;
+        }
+
+        private void shiftBuffer(int amount)
+        {
+            bufferStart -= amount;
+            for (int i = 0; i < count; i++)
+            {
+                textStart[i] -= amount;
+            }
         }
     }
 
     private final Document document;
-    // The sublists are in order of application.  Each outer list member is a change that a single
-    // undo/redo will perform, each inner list member is a set of overlapping or disjoint changes that
-    // form a compount edit.  Various changes like auto-indent make many small changes that will all
-    // be undone/redone as part of a group.
-    private final ArrayList<ArrayList<Change>> rememberedChanges = new ArrayList<>();
+    private final long maxBytes;
+    // The shared text of all the entries, in the same order as the entries:
+    private final StringBuilder buffer = new StringBuilder();
+    // The entries, in order of application.
+    private final ArrayList<UndoEntry> rememberedChanges = new ArrayList<>();
+    // The estimated memory use of the entries, excluding the buffer:
+    private long entryBytes = 0;
     // The index of the next change that we would redo.
     private int changeIndex = 0;
     // Are we the ones doing the change as part of undo/redo?  Don't add it our remembered changes a second time.
     private boolean changeByUs = false;
     // Are we currently in the middle of a compound edit?
     private boolean inCompoundEdit = false;
+    // Should consecutive single-character insertions be combined into one entry?
+    private boolean coalesceTyping = false;
     private FXPlatformRunnable stateListener = null;
     
     public DocumentUndoStack(Document document)
+    {
+        this(document, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * Makes an undo stack for the given document, which forgets the oldest changes
+     * when the estimated memory use of the history exceeds the given number of bytes.
+     * The most recent change is always kept, however large it is.
+     */
+    public DocumentUndoStack(Document document, long maxBytes)
     {
         this.document = document;
+        this.maxBytes = maxBytes;
         document.addListener(false, this);
     }
 
+    /**
+     * Sets whether consecutive typed characters (single-character insertions, each immediately
+     * after the previous one) should be combined into a single undo entry.  A run is broken by
+     * a newline, by a space after a non-space (i.e. at the end of each word), by any other kind
+     * of change, or by an undo/redo.
+     */
+    public void setCoalesceTyping(boolean coalesceTyping)
+    {
+        this.coalesceTyping = coalesceTyping;
+    }
+
     @Override
     public void textReplaced(int origStartIncl, String original, String replacement, int linesRemoved, int linesAdded)
     {
         if (!changeByUs)
         {
-            if (changeIndex != rememberedChanges.size())
+            forgetRedo();
+            if (!inCompoundEdit && tryCoalesce(origStartIncl, original, replacement))
             {
-                // We have to chop off the later changes as we're making new ones from here:
-                rememberedChanges.subList(changeIndex, rememberedChanges.size()).clear();
+                evictOldest();
+                return;
             }
             if (!inCompoundEdit)
             {
-                rememberedChanges.add(new ArrayList<>());
-                changeIndex += 1;
+                addEntry(new UndoEntry(buffer.length()));
             }
-            rememberedChanges.get(changeIndex - 1).add(new Change(origStartIncl, original, replacement));
-            if (!inCompoundEdit && stateListener != null)
+            UndoEntry entry = rememberedChanges.get(changeIndex - 1);
+            long overheadBefore = entry.overheadBytes();
+            entry.add(origStartIncl, buffer.length(), original.length(), replacement.length());
+            entryBytes += entry.overheadBytes() - overheadBefore;
+            buffer.append(original).append(replacement);
+            entry.typing = !inCompoundEdit && isTyping(original, replacement);
+            if (!inCompoundEdit)
             {
-                stateListener.run();
+                evictOldest();
+                if (stateListener != null)
+                {
+                    stateListener.run();
+                }
             }
         }
     }
 
+    private boolean isTyping(String original, String replacement)
+    {
+        return coalesceTyping && original.isEmpty() && replacement.length() == 1 && replacement.charAt(0) != '\n';
+    }
+
+    /**
+     * If the change is typing which follows on from the latest entry, add it to that entry.
+     * Returns true if so, false if the change needs its own entry.
+     */
+    private boolean tryCoalesce(int origStartIncl, String original, String replacement)
+    {
+        if (!isTyping(original, replacement) || changeIndex == 0)
+            return false;
+        UndoEntry latest = rememberedChanges.get(changeIndex - 1);
+        if (!latest.typing || latest.count != 1
+            || latest.targetStartIncl[0] + latest.replacementLength[0] != origStartIncl
+            || latest.replacementLength[0] >= MAX_COALESCED_LENGTH)
+            return false;
+        // Start a new entry for each word:
+        boolean prevSpace = Character.isWhitespace(buffer.charAt(buffer.length() - 1));
+        if (Character.isWhitespace(replacement.charAt(0)) && !prevSpace)
+            return false;
+        // The latest entry's replacement text is at the end of the buffer, so we can just extend it:
+        buffer.append(replacement);
+        latest.replacementLength[0] += replacement.length();
+        return true;
+    }
+
+    private void addEntry(UndoEntry entry)
+    {
+        rememberedChanges.add(entry);
+        entryBytes += entry.overheadBytes();
+        changeIndex += 1;
+    }
+
+    /**
+     * Forgets any changes which could be redone; called when we're making new changes from here.
+     */
+    private void forgetRedo()
+    {
+        if (changeIndex != rememberedChanges.size())
+        {
+            UndoEntry firstForgotten = rememberedChanges.get(changeIndex);
+            // The text for all the forgotten entries is at the end of the buffer:
+            buffer.setLength(firstForgotten.bufferStart);
+            for (UndoEntry entry : rememberedChanges.subList(changeIndex, rememberedChanges.size()))
+            {
+                entryBytes -= entry.overheadBytes();
+            }
+            rememberedChanges.subList(changeIndex, rememberedChanges.size()).clear();
+            if (changeIndex > 0)
+            {
+                // Don't coalesce typing into an entry which has been undone and redone:
+                rememberedChanges.get(changeIndex - 1).typing = false;
+            }
+        }
+    }
+
+    /**
+     * If we are over our memory limit, forgets the oldest entries until we are down to three
+     * quarters of the limit.  The latest entry is always kept.
+     */
+    private void evictOldest()
+    {
+        long bytes = getEstimatedBytes();
+        if (bytes <= maxBytes)
+            return;
+        long target = maxBytes - maxBytes / 4;
+        int evictCount = 0;
+        while (bytes > target && evictCount < changeIndex - 1)
+        {
+            UndoEntry oldest = rememberedChanges.get(evictCount);
+            UndoEntry next = rememberedChanges.get(evictCount + 1);
+            bytes -= oldest.overheadBytes() + 2L * (next.bufferStart - oldest.bufferStart);
+            evictCount += 1;
+        }
+        if (evictCount > 0)
+        {
+            int textRemoved = rememberedChanges.get(evictCount).bufferStart;
+            for (UndoEntry entry : rememberedChanges.subList(0, evictCount))
+            {
+                entryBytes -= entry.overheadBytes();
+            }
+            rememberedChanges.subList(0, evictCount).clear();
+            changeIndex -= evictCount;
+            buffer.delete(0, textRemoved);
+            for (UndoEntry entry : rememberedChanges)
+            {
+                entry.shiftBuffer(textRemoved);
+            }
+        }
+    }
+
+    /**
+     * Gets the estimated memory use of the undo/redo history, in bytes.
+     */
+    public long getEstimatedBytes()
+    {
+        return entryBytes + 2L * buffer.length();
+    }
+
     /**
      * How many changes can we undo at the moment?
      */
@@ -120,14 +314,17 @@ public class DocumentUndoStack implements DocumentListener
         {
             changeByUs = true;
             changeIndex -= 1;
-            List<Change> changesToUndo = rememberedChanges.get(changeIndex);
+            UndoEntry changesToUndo = rememberedChanges.get(changeIndex);
+            changesToUndo.typing = false;
             int latestPos = -1;
             // Undo in reverse order:
-            for (int i = changesToUndo.size() - 1; i >= 0; i--)
+            for (int i = changesToUndo.count - 1; i >= 0; i--)
             {
-                Change change = changesToUndo.get(i);
-                document.replaceText(change.targetStartIncl, change.targetStartIncl + change.replacement.length(), change.replaced);
-                latestPos = change.targetStartIncl + change.replaced.length();
+                int start = changesToUndo.targetStartIncl[i];
+                int textStart = changesToUndo.textStart[i];
+                int replacedLength = changesToUndo.replacedLength[i];
+                document.replaceText(start, start + changesToUndo.replacementLength[i], buffer.substring(textStart, textStart + replacedLength));
+                latestPos = start + replacedLength;
             }
             changeByUs = false;
             if (stateListener != null)
@@ -149,13 +346,17 @@ public class DocumentUndoStack implements DocumentListener
         if (changeIndex < rememberedChanges.size())
         {
             changeByUs = true;
-            List<Change> changes = rememberedChanges.get(changeIndex);
+            UndoEntry changes = rememberedChanges.get(changeIndex);
+            changes.typing = false;
             changeIndex += 1;
             int latestPos = -1;
-            for (Change change : changes)
+            for (int i = 0; i < changes.count; i++)
             {
-                document.replaceText(change.targetStartIncl, change.targetStartIncl + change.replaced.length(), change.replacement);
-                latestPos = change.targetStartIncl + change.replacement.length();
+                int start = changes.targetStartIncl[i];
+                int replacementStart = changes.textStart[i] + changes.replacedLength[i];
+                int replacementLength = changes.replacementLength[i];
+                document.replaceText(start, start + changes.replacedLength[i], buffer.substring(replacementStart, replacementStart + replacementLength));
+                latestPos = start + replacementLength;
             }
             changeByUs = false;
             if (stateListener != null)
@@ -182,6 +383,9 @@ public class DocumentUndoStack implements DocumentListener
     {
         rememberedChanges.clear();
         changeIndex = 0;
+        entryBytes = 0;
+        buffer.setLength(0);
+        buffer.trimToSize();
         if (stateListener != null)
         {
             stateListener.run();
@@ -190,29 +394,33 @@ public class DocumentUndoStack implements DocumentListener
 
 
     
+    /**
+     * Performs the given action, recording all the changes it makes as a single
+     * entry which will be undone/redone in one step.
+     */
     public void compoundEdit(FXPlatformRunnable editAction)
     {
-        if (changeIndex != rememberedChanges.size())
-        {
-            // We have to chop off the later changes as we're making new ones from here:
-            rememberedChanges.subList(changeIndex, rememberedChanges.size()).clear();
-        }
+        forgetRedo();
         
         inCompoundEdit = true;
-        ArrayList<Change> compoundChanges = new ArrayList<>();
-        rememberedChanges.add(compoundChanges);
-        changeIndex += 1;
+        UndoEntry compoundChanges = new UndoEntry(buffer.length());
+        addEntry(compoundChanges);
         editAction.run();
         inCompoundEdit = false;
-        if (compoundChanges.isEmpty())
+        if (compoundChanges.count == 0)
         {
             // Nothing happened!  Forget about it
             rememberedChanges.remove(rememberedChanges.size() - 1);
+            entryBytes -= compoundChanges.overheadBytes();
             changeIndex -= 1;
         }
-        else if (stateListener != null)
+        else
         {
-            stateListener.run();
+            evictOldest();
+            if (stateListener != null)
+            {
+                stateListener.run();
+            }
         }
     }
 }
@@ -1,6 +1,6 @@
 /*
 This file is part of the BlueJ program. 
-Copyright (C) 1999-2010,2011,2014,2019,2021  Michael Kolling and John Rosenberg 
+Copyright (C) 1999-2010,2011,2014,2019,2021,2026  Michael Kolling and John Rosenberg 
 
 This program is free software; you can redistribute it and/or 
 modify it under the terms of the GNU General Public License 
@@ -184,6 +184,9 @@ public class FindPanel extends GridPane
         replaceFoldOutLabel.setAlignment(Pos.CENTER);
         mcBody.getChildren().add(matchCaseCheckBox);
         mcBody.getChildren().add(replaceFoldOutLabel);
+        Button findInProjectButton = new Button(Config.getString("editor.findpanel.findInProject"));
+        findInProjectButton.setOnAction(e -> editor.findInProject(getSearchString(), !matchCaseCheckBox.isSelected()));
+        mcBody.getChildren().add(findInProjectButton);
 
         Label replaceLabel = new Label(Config.getString("editor.replacePanel.replaceLabel"));
         JavaFXUtil.addStyleClass(replaceLabel, "moe-find-label");
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -28,6 +28,7 @@ import bluej.compiler.CompileReason;
 import bluej.compiler.CompileType;
 import bluej.compiler.Diagnostic;
 import bluej.debugger.DebuggerThread;
+import bluej.debugger.gentype.GenTypeClass;
 import bluej.editor.EditorWatcher;
 import bluej.editor.TextEditor;
 import bluej.editor.base.BackgroundItem;
@@ -78,7 +79,6 @@ import bluej.prefmgr.PrefMgr.PrintSize;
 import bluej.stride.framedjava.elements.CallElement;
 import bluej.stride.framedjava.elements.CodeElement;
 import bluej.stride.framedjava.elements.NormalMethodElement;
-import bluej.stride.framedjava.slots.ExpressionCompletionCalculator;
 import bluej.editor.fixes.SuggestionList;
 import bluej.editor.fixes.SuggestionList.SuggestionDetails;
 import bluej.editor.fixes.SuggestionList.SuggestionDetailsWithHTMLDoc;
@@ -89,6 +89,7 @@ import bluej.utility.*;
 import bluej.utility.javafx.FXConsumer;
 import bluej.utility.javafx.FXPlatformConsumer;
 import bluej.utility.javafx.FXPlatformRunnable;
+import bluej.utility.javafx.FXPlatformSupplier;
 import bluej.utility.javafx.FXRunnable;
 import bluej.utility.javafx.JavaFXUtil;
 import com.google.common.collect.ImmutableSet;
@@ -153,6 +154,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.UnaryOperator;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -196,6 +198,8 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
     private final BooleanProperty viewingHTML = new SimpleBooleanProperty(false); // changing this alters the interface accordingly
     private ErrorDisplay errorDisplay;
     private final BitSet breakpoints = new BitSet();
+    // The properties (the hit count) of breakpoints which have them, by line index:
+    private final Map<Integer, Map<String, String>> breakpointProperties = new HashMap<>();
     private int currentStepLineIndex = -1;
     private ComboBox<String> interfaceToggle;
     private final WebView htmlPane;
@@ -220,6 +224,10 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
 
     /** Used to obtain javadoc for arbitrary methods */
     private final JavadocResolver javadocResolver;
+    // The code completion search which is currently running, if any:
+    private StreamingCompletion completionSearch;
+    // The document position at which the running completion search was started:
+    private int completionSearchStart;
     // Each element is size 2: beginning (incl) and end (excl)
     private final ArrayList<int[]> bracketMatches = new ArrayList<>();
     /**
@@ -254,6 +262,36 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         return toggleBreakpointForLine(lineIndex);
     }
 
+    @Override
+    public void marginHitCountRequestedForLine(int lineIndex)
+    {
+        BreakpointHitCountDialog dialog = new BreakpointHitCountDialog(getWindow(), lineIndex + 1,
+                breakpointProperties.getOrDefault(lineIndex, Collections.emptyMap()));
+        dialog.showAndWait().ifPresent(properties -> {
+            // Replace any existing breakpoint, so that it has the new properties:
+            if (breakpoints.get(lineIndex))
+            {
+                toggleBreakpointForLine(lineIndex);
+            }
+            boolean hasBreakpoint = watcher.breakpointToggleEvent(lineIndex + 1, true, properties.isEmpty() ? null : properties);
+            breakpoints.set(lineIndex, hasBreakpoint);
+            if (hasBreakpoint)
+            {
+                mayHaveBreakpoints = true;
+                if (!properties.isEmpty())
+                {
+                    breakpointProperties.put(lineIndex, properties);
+                }
+            }
+            else
+            {
+                DialogManager.showErrorFX(getWindow(), "breakpoint-hit-count-not-set");
+            }
+            flowEditorPane.setLineMarginGraphics(lineIndex, calculateMarginDisplay(lineIndex));
+            flowEditorPane.applyScopeBackgrounds(javaSyntaxView.getScopeBackgrounds());
+        });
+    }
+
     @Override
     public ContextMenu getContextMenuToShow(BaseEditorPane editorPane)
     {
@@ -271,6 +309,10 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         {
             mayHaveBreakpoints = true;
         }
+        else
+        {
+            breakpointProperties.remove(lineIndex);
+        }
         flowEditorPane.setLineMarginGraphics(lineIndex, calculateMarginDisplay(lineIndex));
         // We also reapply scopes:
         flowEditorPane.applyScopeBackgrounds(javaSyntaxView.getScopeBackgrounds());
@@ -322,6 +364,11 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
             return false;
         }
 
+        @Override
+        public void marginHitCountRequestedForLine(int lineIndex)
+        {
+        }
+
         @Override
         public Set<Integer> getBreakpointLines()
         {
@@ -366,6 +413,7 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         public UndoManager(Document document)
         {
             undoStack = new DocumentUndoStack(document);
+            undoStack.setCoalesceTyping(true);
             undoStack.setStateListener(this::updateState);
         }
 
@@ -780,6 +828,14 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
     {
         showErrorPopupForCaretPos(caretPos, false);
 
+        // If the caret has moved away from where code completion was started, the
+        // completions still being searched for are no longer relevant:
+        if (completionSearch != null && (caretPos < completionSearchStart
+                || document.getLineFromPosition(caretPos) != document.getLineFromPosition(completionSearchStart)))
+        {
+            cancelCompletionSearch();
+        }
+
         actions.userAction();
 
         if (PrefMgr.getFlag(PrefMgr.MATCH_BRACKETS))
@@ -2096,6 +2152,7 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         if (mayHaveBreakpoints)
         {
             breakpoints.clear();
+            breakpointProperties.clear();
             for (int lineIndex = 0; lineIndex < document.getLineCount(); lineIndex++)
             {
                 flowEditorPane.setLineMarginGraphics(lineIndex, calculateMarginDisplay(lineIndex));
@@ -2118,12 +2175,16 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
                 {
                     if (watcher != null)
                     {
-                        boolean wasSet = watcher.breakpointToggleEvent(i + 1, true);
+                        boolean wasSet = watcher.breakpointToggleEvent(i + 1, true, breakpointProperties.get(i));
                         breakpoints.set(i, wasSet);
                         if (wasSet)
                         {
                             mayHaveBreakpoints = true;
                         }
+                        else
+                        {
+                            breakpointProperties.remove(i);
+                        }
                     }
                 }
             }
@@ -2137,6 +2198,9 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
      */
     public void textReplaced(int origStartIncl, String replaced, String replacement, int linesRemoved, int linesAdded)
     {
+        // The errors are not moved by edits, but the lines they fall on may change:
+        errorManager.documentChanged();
+
         // Prevent re-entry to this method.  In theory this shouldn't happen as we
         // shouldn't modify the document in this function.  But it seems like sometimes
         // the styled changes we make cause RichTextFX to generate a plain text change event:
@@ -3030,11 +3094,20 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
 
             public void replaceAll(String replacement)
             {
-                // Sort all the found positions in descending order, so we can replace them
-                // in order without affecting the later positions in the list (earlier in file):
-                foundStarts.stream().sorted(Comparator.reverseOrder()).forEach(pos ->
-                    document.replaceText(pos, pos + searchFor.length(), replacement)
-                );
+                // Rather than replacing each result separately (which reparses, restyles and
+                // records an undo item every time), we build the new content for the whole
+                // span from the first result to the last, and replace that in one edit:
+                List<Integer> sortedStarts = foundStarts.stream().sorted().collect(Collectors.toList());
+                int spanStart = sortedStarts.get(0);
+                int spanEnd = sortedStarts.get(sortedStarts.size() - 1) + searchFor.length();
+                StringBuilder newContent = new StringBuilder();
+                int prevEnd = spanStart;
+                for (int pos : sortedStarts)
+                {
+                    newContent.append(content, prevEnd, pos).append(replacement);
+                    prevEnd = pos + searchFor.length();
+                }
+                document.replaceText(spanStart, spanEnd, newContent.toString());
             }
 
             @Override
@@ -3079,6 +3152,53 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         return currentSearchResult.get();
     }
 
+    /**
+     * Replaces all matches of the given pattern in this editor's document, using a
+     * single edit which covers the span from the first match to the last.
+     *
+     * @param literalReplacement If true, the replacement is literal text.  If false, it may refer
+     *                           to groups in the pattern (see Matcher.appendReplacement)
+     * @return The number of replacements made
+     */
+    int replaceAllMatches(Pattern pattern, String replacement, boolean literalReplacement)
+    {
+        String content = document.getFullContent();
+        Matcher m = pattern.matcher(content);
+        String matcherReplacement = literalReplacement ? Matcher.quoteReplacement(replacement) : replacement;
+        // appendReplacement copies the content from the start of the document, so we strip
+        // the part before the first match afterwards:
+        StringBuilder replaced = new StringBuilder();
+        int spanStart = -1;
+        int count = 0;
+        while (m.find())
+        {
+            if (m.end() == m.start())
+                continue;
+            if (spanStart == -1)
+                spanStart = m.start();
+            m.appendReplacement(replaced, matcherReplacement);
+            count += 1;
+        }
+        if (count > 0)
+        {
+            // The append position is now the end of the last match:
+            int spanEnd = content.length() - m.appendTail(new StringBuilder()).length();
+            document.replaceText(spanStart, spanEnd, replaced.substring(spanStart));
+        }
+        return count;
+    }
+
+    /**
+     * Opens the window for searching all the classes in this editor's project,
+     * starting with the given search.
+     */
+    void findInProject(String searchFor, boolean ignoreCase)
+    {
+        if (watcher == null || watcher.getPackage() == null)
+            return;
+        ProjectFindWindow.show(watcher.getPackage().getProject(), searchFor, ignoreCase);
+    }
+
     /**
      * Removes the selected highlights (in both the source/doc pane)
      * Note: the other highlights such as the brackets etc remain
@@ -3206,18 +3326,20 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         
          
             LocatableToken suggestToken = suggests.getSuggestionToken();
-            AssistContent[] possibleCompletions = ParseUtils.getPossibleCompletions(suggests, javadocResolver, null, parser.getContainingMethodOrClassNode(flowEditorPane.getCaretPosition()) instanceof MethodNode m ? m : null, flowEditorPane.getCaretPosition());
-            if (possibleCompletions != null)
-            {
-                Arrays.sort(possibleCompletions, AssistContent.getComparator());
-                completionCandidates.addAll(Arrays.asList(possibleCompletions));
-            }
-            
-            // Create suggestions from all the candidates
-            List<SuggestionDetails> suggestionDetails = completionCandidates.stream()
-                    .map(AssistContentThreadSafe::new)
-                    .map(ac -> new SuggestionDetailsWithHTMLDoc(ac.getName(), ExpressionCompletionCalculator.getParamsCompletionDisplay(ac), ac.getType(), SuggestionShown.COMMON, ac.getDocHTML()))
-                    .collect(Collectors.toList());
+            // The members of the target type are searched for incrementally (see StreamingCompletion),
+            // and will be added after the static classes as they are found:
+            int caretPos = flowEditorPane.getCaretPosition();
+            GenTypeClass exprType = ParseUtils.initGetPossibleCompletions(suggests);
+            CompletionSearch search = exprType == null ? null : new CompletionSearch(exprType, suggests, javadocResolver, null,
+                parser.getContainingMethodOrClassNode(caretPos) instanceof MethodNode m ? m : null, caretPos, false);
+            int staticCandidateCount = completionCandidates.size();
+
+            // Create suggestions from all the candidates.  We keep the same details object for
+            // each candidate as more arrive, so that the suggestion list can keep track of its highlight:
+            Map<AssistContent, SuggestionDetails> candidateDetails = new IdentityHashMap<>();
+            FXPlatformSupplier<List<SuggestionDetails>> makeSuggestionDetails = () -> Utility.mapList(completionCandidates,
+                ac -> candidateDetails.computeIfAbsent(ac, FlowEditor::makeSuggestionDetails));
+            List<SuggestionDetails> suggestionDetails = makeSuggestionDetails.get();
 
             // Prepare the suggestions popup
             int originalPosition = suggestToken == null ? flowEditorPane.getCaretPosition() : suggestToken.getPosition();
@@ -3328,8 +3450,28 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
                 public @OnThread(Tag.FXPlatform) void hidden()
                 {
                     flowEditorPane.setFakeCaret(false);
+                    cancelCompletionSearch();
                 }
             });
+
+            if (search != null)
+            {
+                cancelCompletionSearch();
+                suggestionList.setMoreChoicesPending(true);
+                completionSearch = new StreamingCompletion(search, (batch, finished) -> {
+                    for (AssistContent completion : batch)
+                    {
+                        completionCandidates.add(search.scopeField(completion));
+                    }
+                    // The static classes stay at the top, the rest are sorted:
+                    completionCandidates.subList(staticCandidateCount, completionCandidates.size()).sort(getCompletionOrder());
+                    suggestionList.setChoices(makeSuggestionDetails.get(), !finished);
+                });
+                completionSearchStart = originalPosition;
+                // This runs the first slice of the search straight away, which will
+                // often be enough to find all the completions:
+                completionSearch.start();
+            }
             String prefix = document.getContent(originalPosition, flowEditorPane.getCaretPosition()).toString();
             suggestionList.calculateEligible(prefix, true, false);
             suggestionList.updateVisual(prefix);
@@ -3349,6 +3491,43 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
         }
     }
 
+    /**
+     * Stops any code completion search that is still running.
+     */
+    private void cancelCompletionSearch()
+    {
+        if (completionSearch != null)
+        {
+            completionSearch.cancel();
+            completionSearch = null;
+        }
+    }
+
+    /**
+     * Gets the order for code completions in the suggestion list.  Similar to
+     * AssistContent.getComparator(), but doesn't use getParams(), which would fetch the Javadoc.
+     */
+    private static Comparator<AssistContent> getCompletionOrder()
+    {
+        return Comparator.comparing(AssistContent::getName)
+            .thenComparing(AssistContent::getKind)
+            .thenComparing(AssistContent::getParamTypesForDisplay, Utility.listComparator(Comparator.<String>naturalOrder()));
+    }
+
+    /**
+     * Makes the details to show in the suggestion list for a code completion.
+     * The Javadoc is only fetched (which may involve parsing source) when the
+     * suggestion is highlighted and its documentation displayed.
+     */
+    @OnThread(Tag.FXPlatform)
+    private static SuggestionDetails makeSuggestionDetails(AssistContent ac)
+    {
+        List<String> paramTypes = ac.getParamTypesForDisplay();
+        String paramsDisplay = paramTypes == null ? "" : "(" + String.join(", ", paramTypes) + ")";
+        return new SuggestionDetailsWithHTMLDoc(ac.getName(), paramsDisplay, ac.getType(), SuggestionShown.COMMON,
+            () -> new AssistContentThreadSafe(ac).getDocHTML());
+    }
+
     /**
      * codeComplete prints the selected text in the editor
      */
@@ -3528,11 +3707,11 @@ public class FlowEditor extends ScopeColorsBorderPane implements TextEditor, Flo
             }
 
             @Override
-            public void applyScopeBackgrounds(Map<Integer, List<BackgroundItem>> scopeBackgrounds)
+            public void applyScopeBackgrounds(LineIndexedMap<List<BackgroundItem>> scopeBackgrounds)
             {
                 if (printScopeBackgrounds)
                 {
-                    lineDisplay.applyScopeBackgrounds(scopeBackgrounds);
+                    lineDisplay.applyScopeBackgrounds(scopeBackgrounds.toMap(0, Integer.MAX_VALUE));
                 }
             }
 
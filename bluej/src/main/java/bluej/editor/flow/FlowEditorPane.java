@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2021,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2021,2022,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -541,14 +541,16 @@ public class FlowEditorPane extends BaseEditorPane implements JavaSyntaxView.Dis
         this.errorQuery = errorQuery;
     }
 
-    public void applyScopeBackgrounds(Map<Integer, List<BackgroundItem>> scopeBackgrounds)
+    public void applyScopeBackgrounds(LineIndexedMap<List<BackgroundItem>> scopeBackgrounds)
     {
         // Important to take a copy so as to not modify the original:
         HashMap<Integer, List<BackgroundItem>> withOverlays = new HashMap<>();
         Set<Integer> breakpointLines = listener.getBreakpointLines();
         int stepLine = listener.getStepLine();
         
-        scopeBackgrounds.forEach((line, scopes) -> {
+        // Only the visible lines are displayed, so there's no need to copy the rest:
+        int[] visibleLines = lineDisplay.getLineRangeVisible();
+        scopeBackgrounds.forEachInRange(visibleLines[0], visibleLines[1], (line, scopes) -> {
             if (breakpointLines.contains(line) || line == stepLine)
             {
                 ArrayList<BackgroundItem> regions = new ArrayList<>(scopes);
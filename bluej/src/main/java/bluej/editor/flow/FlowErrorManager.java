@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2019,2020,2021,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2021,2022,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -71,6 +71,9 @@ public class FlowErrorManager implements ErrorQuery
 {
     private final ObservableList<ErrorDetails> errorInfos = FXCollections.observableArrayList();
     private final FlowEditor editor;
+    // The first error overlapping each line, for fast lookup when painting the margin.
+    // Built on demand from errorInfos, and discarded (null) when the errors or the document change:
+    private LineIndexedMap<ErrorDetails> errorsByLine;
 
     /**
      * Construct a new FlowErrorManager to manage error display for the specified editor instance.
@@ -80,6 +83,7 @@ public class FlowErrorManager implements ErrorQuery
     public FlowErrorManager(FlowEditor editor)
     {
         this.editor = editor;
+        errorInfos.addListener((ListChangeListener<? super ErrorDetails>) c -> errorsByLine = null);
     }
 
     /**
@@ -174,15 +178,49 @@ public class FlowErrorManager implements ErrorQuery
     @OnThread(Tag.FXPlatform)
     public FlowErrorManager.ErrorDetails getErrorOnLine(int lineIndex)
     {
-        final int lineStart = editor.getOffsetFromLineColumn(new SourceLocation(lineIndex + 1, 1));
-        if (lineIndex + 1 >= editor.numberOfLines())
-        {
-            return errorInfos.stream().filter(e -> e.endPos >= lineStart).findFirst().orElse(null);
-        } else
+        if (errorInfos.isEmpty())
+            return null;
+        if (errorsByLine == null)
+            errorsByLine = makeErrorsByLine();
+        return errorsByLine.get(lineIndex);
+    }
+
+    /**
+     * The document content has changed, so the lines that the errors fall on may have changed.
+     */
+    @OnThread(Tag.FXPlatform)
+    public void documentChanged()
+    {
+        errorsByLine = null;
+    }
+
+    /**
+     * Makes the map from line index to the first error which overlaps that line.  An error
+     * overlaps a line if it starts at or before the beginning of the next line, and ends
+     * at or after the beginning of the line (so an error which ends at the start of a line,
+     * or starts at the start of the next line, counts as being on the line).
+     */
+    @OnThread(Tag.FXPlatform)
+    private LineIndexedMap<ErrorDetails> makeErrorsByLine()
+    {
+        Document document = editor.getSourcePane().getDocument();
+        int length = document.getLength();
+        LineIndexedMap<ErrorDetails> byLine = new LineIndexedMap<>();
+        for (ErrorDetails err : errorInfos)
         {
-            int lineEnd = editor.getOffsetFromLineColumn(new SourceLocation(lineIndex + 2, 1));
-            return errorInfos.stream().filter(e -> e.startPos <= lineEnd && e.endPos >= lineStart).findFirst().orElse(null);
+            int startLine = document.getLineFromPosition(Math.min(err.startPos, length));
+            if (startLine > 0 && err.startPos <= document.getLineStart(startLine))
+            {
+                startLine -= 1;
+            }
+            int endLine = document.getLineFromPosition(Math.min(err.endPos, length));
+            for (int line = startLine; line <= endLine; line++)
+            {
+                // Earlier errors take priority:
+                byLine.putIfAbsent(line, err);
+            }
         }
+        return byLine;
     }
 
     public List<IndexRange> getErrorUnderlines()
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2014,2015,2016,2017,2018,2019,2020,2021,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2011,2014,2015,2016,2017,2018,2019,2020,2021,2022,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -141,7 +141,7 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
     // Keep track of whether we've scheduled a recalculation after the next layout (no need for more than one to be scheduled at a time)
     private boolean scheduledRecalculateAfterLayout = false;
 
-    public Map<Integer, List<BackgroundItem>> getScopeBackgrounds()
+    public LineIndexedMap<List<BackgroundItem>> getScopeBackgrounds()
     {
         return scopeBackgrounds.scopeBackgrounds;
     }
@@ -180,9 +180,9 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
      * happens when the reparse queue is empty (and is done by the applyPendingScopeBackgrounds()
      * method)
      */
-    private final Map<Integer, List<SingleNestedScope>> pendingScopeBackgrounds = new HashMap<>();
+    private final LineIndexedMap<List<SingleNestedScope>> pendingScopeBackgrounds = new LineIndexedMap<>();
     
-    private final Map<Integer, List<StyledSegment>> styledLines = new HashMap<>();
+    private final LineIndexedMap<List<StyledSegment>> styledLines = new LineIndexedMap<>();
     
     private final LiveScopeBackgrounds scopeBackgrounds; 
 
@@ -204,18 +204,18 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
          * The nested scope information, used to reinsert into pendingScopeBackgrounds
          * if one of the indents changes.
          */
-        private final Map<Integer, List<SingleNestedScope>> sourceInfo = new HashMap<>();
+        private final LineIndexedMap<List<SingleNestedScope>> sourceInfo = new LineIndexedMap<>();
         /**
          * The actual scope backgrounds currently being displayed in the editor.  The inner lists
          * are held in paint order (outermost = first-painted = first in list).
          */
-        private final Map<Integer, List<BackgroundItem>> scopeBackgrounds  = new HashMap<>();
+        private final LineIndexedMap<List<BackgroundItem>> scopeBackgrounds = new LineIndexedMap<>();
 
         /**
          * Stores the nested scope information for a given line, which will be used to put
          * the info back into pendingScopeBackgrounds if the indent of any of the scopes changes.
          */
-        public void storeSource(Integer line, List<SingleNestedScope> info)
+        public void storeSource(int line, List<SingleNestedScope> info)
         {
             sourceInfo.put(line, info);
         }
@@ -233,7 +233,7 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
          * Adds a scope box to the end of the current paint list (i.e. will be painted over
          * the existing boxes).
          */
-        public void addScopeBox(Integer line, BackgroundItem rectangle)
+        public void addScopeBox(int line, BackgroundItem rectangle)
         {
             scopeBackgrounds.computeIfAbsent(line, k -> new ArrayList<>()).add(rectangle);
         }
@@ -246,6 +246,15 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
             scopeBackgrounds.remove(line);
             sourceInfo.remove(line);
         }
+
+        /**
+         * Removes all scopes for the given range of lines (inclusive).
+         */
+        public void removeAllScopesForLines(int firstLineIncl, int lastLineIncl)
+        {
+            scopeBackgrounds.removeRange(firstLineIncl, lastLineIncl);
+            sourceInfo.removeRange(firstLineIncl, lastLineIncl);
+        }
         
         @Override
         @OnThread(value = Tag.FXPlatform, ignoreParent = true)
@@ -279,46 +288,14 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
 
         public void linesRemoved(int firstRemovedLineIndex, int removedCount)
         {
-            HashMap<Integer, List<BackgroundItem>> newScope = new HashMap<>();
-            HashMap<Integer, List<SingleNestedScope>> newSource = new HashMap<>();
-            scopeBackgrounds.forEach((l, rs) -> {
-                if (l < firstRemovedLineIndex)
-                    newScope.put(l, rs);
-                else if (l >= firstRemovedLineIndex + removedCount)
-                    newScope.put(l - removedCount, rs);
-            });
-            sourceInfo.forEach((l, rs) -> {
-                if (l < firstRemovedLineIndex)
-                    newSource.put(l, rs);
-                else if (l >= firstRemovedLineIndex + removedCount)
-                    newSource.put(l - removedCount, rs);
-            });
-            scopeBackgrounds.clear();
-            scopeBackgrounds.putAll(newScope);
-            sourceInfo.clear();
-            sourceInfo.putAll(newSource);
+            scopeBackgrounds.linesRemoved(firstRemovedLineIndex, removedCount);
+            sourceInfo.linesRemoved(firstRemovedLineIndex, removedCount);
         }
 
         public void linesAdded(int lineIndex, int addedCount)
         {
-            HashMap<Integer, List<BackgroundItem>> newScope = new HashMap<>();
-            HashMap<Integer, List<SingleNestedScope>> newSource = new HashMap<>();
-            scopeBackgrounds.forEach((l, rs) -> {
-                if (l < lineIndex)
-                    newScope.put(l, rs);
-                else
-                    newScope.put(l + addedCount, rs);
-            });
-            sourceInfo.forEach((l, rs) -> {
-                if (l < lineIndex)
-                    newSource.put(l, rs);
-                else
-                    newSource.put(l + addedCount, rs);
-            });
-            scopeBackgrounds.clear();
-            scopeBackgrounds.putAll(newScope);
-            sourceInfo.clear();
-            sourceInfo.putAll(newSource);
+            scopeBackgrounds.linesInserted(lineIndex, addedCount);
+            sourceInfo.linesInserted(lineIndex, addedCount);
         }
     }
 
@@ -400,11 +377,13 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
                 if (oldText.length() != 0)
                 {
                     scopeBackgrounds.linesRemoved(document.getLineFromPosition(start), linesRemoved);
+                    styledLines.linesRemoved(document.getLineFromPosition(start), linesRemoved);
                     fireRemoveUpdate(start, oldText.length());
                 }
                 if (newText.length() != 0)
                 {
                     scopeBackgrounds.linesAdded(document.getLineFromPosition(start), linesAdded);
+                    styledLines.linesInserted(document.getLineFromPosition(start), linesAdded);
                     fireInsertUpdate(start, newText.length());
                 }                
                 scheduleReparseRunner();
@@ -559,6 +538,27 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
         // display is null during testing or when used from Stride -- just skip updating the scopes in that case:
         if (display == null)
             return;
+
+        if (!isPrinting())
+        {
+            // Only lines in the latest rendered range need their scopes now.  Lines outside it
+            // will be calculated if they are scrolled into view (see renderedLines), so we just
+            // discard any existing scope information for them to make sure it's not stale:
+            int visibleFirstIncl = Math.max(firstLineIncl, latestRenderStartIncl);
+            int visibleLastIncl = Math.min(lastLineIncl, latestRenderEndIncl);
+            if (firstLineIncl < visibleFirstIncl)
+            {
+                discardScopes(firstLineIncl, Math.min(lastLineIncl, visibleFirstIncl - 1));
+            }
+            if (lastLineIncl > visibleLastIncl)
+            {
+                discardScopes(Math.max(firstLineIncl, visibleLastIncl + 1), lastLineIncl);
+            }
+            if (visibleFirstIncl > visibleLastIncl)
+                return;
+            firstLineIncl = visibleFirstIncl;
+            lastLineIncl = visibleLastIncl;
+        }
         
         recalcScopeMarkers((int) display.getTextDisplayWidth(),
                 //(widthProperty == null || widthProperty.get() == 0) ? 200 :
@@ -566,6 +566,12 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
                 firstLineIncl, lastLineIncl, 0);
     }
 
+    private void discardScopes(int firstLineIncl, int lastLineIncl)
+    {
+        scopeBackgrounds.removeAllScopesForLines(firstLineIncl, lastLineIncl);
+        pendingScopeBackgrounds.removeRange(firstLineIncl, lastLineIncl);
+    }
+
     /*
     public void setEditorPane(MoeEditorPane editorPane)
     {
@@ -2333,6 +2339,10 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
         
         int newAfterStartIncl = latestRenderEndIncl + 1;
         int newAfterEndIncl = toLineIndexIncl;
+
+        // Must update these before recalculating, as recalculateScopes only calculates the rendered lines:
+        latestRenderStartIncl = fromLineIndexIncl;
+        latestRenderEndIncl = toLineIndexIncl;
         
         if (newBeforeStartIncl <= newBeforeEndIncl || newAfterStartIncl <= newAfterEndIncl)
         {
@@ -2354,8 +2364,6 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
                 display.requestLayout();
             }
         }
-        latestRenderStartIncl = fromLineIndexIncl;
-        latestRenderEndIncl = toLineIndexIncl;
     }
 
     private void scheduleReparseRunner()
@@ -2539,10 +2547,7 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
      */
     public void restyleLines(int start, int end)
     {
-        for (int i = start; i <= end; i++)
-        {
-            styledLines.remove(i);
-        }
+        styledLines.removeRange(start, end);
     }
 
     /**
@@ -2661,7 +2666,7 @@ public class JavaSyntaxView implements ReparseableDocument, LineDisplayListener
 
         public double getTextDisplayWidth();
 
-        public void applyScopeBackgrounds(Map<Integer, List<BackgroundItem>> scopeBackgrounds);
+        public void applyScopeBackgrounds(LineIndexedMap<List<BackgroundItem>> scopeBackgrounds);
 
         public void repaint();
 
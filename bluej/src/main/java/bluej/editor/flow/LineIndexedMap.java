@@ -0,0 +1,402 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.IntFunction;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A map from (zero-based) line index to a value, for information which is attached to
+ * lines of a document, such as scope backgrounds or cached syntax styles.
+ *
+ * As well as the usual map operations, it supports shifting the entries after a point
+ * when lines are inserted into or removed from the document.  This takes O(log n) time
+ * (plus the time to discard the entries on any removed lines), rather than re-keying every
+ * entry after the edit as a HashMap would need.
+ *
+ * Internally this is a treap (a randomised balanced binary tree) ordered by line, where
+ * each node stores the distance from the line of the previous entry, rather than its
+ * absolute line.  Shifting all the entries after a point then only requires changing the
+ * distance stored in one node.  This class is not thread-safe.
+ */
+@OnThread(Tag.Any)
+public class LineIndexedMap<V>
+{
+    private static class Node<V>
+    {
+        private V value;
+        // The line of this entry minus the line of the previous entry in the same tree,
+        // or the absolute line if this is the first entry in the tree:
+        private int gap;
+        // The sum of the gaps in this subtree, i.e. the line of its last entry relative
+        // to the line of the entry before the subtree:
+        private int gapSum;
+        private int size;
+        private final int priority;
+        private Node<V> left;
+        private Node<V> right;
+
+        private Node(V value, int gap, int priority)
+        {
+            this.value = value;
+            this.gap = gap;
+            this.gapSum = gap;
+            this.size = 1;
+            this.priority = priority;
+        }
+
+        private void update()
+        {
+            gapSum = gapSumOf(left) + gap + gapSumOf(right);
+            size = sizeOf(left) + 1 + sizeOf(right);
+        }
+    }
+
+    private Node<V> root;
+    // Seed for the xorshift generator used for the node priorities:
+    private int seed = 0x2545F491;
+
+    private static int gapSumOf(Node<?> n)
+    {
+        return n == null ? 0 : n.gapSum;
+    }
+
+    private static int sizeOf(Node<?> n)
+    {
+        return n == null ? 0 : n.size;
+    }
+
+    private int nextPriority()
+    {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+
+    /**
+     * Gets the value for the given line, or null if there is none.
+     */
+    public V get(int line)
+    {
+        Node<V> n = findNode(line);
+        return n == null ? null : n.value;
+    }
+
+    /**
+     * Checks whether there is a value for the given line.
+     */
+    public boolean containsKey(int line)
+    {
+        return findNode(line) != null;
+    }
+
+    private Node<V> findNode(int line)
+    {
+        int base = 0;
+        Node<V> n = root;
+        while (n != null)
+        {
+            int nodeLine = base + gapSumOf(n.left) + n.gap;
+            if (line == nodeLine)
+                return n;
+            else if (line < nodeLine)
+                n = n.left;
+            else
+            {
+                base = nodeLine;
+                n = n.right;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Sets the value for the given line, replacing any existing value.
+     */
+    public void put(int line, V value)
+    {
+        if (line < 0)
+            throw new IllegalArgumentException("Negative line index: " + line);
+        Node<V> existing = findNode(line);
+        if (existing != null)
+        {
+            existing.value = value;
+            return;
+        }
+        Node<V>[] parts = split(root, line);
+        root = merge(merge(parts[0], new Node<>(value, line, nextPriority())), parts[1]);
+    }
+
+    /**
+     * Sets the value for the given line if there is not already one.
+     * @return The existing value, or null if there was none (and the given value was put).
+     */
+    public V putIfAbsent(int line, V value)
+    {
+        V existing = get(line);
+        if (existing == null)
+            put(line, value);
+        return existing;
+    }
+
+    /**
+     * Gets the value for the given line, first putting the result of the given function
+     * if there is not yet a value for the line.
+     */
+    public V computeIfAbsent(int line, IntFunction<V> makeValue)
+    {
+        V existing = get(line);
+        if (existing == null)
+        {
+            existing = makeValue.apply(line);
+            put(line, existing);
+        }
+        return existing;
+    }
+
+    /**
+     * Removes the value for the given line.
+     * @return The value that was removed, or null if there was none.
+     */
+    public V remove(int line)
+    {
+        if (findNode(line) == null)
+            return null;
+        Node<V>[] beforeAndFrom = split(root, line);
+        Node<V>[] atAndAfter = split(beforeAndFrom[1], line + 1);
+        root = merge(beforeAndFrom[0], atAndAfter[1]);
+        return atAndAfter[0].value;
+    }
+
+    /**
+     * Removes the values for all lines in the given range (inclusive).  The lines of
+     * the remaining entries are unchanged.
+     */
+    public void removeRange(int fromLineIncl, int toLineIncl)
+    {
+        if (fromLineIncl > toLineIncl || root == null)
+            return;
+        Node<V>[] beforeAndFrom = split(root, fromLineIncl);
+        Node<V>[] removedAndAfter = split(beforeAndFrom[1], toLineIncl + 1);
+        root = merge(beforeAndFrom[0], removedAndAfter[1]);
+    }
+
+    /**
+     * Lines have been inserted at the given line index, so all entries at or after
+     * that line move down by the given count.
+     */
+    public void linesInserted(int lineIndex, int count)
+    {
+        if (count == 0 || root == null)
+            return;
+        Node<V>[] parts = split(root, lineIndex);
+        addToFirstGap(parts[1], count);
+        root = merge(parts[0], parts[1]);
+    }
+
+    /**
+     * Lines have been removed from the document, starting at the given line index.
+     * All entries for the removed lines are discarded, and all entries after them
+     * move up by the given count.
+     */
+    public void linesRemoved(int firstRemovedLineIndex, int count)
+    {
+        if (count == 0 || root == null)
+            return;
+        Node<V>[] beforeAndFrom = split(root, firstRemovedLineIndex);
+        Node<V>[] removedAndAfter = split(beforeAndFrom[1], firstRemovedLineIndex + count);
+        addToFirstGap(removedAndAfter[1], -count);
+        root = merge(beforeAndFrom[0], removedAndAfter[1]);
+    }
+
+    /**
+     * Calls the given action for each entry, in ascending order of line.
+     */
+    public void forEach(BiConsumer<Integer, ? super V> action)
+    {
+        forEachInRange(0, Integer.MAX_VALUE, action);
+    }
+
+    /**
+     * Calls the given action for each entry with a line in the given range,
+     * in ascending order of line.  This only visits the parts of the tree which overlap
+     * the range, so it is cheap to call for (say) the visible lines of a large document.
+     */
+    public void forEachInRange(int fromLineIncl, int toLineIncl, BiConsumer<Integer, ? super V> action)
+    {
+        forEachInRange(root, 0, fromLineIncl, toLineIncl, action);
+    }
+
+    private static <V> void forEachInRange(Node<V> n, int base, int fromLineIncl, int toLineIncl, BiConsumer<Integer, ? super V> action)
+    {
+        while (n != null)
+        {
+            int nodeLine = base + gapSumOf(n.left) + n.gap;
+            if (nodeLine > fromLineIncl)
+                forEachInRange(n.left, base, fromLineIncl, toLineIncl, action);
+            if (nodeLine > toLineIncl)
+                return;
+            if (nodeLine >= fromLineIncl)
+                action.accept(nodeLine, n.value);
+            // Tail-iterate to the right:
+            base = nodeLine;
+            n = n.right;
+        }
+    }
+
+    /**
+     * Replaces each value with the result of the given function.
+     */
+    public void replaceAll(BiFunction<Integer, ? super V, ? extends V> function)
+    {
+        replaceAll(root, 0, function);
+    }
+
+    private static <V> void replaceAll(Node<V> n, int base, BiFunction<Integer, ? super V, ? extends V> function)
+    {
+        while (n != null)
+        {
+            int nodeLine = base + gapSumOf(n.left) + n.gap;
+            replaceAll(n.left, base, function);
+            n.value = function.apply(nodeLine, n.value);
+            base = nodeLine;
+            n = n.right;
+        }
+    }
+
+    /**
+     * Makes a new HashMap with the entries for lines in the given range.
+     */
+    public Map<Integer, V> toMap(int fromLineIncl, int toLineIncl)
+    {
+        HashMap<Integer, V> r = new HashMap<>();
+        forEachInRange(fromLineIncl, toLineIncl, r::put);
+        return r;
+    }
+
+    public int size()
+    {
+        return sizeOf(root);
+    }
+
+    public boolean isEmpty()
+    {
+        return root == null;
+    }
+
+    public void clear()
+    {
+        root = null;
+    }
+
+    /**
+     * Splits the tree into two: those entries with line less than the given line, and
+     * those with line greater than or equal to it.  Both resulting trees use absolute
+     * lines (i.e. the first gap in each is relative to zero).
+     */
+    private Node<V>[] split(Node<V> t, int line)
+    {
+        @SuppressWarnings("unchecked")
+        Node<V>[] parts = new Node[2];
+        splitRec(t, line, 0, parts);
+        // The first entry of the second tree was relative to the last entry of the first:
+        addToFirstGap(parts[1], gapSumOf(parts[0]));
+        return parts;
+    }
+
+    private static <V> void splitRec(Node<V> t, int line, int base, Node<V>[] parts)
+    {
+        if (t == null)
+        {
+            parts[0] = null;
+            parts[1] = null;
+            return;
+        }
+        int nodeLine = base + gapSumOf(t.left) + t.gap;
+        if (nodeLine < line)
+        {
+            splitRec(t.right, line, nodeLine, parts);
+            t.right = parts[0];
+            t.update();
+            parts[0] = t;
+        }
+        else
+        {
+            splitRec(t.left, line, base, parts);
+            t.left = parts[1];
+            t.update();
+            parts[1] = t;
+        }
+    }
+
+    /**
+     * Joins two trees using absolute lines, where all the entries in b have a higher
+     * line than all the entries in a.  The result uses absolute lines.
+     */
+    private static <V> Node<V> merge(Node<V> a, Node<V> b)
+    {
+        // Make the first entry of b relative to the last entry of a:
+        addToFirstGap(b, -gapSumOf(a));
+        return mergeRec(a, b);
+    }
+
+    private static <V> Node<V> mergeRec(Node<V> a, Node<V> b)
+    {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (a.priority > b.priority)
+        {
+            a.right = mergeRec(a.right, b);
+            a.update();
+            return a;
+        }
+        else
+        {
+            b.left = mergeRec(a, b.left);
+            b.update();
+            return b;
+        }
+    }
+
+    /**
+     * Adds the given amount to the gap of the first entry in the tree, which shifts
+     * the line of every entry in the tree by that amount.
+     */
+    private static void addToFirstGap(Node<?> t, int amount)
+    {
+        for (Node<?> n = t; n != null; n = n.left)
+        {
+            n.gapSum += amount;
+            if (n.left == null)
+                n.gap += amount;
+        }
+    }
+}
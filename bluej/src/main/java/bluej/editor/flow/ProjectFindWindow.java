@@ -0,0 +1,274 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import bluej.BlueJTheme;
+import bluej.Config;
+import bluej.editor.Editor;
+import bluej.editor.TextEditor;
+import bluej.editor.flow.ProjectSearch.SearchHit;
+import bluej.pkgmgr.Project;
+import bluej.pkgmgr.target.ClassTarget;
+import bluej.utility.javafx.JavaFXUtil;
+import javafx.beans.binding.Bindings;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.BorderPane;
+import javafx.scene.layout.GridPane;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.stage.Stage;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A window for searching (and replacing) across all the Java classes in a project.
+ * The results are shown as they are found, and double-clicking a result opens the
+ * class's editor at that position.  There is at most one window per project.
+ */
+@OnThread(Tag.FXPlatform)
+public class ProjectFindWindow
+{
+    private static final Map<Project, ProjectFindWindow> windows = new IdentityHashMap<>();
+
+    private final Project project;
+    private final Stage stage;
+    private final TextField findField;
+    private final TextField replaceField;
+    private final CheckBox matchCaseCheckBox;
+    private final CheckBox regexCheckBox;
+    private final Label statusLabel;
+    private final ObservableList<SearchHit> results = FXCollections.observableArrayList();
+    // The search currently running (or finished), null if none:
+    private ProjectSearch currentSearch;
+    // The pattern for the current search:
+    private Pattern currentPattern;
+
+    /**
+     * Shows the find window for the given project (creating it if necessary), and
+     * searches for the given text.
+     */
+    public static void show(Project project, String searchFor, boolean ignoreCase)
+    {
+        ProjectFindWindow window = windows.computeIfAbsent(project, ProjectFindWindow::new);
+        window.findField.setText(searchFor);
+        window.matchCaseCheckBox.setSelected(!ignoreCase);
+        window.stage.show();
+        window.stage.toFront();
+        window.findField.requestFocus();
+        window.search();
+    }
+
+    private ProjectFindWindow(Project project)
+    {
+        this.project = project;
+        stage = new Stage();
+        stage.setTitle(Config.getString("editor.projectfind.title") + " - " + project.getProjectName());
+        BlueJTheme.setWindowIconFX(stage);
+        stage.setMinWidth(400.0);
+        stage.setMinHeight(250.0);
+        Config.loadAndTrackPositionAndSize(stage, "bluej.projectfind");
+        stage.setOnHidden(e -> {
+            cancelSearch();
+            windows.remove(project);
+        });
+
+        findField = new TextField();
+        JavaFXUtil.addStyleClass(findField, "moe-find-field");
+        findField.setOnAction(e -> search());
+        matchCaseCheckBox = new CheckBox(Config.getString("editor.findpanel.matchCase"));
+        regexCheckBox = new CheckBox(Config.getString("editor.projectfind.regex"));
+        Button findButton = new Button(Config.getString("editor.projectfind.find"));
+        findButton.setOnAction(e -> search());
+
+        replaceField = new TextField();
+        Button replaceAllButton = new Button(Config.getString("editor.projectfind.replaceAll"));
+        replaceAllButton.setOnAction(e -> replaceAll());
+        replaceAllButton.disableProperty().bind(Bindings.isEmpty(results));
+
+        GridPane fields = new GridPane();
+        fields.setHgap(5);
+        fields.setVgap(5);
+        fields.add(new Label(Config.getString("editor.findpanel.findLabel")), 0, 0);
+        fields.add(findField, 1, 0);
+        fields.add(findButton, 2, 0);
+        fields.add(new Label(Config.getString("editor.replacePanel.replaceLabel")), 0, 1);
+        fields.add(replaceField, 1, 1);
+        fields.add(replaceAllButton, 2, 1);
+        GridPane.setHgrow(findField, Priority.ALWAYS);
+        HBox options = new HBox(10, matchCaseCheckBox, regexCheckBox);
+        options.setAlignment(Pos.CENTER_LEFT);
+        fields.add(options, 1, 2);
+        for (Button b : new Button[] {findButton, replaceAllButton})
+        {
+            b.setMaxWidth(Double.MAX_VALUE);
+        }
+
+        ListView<SearchHit> resultList = new ListView<>(results);
+        resultList.setCellFactory(lv -> new SearchHitCell());
+        resultList.setOnMouseClicked(e -> {
+            if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2)
+            {
+                showHit(resultList.getSelectionModel().getSelectedItem());
+            }
+        });
+        resultList.setOnKeyPressed(e -> {
+            if (e.getCode() == KeyCode.ENTER)
+            {
+                showHit(resultList.getSelectionModel().getSelectedItem());
+                e.consume();
+            }
+        });
+
+        statusLabel = new Label();
+
+        BorderPane root = new BorderPane(resultList, fields, null, statusLabel, null);
+        BorderPane.setMargin(fields, new Insets(0, 0, 8, 0));
+        BorderPane.setMargin(statusLabel, new Insets(5, 0, 0, 0));
+        root.setPadding(new Insets(10));
+        stage.setScene(new Scene(root, 600, 400));
+        Config.addEditorStylesheets(stage.getScene());
+    }
+
+    /**
+     * Starts a new search with the current content of the find field, cancelling any search in progress.
+     */
+    private void search()
+    {
+        search(null);
+    }
+
+    /**
+     * Starts a new search with the current content of the find field, cancelling any search in progress.
+     *
+     * @param statusPrefix  A message to show before the search status (e.g. the result of a
+     *                      replacement which preceded the search), or null if none.
+     */
+    private void search(String statusPrefix)
+    {
+        String prefix = statusPrefix == null ? "" : statusPrefix + "  ";
+        cancelSearch();
+        results.clear();
+        currentPattern = null;
+        String searchFor = findField.getText();
+        if (searchFor.isEmpty())
+        {
+            statusLabel.setText(prefix);
+            return;
+        }
+        try
+        {
+            currentPattern = ProjectSearch.makePattern(searchFor, !matchCaseCheckBox.isSelected(), regexCheckBox.isSelected());
+        }
+        catch (PatternSyntaxException e)
+        {
+            statusLabel.setText(prefix + e.getDescription());
+            return;
+        }
+        statusLabel.setText(prefix + Config.getString("editor.projectfind.searching"));
+        currentSearch = new ProjectSearch(project, currentPattern, results::addAll, () -> {
+            long classCount = results.stream().map(SearchHit::getTarget).distinct().count();
+            statusLabel.setText(prefix + Config.getString("editor.projectfind.found")
+                .replace("$matches", Integer.toString(results.size()))
+                .replace("$classes", Long.toString(classCount)));
+        });
+        currentSearch.start();
+    }
+
+    private void cancelSearch()
+    {
+        if (currentSearch != null)
+        {
+            currentSearch.cancel();
+            currentSearch = null;
+        }
+    }
+
+    /**
+     * Replaces all matches of the current search, in all the classes where it was found,
+     * then searches again.  The number replaced is shown along with the result of the new search.
+     */
+    private void replaceAll()
+    {
+        if (currentPattern == null)
+            return;
+        cancelSearch();
+        List<ClassTarget> targets = new ArrayList<>(new LinkedHashSet<>(results.stream().map(SearchHit::getTarget).toList()));
+        int replaced = ProjectSearch.replaceAll(targets, currentPattern, replaceField.getText(), !regexCheckBox.isSelected());
+        search(Config.getString("editor.projectfind.replaced").replace("$", Integer.toString(replaced)));
+    }
+
+    /**
+     * Opens the editor for the given hit's class, and selects the hit.
+     */
+    private void showHit(SearchHit hit)
+    {
+        if (hit == null)
+            return;
+        Editor editor = hit.getTarget().getEditor();
+        if (editor == null)
+            return;
+        editor.setEditorVisible(true, false);
+        TextEditor textEditor = editor.assumeText();
+        if (textEditor != null)
+        {
+            textEditor.setSelection(hit.getStart(), hit.getEnd());
+        }
+    }
+
+    private static class SearchHitCell extends ListCell<SearchHit>
+    {
+        @Override
+        @OnThread(value = Tag.FXPlatform, ignoreParent = true)
+        protected void updateItem(SearchHit hit, boolean empty)
+        {
+            super.updateItem(hit, empty);
+            if (empty || hit == null)
+            {
+                setText(null);
+            }
+            else
+            {
+                setText(hit.getTarget().getQualifiedName() + ":" + hit.getStart().getLine() + "   " + hit.getLineText().strip());
+            }
+        }
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import bluej.editor.Editor;
+import bluej.editor.TextEditor;
+import bluej.extensions2.SourceType;
+import bluej.parser.SourceLocation;
+import bluej.pkgmgr.Package;
+import bluej.pkgmgr.Project;
+import bluej.pkgmgr.target.ClassTarget;
+import bluej.utility.Debug;
+import bluej.utility.Utility;
+import bluej.utility.javafx.FXPlatformConsumer;
+import bluej.utility.javafx.FXPlatformRunnable;
+import bluej.utility.javafx.JavaFXUtil;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A search for a pattern across all the Java sources in a project.
+ *
+ * When the search is started, the content of every open editor is snapshotted
+ * (on the FX thread), and the rest of the classes are recorded as files to read.
+ * Each source is then searched by a background task, with closed files being read
+ * via a memory-mapped buffer.  The hits for each source are passed back to the FX
+ * thread as soon as that source has been searched, so the results can be shown
+ * while the search continues.
+ *
+ * A search can be cancelled at any time; searches in progress (including a slow
+ * regex match) notice the cancellation promptly and stop.
+ */
+@OnThread(Tag.FXPlatform)
+public class ProjectSearch
+{
+    // How many characters a regex matcher reads between checks for cancellation:
+    private static final int CANCEL_CHECK_INTERVAL = 4096;
+
+    /**
+     * A single match in a class's source.
+     */
+    @OnThread(Tag.Any)
+    public static class SearchHit
+    {
+        private final ClassTarget target;
+        private final SourceLocation start;
+        private final SourceLocation end;
+        private final String lineText;
+
+        private SearchHit(ClassTarget target, SourceLocation start, SourceLocation end, String lineText)
+        {
+            this.target = target;
+            this.start = start;
+            this.end = end;
+            this.lineText = lineText;
+        }
+
+        public ClassTarget getTarget()
+        {
+            return target;
+        }
+
+        /**
+         * The start of the match (line and column are 1-based)
+         */
+        public SourceLocation getStart()
+        {
+            return start;
+        }
+
+        /**
+         * The end of the match, exclusive (line and column are 1-based)
+         */
+        public SourceLocation getEnd()
+        {
+            return end;
+        }
+
+        /**
+         * The content of the line on which the match begins, without the line terminator.
+         */
+        public String getLineText()
+        {
+            return lineText;
+        }
+    }
+
+    /**
+     * A source to search: either a snapshot of an open editor's content, or a file.
+     */
+    @OnThread(Tag.Any)
+    private static class SearchSource
+    {
+        private final ClassTarget target;
+        private final String snapshot;
+        private final File file;
+
+        private SearchSource(ClassTarget target, String snapshot, File file)
+        {
+            this.target = target;
+            this.snapshot = snapshot;
+            this.file = file;
+        }
+    }
+
+    private final Project project;
+    private final Pattern pattern;
+    private final FXPlatformConsumer<List<SearchHit>> hitsListener;
+    private final FXPlatformRunnable finishedListener;
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+    /**
+     * Makes a new search.  It does not begin until start() is called.
+     *
+     * @param project The project to search
+     * @param pattern The pattern to search for (see makePattern)
+     * @param hitsListener Called with the hits from each source which has at least one hit.
+     *                     Not called after the search has been cancelled.
+     * @param finishedListener Called once all sources have been searched.  Not called if the
+     *                         search is cancelled.
+     */
+    public ProjectSearch(Project project, Pattern pattern, FXPlatformConsumer<List<SearchHit>> hitsListener, FXPlatformRunnable finishedListener)
+    {
+        this.project = project;
+        this.pattern = pattern;
+        this.hitsListener = hitsListener;
+        this.finishedListener = finishedListener;
+    }
+
+    /**
+     * Makes the pattern for a search.
+     *
+     * @param searchFor The text to search for
+     * @param ignoreCase Whether to ignore case when matching
+     * @param regex Whether searchFor is a regular expression (if false, it is a literal string)
+     * @throws java.util.regex.PatternSyntaxException if regex is true and searchFor is not a valid regular expression
+     */
+    @OnThread(Tag.Any)
+    public static Pattern makePattern(String searchFor, boolean ignoreCase, boolean regex)
+    {
+        int flags = (regex ? 0 : Pattern.LITERAL) | (ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        return Pattern.compile(searchFor, flags | Pattern.MULTILINE);
+    }
+
+    /**
+     * Starts the search.  The sources are gathered on the calling (FX) thread,
+     * and the searching is done in the background.
+     */
+    public void start()
+    {
+        List<SearchSource> sources = gatherSources(project);
+        if (sources.isEmpty())
+        {
+            finishedListener.run();
+            return;
+        }
+
+        AtomicInteger remaining = new AtomicInteger(sources.size());
+        for (SearchSource source : sources)
+        {
+            Utility.runBackground(() -> {
+                List<SearchHit> hits = searchSource(source);
+                if (hits != null && !hits.isEmpty())
+                {
+                    JavaFXUtil.runPlatformLater(() -> {
+                        if (!cancelled.get())
+                            hitsListener.accept(hits);
+                    });
+                }
+                // Must come after posting our hits, so that the finished notification is queued after all the hits:
+                if (remaining.decrementAndGet() == 0)
+                {
+                    JavaFXUtil.runPlatformLater(() -> {
+                        if (!cancelled.get())
+                            finishedListener.run();
+                    });
+                }
+            });
+        }
+    }
+
+    /**
+     * Cancels the search.  No further hits will be passed to the listener.
+     */
+    public void cancel()
+    {
+        cancelled.set(true);
+    }
+
+    /**
+     * Gets the sources to search: all Java classes in the project, using the
+     * content of the editor for those which are open.
+     */
+    private static List<SearchSource> gatherSources(Project project)
+    {
+        List<SearchSource> sources = new ArrayList<>();
+        for (String packageName : project.getPackageNames())
+        {
+            Package pkg = project.getPackage(packageName);
+            if (pkg == null)
+                continue;
+            for (ClassTarget target : pkg.getClassTargets())
+            {
+                if (target.getSourceType() != SourceType.Java)
+                    continue;
+                FlowEditor editor = getFlowEditor(target.getEditorIfOpen());
+                if (editor != null)
+                {
+                    sources.add(new SearchSource(target, editor.getSourcePane().getDocument().getFullContent(), null));
+                }
+                else
+                {
+                    sources.add(new SearchSource(target, null, target.getJavaSourceFile()));
+                }
+            }
+        }
+        return sources;
+    }
+
+    private static FlowEditor getFlowEditor(Editor editor)
+    {
+        if (editor == null)
+            return null;
+        TextEditor textEditor = editor.assumeText();
+        return textEditor instanceof FlowEditor ? (FlowEditor) textEditor : null;
+    }
+
+    /**
+     * Searches a single source.  Returns null if the search was cancelled or the source could not be read.
+     */
+    @OnThread(Tag.Worker)
+    private List<SearchHit> searchSource(SearchSource source)
+    {
+        if (cancelled.get())
+            return null;
+        try
+        {
+            CharSequence content = source.snapshot != null ? source.snapshot : readSource(source.file, project.getProjectCharset());
+            return findHits(source.target, content);
+        }
+        catch (CancellationException e)
+        {
+            return null;
+        }
+        catch (IOException e)
+        {
+            Debug.reportError("Problem searching " + source.file, e);
+            return null;
+        }
+    }
+
+    @OnThread(Tag.Worker)
+    private List<SearchHit> findHits(ClassTarget target, CharSequence content)
+    {
+        List<SearchHit> hits = new ArrayList<>();
+        Matcher m = pattern.matcher(new CancellableCharSequence(content, cancelled));
+        // We track the line as we go through the matches, rather than counting from
+        // the start of the content for each one:
+        int line = 1;
+        int lineStart = 0;
+        int countedTo = 0;
+        while (m.find())
+        {
+            // Empty matches (e.g. of "^") aren't useful results:
+            if (m.end() == m.start())
+                continue;
+            for (; countedTo < m.start(); countedTo++)
+            {
+                if (content.charAt(countedTo) == '\n')
+                {
+                    line += 1;
+                    lineStart = countedTo + 1;
+                }
+            }
+            int lineEnd = indexOf(content, '\n', lineStart);
+            SourceLocation start = new SourceLocation(line, m.start() - lineStart + 1);
+            // The match may span several lines:
+            int endLine = line;
+            int endLineStart = lineStart;
+            for (int i = m.start(); i < m.end(); i++)
+            {
+                if (content.charAt(i) == '\n')
+                {
+                    endLine += 1;
+                    endLineStart = i + 1;
+                }
+            }
+            SourceLocation end = new SourceLocation(endLine, m.end() - endLineStart + 1);
+            hits.add(new SearchHit(target, start, end, content.subSequence(lineStart, lineEnd).toString()));
+        }
+        return hits;
+    }
+
+    @OnThread(Tag.Any)
+    private static int indexOf(CharSequence content, char c, int from)
+    {
+        for (int i = from; i < content.length(); i++)
+        {
+            if (content.charAt(i) == c)
+                return i;
+        }
+        return content.length();
+    }
+
+    /**
+     * Reads a source file via a memory-mapped buffer, normalising it in the same way as
+     * the editor does when loading it (so that the positions of hits match the positions
+     * in the editor if the file is then opened).
+     */
+    @OnThread(Tag.Worker)
+    private static CharSequence readSource(File file, Charset charset) throws IOException
+    {
+        CharSequence content;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            content = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(buffer);
+        }
+        // Only make a copy if we need to modify it:
+        if (indexOf(content, '\r', 0) != content.length() || indexOf(content, '\t', 0) != content.length())
+        {
+            content = content.toString().replace("\r", "").replace("\t", "    ");
+        }
+        return content;
+    }
+
+    /**
+     * Replaces all matches of the given pattern in the given classes.  Each class's source is
+     * changed with a single edit in its editor.  The editors for classes which were not open are
+     * opened (but not shown), and saved after the change.
+     *
+     * @param targets The classes in which to replace
+     * @param pattern The pattern to replace
+     * @param replacement The replacement text
+     * @param literalReplacement If true, the replacement is literal text.  If false, it may refer
+     *                           to groups in the pattern (see Matcher.appendReplacement)
+     * @return The total number of replacements made
+     */
+    public static int replaceAll(List<ClassTarget> targets, Pattern pattern, String replacement, boolean literalReplacement)
+    {
+        int total = 0;
+        for (ClassTarget target : targets)
+        {
+            boolean wasOpen = target.getEditorIfOpen() != null;
+            FlowEditor editor = getFlowEditor(target.getEditor());
+            if (editor == null)
+                continue;
+            int count = editor.replaceAllMatches(pattern, replacement, literalReplacement);
+            total += count;
+            if (count > 0 && !wasOpen)
+            {
+                try
+                {
+                    editor.save();
+                }
+                catch (IOException e)
+                {
+                    Debug.reportError("Problem saving " + target.getQualifiedName() + " after replace", e);
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * A wrapper around a CharSequence which throws CancellationException from
+     * charAt if the search has been cancelled.  Regex matching works via charAt,
+     * so this lets us abandon even a very slow match part way through.
+     */
+    @OnThread(Tag.Any)
+    private static class CancellableCharSequence implements CharSequence
+    {
+        private final CharSequence content;
+        private final AtomicBoolean cancelled;
+        private int accessesUntilCheck = CANCEL_CHECK_INTERVAL;
+
+        private CancellableCharSequence(CharSequence content, AtomicBoolean cancelled)
+        {
+            this.content = content;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        public int length()
+        {
+            return content.length();
+        }
+
+        @Override
+        public char charAt(int index)
+        {
+            if (--accessesUntilCheck == 0)
+            {
+                accessesUntilCheck = CANCEL_CHECK_INTERVAL;
+                if (cancelled.get())
+                    throw new CancellationException();
+            }
+            return content.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end)
+        {
+            return new CancellableCharSequence(content.subSequence(start, end), cancelled);
+        }
+
+        @Override
+        public String toString()
+        {
+            return content.toString();
+        }
+    }
+}
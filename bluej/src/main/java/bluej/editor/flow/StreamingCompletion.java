@@ -0,0 +1,120 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import bluej.parser.AssistContent;
+import bluej.parser.CompletionSearch;
+import bluej.utility.javafx.FXPlatformBiConsumer;
+import bluej.utility.javafx.JavaFXUtil;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Runs a CompletionSearch in short slices, passing each batch of completions
+ * to a listener as soon as it is found.
+ *
+ * The reflective type information that the search uses may only be accessed
+ * on the FX thread, so rather than running the whole search in one go (which
+ * freezes the editor for targets with a large type hierarchy, such as JavaFX
+ * controls), we scan types until a small time budget is used up, and then
+ * yield the FX thread and continue afterwards.  Input events queued in the
+ * meantime are processed between slices, so the user can keep typing, and
+ * if they move away the search can be cancelled.
+ */
+@OnThread(Tag.FXPlatform)
+class StreamingCompletion
+{
+    // The maximum time to spend in one slice of searching, in nanoseconds:
+    private static final long SLICE_NANOS = 10_000_000L;
+
+    private final CompletionSearch search;
+    // Called with each new batch, and whether the search has now finished:
+    private final FXPlatformBiConsumer<List<AssistContent>, Boolean> batchListener;
+    private boolean cancelled = false;
+    private boolean finished = false;
+
+    /**
+     * @param search The search to run
+     * @param batchListener Called with each batch of completions found, and a flag
+     *                      which is true for the final batch (which may be empty).
+     *                      It is not called again once the search is cancelled.
+     */
+    public StreamingCompletion(CompletionSearch search, FXPlatformBiConsumer<List<AssistContent>, Boolean> batchListener)
+    {
+        this.search = search;
+        this.batchListener = batchListener;
+    }
+
+    /**
+     * Runs the first slice of the search immediately, and schedules the rest.
+     */
+    public void start()
+    {
+        runSlice();
+    }
+
+    private void runSlice()
+    {
+        if (cancelled)
+            return;
+
+        long start = System.nanoTime();
+        List<AssistContent> batch = new ArrayList<>();
+        boolean more;
+        do
+        {
+            more = search.step(batch);
+        }
+        while (more && System.nanoTime() - start < SLICE_NANOS);
+
+        if (!more)
+        {
+            batch.addAll(search.getLocalCompletions());
+            finished = true;
+        }
+        batchListener.accept(batch, finished);
+
+        if (more)
+        {
+            JavaFXUtil.runAfterCurrent(this::runSlice);
+        }
+    }
+
+    /**
+     * Stops the search.  No further batches will be passed to the listener.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Whether the search has run to completion (i.e. the final batch has been delivered).
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2022,2024 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2017,2018,2019,2020,2021,2022,2024,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -55,6 +55,7 @@ import bluej.stride.framedjava.ast.Loader;
 import bluej.stride.framedjava.elements.CallElement;
 import bluej.stride.framedjava.elements.CodeElement;
 import bluej.stride.framedjava.elements.CodeElement.LocalParamInfo;
+import bluej.stride.framedjava.elements.LocatableElement;
 import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
 import bluej.stride.framedjava.elements.NormalMethodElement;
 import bluej.stride.framedjava.elements.TopLevelCodeElement;
@@ -66,6 +67,7 @@ import bluej.stride.framedjava.slots.ExpressionSlot;
 import bluej.parser.AssistContentThreadSafe;
 import bluej.utility.Debug;
 import bluej.utility.Utility;
+import bluej.utility.Utility.BackgroundRunnable;
 import bluej.utility.javafx.FXPlatformConsumer;
 import bluej.utility.javafx.FXPlatformRunnable;
 import bluej.utility.javafx.FXRunnable;
@@ -75,6 +77,7 @@ import javafx.beans.property.SimpleObjectProperty;
 import javafx.geometry.Rectangle2D;
 import javafx.print.PrinterJob;
 import javafx.scene.image.Image;
+import javafx.util.Pair;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
@@ -86,6 +89,8 @@ import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -167,6 +172,20 @@ public class FrameEditor implements Editor
      * errors to be associated with the most recent compile which triggered them.
      */
     private int mostRecentCompileIdentifier = -1;
+    /**
+     * Remembers which elements had no late errors, so they need not be checked again
+     * until they change.
+     */
+    private final LateErrorCache lateErrorCache = new LateErrorCache();
+    /**
+     * Shared by all frame editors, to wait for the results of late error checks.  It is bounded
+     * so that many compilations in quick succession queue up rather than each starting a new thread.
+     */
+    private static final ExecutorService lateErrorExecutor = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "Slot error finder");
+        t.setDaemon(true);
+        return t;
+    });
 
     @OnThread(Tag.Any)
     public synchronized List<Integer> getBreakpoints()
@@ -1194,34 +1213,63 @@ public class FrameEditor implements Editor
         TopLevelCodeElement el = panel.getSource();
         if (el == null)
             return;
-        Stream<CodeElement> allElements = Stream.concat(Stream.of((CodeElement)el), el.streamContained());
-        LocationMap rootPathMap = el.toXML().buildLocationMap();
-        // We must start these futures going on the FX thread
-        List<Future<List<DirectSlotError>>> futures = allElements.flatMap(e -> e.findDirectLateErrors(panel, rootPathMap)).collect(Collectors.toList());
+        List<CodeElement> allElements = Stream.concat(Stream.of((CodeElement)el), el.streamContained()).collect(Collectors.toList());
+        LocatableElement rootXML = el.toXML();
+        LocationMap rootPathMap = rootXML.buildLocationMap();
+        Map<CodeElement, String> keys = lateErrorCache.prepare(rootXML, rootPathMap, String.join(",", pkg.getAllClassnames()));
+
+        // The keys of elements which are known to have no late errors, either from the cache
+        // or (added later, on the worker thread) from this check:
+        Set<String> errorFreeKeys = new HashSet<>();
+        // The futures to wait for, for each element which needs checking, with its key
+        // if the result can be cached:
+        List<Pair<String, List<Future<List<DirectSlotError>>>>> toCheck = new ArrayList<>();
+        for (CodeElement e : allElements)
+        {
+            // Some late errors depend on the compile error, so only cache if there isn't one:
+            String key = e.hasDirectCompileErrors() ? null : keys.get(e);
+            if (key != null && lateErrorCache.isKnownErrorFree(key))
+            {
+                errorFreeKeys.add(key);
+                continue;
+            }
+            // We must start these futures going on the FX thread
+            List<Future<List<DirectSlotError>>> futures = e.findDirectLateErrors(panel, rootPathMap).collect(Collectors.toList());
+            if (!futures.isEmpty())
+                toCheck.add(new Pair<>(key, futures));
+            else if (key != null)
+                errorFreeKeys.add(key);
+        }
         // Then wait for them on another thread
-        new Thread("Slot error finder") {
-            @Override
-            @OnThread(Tag.Worker)
-            public void run()
+        lateErrorExecutor.execute((BackgroundRunnable)() -> {
+            ArrayList<DirectSlotError> allLates = new ArrayList<>();
+            try
             {
-                ArrayList<DirectSlotError> allLates = new ArrayList<>();
-                try
+                // Wait for all futures:
+                for (Pair<String, List<Future<List<DirectSlotError>>>> check : toCheck)
                 {
-                    // Wait for all futures:
-                    for (Future<List<DirectSlotError>> f : futures)
-                        allLates.addAll(f.get());
-                }
-                catch (ExecutionException | InterruptedException e)
-                {
-                    Debug.reportError(e);
+                    boolean errorFree = true;
+                    for (Future<List<DirectSlotError>> f : check.getValue())
+                    {
+                        List<DirectSlotError> lates = f.get();
+                        errorFree &= lates.isEmpty();
+                        allLates.addAll(lates);
+                    }
+                    if (errorFree && check.getKey() != null)
+                        errorFreeKeys.add(check.getKey());
                 }
-                Platform.runLater(() -> {
-                    panel.updateErrorOverviewBar(false);
-                    List<DiagnosticWithShown> diagnostics = Utility.mapList(allLates, e -> e.toDiagnostic(javaFilename.getName(), frameFilename));
-                    watcher.recordLateErrors(diagnostics, compilationIdentifier);
-                });
             }
-        }.start();
+            catch (ExecutionException | InterruptedException e)
+            {
+                Debug.reportError(e);
+            }
+            Platform.runLater(() -> {
+                lateErrorCache.recordErrorFree(errorFreeKeys);
+                panel.updateErrorOverviewBar(false);
+                List<DiagnosticWithShown> diagnostics = Utility.mapList(allLates, e -> e.toDiagnostic(javaFilename.getName(), frameFilename));
+                watcher.recordLateErrors(diagnostics, compilationIdentifier);
+            });
+        });
     }
         
     @Override
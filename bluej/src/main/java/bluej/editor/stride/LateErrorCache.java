@@ -0,0 +1,185 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.stride;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import bluej.stride.framedjava.elements.CodeElement;
+import bluej.stride.framedjava.elements.LocatableElement;
+import bluej.stride.framedjava.elements.LocatableElement.LocationMap;
+import nu.xom.Element;
+import nu.xom.Elements;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Remembers which code elements had no late errors at the last check, so that they
+ * need not be checked again until they (or something they may refer to) change.
+ *
+ * Each element is keyed by (a digest of) the serialized content of the class member that it is in
+ * (e.g. the whole method, since a statement may refer to any local variable declared earlier
+ * in the method), its path within that member, and the resolver generation.  The resolver
+ * generation changes whenever the declarations of the class (that is, the class with all
+ * method bodies removed) or the set of classes in the package change, since any element may
+ * refer to those.
+ *
+ * Only the absence of errors is remembered: the errors themselves refer to the slots
+ * they were found in, so must be found again for the current slots.
+ */
+@OnThread(Tag.FXPlatform)
+class LateErrorCache
+{
+    private String resolverSignature = null;
+    private int resolverGeneration = 0;
+    // The keys of the elements which had no late errors at the last check:
+    private Set<String> errorFree = new HashSet<>();
+
+    /**
+     * Works out the key for each element in the given class XML, first updating the
+     * resolver generation if the declarations have changed.
+     *
+     * @param rootXML The XML of the whole class
+     * @param rootPathMap The location map built from rootXML
+     * @param extraSignature Anything else which elements may refer to (e.g. the class names in the package)
+     * @return The key for each element which has one
+     */
+    public Map<CodeElement, String> prepare(LocatableElement rootXML, LocationMap rootPathMap, String extraSignature)
+    {
+        StringBuilder signature = new StringBuilder(extraSignature).append('\n');
+        for (int i = 0; i < rootXML.getAttributeCount(); i++)
+        {
+            signature.append(rootXML.getAttribute(i).toXML());
+        }
+        Map<CodeElement, String> keys = new IdentityHashMap<>();
+        // The top-level element itself depends only on the declarations:
+        if (rootXML.getOrigin() != null)
+            keys.put(rootXML.getOrigin(), "");
+        addMembers(rootXML.getChildElements(), rootPathMap, signature, keys);
+
+        String newSignature = signature.toString();
+        if (!newSignature.equals(resolverSignature))
+        {
+            resolverSignature = newSignature;
+            resolverGeneration += 1;
+            errorFree.clear();
+        }
+        String prefix = resolverGeneration + "\u0000";
+        keys.replaceAll((el, key) -> prefix + key);
+        return keys;
+    }
+
+    /**
+     * Finds the members (the outermost LocatableElements) among the given elements and their
+     * plain descendants, adding their declarations to the signature and their keys to the map.
+     */
+    private static void addMembers(Elements elements, LocationMap rootPathMap, StringBuilder signature, Map<CodeElement, String> keys)
+    {
+        for (int i = 0; i < elements.size(); i++)
+        {
+            Element child = elements.get(i);
+            if (child instanceof LocatableElement && ((LocatableElement) child).getOrigin() != null)
+            {
+                LocatableElement member = (LocatableElement) child;
+                // The declaration is the member without its body:
+                Element declaration = (Element) member.copy();
+                Elements bodies = declaration.getChildElements("body");
+                for (int j = 0; j < bodies.size(); j++)
+                {
+                    bodies.get(j).detach();
+                }
+                signature.append(declaration.toXML()).append('\n');
+
+                String memberPath = rootPathMap.locationFor(member.getOrigin());
+                if (memberPath != null)
+                    addKeys(member, digest(member.toXML()) + "\u0000", memberPath, rootPathMap, keys);
+            }
+            else if (child.getChildElements().size() > 0)
+            {
+                addMembers(child.getChildElements(), rootPathMap, signature, keys);
+            }
+            else
+            {
+                signature.append(child.toXML()).append('\n');
+            }
+        }
+    }
+
+    /**
+     * A digest of a member's content, so that the keys of all the elements in a large
+     * method don't each hold a copy of the whole method.
+     */
+    private static String digest(String content)
+    {
+        try
+        {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform must support SHA-256, but just in case, use the content itself:
+            return content;
+        }
+    }
+
+    private static void addKeys(Element element, String memberContent, String memberPath, LocationMap rootPathMap, Map<CodeElement, String> keys)
+    {
+        if (element instanceof LocatableElement && ((LocatableElement) element).getOrigin() != null)
+        {
+            CodeElement origin = ((LocatableElement) element).getOrigin();
+            String path = rootPathMap.locationFor(origin);
+            if (path != null && path.startsWith(memberPath))
+                keys.put(origin, memberContent + path.substring(memberPath.length()));
+        }
+        Elements children = element.getChildElements();
+        for (int i = 0; i < children.size(); i++)
+        {
+            addKeys(children.get(i), memberContent, memberPath, rootPathMap, keys);
+        }
+    }
+
+    /**
+     * Checks whether the element with the given key had no late errors at the last check.
+     */
+    public boolean isKnownErrorFree(String key)
+    {
+        return errorFree.contains(key);
+    }
+
+    /**
+     * Records the result of a check: the given keys are those of the elements which had
+     * no late errors.  Keys from earlier checks are forgotten, so that the cache only
+     * holds entries for the current code.
+     */
+    public void recordErrorFree(Set<String> keys)
+    {
+        // Keys from before a generation change can never match again, but harmlessly so:
+        errorFree = keys;
+    }
+}
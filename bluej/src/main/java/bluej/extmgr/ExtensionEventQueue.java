@@ -0,0 +1,435 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.extmgr;
+
+import bluej.extensions2.event.ExtensionEvent;
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * A queue of events waiting to be passed to one extension.
+ * 
+ * <p>Events are passed to the extension in the order they were added, by tasks run on
+ * the queue's executor.  In BlueJ this is normally the FX thread, since extensions expect
+ * to receive events there; so whoever sends an event doesn't wait for the extension to
+ * handle it, but a slow extension still holds up the FX thread while it handles the event.
+ * A queue can instead have a thread of its own (see {@link #withOwnThread}), for extensions
+ * whose listeners don't need the FX thread.
+ * 
+ * <p>The queue has a limited size, and what happens when it is full depends on its
+ * {@link OverflowPolicy}.
+ */
+@OnThread(Tag.Any)
+class ExtensionEventQueue
+{
+    /**
+     * What to do when an event is added to a full queue.
+     */
+    enum OverflowPolicy
+    {
+        /**
+         * Wait (for up to a few seconds) for the extension to catch up.  On the executor's
+         * own thread, the queued events are passed on straight away instead.
+         */
+        WAIT,
+        /** Discard the oldest event in the queue. */
+        DROP_OLDEST,
+        /** Discard the new event. */
+        DROP_NEWEST;
+
+        /**
+         * Get the policy with the given name (e.g. "dropOldest"), or the default
+         * policy (WAIT) if there is no such policy.
+         */
+        static OverflowPolicy fromName(String name)
+        {
+            for (OverflowPolicy policy : values()) {
+                if (policy.name().replace("_", "").equalsIgnoreCase(name)) {
+                    return policy;
+                }
+            }
+            return WAIT;
+        }
+    }
+
+    /**
+     * Counts of the events passed to the extension, and how long they took to get there
+     * (including the time spent waiting for the executor's thread, which may be busy with
+     * other work, and the time taken by the extension to handle them).
+     */
+    record Statistics(long delivered, long dropped, long totalLatencyNanos, long maxLatencyNanos)
+    {
+        /**
+         * Get the average time between an event being added and the extension having
+         * handled it, in milliseconds.
+         */
+        double getAverageLatencyMillis()
+        {
+            return delivered == 0 ? 0 : totalLatencyNanos / (delivered * 1_000_000.0);
+        }
+
+        /**
+         * Get the longest time between an event being added and the extension having
+         * handled it, in milliseconds.
+         */
+        double getMaxLatencyMillis()
+        {
+            return maxLatencyNanos / 1_000_000.0;
+        }
+    }
+
+    // An event waiting to be passed on, with the time it was added:
+    private record QueuedEvent(ExtensionEvent event, long queuedNanos) { }
+
+    // The longest that a drain task passes on events for, before letting other tasks run:
+    private static final long DRAIN_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    // The longest that the WAIT policy waits for space in the queue:
+    private static final long WAIT_TIMEOUT_MILLIS = 5000;
+
+    private final String name;
+    private final Consumer<ExtensionEvent> handler;
+    private final Executor executor;
+    private final BooleanSupplier onExecutorThread;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    // The executor which the queue made for itself (see withOwnThread), or null:
+    private final ExecutorService ownExecutor;
+
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private final ArrayDeque<QueuedEvent> queue = new ArrayDeque<>();
+    // Whether a drain task has been given to the executor and has not yet finished:
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private boolean drainScheduled = false;
+    // The number of events being passed to the extension (more than one if its handler
+    // causes another to be passed on), so that queued events aren't passed on within another:
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private int delivering = 0;
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private boolean closed = false;
+
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private long delivered = 0;
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private long dropped = 0;
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private long totalLatencyNanos = 0;
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private long maxLatencyNanos = 0;
+
+    /**
+     * Create a queue of events for an extension.
+     * 
+     * @param name              The name of the extension, for messages
+     * @param handler           Passes an event to the extension; called on the executor's thread
+     * @param executor          Runs the tasks which pass on the events; must run them one at a time
+     * @param onExecutorThread  Checks whether the current thread is the one the executor uses
+     * @param capacity          The most events which can wait in the queue
+     * @param policy            What to do when an event is added to a full queue
+     */
+    ExtensionEventQueue(String name, Consumer<ExtensionEvent> handler, Executor executor,
+            BooleanSupplier onExecutorThread, int capacity, OverflowPolicy policy)
+    {
+        this(name, handler, executor, onExecutorThread, capacity, policy, null);
+    }
+
+    private ExtensionEventQueue(String name, Consumer<ExtensionEvent> handler, Executor executor,
+            BooleanSupplier onExecutorThread, int capacity, OverflowPolicy policy, ExecutorService ownExecutor)
+    {
+        this.name = name;
+        this.handler = handler;
+        this.executor = executor;
+        this.onExecutorThread = onExecutorThread;
+        this.capacity = Math.max(1, capacity);
+        this.policy = policy;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Create a queue of events for an extension, which passes them on from a thread of
+     * its own rather than from the FX thread.  The thread ends when the queue is closed.
+     * 
+     * @param name      The name of the extension, for messages and the thread's name
+     * @param handler   Passes an event to the extension; called on the queue's thread
+     * @param capacity  The most events which can wait in the queue
+     * @param policy    What to do when an event is added to a full queue
+     */
+    static ExtensionEventQueue withOwnThread(String name, Consumer<ExtensionEvent> handler,
+            int capacity, OverflowPolicy policy)
+    {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Extension events: " + name);
+            t.setDaemon(true);
+            thread.set(t);
+            return t;
+        });
+        return new ExtensionEventQueue(name, handler, executor, () -> Thread.currentThread() == thread.get(),
+                capacity, policy, executor);
+    }
+
+    /**
+     * Check whether this queue passes on events from a thread of its own.
+     */
+    boolean hasOwnThread()
+    {
+        return ownExecutor != null;
+    }
+
+    /**
+     * Add an event to the queue, to be passed to the extension later.
+     */
+    void add(ExtensionEvent event)
+    {
+        if (policy == OverflowPolicy.WAIT && onExecutorThread.getAsBoolean() && isFull()) {
+            // Waiting here would stop the queue from being drained, so catch up now:
+            flush();
+        }
+
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= capacity && ! makeSpace()) {
+                dropped++;
+                return;
+            }
+            queue.addLast(new QueuedEvent(event, System.nanoTime()));
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Pass an event to the extension straight away, after any events already queued.
+     * This is for events which the extension must have handled before the caller continues
+     * (such as a package closing).  If this is not called on the executor's thread, the
+     * event is passed on there, and the caller waits (for up to a few seconds) for it.
+     */
+    void deliverNow(ExtensionEvent event)
+    {
+        if (! onExecutorThread.getAsBoolean()) {
+            deliverNowOnExecutor(event);
+            return;
+        }
+        flush();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        deliver(new QueuedEvent(event, System.nanoTime()));
+    }
+
+    private void deliverNowOnExecutor(ExtensionEvent event)
+    {
+        CountDownLatch handled = new CountDownLatch(1);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        deliverNow(event);
+                    }
+                    finally {
+                        handled.countDown();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+        try {
+            if (! handled.await(WAIT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                Debug.message("Extension " + name + " is not handling events; not waiting for it");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Pass all queued events to the extension straight away.  This must be called on the
+     * executor's thread.
+     */
+    void flush()
+    {
+        QueuedEvent next;
+        while ((next = takeNext()) != null) {
+            deliver(next);
+        }
+    }
+
+    /**
+     * Stop passing on events, discarding any which are queued.
+     */
+    synchronized void close()
+    {
+        closed = true;
+        queue.clear();
+        notifyAll();
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Get the counts of events passed on and dropped so far, and how long they took.
+     */
+    synchronized Statistics getStatistics()
+    {
+        return new Statistics(delivered, dropped, totalLatencyNanos, maxLatencyNanos);
+    }
+
+    private synchronized boolean isFull()
+    {
+        return queue.size() >= capacity;
+    }
+
+    /**
+     * Make space in the full queue, according to the policy.
+     * 
+     * @return true if there is now space, or false if the new event should be dropped.
+     */
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private boolean makeSpace()
+    {
+        switch (policy) {
+            case DROP_OLDEST:
+                queue.removeFirst();
+                dropped++;
+                return true;
+            case DROP_NEWEST:
+                return false;
+            default:
+                if (delivering > 0 && onExecutorThread.getAsBoolean()) {
+                    // An extension's handler has caused another event; it can't wait for
+                    // itself, so let the queue grow:
+                    return true;
+                }
+                long deadline = System.currentTimeMillis() + WAIT_TIMEOUT_MILLIS;
+                try {
+                    while (queue.size() >= capacity && ! closed) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            Debug.message("Extension " + name + " is not handling events; dropping an event");
+                            return false;
+                        }
+                        wait(remaining);
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                return ! closed;
+        }
+    }
+
+    /**
+     * Take the next event to pass on, or return null if there is none (or if one is
+     * already being passed on).
+     */
+    private synchronized QueuedEvent takeNext()
+    {
+        if (delivering > 0 || closed) {
+            return null;
+        }
+        QueuedEvent next = queue.pollFirst();
+        if (next != null) {
+            // There's space for a waiting sender:
+            notifyAll();
+        }
+        return next;
+    }
+
+    /**
+     * Pass queued events to the extension until the queue is empty or the time slice is
+     * used up, in which case another drain task is given to the executor.
+     */
+    private void drain()
+    {
+        long sliceEnd = System.nanoTime() + DRAIN_SLICE_NANOS;
+        while (System.nanoTime() < sliceEnd) {
+            QueuedEvent next = takeNext();
+            if (next == null) {
+                break;
+            }
+            deliver(next);
+        }
+        synchronized (this) {
+            drainScheduled = false;
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Give a drain task to the executor, if there are events to pass on and no task
+     * has already been given.
+     */
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private void scheduleDrain()
+    {
+        if (! drainScheduled && delivering == 0 && ! closed && ! queue.isEmpty()) {
+            drainScheduled = true;
+            executor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Pass an event to the extension, and record how long it took to get there.
+     */
+    private void deliver(QueuedEvent queuedEvent)
+    {
+        synchronized (this) {
+            delivering++;
+        }
+        try {
+            handler.accept(queuedEvent.event());
+        }
+        finally {
+            long latency = System.nanoTime() - queuedEvent.queuedNanos();
+            synchronized (this) {
+                delivering--;
+                delivered++;
+                totalLatencyNanos += latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+                // Events may have been added while a drain task couldn't pass them on:
+                scheduleDrain();
+            }
+        }
+    }
+}
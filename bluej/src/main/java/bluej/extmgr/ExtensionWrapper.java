@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2013,2014,2016,2018,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2013,2014,2016,2018,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -26,6 +26,7 @@ import bluej.extensions2.*;
 import bluej.extensions2.event.ExtensionEvent;
 import bluej.pkgmgr.Project;
 import bluej.utility.Debug;
+import javafx.application.Platform;
 import javafx.scene.control.MenuItem;
 import javafx.scene.layout.Pane;
 import threadchecker.OnThread;
@@ -75,6 +76,9 @@ public class ExtensionWrapper
     private String  extensionStatusString;
     private Project project;
 
+    // The events waiting to be passed to the extension; null until the extension is loaded:
+    private ExtensionEventQueue eventQueue;
+
     /**
      * Construct a new ExtensionWrapper for the given jar file.
      * 
@@ -213,6 +217,18 @@ public class ExtensionWrapper
             return;
         }
 
+        int queueSize = Config.getPropInteger("bluej.extensions.eventQueue.size", 1000);
+        ExtensionEventQueue.OverflowPolicy overflowPolicy = ExtensionEventQueue.OverflowPolicy.fromName(
+                Config.getPropString("bluej.extensions.eventQueue.overflow", "wait"));
+        if (Config.getPropString("bluej.extensions.eventQueue.thread", "fx").equalsIgnoreCase("own")) {
+            eventQueue = ExtensionEventQueue.withOwnThread(extensionClass.getName(), this::deliverEvent,
+                    queueSize, overflowPolicy);
+        }
+        else {
+            eventQueue = new ExtensionEventQueue(extensionClass.getName(), this::deliverEvent, Platform::runLater,
+                    Platform::isFxApplicationThread, queueSize, overflowPolicy);
+        }
+
         // Ok, time to really start everything... This MUST be here.... after all is initialised
         safeStartup(extensionBluej);
         extensionStatusString = Config.getString("extmgr.status.loaded");
@@ -262,6 +278,9 @@ public class ExtensionWrapper
      */
     void terminate()
     {
+        if (eventQueue != null) {
+            eventQueue.close();
+        }
         safeTerminate();
 
         // Needed to signal to the revalidate (below) that this instance is no longer here.            
@@ -406,7 +425,8 @@ public class ExtensionWrapper
      */
 
     /**
-     * Informs any registered listeners that an event has occurred.
+     * Informs any registered listeners that an event has occurred.  The event is
+     * queued, and passed to the listeners later on the FX thread.
      */
     public void safeEventOccurred(ExtensionEvent event)
     {
@@ -414,6 +434,49 @@ public class ExtensionWrapper
             return;
         }
 
+        eventQueue.add(event);
+    }
+
+    /**
+     * Informs any registered listeners that an event has occurred, straight away
+     * (after any queued events).  The caller waits until the listeners have handled it.
+     */
+    public void safeEventOccurredNow(ExtensionEvent event)
+    {
+        if (!isValid()) {
+            return;
+        }
+
+        eventQueue.deliverNow(event);
+    }
+
+    /**
+     * Gets the counts of events passed to the extension, and how long they took,
+     * or null if the extension is not loaded.
+     */
+    ExtensionEventQueue.Statistics getEventStatistics()
+    {
+        return eventQueue == null ? null : eventQueue.getStatistics();
+    }
+
+    /**
+     * Check whether events are passed to the extension from a thread of its own,
+     * rather than from the FX thread.
+     */
+    boolean hasOwnEventThread()
+    {
+        return eventQueue != null && eventQueue.hasOwnThread();
+    }
+
+    /**
+     * Passes an event from the queue to the extension's listeners.
+     */
+    private void deliverEvent(ExtensionEvent event)
+    {
+        if (!isValid()) {
+            return;
+        }
+
         try {
             ExtensionBridge.delegateEvent(extensionBluej,event);
         }
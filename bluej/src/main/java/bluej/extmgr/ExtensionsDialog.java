@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2016,2019,2020,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2016,2019,2020,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -53,6 +53,9 @@ public class ExtensionsDialog
     private final String projectLongString = Config.getString("extmgr.projectExtensionLong");
     private final String locationTag = Config.getString("extmgr.details.location");
     private final String versionTag = Config.getString("extmgr.details.version");
+    private final String eventsTag = Config.getString("extmgr.details.events");
+    private final String eventsFXThreadNote = Config.getString("extmgr.details.eventsFXThread");
+    private final String eventsOwnThreadNote = Config.getString("extmgr.details.eventsOwnThread");
     private Dialog<Void> mainFrame;
     private VBox extensionsVBox;
 
@@ -97,8 +100,10 @@ public class ExtensionsDialog
                 boolean isProject = wrapper.getProject() != null;
                 String extensionFileName = wrapper.getExtensionFileName();
                 URL url = wrapper.safeGetURL();
+                ExtensionEventQueue.Statistics eventStatistics = wrapper.getEventStatistics();
+                boolean ownEventThread = wrapper.hasOwnEventThread();
                 // But create the TitledPane on the FX thread:
-                extensionsVBox.getChildren().add(makeDisplay(extensionName, extensionStatus, extensionVersion, extensionDescription, isProject, extensionFileName, url));
+                extensionsVBox.getChildren().add(makeDisplay(extensionName, extensionStatus, extensionVersion, extensionDescription, isProject, extensionFileName, url, eventStatistics, ownEventThread));
             });
         }
     }
@@ -108,7 +113,7 @@ public class ExtensionsDialog
         mainFrame.showAndWait();
     }
 
-    private TitledPane makeDisplay(String extensionName, String extensionStatus, String extensionVersion, String extensionDescription, boolean isProject, String extensionFileName, URL url)
+    private TitledPane makeDisplay(String extensionName, String extensionStatus, String extensionVersion, String extensionDescription, boolean isProject, String extensionFileName, URL url, ExtensionEventQueue.Statistics eventStatistics, boolean ownEventThread)
     {
         String typeShort = isProject ? projectString : systemString;
         String typeLong = isProject ? projectLongString : systemLongString;
@@ -124,6 +129,17 @@ public class ExtensionsDialog
         mainPanel.getChildren().add(new Label(locationTag + " " + extensionFileName +
             " (" + extensionStatus +')'));
 
+        if (eventStatistics != null)
+        {
+            mainPanel.getChildren().add(new Label(Utility.mergeStrings(eventsTag, new String[] {
+                Long.toString(eventStatistics.delivered()),
+                Long.toString(eventStatistics.dropped()),
+                String.format("%.1f", eventStatistics.getAverageLatencyMillis()),
+                String.format("%.1f", eventStatistics.getMaxLatencyMillis())
+            })));
+            mainPanel.getChildren().add(new Label(ownEventThread ? eventsOwnThreadNote : eventsFXThreadNote));
+        }
+
         Text description = new Text(extensionDescription);
         mainPanel.getChildren().add(new TextFlow(description));
         if (url != null)
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2013,2016,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2013,2016,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -262,8 +262,9 @@ public class ExtensionsManager
      */
     public void packageClosing(Package pkg)
     {
-        // Before removing the extension, signal that this package is closing
-        delegateEvent(new PackageEvent(PackageEvent.EventType.PACKAGE_CLOSING, pkg));
+        // Before removing the extension, signal that this package is closing.  The
+        // extensions must see this while the package is still open, so don't queue it:
+        delegateEventNow(new PackageEvent(PackageEvent.EventType.PACKAGE_CLOSING, pkg));
 
         // Let's assume we are NOT going to delete the extension...
         boolean invalidateExtension = false;
@@ -376,7 +377,8 @@ public class ExtensionsManager
     }
 
     /**
-     * Delegates an event to all known extensions.
+     * Delegates an event to all known extensions.  Each extension has its own queue
+     * of events, so this returns without waiting for the extensions to handle it.
      */
     public void delegateEvent(ExtensionEvent event)
     {
@@ -387,6 +389,23 @@ public class ExtensionsManager
         }
     }
 
+    /**
+     * Delegates an event to all known extensions, and waits for them to handle it
+     * (after any events already queued for them).  This is for events which refer to
+     * something that is about to go away, so the extensions must see them first.
+     */
+    public void delegateEventNow(ExtensionEvent event)
+    {
+        // Don't hold the lock while waiting, as an extension's thread may need it:
+        List<ExtensionWrapper> wrappers;
+        synchronized(extensions) {
+            wrappers = new ArrayList<>(extensions);
+        }
+        for (ExtensionWrapper wrapper : wrappers) {
+            wrapper.safeEventOccurredNow(event);
+        }
+    }
+
     /**
      * This is called back when some sort of event occurs. Depending on the
      * event we will adapt it and send it up to the extension.
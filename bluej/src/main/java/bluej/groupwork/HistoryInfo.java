@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,16 +21,26 @@
  */
 package bluej.groupwork;
 
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
 /**
  * Represents a single element of history information. This includes:
  * Filename, revision, date, user, comment
  * 
+ * <p>The files may not be known when the item is first made available; in that case
+ * they are set later (see {@link LogHistoryListener#logFilesAvailable}).
+ * 
  * @author Davin McCall
  * @version $Id: HistoryInfo.java 6215 2009-03-30 13:28:25Z polle $
  */
+@OnThread(Tag.Any)
 public class HistoryInfo
 {
-    private String [] files;
+    private static final String [] NO_FILES = new String[0];
+    
+    // null if not yet known:
+    private volatile String [] files;
     private String revision;
     private String date;
     private String user;
@@ -45,9 +55,29 @@ public class HistoryInfo
         this.comment = comment;
     }
     
+    /**
+     * Get the files changed, or an empty array if they are not yet known.
+     */
     public String [] getFiles()
     {
-        return files;
+        String [] knownFiles = files;
+        return knownFiles != null ? knownFiles : NO_FILES;
+    }
+    
+    /**
+     * Check whether the changed files are known.
+     */
+    public boolean areFilesKnown()
+    {
+        return files != null;
+    }
+    
+    /**
+     * Set the changed files, once they are known.
+     */
+    public void setFiles(String [] files)
+    {
+        this.files = files;
     }
     
     public String getRevision()
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,6 +21,11 @@
  */
 package bluej.groupwork;
 
+import java.util.List;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
 /**
  * An interface for receiving log/history information
  * 
@@ -31,5 +36,26 @@ public interface LogHistoryListener
     /**
      * Some log/history information is available, during execution of a log command.
      */
+    @OnThread(Tag.Any)
     public void logInfoAvailable(HistoryInfo logInfo);
+    
+    /**
+     * A page of log/history information is available, during execution of a log command.
+     * The files of the items may not yet be known.  By default, each item is passed
+     * to {@link #logInfoAvailable}.
+     */
+    @OnThread(Tag.Any)
+    public default void logPageAvailable(List<HistoryInfo> page)
+    {
+        page.forEach(this::logInfoAvailable);
+    }
+    
+    /**
+     * The files of some items, which were previously made available without them,
+     * are now known.
+     */
+    @OnThread(Tag.Any)
+    public default void logFilesAvailable(List<HistoryInfo> infos)
+    {
+    }
 }
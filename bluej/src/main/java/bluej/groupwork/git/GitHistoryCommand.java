@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2016,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2016,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -30,20 +30,33 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import threadchecker.OnThread;
+import threadchecker.Tag;
 
 /**
  * A Git history command.
+ * 
+ * <p>The history is passed to the listener a page at a time, as it is read.  Each page
+ * is first passed without the changed files of any commit which hasn't been seen before,
+ * so that it can be shown straight away; the changed files are then found and passed on
+ * before the next page is read.  The command stops at the end of a page if it is cancelled.
  *
  * @author Fabio Heday
  */
 public class GitHistoryCommand extends GitCommand
 {
+    // The number of commits in each page passed to the listener:
+    static final int PAGE_SIZE = 50;
 
     private final LogHistoryListener listener;
+    // The number of commits whose changed files were found (rather than cached), for testing:
+    private int filesComputed = 0;
 
     public GitHistoryCommand(GitRepository repository, LogHistoryListener listener)
     {
@@ -52,51 +65,116 @@ public class GitHistoryCommand extends GitCommand
     }
 
     @Override
+    @OnThread(Tag.Worker)
     public TeamworkCommandResult getResult()
     {
         try (Git repo = Git.open(this.getRepository().getProjectPath())) {
             Iterable<RevCommit> logs = repo.log().call();
-            logs.forEach((RevCommit rev) -> {
-                ArrayList<String> files = new ArrayList<>();
-                //every commit generates a revision with the commiter information
-                //e.g.: name, e-mail, date and time of commit
-                //to Access the commited files, we need to walk through the
-                //the subtree.
-                try (TreeWalk treeWalk = new TreeWalk(repo.getRepository())){
-                    treeWalk.addTree(rev.getTree());
-                    // We now look for all the parent commits and add those trees:
-                    for (RevCommit parent : rev.getParents()) {
-                        treeWalk.addTree(parent.getTree());
+            SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            List<RevCommit> pageCommits = new ArrayList<>();
+            for (RevCommit rev : logs) {
+                pageCommits.add(rev);
+                if (pageCommits.size() == PAGE_SIZE) {
+                    sendPage(repo.getRepository(), pageCommits, dateFormat);
+                    pageCommits.clear();
+                    if (isCancelled()) {
+                        return new TeamworkCommandResult();
                     }
-
-                    while (treeWalk.next()) {
-                        // For each file in the tree walk, we compare its file mode and hash to the
-                        // parent commits.  If it is the same as any parent, the file is NOT changed and we do NOT add it
-                        // If it is different to all parents, or there are no parents, we add the file as having been changed.
-                        int similarParents = 0;
-                        for (int i = 1; i < treeWalk.getTreeCount(); i++)
-                            if (treeWalk.getFileMode(i) == treeWalk.getFileMode(0) && treeWalk.getObjectId(0).equals(treeWalk.getObjectId(i)))
-                                similarParents++;
-                        if (similarParents == 0)
-                            files.add(treeWalk.getPathString());
-                    }
-                } catch (IOException ex) {
-                    Debug.reportError(ex.getMessage());
                 }
-
-                //Jgit returns the date by seconds after epoch, but Java works in
-                //milliseconds. conversion is needed.
-                Date date = new Date(rev.getCommitTime() * 1000L);
-                String dateString = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(date);
-
-                HistoryInfo info = new HistoryInfo(files.toArray(new String[files.size()]), "", dateString, rev.getAuthorIdent().getName(), rev.getFullMessage());
-                listener.logInfoAvailable(info);
-            });
-
+            }
+            sendPage(repo.getRepository(), pageCommits, dateFormat);
         } catch (GitAPIException | IOException ex) {
             return new TeamworkCommandError(ex.getMessage(), ex.getLocalizedMessage());
         }
         return new TeamworkCommandResult();
     }
 
+    /**
+     * Pass a page of commits to the listener, followed by their changed files if
+     * they were not already known.
+     */
+    @OnThread(Tag.Worker)
+    private void sendPage(Repository repository, List<RevCommit> pageCommits, SimpleDateFormat dateFormat)
+    {
+        if (pageCommits.isEmpty()) {
+            return;
+        }
+        List<HistoryInfo> page = new ArrayList<>(pageCommits.size());
+        List<HistoryInfo> withoutFiles = new ArrayList<>();
+        List<RevCommit> withoutFilesCommits = new ArrayList<>();
+        for (RevCommit rev : pageCommits) {
+            //Jgit returns the date by seconds after epoch, but Java works in
+            //milliseconds. conversion is needed.
+            Date date = new Date(rev.getCommitTime() * 1000L);
+            String dateString = dateFormat.format(date);
+
+            String[] files = getRepository().getCachedChangedFiles(rev);
+            HistoryInfo info = new HistoryInfo(files, "", dateString, rev.getAuthorIdent().getName(), rev.getFullMessage());
+            page.add(info);
+            if (files == null) {
+                withoutFiles.add(info);
+                withoutFilesCommits.add(rev);
+            }
+        }
+        listener.logPageAvailable(page);
+
+        if (withoutFiles.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < withoutFiles.size() && ! isCancelled(); i++) {
+            RevCommit rev = withoutFilesCommits.get(i);
+            String[] files = getChangedFiles(repository, rev);
+            // Copy the id, so that the cache doesn't keep the whole commit (and its parents):
+            getRepository().cacheChangedFiles(rev.copy(), files);
+            withoutFiles.get(i).setFiles(files);
+            filesComputed++;
+        }
+        if (! isCancelled()) {
+            listener.logFilesAvailable(withoutFiles);
+        }
+    }
+
+    /**
+     * Find the files changed by the given commit.
+     */
+    @OnThread(Tag.Worker)
+    private static String[] getChangedFiles(Repository repository, RevCommit rev)
+    {
+        ArrayList<String> files = new ArrayList<>();
+        //every commit generates a revision with the commiter information
+        //e.g.: name, e-mail, date and time of commit
+        //to Access the commited files, we need to walk through the
+        //the subtree.
+        try (TreeWalk treeWalk = new TreeWalk(repository)){
+            treeWalk.addTree(rev.getTree());
+            // We now look for all the parent commits and add those trees:
+            for (RevCommit parent : rev.getParents()) {
+                treeWalk.addTree(parent.getTree());
+            }
+
+            while (treeWalk.next()) {
+                // For each file in the tree walk, we compare its file mode and hash to the
+                // parent commits.  If it is the same as any parent, the file is NOT changed and we do NOT add it
+                // If it is different to all parents, or there are no parents, we add the file as having been changed.
+                int similarParents = 0;
+                for (int i = 1; i < treeWalk.getTreeCount(); i++)
+                    if (treeWalk.getFileMode(i) == treeWalk.getFileMode(0) && treeWalk.getObjectId(0).equals(treeWalk.getObjectId(i)))
+                        similarParents++;
+                if (similarParents == 0)
+                    files.add(treeWalk.getPathString());
+            }
+        } catch (IOException ex) {
+            Debug.reportError(ex.getMessage());
+        }
+        return files.toArray(new String[files.size()]);
+    }
+
+    /**
+     * Get the number of commits whose changed files had to be found, rather than
+     * being taken from the cache.
+     */
+    int getFilesComputedCount()
+    {
+        return filesComputed;
+    }
 }
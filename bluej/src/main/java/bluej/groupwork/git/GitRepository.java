@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2015,2016,2017,2019,2020,2025  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2015,2016,2017,2019,2020,2025,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -31,7 +31,11 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.errors.NoWorkTreeException;
@@ -67,6 +71,13 @@ public class GitRepository implements Repository
     private final String yourEmail;
     private final String branch;
 
+    // The files changed by each commit, as found by the history command.  A commit never
+    // changes, so these are kept (up to a limit per project) for the next time the history
+    // is shown.  They are kept by project directory rather than in this object, because
+    // a new repository object may be made each time the history window is opened:
+    private static final int CHANGED_FILES_CACHE_SIZE = 10000;
+    private static final Map<File, Map<ObjectId, String[]>> changedFilesCaches = new HashMap<>();
+
     /**
      * Create a Git repository when all fields are known. Usually when cloning a
      * repository.
@@ -153,6 +164,49 @@ public class GitRepository implements Repository
         return new GitHistoryCommand(this, listener);
     }
 
+    /**
+     * Get the files changed by the given commit, if they have been found before.
+     * 
+     * @return the changed files, or null if not known.
+     */
+    String[] getCachedChangedFiles(ObjectId commitId)
+    {
+        return getChangedFilesCache().get(commitId);
+    }
+
+    /**
+     * Remember the files changed by the given commit.
+     */
+    void cacheChangedFiles(ObjectId commitId, String[] files)
+    {
+        getChangedFilesCache().put(commitId, files);
+    }
+
+    /**
+     * Get the cache of changed files for this repository's project directory, shared
+     * with any other repository object for the same directory.
+     */
+    private Map<ObjectId, String[]> getChangedFilesCache()
+    {
+        File key;
+        try {
+            key = projectPath.getCanonicalFile();
+        }
+        catch (IOException e) {
+            key = projectPath.getAbsoluteFile();
+        }
+        synchronized (changedFilesCaches) {
+            return changedFilesCaches.computeIfAbsent(key, k -> Collections.synchronizedMap(
+                    new LinkedHashMap<>(16, 0.75f, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<ObjectId, String[]> eldest)
+                        {
+                            return size() > CHANGED_FILES_CACHE_SIZE;
+                        }
+                    }));
+        }
+    }
+
     @Override
     public boolean prepareDeleteDir(File dir) 
     {
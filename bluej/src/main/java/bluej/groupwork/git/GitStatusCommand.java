@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2015,2016,2017,2018,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2015,2016,2017,2018,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -26,11 +26,7 @@ import bluej.groupwork.TeamStatusInfo;
 import bluej.groupwork.TeamStatusInfo.Status;
 import bluej.groupwork.TeamworkCommandError;
 import bluej.groupwork.TeamworkCommandResult;
-import static bluej.groupwork.git.GitUtilities.findForkPoint;
-import static bluej.groupwork.git.GitUtilities.getBehindCount;
-import static bluej.groupwork.git.GitUtilities.getDiffs;
 import static bluej.groupwork.git.GitUtilities.getFileNameFromDiff;
-import static bluej.groupwork.git.GitUtilities.isAheadOnly;
 import bluej.utility.Debug;
 
 import java.io.File;
@@ -41,11 +37,9 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Map;
 
-import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.errors.NoWorkTreeException;
-import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.lib.IndexDiff;
 
 import threadchecker.OnThread;
@@ -78,10 +72,11 @@ public class GitStatusCommand extends GitCommand
         LinkedList<TeamStatusInfo> returnInfo = new LinkedList<>();
         File gitPath = this.getRepository().getProjectPath();
 
-        try (Git repo = Git.open(this.getRepository().getProjectPath()))
+        try
         {
             //check local status
-            org.eclipse.jgit.api.Status s = repo.status().call();
+            GitStatusService statusService = GitStatusService.getService(gitPath);
+            GitStatusService.LocalStatus s = statusService.getLocalStatus();
 
             // A file which has had changes merged as a result of a pull will be in a "unmerged"
             // state, and will appear in "uncommitted changes" as well as "conflicting" (with
@@ -162,8 +157,6 @@ public class GitStatusCommand extends GitCommand
                     });
 
             // check for files to push to remote repository.
-            List<DiffEntry> listOfDiffsLocal, listOfDiffsRemote;
-
             if (includeRemote) {
                 //update information about remote repository.
                 GitFetchCommand fetchCommand = new GitFetchCommand(this.getRepository());
@@ -174,14 +167,10 @@ public class GitStatusCommand extends GitCommand
                 }
             }
 
-            String defaultBranchName = repo.getRepository().getBranch();
-            RevCommit forkPoint = findForkPoint(repo.getRepository(), "origin/"+defaultBranchName, "HEAD");
-            
-            //find diffs between <default branch>/head and the forkpoint.
-            listOfDiffsLocal = getDiffs(repo, "HEAD", forkPoint);
-            //check for differences between forkpoint and remote repo head.
-            listOfDiffsRemote = getDiffs(repo, "origin/"+defaultBranchName, forkPoint);
-            updateRemoteStatus(gitPath, listOfDiffsLocal, listOfDiffsRemote, returnInfo);
+            // The diffs between the fork point and each of HEAD and the remote branch head
+            // (only worked out again if either head has changed):
+            GitStatusService.RemoteStatus remoteStatus = statusService.getRemoteStatus();
+            updateRemoteStatus(gitPath, remoteStatus.getLocalDiffs(), remoteStatus.getRemoteDiffs(), returnInfo);
             
             if (returnInfo.isEmpty()){
                 didFilesChange = false;
@@ -195,7 +184,7 @@ public class GitStatusCommand extends GitCommand
                     TeamStatusInfo teamInfo = returnInfo.removeFirst();
                     listener.gotStatus(teamInfo);
                 }
-                listener.statusComplete(new GitStatusHandle(getRepository(), didFilesChange && isAheadOnly(repo), didFilesChange && getBehindCount(repo) > 0));
+                listener.statusComplete(new GitStatusHandle(getRepository(), didFilesChange && remoteStatus.isAheadOnly(), didFilesChange && remoteStatus.getBehindCount() > 0));
             }
         }
         catch (IOException | GitAPIException | NoWorkTreeException | GitTreeException ex)
@@ -0,0 +1,534 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.groupwork.git;
+
+import static bluej.groupwork.git.GitUtilities.findForkPoint;
+import static bluej.groupwork.git.GitUtilities.getBehindCount;
+import static bluej.groupwork.git.GitUtilities.getDiffs;
+import static bluej.groupwork.git.GitUtilities.isAheadOnly;
+import bluej.utility.Debug;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Keeps the status of a Git working copy, so that it can be refreshed quickly.
+ * 
+ * <p>The repository is kept open, and the working tree is watched (with a WatchService),
+ * so that after the first full status, only the paths which have changed need their
+ * status checked again.  Anything which can change the status of many files at once
+ * (a change to the index or HEAD, as made by commit, merge or checkout, a new HEAD
+ * commit, or a change to a .gitignore file) makes the next status a full one.  Before using the watched changes,
+ * a file is created in the .git directory and we wait to be told about it, so that all
+ * changes made before the status was asked for have been seen.  If the watch service
+ * can't be used (or only works by polling, as on some platforms), every status is a
+ * full one.
+ * 
+ * <p>The comparison with the remote branch (the fork point, the differences on each
+ * side, and the ahead/behind counts) is kept until HEAD or the remote branch changes.
+ * 
+ * <p>There is one service per working copy; see getService.
+ */
+@OnThread(Tag.Worker)
+public class GitStatusService
+{
+    // The name (followed by a number) of the file created in the .git directory to check
+    // that all changes have been seen:
+    private static final String SYNC_FILE_PREFIX = "bluej-status-sync-";
+    private static final long SYNC_TIMEOUT_MILLIS = 2000;
+
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private static final Map<File, GitStatusService> services = new HashMap<>();
+
+    /**
+     * The status of a file in the working copy (and index), as reported by JGit.
+     */
+    private enum Kind { ADDED, CHANGED, REMOVED, MISSING, MODIFIED, UNTRACKED, UNTRACKED_FOLDER, CONFLICTING }
+
+    /**
+     * The local status of a working copy: the same information as JGit's Status.
+     */
+    @OnThread(Tag.Any)
+    public static class LocalStatus
+    {
+        private final Map<String, EnumSet<Kind>> kinds = new HashMap<>();
+        private final Map<String, IndexDiff.StageState> conflictStates = new HashMap<>();
+
+        private LocalStatus() { }
+
+        private LocalStatus(LocalStatus other)
+        {
+            other.kinds.forEach((path, k) -> kinds.put(path, EnumSet.copyOf(k)));
+            conflictStates.putAll(other.conflictStates);
+        }
+
+        private void add(Kind kind, Collection<String> paths)
+        {
+            for (String path : paths) {
+                kinds.computeIfAbsent(path, p -> EnumSet.noneOf(Kind.class)).add(kind);
+            }
+        }
+
+        private void addAll(Status status)
+        {
+            add(Kind.ADDED, status.getAdded());
+            add(Kind.CHANGED, status.getChanged());
+            add(Kind.REMOVED, status.getRemoved());
+            add(Kind.MISSING, status.getMissing());
+            add(Kind.MODIFIED, status.getModified());
+            add(Kind.UNTRACKED, status.getUntracked());
+            add(Kind.UNTRACKED_FOLDER, status.getUntrackedFolders());
+            add(Kind.CONFLICTING, status.getConflicting());
+            conflictStates.putAll(status.getConflictingStageState());
+        }
+
+        /**
+         * Forget the status of the given path and anything within it.
+         */
+        private void removeWithin(String path)
+        {
+            String prefix = path + "/";
+            kinds.keySet().removeIf(p -> p.equals(path) || p.startsWith(prefix));
+            conflictStates.keySet().removeIf(p -> p.equals(path) || p.startsWith(prefix));
+        }
+
+        private Set<String> get(EnumSet<Kind> wanted)
+        {
+            Set<String> paths = new TreeSet<>();
+            kinds.forEach((path, k) -> {
+                if (! Collections.disjoint(k, wanted)) {
+                    paths.add(path);
+                }
+            });
+            return paths;
+        }
+
+        /** Files in the index but not the working tree. */
+        public Set<String> getMissing() { return get(EnumSet.of(Kind.MISSING)); }
+        /** Files removed from the index. */
+        public Set<String> getRemoved() { return get(EnumSet.of(Kind.REMOVED)); }
+        /** Files not in the index. */
+        public Set<String> getUntracked() { return get(EnumSet.of(Kind.UNTRACKED)); }
+        /** Folders which contain only untracked files. */
+        public Set<String> getUntrackedFolders() { return get(EnumSet.of(Kind.UNTRACKED_FOLDER)); }
+        /** Files with merge conflicts. */
+        public Set<String> getConflicting() { return get(EnumSet.of(Kind.CONFLICTING)); }
+        /** The merge conflict state of each conflicting file. */
+        public Map<String, IndexDiff.StageState> getConflictingStageState() { return Collections.unmodifiableMap(conflictStates); }
+
+        /**
+         * Files with changes which have not been committed (the same as JGit's
+         * Status.getUncommittedChanges).
+         */
+        public Set<String> getUncommittedChanges()
+        {
+            return get(EnumSet.of(Kind.ADDED, Kind.CHANGED, Kind.REMOVED, Kind.MISSING, Kind.MODIFIED, Kind.CONFLICTING));
+        }
+    }
+
+    /**
+     * The comparison of the local branch with its remote branch.
+     */
+    @OnThread(Tag.Any)
+    public static class RemoteStatus
+    {
+        private final ObjectId head;
+        private final ObjectId remoteHead;
+        private final List<DiffEntry> localDiffs;
+        private final List<DiffEntry> remoteDiffs;
+        private final boolean aheadOnly;
+        private final int behindCount;
+
+        private RemoteStatus(ObjectId head, ObjectId remoteHead, List<DiffEntry> localDiffs, List<DiffEntry> remoteDiffs,
+                boolean aheadOnly, int behindCount)
+        {
+            this.head = head;
+            this.remoteHead = remoteHead;
+            this.localDiffs = Collections.unmodifiableList(localDiffs);
+            this.remoteDiffs = Collections.unmodifiableList(remoteDiffs);
+            this.aheadOnly = aheadOnly;
+            this.behindCount = behindCount;
+        }
+
+        /** The differences between the fork point and HEAD. */
+        public List<DiffEntry> getLocalDiffs() { return localDiffs; }
+        /** The differences between the fork point and the remote branch. */
+        public List<DiffEntry> getRemoteDiffs() { return remoteDiffs; }
+        /** Whether the local branch is ahead of the remote branch, and not behind it. */
+        public boolean isAheadOnly() { return aheadOnly; }
+        /** The number of commits the local branch is behind the remote branch. */
+        public int getBehindCount() { return behindCount; }
+    }
+
+    private final File workTree;
+    private final Path workTreePath;
+    private final Path gitDir;
+    private final Git git;
+    private WatchService watcher;
+    private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+    // The cached status, or null if a full status is needed:
+    private LocalStatus localStatus;
+    // The HEAD commit when localStatus was found:
+    private ObjectId localStatusHead;
+    // The paths (relative to the work tree, with "/" separators) changed since localStatus was found:
+    private final Set<String> changedPaths = new HashSet<>();
+    private RemoteStatus remoteStatus;
+    // The number of sync files created, so that each can be told apart from earlier ones:
+    private int syncCount = 0;
+
+    private int fullRefreshes = 0;
+    private int incrementalRefreshes = 0;
+    private int remoteRefreshes = 0;
+
+    /**
+     * Get the status service for a working copy, opening it if necessary.
+     */
+    @OnThread(Tag.Any)
+    public static GitStatusService getService(File workTree) throws IOException
+    {
+        File key = workTree.getCanonicalFile();
+        synchronized (services) {
+            GitStatusService service = services.get(key);
+            if (service == null) {
+                service = new GitStatusService(key);
+                services.put(key, service);
+            }
+            return service;
+        }
+    }
+
+    /**
+     * Close the status service for a working copy, if there is one (because the
+     * project has been closed).
+     */
+    @OnThread(Tag.Any)
+    public static void close(File workTree)
+    {
+        GitStatusService service;
+        try {
+            synchronized (services) {
+                service = services.remove(workTree.getCanonicalFile());
+            }
+        }
+        catch (IOException e) {
+            return;
+        }
+        if (service != null) {
+            service.close();
+        }
+    }
+
+    @OnThread(Tag.Any)
+    private GitStatusService(File workTree) throws IOException
+    {
+        this.workTree = workTree;
+        this.workTreePath = workTree.toPath();
+        this.git = Git.open(workTree);
+        this.gitDir = git.getRepository().getDirectory().toPath();
+        try {
+            watcher = workTreePath.getFileSystem().newWatchService();
+            if (watcher.getClass().getName().contains("Polling")) {
+                // Changes are only seen every few seconds, so the status would be out of date:
+                watcher.close();
+                watcher = null;
+            }
+            else {
+                registerTree(workTreePath);
+                watchedDirs.put(gitDir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), gitDir);
+            }
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            Debug.message("Git status: can't watch " + workTree + " for changes: " + e);
+            stopWatching();
+        }
+    }
+
+    /**
+     * Watch a directory and all its subdirectories (other than the .git directory).
+     */
+    @OnThread(Tag.Any)
+    private void registerTree(Path root) throws IOException
+    {
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException
+            {
+                if (dir.equals(gitDir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                watchedDirs.put(dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc)
+            {
+                // The file may have been deleted since the directory was listed:
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    @OnThread(Tag.Any)
+    private void stopWatching()
+    {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            }
+            catch (IOException e) {
+                // Nothing more we can do
+            }
+            watcher = null;
+        }
+        watchedDirs.clear();
+    }
+
+    @OnThread(Tag.Any)
+    private synchronized void close()
+    {
+        stopWatching();
+        git.close();
+    }
+
+    /**
+     * Get the open Git object for the working copy.  It must not be closed.
+     */
+    @OnThread(Tag.Any)
+    public Git getGit()
+    {
+        return git;
+    }
+
+    /**
+     * Get the local status of the working copy.
+     */
+    public synchronized LocalStatus getLocalStatus() throws GitAPIException, IOException
+    {
+        ObjectId head = git.getRepository().resolve("HEAD");
+        if (localStatus != null && collectChanges() && Objects.equals(head, localStatusHead)) {
+            if (! changedPaths.isEmpty()) {
+                StatusCommand command = git.status();
+                for (String path : changedPaths) {
+                    command.addPath(path);
+                }
+                Status status = command.call();
+                for (String path : changedPaths) {
+                    localStatus.removeWithin(path);
+                }
+                localStatus.addAll(status);
+                changedPaths.clear();
+            }
+            incrementalRefreshes++;
+        }
+        else {
+            // Changes from here on will be seen by the next status:
+            collectChanges();
+            changedPaths.clear();
+            LocalStatus status = new LocalStatus();
+            status.addAll(git.status().call());
+            fullRefreshes++;
+            if (watcher == null) {
+                return status;
+            }
+            localStatus = status;
+            localStatusHead = head;
+        }
+        return new LocalStatus(localStatus);
+    }
+
+    /**
+     * Collect the changes which the watch service has seen, first making sure that it
+     * has seen all changes made before now.
+     * 
+     * @return true if the changes are known (in changedPaths), false if a full status
+     *         is needed.
+     */
+    private boolean collectChanges()
+    {
+        if (watcher == null) {
+            return false;
+        }
+        boolean known = true;
+        syncCount++;
+        String syncFileName = SYNC_FILE_PREFIX + syncCount;
+        Path syncFile = gitDir.resolve(syncFileName);
+        try {
+            Files.createFile(syncFile);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SYNC_TIMEOUT_MILLIS);
+            boolean synced = false;
+            while (true) {
+                WatchKey key;
+                if (synced) {
+                    // Events before the sync file may have been queued on other keys after the
+                    // .git directory's key was queued, so take whatever else is ready:
+                    key = watcher.poll();
+                    if (key == null) {
+                        break;
+                    }
+                }
+                else {
+                    long remaining = deadline - System.nanoTime();
+                    key = remaining > 0 ? watcher.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (key == null) {
+                        // The sync file wasn't seen in time; something may have been missed:
+                        known = false;
+                        break;
+                    }
+                }
+                Path dir = watchedDirs.get(key);
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                        known = false;
+                        continue;
+                    }
+                    Path changed = dir.resolve((Path) event.context());
+                    if (dir.equals(gitDir)) {
+                        String name = changed.getFileName().toString();
+                        if (name.equals(syncFileName) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                            synced = true;
+                        }
+                        else if (name.equals("index") || name.equals("HEAD")) {
+                            known = false;
+                        }
+                    }
+                    else {
+                        known &= noteChange(changed, event.kind());
+                    }
+                }
+                if (! key.reset()) {
+                    watchedDirs.remove(key);
+                }
+            }
+            Files.deleteIfExists(syncFile);
+        }
+        catch (IOException | InterruptedException | ClosedWatchServiceException e) {
+            Debug.message("Git status: stopped watching " + workTree + " for changes: " + e);
+            stopWatching();
+            return false;
+        }
+        return known;
+    }
+
+    /**
+     * Note a change to a path in the working tree.
+     * 
+     * @return false if a full status is needed
+     */
+    private boolean noteChange(Path changed, WatchEvent.Kind<?> kind) throws IOException
+    {
+        if (changed.getFileName().toString().equals(".gitignore")) {
+            return false;
+        }
+        if (Files.isDirectory(changed)) {
+            if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                // The changes within the directory are seen separately:
+                return true;
+            }
+            if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                registerTree(changed);
+            }
+        }
+        changedPaths.add(GitUtilities.getRelativeFileName(workTreePath, changed.toFile()));
+        return true;
+    }
+
+    /**
+     * Get the comparison between the current branch and its remote branch.  This is
+     * only worked out again if either has changed since it was last asked for.
+     */
+    public synchronized RemoteStatus getRemoteStatus() throws IOException, GitTreeException
+    {
+        org.eclipse.jgit.lib.Repository repository = git.getRepository();
+        String remoteBranch = "origin/" + repository.getBranch();
+        ObjectId head = repository.resolve("HEAD");
+        ObjectId remoteHead = repository.resolve(remoteBranch);
+        if (remoteStatus == null || ! Objects.equals(head, remoteStatus.head)
+                || ! Objects.equals(remoteHead, remoteStatus.remoteHead)) {
+            RevCommit forkPoint = findForkPoint(repository, remoteBranch, "HEAD");
+            remoteStatus = new RemoteStatus(head, remoteHead, getDiffs(git, "HEAD", forkPoint),
+                    getDiffs(git, remoteBranch, forkPoint), isAheadOnly(git), getBehindCount(git));
+            remoteRefreshes++;
+        }
+        return remoteStatus;
+    }
+
+    /**
+     * Get the number of times the full local status has been found.
+     */
+    public synchronized int getFullRefreshCount()
+    {
+        return fullRefreshes;
+    }
+
+    /**
+     * Get the number of times the local status has been found by checking only changed paths.
+     */
+    public synchronized int getIncrementalRefreshCount()
+    {
+        return incrementalRefreshes;
+    }
+
+    /**
+     * Get the number of times the comparison with the remote branch has been worked out.
+     */
+    public synchronized int getRemoteRefreshCount()
+    {
+        return remoteRefreshes;
+    }
+}
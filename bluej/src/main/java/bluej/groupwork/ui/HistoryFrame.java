@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2014,2016,2017,2019  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2014,2016,2017,2019,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,12 +23,13 @@ package bluej.groupwork.ui;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -75,8 +76,13 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
     private Project project;
     private HistoryWorker worker;
 
-    private List<HistoryInfo> historyInfoList;
+    private List<HistoryInfo> historyInfoList = new ArrayList<>();
     private ObservableList<HistoryInfo> listModel = FXCollections.observableArrayList();
+    // All the users and files seen so far in the history, for the filter boxes:
+    private SortedSet<String> users = new TreeSet<>();
+    private SortedSet<String> files = new TreeSet<>();
+    // Set while the filter boxes' items are being changed, so that they don't refilter:
+    private boolean updatingFilters = false;
 
     private ListView<HistoryInfo> historyList = new ListView<>(listModel);
     private ComboBox<String> fileFilterCombo = new ComboBox<>();
@@ -90,6 +96,7 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
     {
         super(pmf.getWindow(), "team.history.title", "team-history");
         project = pmf.getProject();
+        prepareFilterBoxes();
         prepareData();
         prepareButtonPane();
         getDialogPane().setContent(makeMainPane());
@@ -155,35 +162,47 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
      */
     private void refilter()
     {
-        String user = null;
-        if (userFilterCombo.getSelectionModel().getSelectedIndex() > 0) {
-            user = userFilterCombo.getSelectionModel().getSelectedItem();
+        if (updatingFilters) {
+            return;
         }
+        listModel.setAll(filter(historyInfoList));
+    }
 
-        String file = null;
-        if (fileFilterCombo.getSelectionModel().getSelectedIndex() > 0) {
-            file = fileFilterCombo.getSelectionModel().getSelectedItem();
-        }
+    /**
+     * Get those of the given history items which pass the selected file and user filters.
+     */
+    private List<HistoryInfo> filter(List<HistoryInfo> infos)
+    {
+        String user = getFilterSelection(userFilterCombo);
+        String file = getFilterSelection(fileFilterCombo);
 
-        List<HistoryInfo> displayList;
         if (user == null && file == null) {
-            displayList = historyInfoList;
+            return infos;
         }
-        else {
-            displayList = new ArrayList<>();
-            for (HistoryInfo info : historyInfoList) {
-                if (user != null && !info.getUser().equals(user)) {
-                    continue;
-                }
-                if (file != null && !historyInfoHasFile(info, file)) {
-                    continue;
-                }
 
-                displayList.add(info);
+        List<HistoryInfo> displayList = new ArrayList<>();
+        for (HistoryInfo info : infos) {
+            if (user != null && !info.getUser().equals(user)) {
+                continue;
+            }
+            if (file != null && !historyInfoHasFile(info, file)) {
+                continue;
             }
+
+            displayList.add(info);
         }
+        return displayList;
+    }
 
-        listModel.setAll(displayList);
+    /**
+     * Get the item selected in a filter box, or null if all items are selected.
+     */
+    private String getFilterSelection(ComboBox<String> filterCombo)
+    {
+        if (filterCombo.getSelectionModel().getSelectedIndex() > 0) {
+            return filterCombo.getSelectionModel().getSelectedItem();
+        }
+        return null;
     }
 
     /**
@@ -195,46 +214,96 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
     }
 
     /**
-     * Reset the filter boxes (user filter and file filter), adding a complete list
-     * of all users and files.
+     * Prepare the filter boxes (user filter and file filter).  Users and files are
+     * added as the history is read.
      */
-    private void resetFilterBoxes()
+    private void prepareFilterBoxes()
     {
-        SortedSet<String> files = new TreeSet<>();
-        SortedSet<String> users = new TreeSet<>();
-
-        for (HistoryInfo info : historyInfoList) {
-            users.add(info.getUser());
-            Collections.addAll(files, info.getFiles());
-        }
-
-        fileFilterCombo.getItems().clear();
         fileFilterCombo.getItems().add(Config.getString("team.history.allFiles"));
-        fileFilterCombo.getItems().addAll(files);
         fileFilterCombo.getSelectionModel().selectFirst();
         fileFilterCombo.setOnAction(e -> refilter());
 
-        userFilterCombo.getItems().clear();
         userFilterCombo.getItems().add(Config.getString("team.history.allUsers"));
-        userFilterCombo.getItems().addAll(users);
         userFilterCombo.getSelectionModel().selectFirst();
         userFilterCombo.setOnAction(e -> refilter());
     }
 
+    /**
+     * Add items to a filter box (after the first, "all" item), keeping the current selection.
+     * 
+     * @param filterCombo  The filter box
+     * @param allItems     The items already in the filter box, to which the new items are added
+     * @param newItems     The items to add, which may include some already present
+     */
+    private void addFilterItems(ComboBox<String> filterCombo, SortedSet<String> allItems, Collection<String> newItems)
+    {
+        if (! allItems.addAll(newItems)) {
+            return;
+        }
+        String selected = getFilterSelection(filterCombo);
+        updatingFilters = true;
+        List<String> items = filterCombo.getItems();
+        items.subList(1, items.size()).clear();
+        items.addAll(allItems);
+        if (selected != null) {
+            filterCombo.getSelectionModel().select(selected);
+        }
+        else {
+            filterCombo.getSelectionModel().selectFirst();
+        }
+        updatingFilters = false;
+    }
+
+    /**
+     * Add a page of history items, showing those which pass the current filters.
+     */
+    private void addHistory(List<HistoryInfo> page)
+    {
+        page.sort(new DateCompare());
+        historyInfoList.addAll(page);
+        listModel.addAll(filter(page));
+
+        List<String> pageUsers = new ArrayList<>();
+        List<String> pageFiles = new ArrayList<>();
+        for (HistoryInfo info : page) {
+            pageUsers.add(info.getUser());
+            pageFiles.addAll(Arrays.asList(info.getFiles()));
+        }
+        addFilterItems(userFilterCombo, users, pageUsers);
+        addFilterItems(fileFilterCombo, files, pageFiles);
+    }
+
+    /**
+     * The files of some history items, which have already been added, are now known.
+     */
+    private void historyFilesFound(List<HistoryInfo> infos)
+    {
+        List<String> foundFiles = new ArrayList<>();
+        for (HistoryInfo info : infos) {
+            foundFiles.addAll(Arrays.asList(info.getFiles()));
+        }
+        addFilterItems(fileFilterCombo, files, foundFiles);
+        if (getFilterSelection(fileFilterCombo) != null) {
+            refilter();
+        }
+        else {
+            // Show the files in the items' cells:
+            historyList.refresh();
+        }
+    }
+
     /**
      * A worker class to fetch the required information from the repository
      * in the background.
      */
     private class HistoryWorker extends FXWorker implements LogHistoryListener
     {
-        private List<HistoryInfo> responseList;
         private Repository repository;
         private TeamworkCommand command;
         private TeamworkCommandResult response;
 
         public HistoryWorker(Repository repository)
         {
-            this.responseList = new ArrayList<>();
             command = repository.getLogHistory(this);
             this.repository = repository;
         }
@@ -249,7 +318,30 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
         @OnThread(Tag.Any)
         public void logInfoAvailable(HistoryInfo hInfo)
         {
-            responseList.add(hInfo);
+            logPageAvailable(new ArrayList<>(List.of(hInfo)));
+        }
+
+        @Override
+        @OnThread(Tag.Any)
+        public void logPageAvailable(List<HistoryInfo> page)
+        {
+            Platform.runLater(() -> {
+                // Once aborted, the frame has been closed:
+                if (command != null) {
+                    addHistory(page);
+                }
+            });
+        }
+
+        @Override
+        @OnThread(Tag.Any)
+        public void logFilesAvailable(List<HistoryInfo> infos)
+        {
+            Platform.runLater(() -> {
+                if (command != null) {
+                    historyFilesFound(infos);
+                }
+            });
         }
 
         public void finished()
@@ -261,18 +353,11 @@ public class HistoryFrame extends FXCustomizedDialog<Void>
                     HistoryFrame.this.dialogThenHide(() -> TeamUtils.handleServerResponseFX(response, HistoryFrame.this.asWindow()));
                 }
                 else {
-                    responseList.sort(new DateCompare());
-
                     // Make the history list forget the preferred size that was forced
                     // upon it when we built the frame.
                     // TODO Maybe not needed in FX
                     historyList.setPrefSize(-1, -1);
 
-                    listModel.setAll(responseList);
-                    historyInfoList = responseList;
-
-                    resetFilterBoxes();
-
                     DataCollector.teamHistoryProject(project, repository);
                 }
             }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2014,2015,2017,2019,2020  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2014,2015,2017,2019,2020,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -187,6 +187,20 @@ public abstract class AssistContent
     @OnThread(Tag.FXPlatform)
     public abstract List<ParamInfo> getParams();
 
+    /**
+     * Gets the unqualified parameter types, for display in a list of completions.
+     * Returns null if this is not a method or constructor (as with getParams).
+     * Unlike getParams, this should not need to fetch the Javadoc (which may involve
+     * parsing source), so subclasses which find parameter names via the Javadoc should
+     * override this.
+     */
+    @OnThread(Tag.FXPlatform)
+    public List<String> getParamTypesForDisplay()
+    {
+        List<ParamInfo> params = getParams();
+        return params == null ? null : Utility.mapList(params, ParamInfo::getUnqualifiedType);
+    }
+
     /** Get the type for this completion (as a string).
      *  For methods, this is the return type; for variables it is the type of the variable. 
      *  Confusingly, for types this returns null (use getName instead). */
@@ -0,0 +1,231 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import bluej.debugger.gentype.FieldReflective;
+import bluej.debugger.gentype.GenTypeClass;
+import bluej.debugger.gentype.GenTypeParameter;
+import bluej.debugger.gentype.MethodReflective;
+import bluej.debugger.gentype.Reflective;
+import bluej.parser.ParseUtils.AssistContentConsumer;
+import bluej.parser.nodes.MethodNode;
+import bluej.pkgmgr.JavadocResolver;
+import bluej.stride.framedjava.frames.LocalCompletion;
+import bluej.utility.JavaUtils;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * A search for the members (methods and fields) available on a completion target.
+ *
+ * The search walks the target type and its super types breadth-first, one type
+ * per call to step(), so that it can be spread across several slices of work
+ * and abandoned part way through.  Anything which depends on the parse tree
+ * (i.e. the local variables in scope) is captured when the search is constructed,
+ * so later steps are not affected by edits to the document.
+ */
+@OnThread(Tag.FXPlatform)
+public class CompletionSearch
+{
+    private final ExpressionTypeInfo suggests;
+    private final JavadocResolver javadocResolver;
+    private final AssistContentConsumer consumer;
+    private final boolean resolveJavadoc;
+    private final GenTypeClass origExprType;
+    private final Reflective accessReflective;
+
+    // Use two sets, one to keep track of which types we have already processed,
+    // another for individual methods.
+    private final Set<String> contentSigs = new HashSet<>();
+    private final Set<String> typesDone = new HashSet<>();
+    private final LinkedList<GenTypeClass> typeQueue = new LinkedList<>();
+
+    // Locals and parameters in scope at the completion position, and their names:
+    private final List<AssistContent> localCompletions = new ArrayList<>();
+    private final Set<String> localNames = new HashSet<>();
+
+    /**
+     * Begin a search for completions.
+     *
+     * @param exprType        The target type from which to get completions.  This class and all super-types are scanned.
+     * @param suggests        Information about the code suggestions
+     * @param javadocResolver Resolver for fetching Javadoc
+     * @param consumer        The consumer to be called with each AssistContent, if non-null (may be null)
+     * @param surroundingMethod  The method node in which the editor cursors is currently in, or null if not in a method
+     * @param ourPos          The position in the file to use to filter our local variable declarations that are after this position
+     * @param resolveJavadoc  Whether to fetch the Javadoc for each type's methods as the type is scanned.  If false,
+     *                        the Javadoc is only fetched when it is asked for on an individual completion.
+     */
+    public CompletionSearch(GenTypeClass exprType, ExpressionTypeInfo suggests, JavadocResolver javadocResolver,
+                            AssistContentConsumer consumer, MethodNode surroundingMethod, int ourPos, boolean resolveJavadoc)
+    {
+        this.suggests = suggests;
+        this.javadocResolver = javadocResolver;
+        this.consumer = consumer;
+        this.resolveJavadoc = resolveJavadoc;
+        this.origExprType = exprType;
+        GenTypeClass accessType = suggests.getAccessType();
+        this.accessReflective = (accessType != null) ? accessType.getReflective() : null;
+        typeQueue.add(exprType);
+
+        if (surroundingMethod != null && suggests.isPlain())
+        {
+            // Find and add the local variables:
+            ParseUtils.findLocalVariables(ParseUtils.findInnerMostNode(ourPos - surroundingMethod.getAbsoluteEditorPosition(), surroundingMethod), surroundingMethod, ourPos - (suggests.getSuggestionToken() == null ? 0 : suggests.getSuggestionToken().getLength())).forEach(var -> {
+                AssistContent completion = LocalCompletion.getCompletion(var.getFieldTypeAsPlainString(), var.getName(), false);
+                if (completion != null)
+                {
+                    localNames.add(var.getName());
+                    localCompletions.add(completion);
+                }
+            });
+
+            for (int i = 0; i < surroundingMethod.getParamNames().size(); i++)
+            {
+                String name = surroundingMethod.getParamNames().get(i);
+                AssistContent completion = LocalCompletion.getCompletion(surroundingMethod.getParamTypes().get(i).getName(), name, true);
+                if (completion != null)
+                {
+                    localNames.add(name);
+                    localCompletions.add(completion);
+                }
+            }
+        }
+    }
+
+    /**
+     * Scan the next type in the hierarchy, adding the members found to the given list.
+     * Members which are overridden by a member already found are not added.
+     *
+     * @return true if there are more types to scan, false if the search is complete.
+     */
+    public boolean step(List<AssistContent> completions)
+    {
+        while (!typeQueue.isEmpty())
+        {
+            GenTypeClass exprType = typeQueue.removeFirst();
+            if (!typesDone.add(exprType.getReflective().getName()))
+            {
+                // we've already done this type...
+                continue;
+            }
+            scanType(exprType, completions);
+            return !typeQueue.isEmpty();
+        }
+        return false;
+    }
+
+    private void scanType(GenTypeClass exprType, List<AssistContent> completions)
+    {
+        Map<String, Set<MethodReflective>> methods = exprType.getReflective().getDeclaredMethods();
+        Map<String, GenTypeParameter> typeArgs = exprType.getMap();
+
+        for (String name : methods.keySet())
+        {
+            Set<MethodReflective> mset = new HashSet<>(methods.get(name));
+            mset.removeIf(method -> accessReflective != null
+                && !JavaUtils.checkMemberAccess(method.getDeclaringType(),
+                origExprType,
+                accessReflective,
+                method.getModifiers(), suggests.isStatic()));
+            completions.addAll(ParseUtils.discoverElements(exprType, resolveJavadoc ? javadocResolver : null, javadocResolver,
+                contentSigs, typeArgs, mset, consumer));
+        }
+
+        Map<String, FieldReflective> fields = exprType.getReflective().getDeclaredFields();
+        for (String name : fields.keySet())
+        {
+            FieldReflective field = fields.get(name);
+            if (accessReflective != null &&
+                !JavaUtils.checkMemberAccess(field.getDeclaringType(),
+                    origExprType,
+                    accessReflective,
+                    field.getModifiers(), suggests.isStatic()))
+            {
+                continue;
+            }
+
+            // Determine field type from expression type:
+            Map<String, GenTypeParameter> declMap =
+                exprType.mapToSuper(field.getDeclaringType().getName()).getMap();
+            GenTypeParameter fieldType = field.getType().mapTparsToTypes(declMap).getUpperBound();
+
+            FieldCompletion completion = new FieldCompletion(fieldType.toString(true), field.getName(),
+                field.getModifiers(), field.getDeclaringType().getName());
+
+            completions.add(completion);
+
+            if (consumer != null)
+            {
+                consumer.consume(completion, false);
+            }
+        }
+
+        for (GenTypeClass stype : exprType.getReflective().getSuperTypes())
+        {
+            if (typeArgs != null)
+            {
+                typeQueue.add(stype.mapTparsToTypes(typeArgs));
+            }
+            else
+            {
+                typeQueue.add(stype.getErasedType());
+            }
+        }
+
+        Reflective outer = exprType.getReflective().getOuterClass();
+        if (outer != null)
+        {
+            typeQueue.add(new GenTypeClass(outer));
+        }
+    }
+
+    /**
+     * Gets the completions for local variables and method parameters in scope
+     * at the completion position (empty if the target is not plain, or we are not in a method).
+     */
+    public List<AssistContent> getLocalCompletions()
+    {
+        return Collections.unmodifiableList(localCompletions);
+    }
+
+    /**
+     * If the given completion is a field which is shadowed by a local variable or
+     * parameter, returns a completion for "this.{field}" instead.  Otherwise returns
+     * the completion unaltered.
+     */
+    public AssistContent scopeField(AssistContent completion)
+    {
+        if (completion.getKind() == AssistContent.CompletionKind.FIELD && localNames.contains(completion.getName()))
+            return new PrefixCompletionWrapper(completion, "this.");
+        else
+            return completion;
+    }
+}
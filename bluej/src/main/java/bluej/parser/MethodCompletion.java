@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2014,2015,2017  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2014,2015,2017,2026  Michael Kolling and John Rosenberg 
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -37,6 +37,7 @@ import bluej.debugger.gentype.JavaType;
 import bluej.debugger.gentype.MethodReflective;
 import bluej.pkgmgr.JavadocResolver;
 import bluej.utility.JavaUtils;
+import bluej.utility.Utility;
 
 /**
  * Possible code completion for a method.
@@ -151,12 +152,21 @@ public class MethodCompletion extends AssistContent
     public String getSignature()
     {
         StringBuilder sig = new StringBuilder();
+        // We don't use getParams() here, as that fetches the Javadoc, which the signature doesn't need:
         sig.append(getType()).append(" ").append(getName()).append("(")
-           .append(getParams().stream().map(ParamInfo::getQualifiedType).collect(Collectors.joining(",")))
+           .append(method.getParamTypes().stream().map(t -> convertToSolid(t).toString()).collect(Collectors.joining(",")))
            .append(")");
         return sig.toString();
     }
 
+    @Override
+    @OnThread(Tag.FXPlatform)
+    public List<String> getParamTypesForDisplay()
+    {
+        // The types don't depend on the Javadoc, so we can avoid fetching it:
+        return Utility.mapList(method.getParamTypes(), t -> new ParamInfo(convertToSolid(t).toString(), null, null, null).getUnqualifiedType());
+    }
+
     @Override
     @OnThread(Tag.FXPlatform)
     public List<ParamInfo> getParams()
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2013,2014,2015,2017,2018,2019,2020,2021,2022,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2013,2014,2015,2017,2018,2019,2020,2021,2022,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -38,11 +38,9 @@ import bluej.parser.nodes.VariableDeclaration;
 import bluej.parser.symtab.ClassInfo;
 import bluej.pkgmgr.Package;
 import bluej.pkgmgr.target.role.Kind;
-import bluej.stride.framedjava.frames.LocalCompletion;
 import bluej.utility.Debug;
 import threadchecker.OnThread;
 import threadchecker.Tag;
-import bluej.debugger.gentype.FieldReflective;
 import bluej.debugger.gentype.GenTypeArrayClass;
 import bluej.debugger.gentype.GenTypeClass;
 import bluej.debugger.gentype.GenTypeParameter;
@@ -54,7 +52,6 @@ import bluej.parser.lexer.JavaTokenTypes;
 import bluej.parser.lexer.LocatableToken;
 import bluej.pkgmgr.JavadocResolver;
 import bluej.utility.JavaReflective;
-import bluej.utility.JavaUtils;
 
 /**
  * Utilities for parsers.
@@ -222,116 +219,20 @@ public class ParseUtils
     private static List<AssistContent> getCompletionsForTarget(GenTypeClass exprType, ExpressionTypeInfo suggests,
                                                                JavadocResolver javadocResolver, AssistContentConsumer consumer, MethodNode surroundingMethod, int ourPos)
     {
-        GenTypeClass accessType = suggests.getAccessType();
-        Reflective accessReflective = (accessType != null) ? accessType.getReflective() : null;
-
-        // Use two sets, one to keep track of which types we have already processed,
-        // another for individual methods.
-        Set<String> contentSigs = new HashSet<String>();
-        Set<String> typesDone = new HashSet<String>();
+        CompletionSearch search = new CompletionSearch(exprType, suggests, javadocResolver, consumer, surroundingMethod, ourPos, true);
         List<AssistContent> completions = new ArrayList<AssistContent>();
-
-        LinkedList<GenTypeClass> typeQueue = new LinkedList<GenTypeClass>();
-        typeQueue.add(exprType);
-        GenTypeClass origExprType = exprType;
-
-        while (!typeQueue.isEmpty())
+        while (search.step(completions))
         {
-            exprType = typeQueue.removeFirst();
-
-            if (!typesDone.add(exprType.getReflective().getName()))
-            {
-                // we've already done this type...
-                continue;
-            }
-            Map<String, Set<MethodReflective>> methods = exprType.getReflective().getDeclaredMethods();
-            Map<String, GenTypeParameter> typeArgs = exprType.getMap();
-
-            for (String name : methods.keySet())
-            {
-                Set<MethodReflective> mset = new HashSet<>(methods.get(name));
-                mset.removeIf(method -> accessReflective != null
-                    && !JavaUtils.checkMemberAccess(method.getDeclaringType(),
-                    origExprType,
-                    suggests.getAccessType().getReflective(),
-                    method.getModifiers(), suggests.isStatic()));
-                completions.addAll(discoverElements(exprType, javadocResolver, contentSigs,
-                    typeArgs, mset, consumer));
-            }
-
-            Map<String, FieldReflective> fields = exprType.getReflective().getDeclaredFields();
-            for (String name : fields.keySet())
-            {
-                FieldReflective field = fields.get(name);
-                if (accessReflective != null &&
-                    !JavaUtils.checkMemberAccess(field.getDeclaringType(),
-                        origExprType,
-                        suggests.getAccessType().getReflective(),
-                        field.getModifiers(), suggests.isStatic()))
-                {
-                    continue;
-                }
-
-                // Determine field type from expression type:
-                Map<String, GenTypeParameter> declMap =
-                    exprType.mapToSuper(field.getDeclaringType().getName()).getMap();
-                GenTypeParameter fieldType = field.getType().mapTparsToTypes(declMap).getUpperBound();
-
-                FieldCompletion completion = new FieldCompletion(fieldType.toString(true), field.getName(),
-                    field.getModifiers(), field.getDeclaringType().getName());
-
-                completions.add(completion);
-
-                if (consumer != null)
-                {
-                    consumer.consume(completion, false);
-                }
-            }
-
-            for (GenTypeClass stype : exprType.getReflective().getSuperTypes())
-            {
-                if (typeArgs != null)
-                {
-                    typeQueue.add(stype.mapTparsToTypes(typeArgs));
-                }
-                else
-                {
-                    typeQueue.add(stype.getErasedType());
-                }
-            }
-
-            // Sort the completions by name
-            Collections.sort(completions, (o1, o2) -> o1.getName().compareTo(o2.getName()));
-            Reflective outer = exprType.getReflective().getOuterClass();
-            if (outer != null)
-            {
-                typeQueue.add(new GenTypeClass(outer));
-            }
-
+            // Keep going until all types have been scanned
         }
 
-        if (surroundingMethod != null && suggests.isPlain())
+        // Sort the completions by name
+        Collections.sort(completions, (o1, o2) -> o1.getName().compareTo(o2.getName()));
+
+        for (AssistContent local : search.getLocalCompletions())
         {
-            // Find and add the local variables:
-            findLocalVariables(findInnerMostNode(ourPos - surroundingMethod.getAbsoluteEditorPosition(), surroundingMethod), surroundingMethod, ourPos - (suggests.getSuggestionToken() == null ? 0 : suggests.getSuggestionToken().getLength())).forEach(var -> {
-                AssistContent completion = LocalCompletion.getCompletion(var.getFieldTypeAsPlainString(), var.getName(), false);
-                if (completion != null)
-                {
-                    scopeField(completions, var.getName());
-                    completions.add(completion);
-                }
-            });
-            
-            for (int i = 0; i < surroundingMethod.getParamNames().size(); i++)
-            {
-                String name = surroundingMethod.getParamNames().get(i);
-                AssistContent completion = LocalCompletion.getCompletion(surroundingMethod.getParamTypes().get(i).getName(), name, true);
-                if (completion != null)
-                {
-                    scopeField(completions, name);
-                    completions.add(completion);
-                }
-            }
+            scopeField(completions, local.getName());
+            completions.add(local);
         }
         
         return completions;
@@ -375,6 +276,8 @@ public class ParseUtils
      * present are not returned).
      *
      * @param gclass          The declaring class for the methods.
+     * @param batchJavadocResolver If non-null, used to look up the Javadoc for all the methods in one go,
+     *                        before any are returned.  If null, the Javadoc is left to be fetched on demand.
      * @param javadocResolver The Javadoc resolver used to look up Javadoc for the method.
      * @param contentSigs     The set of existing method signatures.  The newly-found method will be
      *                        added if and only if it is not already in the set.
@@ -387,10 +290,11 @@ public class ParseUtils
      * If the method was already in the set, null will be returned.
      */
     @OnThread(Tag.FXPlatform)
-    private static Collection<AssistContent> discoverElements(GenTypeClass gclass,
-                                                              JavadocResolver javadocResolver, Set<String> contentSigs,
-                                                              Map<String, GenTypeParameter> typeArgs,
-                                                              Collection<MethodReflective> methods, AssistContentConsumer consumer)
+    static Collection<AssistContent> discoverElements(GenTypeClass gclass,
+                                                      JavadocResolver batchJavadocResolver, JavadocResolver javadocResolver,
+                                                      Set<String> contentSigs,
+                                                      Map<String, GenTypeParameter> typeArgs,
+                                                      Collection<MethodReflective> methods, AssistContentConsumer consumer)
     {
         boolean resolveJavadoc = false;
         Set<MethodCompletion> completions = new HashSet<>();
@@ -401,9 +305,9 @@ public class ParseUtils
         }
 
         // Scan all methods for Javadoc in one go first (saves a lot of time):
-        if (resolveJavadoc)
+        if (resolveJavadoc && batchJavadocResolver != null)
         {
-            javadocResolver.getJavadoc(gclass.getReflective(), methods);
+            batchJavadocResolver.getJavadoc(gclass.getReflective(), methods);
         }
 
         List<AssistContent> allNewMethods = new ArrayList<>();
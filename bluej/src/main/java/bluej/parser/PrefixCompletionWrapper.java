@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2017 Michael Kölling and John Rosenberg 
+ Copyright (C) 2014,2015,2017,2026 Michael Kölling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -49,6 +49,12 @@ public class PrefixCompletionWrapper extends AssistContent
         return wrapped.getParams();
     }
 
+    @Override
+    public List<String> getParamTypesForDisplay()
+    {
+        return wrapped.getParamTypesForDisplay();
+    }
+
     public String getType()
     {
         return wrapped.getType();
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2014,2016  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2014,2016,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,7 +23,6 @@ package bluej.pkgmgr;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Properties;
 
@@ -157,6 +156,10 @@ public class BlueJPackageFile
      * oldPkgFile it doesn't matter if it fails to store to the new one, since
      * whenever the old one is present, that will be loaded first in all
      * versions of BlueJ.
+     * <p>
+     * 
+     * Each file is only written if the properties have changed (see
+     * PackageFileWriter).
      * 
      * @throws IOException if something goes wrong while trying to write the
      *             properties.
@@ -181,8 +184,7 @@ public class BlueJPackageFile
             saveToFile(props, oldPkgFile);
         }
 
-        pkgFile.createNewFile();
-        if (!pkgFile.canWrite()) {
+        if (pkgFile.exists() && !pkgFile.canWrite()) {
                 throw new IOException("BlueJ package file not writable: " + pkgFile);
         }
         else {
@@ -190,23 +192,19 @@ public class BlueJPackageFile
         }
     }
 
+    /**
+     * Store the properties to the file, if they have changed, replacing the file
+     * atomically (see PackageFileWriter).
+     */
     private void saveToFile(Properties props, File file)
         throws IOException
     {
-        FileOutputStream output = null;
         try {
-            output = new FileOutputStream(file);
-            String header = "BlueJ package file";
-            props.store(output, header);
+            PackageFileWriter.store(props, "BlueJ package file", file);
         }
         catch (IOException e) {
             throw new IOException("Error when storing properties to BlueJ package file: " + file);
         }
-        finally {
-            if (output != null) {
-                output.close();
-            }
-        }
     }
 
     /**
@@ -0,0 +1,170 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Remembers which sources the documentation in a project's documentation directory was
+ * generated from, so that documentation which is already up to date needn't be generated again.
+ * 
+ * <p>Each generation is recorded against a hash of the javadoc options and the content of the
+ * source files.  A class's documentation (as previewed in the editor) is recorded under the
+ * class's documentation file; the project's documentation is recorded as a whole, since its
+ * index pages depend on every class.  Since generating either overwrites the class pages of
+ * the other, recording one forgets the other.
+ * 
+ * <p>The record is kept in a file in the documentation directory.
+ */
+@OnThread(Tag.Worker)
+class DocuCache
+{
+    private static final String CACHE_FILE_NAME = ".bluej-docs";
+    private static final String PROJECT_ENTRY = "project";
+    private static final String CLASS_ENTRY_PREFIX = "class:";
+
+    private final File docDir;
+    private final File cacheFile;
+    // Loaded when first needed:
+    private Properties entries;
+
+    /**
+     * Create a cache for the given documentation directory.
+     */
+    @OnThread(Tag.Any)
+    DocuCache(File docDir)
+    {
+        this.docDir = docDir;
+        cacheFile = new File(docDir, CACHE_FILE_NAME);
+    }
+
+    /**
+     * Work out the hash of the given javadoc options and source files.
+     */
+    static String hash(String options, List<File> sources) throws IOException
+    {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e) {
+            // Every Java platform must support SHA-256:
+            throw new IOException(e);
+        }
+        digest.update(options.getBytes(StandardCharsets.UTF_8));
+        for (File source : sources) {
+            digest.update((byte) 0);
+            digest.update(source.getPath().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(source.toPath()));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Check whether the documentation of a class was generated from the sources with the given hash.
+     * 
+     * @param docFile  The class's documentation file
+     */
+    boolean isClassUpToDate(File docFile, String hash)
+    {
+        return hash.equals(getEntries().getProperty(getClassEntry(docFile)));
+    }
+
+    /**
+     * Check whether the project's documentation was generated from the sources with the given hash.
+     */
+    boolean isProjectUpToDate(String hash)
+    {
+        return hash.equals(getEntries().getProperty(PROJECT_ENTRY));
+    }
+
+    /**
+     * Record that the documentation of a class has been generated from the sources with the given hash.
+     * 
+     * @param docFile  The class's documentation file
+     */
+    void recordClass(File docFile, String hash)
+    {
+        Properties props = getEntries();
+        props.remove(PROJECT_ENTRY);
+        props.setProperty(getClassEntry(docFile), hash);
+        save();
+    }
+
+    /**
+     * Record that the project's documentation has been generated from the sources with the given hash.
+     */
+    void recordProject(String hash)
+    {
+        Properties props = getEntries();
+        props.clear();
+        props.setProperty(PROJECT_ENTRY, hash);
+        save();
+    }
+
+    private String getClassEntry(File docFile)
+    {
+        return CLASS_ENTRY_PREFIX + docDir.toPath().relativize(docFile.toPath()).toString().replace(File.separatorChar, '/');
+    }
+
+    private Properties getEntries()
+    {
+        if (entries == null) {
+            entries = new Properties();
+            if (cacheFile.exists()) {
+                try (InputStream input = Files.newInputStream(cacheFile.toPath())) {
+                    entries.load(input);
+                }
+                catch (IOException | IllegalArgumentException e) {
+                    // Documentation will just be generated again:
+                    entries.clear();
+                }
+            }
+        }
+        return entries;
+    }
+
+    private void save()
+    {
+        try (OutputStream output = Files.newOutputStream(cacheFile.toPath())) {
+            entries.store(output, "BlueJ documentation sources");
+        }
+        catch (IOException e) {
+            Debug.reportError("Could not save documentation cache " + cacheFile, e);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2015,2016,2019,2021,2022,2023  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2015,2016,2019,2021,2022,2023,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -45,8 +45,12 @@ import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class handles documentation generation from inside BlueJ.
@@ -56,6 +60,10 @@ import java.util.List;
  * into a directory in the project directory.
  * As the documentation for a single class serves merely as a preview option,
  * it is generated in a temporary directory.
+ * 
+ * Documentation is generated on a background thread, one run at a time.  Each run
+ * first checks whether the documentation is already up to date with its sources
+ * (see {@link DocuCache}), in which case javadoc isn't run.
  *
  * @author  Axel Schmolitzky
  */
@@ -91,6 +99,16 @@ public class DocuGenerator
      */
     private static String tmpJavadocParams = " -noindex -notree -nohelp -nonavbar";
 
+    /** The thread on which documentation is generated.  Javadoc can run into
+     * problems if several instances are running at the same time, so there is
+     * only one. */
+    private static final ExecutorService docuExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "DocuRun");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
     /** The project this generator belongs to. */
     private Project project;
     /** The project directory. */
@@ -101,23 +119,27 @@ public class DocuGenerator
     private File docDir;
     /** the path of the directory where documentation is written to. */
     private String docDirPath;
+    /** which sources the documentation in the directory was generated from. */
+    private DocuCache docuCache;
 
     /* -------------- end of static field declarations ----------------- */
 
     /**
-     * Creates a separate thread that starts the external call for faster
-     * return to the GUI. If the call was successful the URL given in 'url'
-     * will be shown in a web browser.
+     * Starts the call on the documentation thread for faster return to the GUI.
+     * If the call was successful the file given in 'result' will be shown
+     * in a web browser (if requested).
      * @param call the call to the documentation generating tool.
-     * @param url the URL to be shown after successful completion.
+     * @param result the file to be shown after successful completion.
+     * @param options the options in the call (everything but the tool and the targets).
+     * @param sources the source files being documented; these and the options are
+     *                checked to see whether the documentation is already up to date.
      */
-    private static void generateDoc(String[] call, File result, File log, 
-                                    String header, boolean openBrowser)
+    private void generateDoc(String[] call, File result, File log, 
+                             String header, boolean openBrowser, List<String> options, List<File> sources)
     {
         // start the call in a separate thread to allow fast return to GUI.
-        Thread starterThread = new DocuRunStarter(call, result, log, header, openBrowser);
-        starterThread.setPriority(Thread.MIN_PRIORITY);
-        starterThread.start();
+        docuExecutor.execute(new DocuRunStarter(call, result, log, header, openBrowser,
+                String.join("\0", options), sources, docuCache, getStylesheet()));
         BlueJEvent.raiseEvent(BlueJEvent.GENERATING_DOCU, null);
     }
 
@@ -130,24 +152,47 @@ public class DocuGenerator
      * HTML file that should be opened by a web browser if the documentation
      * generation was successful.
      */
-    private static class DocuRunStarter extends Thread
+    private static class DocuRunStarter implements Runnable
     {
         private String[] docuCall;
         private File showFile;
         private File logFile;
         private String logHeader;
         private boolean openBrowser;
+        private String options;
+        private List<File> sources;
+        private DocuCache cache;
+        private File stylesheet;
         private static final Object mutex = new Object();
 
         public DocuRunStarter(String[] call, File result, File log, 
-                              String header, boolean browse)
+                              String header, boolean browse, String options,
+                              List<File> sources, DocuCache cache, File stylesheet)
         {
-            super("DocuRun");
             docuCall = call;
             showFile = result;
             logFile = log;
             logHeader = header;
             openBrowser = browse;
+            this.options = options;
+            this.sources = sources;
+            this.cache = cache;
+            this.stylesheet = stylesheet;
+        }
+
+        /**
+         * Check whether the result is already up to date with the sources.
+         * 
+         * @param hash  The hash of the call and the sources, or null if it could not be found
+         */
+        @OnThread(Tag.Worker)
+        private boolean isUpToDate(String hash)
+        {
+            if (hash == null || !showFile.exists()) {
+                return false;
+            }
+            return logHeader.equals(projectLogHeader) ? cache.isProjectUpToDate(hash)
+                    : cache.isClassUpToDate(showFile, hash);
         }
 
         /**
@@ -158,6 +203,31 @@ public class DocuGenerator
         @OnThread(value = Tag.Worker, ignoreParent = true)
         public void run()
         {
+            long startTime = System.nanoTime();
+            String hash;
+            try {
+                hash = DocuCache.hash(options, sources);
+            }
+            catch (IOException exc) {
+                hash = null;
+            }
+            if (isUpToDate(hash)) {
+                // Make sure the result looks newer than the sources, as editors check that:
+                showFile.setLastModified(System.currentTimeMillis());
+                Platform.runLater(() -> {
+                    BlueJEvent.raiseEvent(BlueJEvent.DOCU_GENERATED, null);
+                    if (openBrowser) {
+                        Utility.openWebBrowser(showFile.getPath());
+                    }
+                });
+                return;
+            }
+
+            // See getStylesheet():
+            if (stylesheet.exists()) {
+                stylesheet.delete();
+            }
+
             // Process docuRun;
             PrintWriter logWriter = null;
             int exitValue = -1;
@@ -215,13 +285,24 @@ public class DocuGenerator
                             logWriter.println("Interrupted while waiting for javadoc process to complete.");
                         }
                     }
+
+                    if (exitValue == 0 && hash != null) {
+                        if (logHeader.equals(projectLogHeader)) {
+                            cache.recordProject(hash);
+                        }
+                        else {
+                            cache.recordClass(showFile, hash);
+                        }
+                    }
                 }
                 
                 final int finalExitValue = exitValue;
+                final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                logWriter.println("<---- documentation generated in " + elapsedMillis + " ms ---->");
                 Platform.runLater(new Runnable() {
                     public void run() {
                         if (finalExitValue == 0) {
-                            BlueJEvent.raiseEvent(BlueJEvent.DOCU_GENERATED, null);
+                            BlueJEvent.raiseEvent(BlueJEvent.DOCU_GENERATED, elapsedMillis);
                             if (!showFile.exists()) {
                                 Debug.message("showfile does not exist - searching");
                                 showFile = FileUtility.findFile(showFile.getParentFile(),
@@ -302,6 +383,7 @@ public class DocuGenerator
         projectDirPath = projectDir.getPath();
         docDir = new File(projectDir, docDirName);
         docDirPath = docDir.getPath();
+        docuCache = new DocuCache(docDir);
     }
 
     /**
@@ -352,9 +434,14 @@ public class DocuGenerator
         // get the parameter that enables javadoc to link the generated
         // documentation to the API documentation
         addLinkParam(call);
+        List<String> options = new ArrayList<>(call.subList(1, call.size()));
 
         // add the names of all the targets for the documentation tool.
         // first: get the names of all packages that contain java sources.
+        // The sources which are documented are collected too, to check
+        // whether the documentation is up to date.
+        List<File> sources = new ArrayList<>();
+        String javaSuffix = "." + SourceType.Java.toString().toLowerCase();
         List<String> packageNames = project.getPackageNames();
         for (Iterator<String> names = packageNames.iterator(); names.hasNext(); )
         {
@@ -362,11 +449,17 @@ public class DocuGenerator
             // as javadoc doesn't like packages with no java-files, we have to
             // pass only names of packages that really contain java files.
             Package pack = project.getPackage(packageName);
-            if (FileUtility.containsFile(pack.getPath(), "." + SourceType.Java.toString().toLowerCase()))
+            if (FileUtility.containsFile(pack.getPath(), javaSuffix))
             {
                 if (packageName.length() > 0)
                 {
                     call.add(packageName);
+                    File[] packageSources = pack.getPath().listFiles((dir, name) -> name.endsWith(javaSuffix));
+                    if (packageSources != null)
+                    {
+                        Arrays.sort(packageSources);
+                        sources.addAll(Arrays.asList(packageSources));
+                    }
                 }
             }
         }
@@ -376,12 +469,13 @@ public class DocuGenerator
         String dirName = project.getProjectDir().getAbsolutePath();
         for (Iterator<String> names = classNames.iterator(); names.hasNext(); )
         {
-            call.add(dirName + "/" + names.next() + "." + SourceType.Java.toString().toLowerCase());
+            File source = new File(dirName + "/" + names.next() + javaSuffix);
+            call.add(source.getPath());
+            sources.add(source);
         }
         String[] javadocCall = call.toArray(new String[0]);
 
-        removeStylesheet();
-        generateDoc(javadocCall, startPage, logFile, projectLogHeader, true);
+        generateDoc(javadocCall, startPage, logFile, projectLogHeader, true, options, sources);
 
         return "";
     }
@@ -413,6 +507,7 @@ public class DocuGenerator
         call.addAll(Utility.dequoteCommandLine(fixedJavadocParams));
         call.addAll(Utility.dequoteCommandLine(tmpJavadocParams));
         addGeneralOptions(call);
+        List<String> options = new ArrayList<>(call.subList(1, call.size()));
         call.add(filename);
 
         String[] javadocCall = call.toArray(new String[0]);
@@ -421,24 +516,19 @@ public class DocuGenerator
         File htmlFile = new File(getDocuPath(filename));
         File logFile = new File(docDir, "logfile.txt");
 
-        removeStylesheet();
-        generateDoc(javadocCall, htmlFile, logFile, classLogHeader, false);
+        generateDoc(javadocCall, htmlFile, logFile, classLogHeader, false, options, List.of(new File(filename)));
     }
 
     /**
-     * Removes the stylesheet (used before generating Javadoc).  Needed because versions
+     * Gets the stylesheet, which is removed before generating Javadoc.  Needed because versions
      * before 4.1.0 would generate a stylesheet.css file that was different, but Javadoc
      * does not do content comparison so in 4.1.0+ will not by itself regenerate the Javadoc,
      * even though it may needs to replace the pre-4.1.0 version.  We just delete it every
-     * time to make sure the stylesheet.css is up-to-date.
+     * time (that Javadoc is run) to make sure the stylesheet.css is up-to-date.
      */
-    private void removeStylesheet()
+    private File getStylesheet()
     {
-        File stylesheet = new File(projectDir, "doc/stylesheet.css");
-        if (stylesheet.exists())
-        {
-            stylesheet.delete();
-        }
+        return new File(projectDir, "doc/stylesheet.css");
     }
 
     private void addGeneralOptions(List<String> call)
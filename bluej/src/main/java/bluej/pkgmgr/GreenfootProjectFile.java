@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2014,2016,2018  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2014,2016,2018,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,7 +23,6 @@ package bluej.pkgmgr;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.Properties;
 
@@ -80,7 +79,7 @@ public class GreenfootProjectFile
     }
 
     /**
-     * Save the given properties to the file.
+     * Save the given properties to the file (if they have changed).
      * 
      * @throws IOException if something goes wrong while trying to write the
      *             file.
@@ -93,24 +92,14 @@ public class GreenfootProjectFile
             throw new IOException("Greenfoot project file not writable: " + this);
         }
 
-        FileOutputStream output = null;
         try
         {
-            output = new FileOutputStream(pkgFile);
-            String header = "Greenfoot project file";
-            props.store(output, header);
+            PackageFileWriter.store(props, "Greenfoot project file", pkgFile);
         }
         catch (IOException e)
         {
             throw new IOException("Error when storing properties to Greenfoot project file: " + this);
         }
-        finally
-        {
-            if (output != null)
-            {
-                output.close();
-            }
-        }
     }
     
     /**
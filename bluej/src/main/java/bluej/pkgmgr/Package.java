@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2023,2024 Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2023,2024,2026 Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -1672,7 +1672,15 @@ public final class Package
                 project.removeClassLoader();
                 project.newRemoteClassLoader();
 
-                doCompile(compileTargets, new PackageCompileObserver(compileObservers), CompileReason.REBUILD, CompileType.EXPLICIT_USER_COMPILE);
+                // Classes which don't depend on each other can be compiled at the same time:
+                Set<ClassTarget> targetSet = new HashSet<>(compileTargets);
+                ParallelRebuild<ClassTarget> rebuild = new ParallelRebuild<>(compileTargets,
+                        ct -> ct.dependencies().stream().filter(targetSet::contains).map(d -> (ClassTarget) d).toList(),
+                        JobQueue.getJobQueue().getThreadCount());
+                // Hold back other compiles for the project until the rebuild has finished
+                // (see RebuildCompileObserver.batchEnded):
+                JobQueue.getJobQueue().beginRebuild(project.getProjectDir());
+                compileRebuildBatches(new RebuildCompileObserver(rebuild, compileTargets));
             }
         }
         catch (IOException ioe) {
@@ -1680,6 +1688,61 @@ public final class Package
         }
     }
 
+    /**
+     * Compile all the batches of a rebuild which are ready, and compile the further
+     * batches as they become ready.  Each batch has its own observer for the classes
+     * in it; the rebuild as a whole is reported through the given observer.
+     */
+    private void compileRebuildBatches(RebuildCompileObserver rebuildObserver)
+    {
+        ParallelRebuild<ClassTarget> rebuild = rebuildObserver.rebuild;
+        for (ParallelRebuild.Batch<ClassTarget> batch = rebuild.nextBatch(); batch != null; batch = rebuild.nextBatch())
+        {
+            ParallelRebuild.Batch<ClassTarget> thisBatch = batch;
+            FXCompileObserver batchObserver = new FXCompileObserver()
+            {
+                // A batch can end more than once, if classes in it are compiled again
+                // after errors (see QuietPackageCompileObserver.endCompile):
+                private boolean ended = false;
+
+                @Override
+                @OnThread(Tag.FXPlatform)
+                public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
+                {
+                    rebuildObserver.batchStarted(reason, type, compilationSequence);
+                }
+
+                @Override
+                @OnThread(Tag.FXPlatform)
+                public boolean compilerMessage(Diagnostic diagnostic, CompileType type)
+                {
+                    return rebuildObserver.compilerMessage(diagnostic, type);
+                }
+
+                @Override
+                @OnThread(Tag.FXPlatform)
+                public void endCompile(CompileInputFile[] sources, boolean successful, CompileType type, int compilationSequence)
+                {
+                    if (!ended)
+                    {
+                        ended = true;
+                        rebuildObserver.batchEnded(thisBatch, successful, type);
+                    }
+                }
+            };
+            boolean queued = doCompile(thisBatch.getTargets(), new PackageCompileObserver(List.of(batchObserver), true),
+                    CompileReason.REBUILD, CompileType.EXPLICIT_USER_COMPILE, thisBatch.getLane());
+            if (!queued)
+            {
+                for (ClassTarget ct : thisBatch.getTargets())
+                {
+                    ct.setQueued(false);
+                }
+                rebuildObserver.batchEnded(thisBatch, false, CompileType.EXPLICIT_USER_COMPILE);
+            }
+        }
+    }
+
     /**
      * Have all editors in this package save the file the are showing.
      * Called when doing a cvs operation
@@ -1753,18 +1816,31 @@ public final class Package
      * All targets in the list should have been saved beforehand.
      */
     private void doCompile(Collection<ClassTarget> targetList, FXCompileObserver edtObserver, CompileReason reason, CompileType type)
+    {
+        doCompile(targetList, edtObserver, reason, type, 0);
+    }
+
+    /**
+     * Compile every Target in 'targetList', in the given lane of the job queue (see JobQueue).
+     * 
+     * @return true if a compile job was queued; false if there was nothing (valid) to compile,
+     *         in which case the observer will not be notified.
+     */
+    private boolean doCompile(Collection<ClassTarget> targetList, FXCompileObserver edtObserver, CompileReason reason, CompileType type, int lane)
     {
         CompileObserver observer = new EventqueueCompileObserverAdapter(new DataCollectionCompileObserverWrapper(project, edtObserver));
         if (targetList.isEmpty()) {
-            return;
+            return false;
         }
 
         List<CompileInputFile> srcFiles = Utility.mapList(targetList, ClassTarget::getCompileInputFile);
         if (srcFiles.size() > 0 && srcFiles.stream().allMatch(CompileInputFile::isValid))
         {
             JobQueue.getJobQueue().addJob(srcFiles.toArray(new CompileInputFile[0]), observer, project.getClassLoader(), project.getProjectDir(),
-                ! PrefMgr.getFlag(PrefMgr.SHOW_UNCHECKED), project.getProjectCharset(), reason, type);
+                ! PrefMgr.getFlag(PrefMgr.SHOW_UNCHECKED), project.getProjectCharset(), reason, type, lane);
+            return true;
         }
+        return false;
     }
 
     /**
@@ -2597,14 +2673,27 @@ public final class Package
         implements FXCompileObserver
     {
         protected List<FXCompileObserver> chainedObservers;
+        // Whether this observes one batch of a rebuild, in which case the start and end
+        // of the compilation are reported by the RebuildCompileObserver instead:
+        private final boolean rebuildBatch;
 
         /**
          * Construct a new QuietPackageCompileObserver. The chained observers (if
          * non-empty list) are notified about each event.
          */
         public QuietPackageCompileObserver(List<FXCompileObserver> chainedObservers)
+        {
+            this(chainedObservers, false);
+        }
+
+        /**
+         * Construct a new QuietPackageCompileObserver, which may be for one batch of
+         * a rebuild (see compileRebuildBatches).
+         */
+        public QuietPackageCompileObserver(List<FXCompileObserver> chainedObservers, boolean rebuildBatch)
         {
             this.chainedObservers = new ArrayList<>(chainedObservers);
+            this.rebuildBatch = rebuildBatch;
         }
 
         private void markAsCompiling(CompileInputFile[] sources, int compilationSequence)
@@ -2647,14 +2736,9 @@ public final class Package
         @Override
         public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
         {
-            // Send a compilation starting event to extensions.
-            CompileEvent aCompileEvent = new CompileEvent(CompileEvent.EventType.COMPILE_START_EVENT, type.keepClasses(), Utility.mapList(Arrays.asList(sources), CompileInputFile::getJavaCompileInputFile).toArray(new File[0]));
-            ExtensionsManager.getInstance().delegateEvent(aCompileEvent);
-
-            // Set BlueJ status bar message
-            if (type.keepClasses())
+            if (!rebuildBatch)
             {
-                setStatus(compiling);
+                compileStarted(sources, type);
             }
 
             // Change view of source classes.
@@ -2794,16 +2878,14 @@ public final class Package
                 classTarget.analyseAfterCompile();
             }
 
-            if (type.keepClasses())
+            if (rebuildBatch)
             {
-                setStatus(compileDone);
+                fireChangedEvent();
+            }
+            else
+            {
+                compileEnded(sources, successful, type);
             }
-            fireChangedEvent();
-
-            // Send a compilation done event to extensions.
-            EventType eventType = successful ? CompileEvent.EventType.COMPILE_DONE_EVENT : CompileEvent.EventType.COMPILE_FAILED_EVENT;
-            CompileEvent aCompileEvent = new CompileEvent(eventType, type.keepClasses(), Utility.mapList(Arrays.asList(sources), CompileInputFile::getJavaCompileInputFile).toArray(new File[0]));
-            ExtensionsManager.getInstance().delegateEvent(aCompileEvent);
 
             for (FXCompileObserver chainedObserver : chainedObservers)
             {
@@ -2812,6 +2894,116 @@ public final class Package
         }
     }
 
+    /**
+     * A compilation has started: send an event to extensions and show it in the status bar.
+     */
+    private void compileStarted(CompileInputFile[] sources, CompileType type)
+    {
+        // Send a compilation starting event to extensions.
+        CompileEvent aCompileEvent = new CompileEvent(CompileEvent.EventType.COMPILE_START_EVENT, type.keepClasses(), Utility.mapList(Arrays.asList(sources), CompileInputFile::getJavaCompileInputFile).toArray(new File[0]));
+        ExtensionsManager.getInstance().delegateEvent(aCompileEvent);
+
+        // Set BlueJ status bar message
+        if (type.keepClasses())
+        {
+            setStatus(compiling);
+        }
+    }
+
+    /**
+     * A compilation has ended: show it in the status bar and send an event to extensions.
+     */
+    private void compileEnded(CompileInputFile[] sources, boolean successful, CompileType type)
+    {
+        if (type.keepClasses())
+        {
+            setStatus(compileDone);
+        }
+        fireChangedEvent();
+
+        // Send a compilation done event to extensions.
+        EventType eventType = successful ? CompileEvent.EventType.COMPILE_DONE_EVENT : CompileEvent.EventType.COMPILE_FAILED_EVENT;
+        CompileEvent aCompileEvent = new CompileEvent(eventType, type.keepClasses(), Utility.mapList(Arrays.asList(sources), CompileInputFile::getJavaCompileInputFile).toArray(new File[0]));
+        ExtensionsManager.getInstance().delegateEvent(aCompileEvent);
+    }
+
+    /**
+     * Reports a parallel rebuild (see compileRebuildBatches) to the package's compile
+     * observers and to extensions as a single compilation: it starts when the first batch
+     * starts, and ends, successfully only if every batch succeeded, when the last batch ends.
+     * The classes in each batch are handled by that batch's own observer.
+     */
+    @OnThread(Tag.FXPlatform)
+    private class RebuildCompileObserver
+    {
+        private final ParallelRebuild<ClassTarget> rebuild;
+        private final CompileInputFile[] sources;
+        private final List<FXCompileObserver> observers;
+        private boolean started = false;
+        private boolean ended = false;
+        private boolean successful = true;
+        private int compilationSequence;
+
+        public RebuildCompileObserver(ParallelRebuild<ClassTarget> rebuild, List<ClassTarget> targets)
+        {
+            this.rebuild = rebuild;
+            this.sources = Utility.mapList(targets, ClassTarget::getCompileInputFile).toArray(new CompileInputFile[0]);
+            this.observers = new ArrayList<>(compileObservers);
+        }
+
+        public void batchStarted(CompileReason reason, CompileType type, int compilationSequence)
+        {
+            if (!started)
+            {
+                started = true;
+                this.compilationSequence = compilationSequence;
+                compileStarted(sources, type);
+                for (FXCompileObserver observer : observers)
+                {
+                    observer.startCompile(sources, reason, type, compilationSequence);
+                }
+            }
+        }
+
+        public boolean compilerMessage(Diagnostic diagnostic, CompileType type)
+        {
+            boolean shown = false;
+            for (FXCompileObserver observer : observers)
+            {
+                boolean s = observer.compilerMessage(diagnostic, type);
+                shown = shown || s;
+            }
+            return shown;
+        }
+
+        public void batchEnded(ParallelRebuild.Batch<ClassTarget> batch, boolean batchSuccessful, CompileType type)
+        {
+            successful &= batchSuccessful;
+            // The classes which depend on a class with errors aren't compiled:
+            for (ClassTarget skipped : rebuild.batchFinished(batch, batchSuccessful))
+            {
+                skipped.setQueued(false);
+            }
+            compileRebuildBatches(this);
+            // A batch which could not be compiled ends within compileRebuildBatches, so
+            // we may see the end of the rebuild twice:
+            if (rebuild.isFinished() && !ended)
+            {
+                ended = true;
+                JobQueue.getJobQueue().endRebuild(project.getProjectDir());
+                // If no batch was compiled, the observers haven't seen the rebuild start:
+                if (started)
+                {
+                    compileEnded(sources, successful, type);
+                    for (FXCompileObserver observer : observers)
+                    {
+                        observer.endCompile(sources, successful, type, compilationSequence);
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * The same, but also display error/warning messages for the user
      */
@@ -2828,6 +3020,15 @@ public final class Package
             super(chainedObservers);
         }
 
+        /**
+         * Construct a new PackageCompileObserver, which may be for one batch of
+         * a rebuild (see compileRebuildBatches).
+         */
+        public PackageCompileObserver(List<FXCompileObserver> chainedObservers, boolean rebuildBatch)
+        {
+            super(chainedObservers, rebuildBatch);
+        }
+
         @Override
         public void startCompile(CompileInputFile[] sources, CompileReason reason, CompileType type, int compilationSequence)
         {
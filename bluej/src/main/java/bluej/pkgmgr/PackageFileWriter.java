@@ -0,0 +1,186 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import bluej.utility.Debug;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Writes package and project files.  A file is only written if its content (apart from
+ * the date comment which Properties.store adds) has changed, and is written to a
+ * temporary file which then replaces the original, so that a failed save (or a crash
+ * during a save) doesn't leave a truncated file behind.  The replacement keeps the
+ * original's permissions (and group, where possible), and if the original is a symbolic
+ * link, the file it links to is replaced rather than the link.
+ * 
+ * <p>Counts of the saves, and the time they took, are kept for diagnostics.
+ */
+@OnThread(Tag.Any)
+public class PackageFileWriter
+{
+    private static int saves = 0;
+    private static int unchanged = 0;
+    private static long totalSaveNanos = 0;
+    private static long maxSaveNanos = 0;
+
+    /**
+     * Store the properties to the given file, unless the file already has the same properties.
+     * 
+     * @return  true if the file was written, false if it was unchanged
+     * @throws IOException if the file couldn't be written (in which case the original file,
+     *                     if any, is unchanged)
+     */
+    static boolean store(Properties props, String header, File file)
+        throws IOException
+    {
+        long start = System.nanoTime();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        props.store(output, header);
+        byte[] content = output.toByteArray();
+
+        boolean written = false;
+        Path path = file.toPath();
+        if (! Files.exists(path)) {
+            // Nothing to protect, so write directly (which gives the usual permissions for a new file):
+            try {
+                Files.write(path, content);
+            }
+            catch (IOException e) {
+                Files.deleteIfExists(path);
+                throw e;
+            }
+            written = true;
+        }
+        else if (! Arrays.equals(withoutComments(Files.readAllBytes(path)), withoutComments(content))) {
+            path = path.toRealPath();
+            Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temp, content);
+                copyPermissions(path, temp);
+                try {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                written = true;
+            }
+            finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        recordSave(written, System.nanoTime() - start);
+        return written;
+    }
+
+    /**
+     * Give the destination file the same permissions and group as the source file.  The
+     * permissions of the temporary file would otherwise be owner-only.  Changing the
+     * group may not be allowed, in which case the destination keeps its group.
+     * Does nothing on file systems without POSIX permissions.
+     */
+    private static void copyPermissions(Path source, Path dest)
+        throws IOException
+    {
+        PosixFileAttributeView destView = Files.getFileAttributeView(dest, PosixFileAttributeView.class);
+        if (destView == null) {
+            return;
+        }
+        PosixFileAttributes sourceAttributes = Files.readAttributes(source, PosixFileAttributes.class);
+        destView.setPermissions(sourceAttributes.permissions());
+        try {
+            destView.setGroup(sourceAttributes.group());
+        }
+        catch (IOException e) {
+            // Not a member of that group; the permissions are the main thing
+        }
+    }
+
+    /**
+     * Get the content of a properties file without the comment lines at the start (the
+     * header and the date).
+     */
+    private static byte[] withoutComments(byte[] content)
+    {
+        int start = 0;
+        while (start < content.length && content[start] == '#') {
+            while (start < content.length && content[start] != '\n') {
+                start++;
+            }
+            start++;
+        }
+        return Arrays.copyOfRange(content, Math.min(start, content.length), content.length);
+    }
+
+    private static synchronized void recordSave(boolean written, long nanos)
+    {
+        saves++;
+        if (! written) {
+            unchanged++;
+        }
+        totalSaveNanos += nanos;
+        maxSaveNanos = Math.max(maxSaveNanos, nanos);
+    }
+
+    /**
+     * Get the number of saves of package or project files this session.
+     */
+    public static synchronized int getSaveCount()
+    {
+        return saves;
+    }
+
+    /**
+     * Get the number of saves which found the file unchanged, and so didn't write it.
+     */
+    public static synchronized int getUnchangedCount()
+    {
+        return unchanged;
+    }
+
+    /**
+     * Log the save statistics for this session, if there have been any saves.
+     */
+    public static synchronized void logStatistics()
+    {
+        if (saves > 0) {
+            Debug.log("Package file saves: " + saves + " (" + unchanged + " unchanged, not written), average "
+                    + TimeUnit.NANOSECONDS.toMicros(totalSaveNanos / saves) + "us, maximum "
+                    + TimeUnit.NANOSECONDS.toMicros(maxSaveNanos) + "us");
+        }
+    }
+}
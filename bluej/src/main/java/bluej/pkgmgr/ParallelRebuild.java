@@ -0,0 +1,356 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Plans a rebuild of a set of classes as several compile jobs which can run at the
+ * same time.
+ * 
+ * <p>The classes are divided into strongly-connected components of their dependency
+ * graph (classes which depend on each other, directly or indirectly, must be compiled
+ * together).  A component is ready once all the components it depends on have been
+ * compiled.  Each batch, which can be compiled by a separate compile job, starts with
+ * a ready component and is then extended with the components which depend only on
+ * compiled components and those already in the batch, until it has its share of the
+ * remaining classes.  So batches which are out at the same time never depend on each
+ * other, and there are only as many batches as are needed to keep the lanes busy
+ * (each compile job has an overhead, so compiling each component separately would be
+ * slower than compiling all the classes in one job).
+ * 
+ * <p>If a batch fails to compile, the components which depend on it (directly or
+ * indirectly) are not compiled, just as javac doesn't generate classes which depend
+ * on classes with errors.
+ * 
+ * <p>This class is not thread-safe; Package uses it only from the FX thread.
+ */
+@OnThread(Tag.Any)
+class ParallelRebuild<T>
+{
+    /**
+     * A strongly-connected component of the dependency graph.
+     */
+    private static class Component<T>
+    {
+        private final List<T> members = new ArrayList<>();
+        // The components which depend on this one:
+        private final List<Component<T>> dependents = new ArrayList<>();
+        // The number of components this one depends on which haven't yet been compiled:
+        private int waitingFor;
+        private State state = State.WAITING;
+    }
+
+    private enum State { WAITING, READY, OUT, DONE, SKIPPED }
+
+    /**
+     * A set of classes to compile in one job.
+     */
+    static class Batch<T>
+    {
+        private final int lane;
+        private final List<Component<T>> components = new ArrayList<>();
+        private final List<T> targets = new ArrayList<>();
+
+        private Batch(int lane)
+        {
+            this.lane = lane;
+        }
+
+        /**
+         * The lane (from 1 to the number of lanes) of this batch.  No other batch
+         * with the same lane is out at the same time.
+         */
+        public int getLane()
+        {
+            return lane;
+        }
+
+        public List<T> getTargets()
+        {
+            return targets;
+        }
+    }
+
+    private final List<Component<T>> components;
+    // Components ready to compile, in the order they were found to be ready.  Some may
+    // since have been put into a batch (as they are also taken from other components'
+    // dependents), and are skipped when found here:
+    private final Deque<Component<T>> ready = new ArrayDeque<>();
+    // The number of classes not yet handed out or skipped:
+    private int remainingTargets;
+    private final Deque<Integer> freeLanes = new ArrayDeque<>();
+    private int batchesOut = 0;
+
+    /**
+     * Plan a rebuild.
+     * 
+     * @param targets  The classes to rebuild
+     * @param dependencies  Gives the classes which a class depends on.  Any which are
+     *                      not among the targets are ignored.
+     * @param lanes     The maximum number of batches to have out at once
+     */
+    public ParallelRebuild(Collection<T> targets, Function<T, ? extends Collection<? extends T>> dependencies, int lanes)
+    {
+        components = findComponents(targets, dependencies);
+        remainingTargets = targets.size();
+        Map<T, Component<T>> componentOf = new HashMap<>();
+        for (Component<T> component : components) {
+            for (T member : component.members) {
+                componentOf.put(member, component);
+            }
+        }
+        for (Component<T> component : components) {
+            Map<Component<T>, Boolean> dependsOn = new IdentityHashMap<>();
+            for (T member : component.members) {
+                for (T dependency : dependencies.apply(member)) {
+                    Component<T> other = componentOf.get(dependency);
+                    if (other != null && other != component && dependsOn.put(other, true) == null) {
+                        other.dependents.add(component);
+                        component.waitingFor++;
+                    }
+                }
+            }
+        }
+        for (Component<T> component : components) {
+            if (component.waitingFor == 0) {
+                makeReady(component);
+            }
+        }
+        for (int lane = 1; lane <= Math.max(1, lanes); lane++) {
+            freeLanes.add(lane);
+        }
+    }
+
+    /**
+     * Find the strongly-connected components of the dependency graph (using Tarjan's
+     * algorithm, without recursion since dependency chains can be long).  The components
+     * are returned in dependency order: each after all the components it depends on.
+     */
+    private static <T> List<Component<T>> findComponents(Collection<T> targets, Function<T, ? extends Collection<? extends T>> dependencies)
+    {
+        Set<T> targetSet = new HashSet<>(targets);
+        // The index of each target, in the order visited; targets which have been
+        // assigned to a component are removed from onStack:
+        Map<T, Integer> index = new HashMap<>();
+        Map<T, Integer> lowLink = new HashMap<>();
+        Map<T, Boolean> onStack = new HashMap<>();
+        Deque<T> stack = new ArrayDeque<>();
+        List<Component<T>> result = new ArrayList<>();
+
+        // The search path: each target with its remaining dependencies to visit
+        Deque<T> path = new ArrayDeque<>();
+        Deque<Iterator<? extends T>> pathDependencies = new ArrayDeque<>();
+
+        for (T root : targets) {
+            if (index.containsKey(root)) {
+                continue;
+            }
+            visit(root, index, lowLink, onStack, stack, path, pathDependencies, dependencies);
+            while (! path.isEmpty()) {
+                T current = path.peek();
+                Iterator<? extends T> remaining = pathDependencies.peek();
+                if (remaining.hasNext()) {
+                    T next = remaining.next();
+                    if (! targetSet.contains(next)) {
+                        continue;
+                    }
+                    if (! index.containsKey(next)) {
+                        visit(next, index, lowLink, onStack, stack, path, pathDependencies, dependencies);
+                    }
+                    else if (onStack.containsKey(next)) {
+                        lowLink.put(current, Math.min(lowLink.get(current), index.get(next)));
+                    }
+                    continue;
+                }
+
+                // All dependencies of current have been visited:
+                path.pop();
+                pathDependencies.pop();
+                if (! path.isEmpty()) {
+                    T parent = path.peek();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(current)));
+                }
+                if (lowLink.get(current).equals(index.get(current))) {
+                    Component<T> component = new Component<>();
+                    T member;
+                    do {
+                        member = stack.pop();
+                        onStack.remove(member);
+                        component.members.add(member);
+                    }
+                    while (member != current);
+                    result.add(component);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static <T> void visit(T target, Map<T, Integer> index, Map<T, Integer> lowLink, Map<T, Boolean> onStack,
+            Deque<T> stack, Deque<T> path, Deque<Iterator<? extends T>> pathDependencies,
+            Function<T, ? extends Collection<? extends T>> dependencies)
+    {
+        int n = index.size();
+        index.put(target, n);
+        lowLink.put(target, n);
+        stack.push(target);
+        onStack.put(target, true);
+        path.push(target);
+        pathDependencies.push(new ArrayList<T>(dependencies.apply(target)).iterator());
+    }
+
+    private void makeReady(Component<T> component)
+    {
+        component.state = State.READY;
+        ready.add(component);
+    }
+
+    /**
+     * Get the number of strongly-connected components (the most jobs the rebuild
+     * could be split into).
+     */
+    public int getComponentCount()
+    {
+        return components.size();
+    }
+
+    /**
+     * Get the next batch to compile, or null if there is no lane free or no component
+     * ready.  The remaining classes are shared out between the free lanes, so callers
+     * should take batches until this returns null.
+     */
+    public Batch<T> nextBatch()
+    {
+        while (! ready.isEmpty() && ready.peek().state != State.READY) {
+            ready.poll();
+        }
+        if (ready.isEmpty() || freeLanes.isEmpty()) {
+            return null;
+        }
+        int share = (remainingTargets + freeLanes.size() - 1) / freeLanes.size();
+        Batch<T> batch = new Batch<>(freeLanes.poll());
+        // For each component which depends on one in the batch, the number of its
+        // dependencies in the batch:
+        Map<Component<T>, Integer> dependenciesInBatch = new IdentityHashMap<>();
+        // Components which can join the batch, as they depend only on compiled components
+        // and those in the batch:
+        Deque<Component<T>> canJoin = new ArrayDeque<>();
+        while (batch.targets.size() < share) {
+            Component<T> component;
+            if (! canJoin.isEmpty()) {
+                // Keep dependent classes together, leaving the ready ones for other lanes:
+                component = canJoin.poll();
+            }
+            else {
+                component = ready.poll();
+                if (component == null) {
+                    break;
+                }
+                else if (component.state != State.READY) {
+                    continue;
+                }
+            }
+            component.state = State.OUT;
+            batch.components.add(component);
+            batch.targets.addAll(component.members);
+            for (Component<T> dependent : component.dependents) {
+                int inBatch = dependenciesInBatch.merge(dependent, 1, Integer::sum);
+                if (inBatch == dependent.waitingFor && dependent.state == State.WAITING) {
+                    canJoin.add(dependent);
+                }
+            }
+        }
+        remainingTargets -= batch.targets.size();
+        batchesOut++;
+        return batch;
+    }
+
+    /**
+     * A batch from nextBatch has been compiled.
+     * 
+     * @param successful  Whether the compile succeeded.
+     * @return  The classes which will now not be compiled, since they depend on a class
+     *          in a failed batch.
+     */
+    public List<T> batchFinished(Batch<T> batch, boolean successful)
+    {
+        batchesOut--;
+        freeLanes.add(batch.lane);
+        for (Component<T> component : batch.components) {
+            component.state = State.DONE;
+        }
+        List<T> skippedTargets = new ArrayList<>();
+        for (Component<T> component : batch.components) {
+            if (successful) {
+                for (Component<T> dependent : component.dependents) {
+                    dependent.waitingFor--;
+                    if (dependent.waitingFor == 0 && dependent.state == State.WAITING) {
+                        makeReady(dependent);
+                    }
+                }
+            }
+            else {
+                skipDependents(component, skippedTargets);
+            }
+        }
+        return skippedTargets;
+    }
+
+    private void skipDependents(Component<T> failed, List<T> skippedTargets)
+    {
+        Deque<Component<T>> toSkip = new ArrayDeque<>(failed.dependents);
+        while (! toSkip.isEmpty()) {
+            Component<T> component = toSkip.poll();
+            // A dependent outside the batch can't be ready or out yet, since it depends
+            // on the failed component:
+            if (component.state == State.WAITING) {
+                component.state = State.SKIPPED;
+                remainingTargets -= component.members.size();
+                skippedTargets.addAll(component.members);
+                toSkip.addAll(component.dependents);
+            }
+        }
+    }
+
+    /**
+     * Check whether the rebuild is over: no batches are out, and none can be handed out.
+     */
+    public boolean isFinished()
+    {
+        return batchesOut == 0 && remainingTargets == 0;
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -128,6 +128,8 @@ public class PkgMgrFrame
     @OnThread(value = Tag.Any, requireSynchronized = true)
     private static final List<PkgMgrFrame> frames = new ArrayList<>(); // of PkgMgrFrames
     private static final ExtensionsManager extMgr = ExtensionsManager.getInstance();
+    // The delay before saving after a change to the package layout (see scheduleSave):
+    private static final int SAVE_DELAY_MILLIS = 1000;
     @OnThread(Tag.FXPlatform)
     private TitledPane testPanel;
     @OnThread(Tag.FXPlatform)
@@ -248,6 +250,9 @@ public class PkgMgrFrame
     private SplitPane bottomPane;
     @OnThread(Tag.FX)
     private double bottomPaneLastDividerPos = 0.6; // default split
+    // Timer for saving the package a short while after its layout last changed:
+    @OnThread(Tag.FXPlatform)
+    private Timeline saveTimer;
     @OnThread(Tag.FX)
     private Pane bottomOverlay;
     // The vertical split pane with controls+class diagram on top,
@@ -1115,6 +1120,9 @@ public class PkgMgrFrame
         if (isEmptyFrame()) {
             return;
         }
+        if (saveTimer != null) {
+            saveTimer.stop();
+        }
         Package thePkg = getPackage();
         
         extMgr.packageClosing(thePkg);
@@ -1780,6 +1788,10 @@ public class PkgMgrFrame
     @OnThread(Tag.FXPlatform)
     public synchronized void doSave()
     {
+        if (saveTimer != null) {
+            // This save includes any scheduled changes:
+            saveTimer.stop();
+        }
         if (isEmptyFrame()) {
             return;
         }
@@ -1829,6 +1841,21 @@ public class PkgMgrFrame
         }
         pkg.get().save(p);
     }
+
+    /**
+     * Save this package a short while from now, unless it is saved (or this is called
+     * again) before then.  Used for changes such as moving classes in the diagram, which
+     * tend to come in bursts, so that a burst of changes is saved only once.
+     */
+    @OnThread(Tag.FXPlatform)
+    public void scheduleSave()
+    {
+        if (saveTimer == null) {
+            saveTimer = new Timeline(new KeyFrame(Duration.millis(SAVE_DELAY_MILLIS), e -> doSave()));
+            saveTimer.setCycleCount(1);
+        }
+        saveTimer.playFromStart();
+    }
         
     /**
      * Import into a new project or import into the current project.
@@ -2417,12 +2444,11 @@ public class PkgMgrFrame
             }
         }
 
-        Iterator<ClassTarget> it = l.iterator();
         int numTestsFinal = numTests;
         Project projFinal = getProject();
         TestDisplayFrame.getTestDisplay().startMultipleTests(projFinal, numTestsFinal);
 
-        TestRunnerThread trt = new TestRunnerThread(this, it);
+        TestRunnerThread trt = new TestRunnerThread(this, l);
         trt.start();
     }
     
@@ -2705,7 +2731,14 @@ public class PkgMgrFrame
                 setStatus(Config.getString("pkgmgr.generatingDocu"));
                 break;
             case BlueJEvent.DOCU_GENERATED :
-                setStatus(Config.getString("pkgmgr.docuGenerated"));
+                // The argument is the time taken, if javadoc was run:
+                if (arg instanceof Long millis) {
+                    setStatus(Utility.mergeStrings(Config.getString("pkgmgr.docuGeneratedTime"),
+                            String.format("%.1f", millis / 1000.0)));
+                }
+                else {
+                    setStatus(Config.getString("pkgmgr.docuGenerated"));
+                }
                 break;
             case BlueJEvent.DOCU_ABORTED :
                 setStatus(Config.getString("pkgmgr.docuAborted"));
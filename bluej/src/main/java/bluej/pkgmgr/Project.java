@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -46,6 +46,7 @@ import bluej.extmgr.ExtensionsManager;
 import bluej.groupwork.Repository;
 import bluej.groupwork.TeamSettingsController;
 import bluej.groupwork.actions.TeamActionGroup;
+import bluej.groupwork.git.GitStatusService;
 import bluej.groupwork.ui.CommitAndPushFrame;
 import bluej.groupwork.ui.StatusFrame;
 import bluej.groupwork.ui.TeamSettingsDialog;
@@ -581,7 +582,14 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
 
         DataCollector.projectOpened(proj, ExtensionsManager.getInstance().getLoadedExtensions(proj));
 
-        proj.getImportScanner().startScanning();
+        // Scanning the imports is slow, and the results are not needed until code completion
+        // is first used (which will start the scan itself if needed), so wait until startup is done:
+        Project scanProject = proj;
+        StartupMonitor.whenStarted(() -> {
+            if (projects.get(scanProject.getProjectDir()) == scanProject) {
+                scanProject.getImportScanner().startScanning();
+            }
+        });
 
         PrefMgr.addRecentProject(proj.getProjectDir());
 
@@ -625,6 +633,8 @@ public class Project implements DebuggerListener, DebuggerThreadListener, Inspec
         project.removeAllInspectors();
         project.getDebugger().removeDebuggerListener(project);
         project.getDebugger().close(false);
+        GitStatusService.close(project.getProjectDir());
+        View.removeProject(project.currentClassLoader, project.getProjectDir());
 
         projects.remove(project.getProjectDir());
     }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2012,2014,2016,2018,2019,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2012,2014,2016,2018,2019,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -62,19 +62,40 @@ public class TestRunnerThread extends Thread
     
     private int state;
     private final Project project;
+    
+    // The names of the test classes to run in a single batch, or null if not running
+    // as a batch (see runBatch):
+    private final List<String> batchClassNames;
+    private final boolean batchInParallel;
 
     /**
      * Construct a test runner thread for running multiple tests.
      */
     @OnThread(Tag.FXPlatform)
-    public TestRunnerThread(PkgMgrFrame pmf, Iterator<ClassTarget> i)
+    public TestRunnerThread(PkgMgrFrame pmf, List<ClassTarget> targets)
     {
         super("Test Runner");
         this.pmf = pmf;
         this.project = pmf.getProject();
         this.methodName = null;
-        testIterator = i;
+        testIterator = targets.iterator();
         state = 0;
+        
+        if (Config.getPropBoolean("bluej.testing.batch", true))
+        {
+            batchClassNames = new ArrayList<>();
+            for (ClassTarget ct : targets)
+            {
+                if (ct.isCompiled() && ct.isUnitTest() && ! ct.isAbstract())
+                    batchClassNames.add(ct.getQualifiedName());
+            }
+            batchInParallel = Config.getPropBoolean("bluej.testing.parallel", false);
+        }
+        else
+        {
+            batchClassNames = null;
+            batchInParallel = false;
+        }
     }
     
     /**
@@ -90,11 +111,19 @@ public class TestRunnerThread extends Thread
         testIterator = l.iterator();
         this.methodName = methodName;
         state = 0;
+        batchClassNames = null;
+        batchInParallel = false;
     }
 
     @OnThread(value = Tag.Worker, ignoreParent = true)
     public void run()
     {
+        if (batchClassNames != null)
+        {
+            runBatch();
+            return;
+        }
+        
         while (testIterator.hasNext()) 
         {
 
@@ -145,6 +174,22 @@ public class TestRunnerThread extends Thread
         });
     }
 
+    /**
+     * Run all the test classes in a single invocation on the debug VM, rather than one
+     * invocation per class.  The results are shown as they arrive.  Each result has its
+     * own runtime, so the total time shown is the sum of those.
+     */
+    @OnThread(Tag.Worker)
+    private void runBatch()
+    {
+        if (! batchClassNames.isEmpty())
+        {
+            project.getDebugger().runTestBatch(batchClassNames, batchInParallel,
+                    result -> Platform.runLater(() -> showNextResult(result)));
+        }
+        Platform.runLater(() -> pmf.endTestRun());
+    }
+
     @OnThread(Tag.FXPlatform)
     private void showNextResult(DebuggerTestResult lastResult)
     {
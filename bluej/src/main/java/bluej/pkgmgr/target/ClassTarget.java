@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -1444,10 +1444,10 @@ public class ClassTarget extends DependentTarget
     }
 
     @Override
-    public boolean breakpointToggleEvent(int lineNo, boolean set)
+    public boolean breakpointToggleEvent(int lineNo, boolean set, Map<String, String> properties)
     {
         if (isCompiled()) {
-            boolean nowSet = getPackage().getDebugger().toggleBreakpoint(getQualifiedName(), lineNo, set, null);
+            boolean nowSet = getPackage().getDebugger().toggleBreakpoint(getQualifiedName(), lineNo, set, properties);
 
             if (nowSet == set && getPackage() != null)
             {
@@ -2025,9 +2025,10 @@ public class ClassTarget extends DependentTarget
                 stateListener.renamed(newName);
             }
 
-            // Inform all listeners about the name change
+            // Inform all listeners about the name change.  The BClass now has the new
+            // name (and would have any later one), so they must see this straight away:
             ClassEvent event = new ClassEvent(getPackage(), getBClass(), oldName);
-            ExtensionsManager.getInstance().delegateEvent(event);
+            ExtensionsManager.getInstance().delegateEventNow(event);
 
             return true;
         }
@@ -2424,9 +2425,10 @@ public class ClassTarget extends DependentTarget
         Package pkg = getPackage();
         pkg.removeTarget(this);
 
-        // Inform all listeners about the class removed
+        // Inform all listeners about the class removed, straight away rather than
+        // queued, so that they see it before anything else happens to the package:
         ClassEvent event = new ClassEvent(getPackage(), getBClass());
-        ExtensionsManager.getInstance().delegateEvent(event);
+        ExtensionsManager.getInstance().delegateEventNow(event);
         
         // We must remove after the above, because it might involve saving, 
         // and thus recording edits to the file
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2013,2014,2016,2017,2018,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2011,2013,2014,2016,2017,2018,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,6 +23,7 @@ package bluej.pkgmgr.target;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
 
 import bluej.Config;
 import bluej.editor.Editor;
@@ -128,7 +129,7 @@ public abstract class  EditableTarget extends Target
     /*
      * Called by Editor when a breakpoint is been set/cleared
      */
-    public boolean breakpointToggleEvent(int lineNo, boolean set)
+    public boolean breakpointToggleEvent(int lineNo, boolean set, Map<String, String> properties)
     { return false; }
 
     public void clearAllBreakpoints() { }
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2017,2018,2019,2021,2023  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2016,2017,2018,2019,2021,2023,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -55,8 +55,10 @@ import javafx.embed.swing.JFXPanel;
 import javafx.stage.Stage;
 
 import org.junit.jupiter.api.extension.InvocationInterceptor;
+import org.junit.platform.engine.DiscoverySelector;
 import org.junit.platform.engine.TestExecutionResult;
 import org.junit.platform.engine.TestExecutionResult.Status;
+import org.junit.platform.engine.support.descriptor.MethodSource;
 import org.junit.platform.launcher.Launcher;
 import org.junit.platform.launcher.LauncherDiscoveryRequest;
 import org.junit.platform.launcher.TestIdentifier;
@@ -113,6 +115,12 @@ public class ExecServer
     public static String [] parameterTypes;
     public static Object [] arguments;
     public static int execAction = -1;   // EXEC_SHELL, TEST_SETUP or TEST_RUN
+    // For TEST_RUN_BATCH: whether test classes may run in parallel
+    public static boolean testsInParallel;
+    
+    // The results of TEST_RUN_BATCH, published while the tests run (see runTestBatch)
+    public static volatile String [] testResultChunks;
+    public static volatile int testResultChunkCount;
     
     public static Object methodReturn;
     public static Class<?> executedClass;
@@ -128,6 +136,14 @@ public class ExecServer
     public static final String METHOD_RETURN_NAME = "methodReturn";
     public static final String EXCEPTION_NAME = "exception";
     public static final String EXECUTED_CLASS_NAME = "executedClass";
+    public static final String TESTS_IN_PARALLEL_NAME = "testsInParallel";
+    public static final String TEST_RESULT_CHUNKS_NAME = "testResultChunks";
+    public static final String TEST_RESULT_CHUNK_COUNT_NAME = "testResultChunkCount";
+    
+    // The format of TEST_RUN_BATCH results: each test has this many fields, each followed
+    // by the separator (which is removed from the fields themselves)
+    public static final int TEST_RESULT_FIELDS = 11;
+    public static final char TEST_RESULT_SEPARATOR = '\u0000';
 
     // Possible actions for the main thread
     public static final int EXEC_SHELL = 0;  // Execute a shell class
@@ -140,6 +156,7 @@ public class ExecServer
     public static final int INSTANTIATE_CLASS_ARGS = 7; // use constructor
         // with specified parameter types and arguments
     public static final int LAUNCH_FX_APP = 8;
+    public static final int TEST_RUN_BATCH = 9; // run several test classes
 
     // Parameter for worker thread actions
     public static int workerAction = EXIT_VM;
@@ -675,65 +692,145 @@ public class ExecServer
             // Retrieved tests (not container)
             if (testIdentifier.isTest())
             {
-                Object[] r = new Object[9];
-                // The name of the method: we remove anything added by JUnit after the arguments brackets
-                // as for Junit 5 the framework may add the index of the test iteration
-                // if any argument value is available, we put it into the brackets
-                // Note: when JUnit 4 methods are reported, they do not contain brackets in their display name.
-                r[0] = (testIdentifier.getLegacyReportingName().contains("(")) ?
-                        testIdentifier.getLegacyReportingName()
-                                .substring(0, testIdentifier.getLegacyReportingName().lastIndexOf('(') + 1)
-                                + String.join(", ", UnitTestExtension.getArgsAsStrList())
-                                + ")" :
-                        (testIdentifier.getLegacyReportingName() + "()");
-                // The display name of the test for that method, if none we set it to an empty String
-                r[1] = (testIdentifier.getDisplayName() != null) ? testIdentifier.getDisplayName() : "";
-
-                // Check if the test was successful or not
-                if (testExecutionResult.getStatus() == Status.SUCCESSFUL)
+                testDetails.add(describeTest(testIdentifier, testExecutionResult));
+            }
+        }
+
+        /**
+         * Describe the result of a test, as the nine items documented in runTestMethod.
+         */
+        static Object[] describeTest(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult)
+        {
+            Object[] r = new Object[9];
+            // The name of the method: we remove anything added by JUnit after the arguments brackets
+            // as for Junit 5 the framework may add the index of the test iteration
+            // if any argument value is available, we put it into the brackets
+            // Note: when JUnit 4 methods are reported, they do not contain brackets in their display name.
+            r[0] = (testIdentifier.getLegacyReportingName().contains("(")) ?
+                    testIdentifier.getLegacyReportingName()
+                            .substring(0, testIdentifier.getLegacyReportingName().lastIndexOf('(') + 1)
+                            + String.join(", ", UnitTestExtension.getArgsAsStrList())
+                            + ")" :
+                    (testIdentifier.getLegacyReportingName() + "()");
+            // The display name of the test for that method, if none we set it to an empty String
+            r[1] = (testIdentifier.getDisplayName() != null) ? testIdentifier.getDisplayName() : "";
+
+            // Check if the test was successful or not
+            if (testExecutionResult.getStatus() == Status.SUCCESSFUL)
+            {
+                r[2] = r[3] = r[4] = r[5] = r[6] = r[7] = "";
+                r[8] = "success";
+            }
+            else
+            {
+                if (testExecutionResult.getThrowable().isPresent() && java.lang.AssertionError.class.isAssignableFrom(testExecutionResult.getThrowable().get().getClass()))
                 {
-                    r[2] = r[3] = r[4] = r[5] = r[6] = r[7] = "";
-                    r[8] = "success";
+                    r[8] = "failure";
                 }
                 else
                 {
-                    if (testExecutionResult.getThrowable().isPresent() && java.lang.AssertionError.class.isAssignableFrom(testExecutionResult.getThrowable().get().getClass()))
-                    {
-                        r[8] = "failure";
-                    }
-                    else
-                    {
-                        r[8] = "error";
-                    }
-                    if (testExecutionResult.getThrowable().isPresent())
-                    {
-                        Throwable throwableRes = testExecutionResult.getThrowable().get();
-
-                        r[2] = throwableRes.getMessage() != null ? throwableRes.getMessage() : "no exception message";
-                        StringWriter sw = new StringWriter();
-                        PrintWriter pw = new PrintWriter(sw);
-                        throwableRes.printStackTrace(pw);
-                        r[3] = throwableRes.getStackTrace().length > 0 ? sw.toString() : "no trace";
-                        // search the stack trace backward until finding a class not
-                        // part of the org.junit framework
-                        StackTraceElement[] ste = throwableRes.getStackTrace();
-                        int k = 0;
-                        while (k < ste.length && ste[k].getClassName().startsWith("org.junit."))
-                        {
-                            k++;
-                        }
-                        r[4] = ste[k].getClassName();
-                        r[5] = ste[k].getFileName();
-                        r[6] = ste[k].getMethodName();
-                        r[7] = String.valueOf(ste[k].getLineNumber());
-                    }
-                    else
+                    r[8] = "error";
+                }
+                if (testExecutionResult.getThrowable().isPresent())
+                {
+                    Throwable throwableRes = testExecutionResult.getThrowable().get();
+
+                    r[2] = throwableRes.getMessage() != null ? throwableRes.getMessage() : "no exception message";
+                    StringWriter sw = new StringWriter();
+                    PrintWriter pw = new PrintWriter(sw);
+                    throwableRes.printStackTrace(pw);
+                    r[3] = throwableRes.getStackTrace().length > 0 ? sw.toString() : "no trace";
+                    // search the stack trace backward until finding a class not
+                    // part of the org.junit framework
+                    StackTraceElement[] ste = throwableRes.getStackTrace();
+                    int k = 0;
+                    while (k < ste.length && ste[k].getClassName().startsWith("org.junit."))
                     {
-                        r[2] = r[3] = r[4] = r[5] = r[6] = r[7] = "";
+                        k++;
                     }
+                    r[4] = ste[k].getClassName();
+                    r[5] = ste[k].getFileName();
+                    r[6] = ste[k].getMethodName();
+                    r[7] = String.valueOf(ste[k].getLineNumber());
+                }
+                else
+                {
+                    r[2] = r[3] = r[4] = r[5] = r[6] = r[7] = "";
                 }
-                testDetails.add(r);
             }
+            return r;
+        }
+    }
+
+    /**
+     * A test recorder for TEST_RUN_BATCH, which times each test and publishes the results
+     * in testResultChunks while the tests are still running.  The tests may finish on
+     * several threads at once if they are run in parallel.
+     */
+    private static class BatchTestRecorder extends TestRecorder
+    {
+        private final Map<String, Long> startTimes = new HashMap<>();
+        // Results which have not been published yet:
+        private final StringBuilder pending = new StringBuilder();
+
+        @Override
+        public synchronized void executionStarted(TestIdentifier testIdentifier)
+        {
+            startTimes.put(testIdentifier.getUniqueId(), System.nanoTime());
+        }
+
+        @Override
+        public synchronized void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult)
+        {
+            if (!testIdentifier.isTest())
+            {
+                return;
+            }
+            Long start = startTimes.remove(testIdentifier.getUniqueId());
+            long runTimeMs = start == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            String className = testIdentifier.getSource()
+                    .filter(src -> src instanceof MethodSource)
+                    .map(src -> ((MethodSource) src).getClassName())
+                    .orElse("");
+            append(className);
+            for (Object item : describeTest(testIdentifier, testExecutionResult))
+            {
+                append(item);
+            }
+            append(String.valueOf(runTimeMs));
+        }
+
+        private void append(Object field)
+        {
+            if (field != null)
+            {
+                pending.append(field.toString().replace(TEST_RESULT_SEPARATOR, ' '));
+            }
+            pending.append(TEST_RESULT_SEPARATOR);
+        }
+
+        /**
+         * Publish the results recorded since the last call as a new chunk, where BlueJ
+         * will find them.  The count is written last, so that BlueJ never sees a count
+         * without its chunk.
+         */
+        public synchronized void publish()
+        {
+            if (pending.length() == 0)
+            {
+                return;
+            }
+            String[] chunks = testResultChunks;
+            int count = testResultChunkCount;
+            if (count == chunks.length)
+            {
+                chunks = Arrays.copyOf(chunks, count * 2);
+                testResultChunks = chunks;
+            }
+            chunks[count] = pending.toString();
+            pending.setLength(0);
+            testResultChunkCount = count + 1;
         }
     }
 
@@ -775,6 +872,85 @@ public class ExecServer
                 recorder.testDetails.stream().flatMap(t -> Arrays.stream(t))).toArray();
     }
 
+    /**
+     * Execute all the tests in the given test classes (with their names separated by
+     * newlines) and return the runtime of executing them all, in milliseconds expressed
+     * as a decimal integer.<p>
+     * 
+     * The results are not returned, but published while the tests run, so that BlueJ can
+     * show them as they arrive without interrupting the test execution.  About every
+     * 50ms, the results of the tests which have finished since the previous chunk are put
+     * in testResultChunks[testResultChunkCount], and the count is then incremented.  Each
+     * chunk holds TEST_RESULT_FIELDS fields per test, each followed by TEST_RESULT_SEPARATOR:
+     * the test class name, the nine items described for runTestMethod, and the runtime of
+     * the test in milliseconds.
+     * 
+     * @param parallel  Whether the test classes may be run in parallel (JUnit 5 tests only)
+     */
+    private static Object runTestBatch(String classNames, boolean parallel)
+    {
+        testResultChunks = new String[16];
+        testResultChunkCount = 0;
+        
+        LauncherDiscoveryRequestBuilder requestBuilder = LauncherDiscoveryRequestBuilder.request()
+                .selectors(Arrays.stream(classNames.split("\n")).map(c -> selectClass(c)).toArray(DiscoverySelector[]::new))
+                .configurationParameter("junit.jupiter.extensions.autodetection.enabled", "true"); //required to use our extension
+        if (parallel)
+        {
+            // Run classes concurrently, but the methods within each class one at a time, as
+            // tests written for BlueJ often share state within a class:
+            requestBuilder.configurationParameter("junit.jupiter.execution.parallel.enabled", "true")
+                    .configurationParameter("junit.jupiter.execution.parallel.mode.default", "same_thread")
+                    .configurationParameter("junit.jupiter.execution.parallel.mode.classes.default", "concurrent");
+        }
+
+        // Load the implementation of InvocationInterceptor with Java ServiceLoader.
+        ServiceLoader.load(InvocationInterceptor.class);
+
+        Launcher launcher = LauncherFactory.create();
+        BatchTestRecorder recorder = new BatchTestRecorder();
+        launcher.registerTestExecutionListeners(recorder);
+        
+        Thread publisher = new Thread("BlueJ test results")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    while (true)
+                    {
+                        Thread.sleep(50);
+                        recorder.publish();
+                    }
+                }
+                catch (InterruptedException e)
+                {
+                    // Finished
+                }
+            }
+        };
+        publisher.setDaemon(true);
+        publisher.start();
+        try
+        {
+            launcher.execute(requestBuilder.build());
+        }
+        finally
+        {
+            publisher.interrupt();
+            try
+            {
+                publisher.join();
+            }
+            catch (InterruptedException e)
+            {
+            }
+            recorder.publish();
+        }
+        return String.valueOf(recorder.getExecutionRunTime());
+    }
+
     /**
      * Remove an object from the scope.
      */
@@ -950,6 +1126,9 @@ public class ExecServer
                         case TEST_RUN:
                             methodReturn = runTestMethod(classToRun, methodToRun);
                             break;
+                        case TEST_RUN_BATCH:
+                            methodReturn = runTestBatch(classToRun, testsInParallel);
+                            break;
                         case DISPOSE_WINDOWS:
                             disposeWindows();
                             break;
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016,2020 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2020,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -189,6 +189,14 @@ public abstract class JavaFragment
         return errorMessage;
     }
 
+    /**
+     * Checks whether a compile error has been shown on this fragment.
+     */
+    public boolean hasCompileError()
+    {
+        return errorMessage != null;
+    }
+
     protected int getErrorStartPos()
     {
         return startErrorPos;
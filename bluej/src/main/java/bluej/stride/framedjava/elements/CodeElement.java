@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2014,2015,2016 Michael Kölling and John Rosenberg
+ Copyright (C) 2014,2015,2016,2026 Michael Kölling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -88,6 +88,16 @@ public abstract class CodeElement
         return getDirectSlotFragments().map(g -> g.findLateErrors(editor, this, rootPathMap)).filter(x -> x != null);
     }
     
+    /**
+     * Checks whether any of the slots searched by findDirectLateErrors has a compile error
+     * shown.  Some late errors depend on the compile error, so can't be cached if there is one.
+     */
+    @OnThread(Tag.FXPlatform)
+    public final boolean hasDirectCompileErrors()
+    {
+        return getDirectSlotFragments().anyMatch(JavaFragment::hasCompileError);
+    }
+
     protected abstract Stream<SlotFragment> getDirectSlotFragments();
     
     // The return should only be compiled if validForCompilation() returns true.
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program.
- Copyright (C) 2016,2020 Michael Kölling and John Rosenberg
+ Copyright (C) 2016,2020,2026 Michael Kölling and John Rosenberg
 
  This program is free software; you can redistribute it and/or
  modify it under the terms of the GNU General Public License
@@ -60,6 +60,14 @@ public class LocatableElement extends Element
         this.origin = origin;
     }
 
+    /**
+     * Gets the CodeElement which generated this Element, or null if there is none.
+     */
+    public CodeElement getOrigin()
+    {
+        return origin;
+    }
+
     public void addAttributeStructured(String name, StructuredSlotFragment code)
     {
         attrNames.put(name, code);
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -192,6 +192,11 @@ public abstract class TerminalTextPane extends BaseEditorPane
                 return false;
             }
 
+            @Override
+            public void marginHitCountRequestedForLine(int lineIndex)
+            {
+            }
+
             @Override
             public ContextMenu getContextMenuToShow(BaseEditorPane editorPane)
             {
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2011,2014,2016,2017,2018,2019,2020,2021  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2011,2014,2016,2017,2018,2019,2020,2021,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -475,7 +475,7 @@ public @OnThread(Tag.FXPlatform) class TestDisplayFrame
                 }
                 else
                 {
-                    setText(item.getQualifiedClassName() + item.getMethodName() + " (" + item.getRunTimeMs() + "ms)");
+                    setText(item.getQualifiedClassName() + "." + item.getMethodName() + " (" + item.getRunTimeMs() + "ms)");
                 }
 
                 // Add a tooltip on the entry (display name)
@@ -0,0 +1,133 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import bluej.Boot;
+import bluej.utility.javafx.FXPlatformRunnable;
+import bluej.utility.javafx.JavaFXUtil;
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+/**
+ * Keeps track of BlueJ's startup: logs the time at which each phase of startup
+ * finishes, and holds back tasks which are not needed to show the first window
+ * until that window has been shown.
+ */
+@OnThread(Tag.Any)
+public class StartupMonitor
+{
+    // The time (from System.nanoTime) at which startup began, and the last phase finished:
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private static long startTime;
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private static long lastPhaseTime;
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private static boolean timing = false;
+
+    // The tasks waiting for startup to complete, or null once it has:
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private static List<FXPlatformRunnable> deferredTasks = new ArrayList<>();
+
+    /**
+     * Log the phases of booting, which finish before logging is available.  Should be
+     * called as soon as logging is available, before any call to {@link #phase(String)}.
+     */
+    public static synchronized void logBootPhases()
+    {
+        for (Map.Entry<String, Long> bootPhase : Boot.getBootPhaseTimes().entrySet())
+        {
+            logPhase(bootPhase.getKey(), bootPhase.getValue());
+        }
+    }
+
+    /**
+     * Log that the given phase of startup has just finished.
+     */
+    public static synchronized void phase(String name)
+    {
+        logPhase(name, System.nanoTime());
+    }
+
+    private static synchronized void logPhase(String name, long time)
+    {
+        if (!timing)
+        {
+            startTime = time;
+            lastPhaseTime = time;
+            timing = true;
+        }
+        Debug.message("Startup: " + name + " at " + toMillis(time - startTime) + "ms (+"
+                + toMillis(time - lastPhaseTime) + "ms)");
+        lastPhaseTime = time;
+    }
+
+    private static long toMillis(long nanos)
+    {
+        return nanos / 1000000;
+    }
+
+    /**
+     * Run the given task on the FX thread once the first window has been shown.  If it
+     * has already been shown, the task is run now (if on the FX thread) or soon after.
+     */
+    public static void whenStarted(FXPlatformRunnable task)
+    {
+        synchronized (StartupMonitor.class)
+        {
+            if (deferredTasks != null)
+            {
+                deferredTasks.add(task);
+                return;
+            }
+        }
+        JavaFXUtil.runNowOrLater(task);
+    }
+
+    /**
+     * Record that the first window has been shown, and run the deferred tasks.
+     * Each task is run separately on the FX thread, so that the window can respond
+     * to the user in between them.
+     */
+    @OnThread(Tag.FXPlatform)
+    public static void startupComplete()
+    {
+        List<FXPlatformRunnable> tasks;
+        synchronized (StartupMonitor.class)
+        {
+            if (deferredTasks == null)
+            {
+                return;
+            }
+            tasks = deferredTasks;
+            deferredTasks = null;
+            phase("first window shown");
+        }
+        for (FXPlatformRunnable task : tasks)
+        {
+            JavaFXUtil.runAfterCurrent(task);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2010,2011  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2010,2011,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -34,7 +34,7 @@ import java.lang.reflect.Modifier;
 public abstract class MemberView
 {
     private final View view;
-    private Comment comment;
+    private volatile Comment comment;
 
     protected MemberView(View view)
     {
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2016  Michael Kolling and John Rosenberg 
+ Copyright (C) 1999-2009,2010,2011,2016,2026  Michael Kolling and John Rosenberg 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,11 +21,14 @@
  */
 package bluej.views;
 
+import java.io.File;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.net.URL;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import bluej.debugger.gentype.GenTypeDeclTpar;
 import bluej.utility.JavaNames;
@@ -37,7 +40,14 @@ import threadchecker.Tag;
 /**
  * A representation of a Java class in BlueJ.
  * 
- * <p>The methods in this class are generally thread-safe.
+ * <p>The methods in this class are generally thread-safe.  The member arrays
+ * are built lazily, under a lock on the view, but once built they are read
+ * without locking.
+ *
+ * <p>Views hold reflective objects and so are discarded with their class loader
+ * (see {@link #removeAll(ClassLoader)}), but the comments read from the ".ctxt"
+ * files are kept, and are reused for the next generation of a class as long as
+ * its class and context files have not changed since.
  *
  * @author  Michael Cahill
  */
@@ -47,16 +57,33 @@ public class View
     /** The class that this view is for **/
     protected Class<?> cl;
 
-    protected FieldView[] fields;
-    protected FieldView[] allFields;
-    protected ConstructorView[] constructors;
-    protected MethodView[] methods;
-    protected MethodView[] allMethods;
-    protected TypeParamView[] typeParams;
+    protected volatile FieldView[] fields;
+    protected volatile FieldView[] allFields;
+    protected volatile ConstructorView[] constructors;
+    protected volatile MethodView[] methods;
+    protected volatile MethodView[] allMethods;
+    protected volatile TypeParamView[] typeParams;
+
+    protected volatile Comment comment;
+
+    // The comments from this class's own context file, read on first use:
+    private volatile ClassComments classComments;
 
-    protected Comment comment;
+    private static final Map<Class<?>,View> views = new ConcurrentHashMap<>();
 
-    private static Map<Class<?>,View> views = new HashMap<Class<?>,View>();
+    // The comments of classes whose views have been removed, by context file URL.  Each
+    // entry is removed when the next view of the class is created (whether or not it can use
+    // the entry), or when the class's project is closed:
+    private static final Map<String,ClassComments> retiredComments = new ConcurrentHashMap<>();
+
+    /**
+     * The comments read from a class's context file.
+     *
+     * @param stamp  the modification times and sizes of the class and context files
+     *               when the comments were read, or null if they cannot be checked
+     * @param comments  the comments
+     */
+    private record ClassComments(String stamp, List<Comment> comments) {}
 
     /**
      * Return a view of a class.
@@ -68,39 +95,46 @@ public class View
         if(cl == null)
             return null;
 
-        // Debug.message("Started getView for class " + cl);
-
-        synchronized (views) {
-            View v = views.get(cl);
-            if(v == null) {
-                v = new View(cl);
-                views.put(cl, v);
-            }
-
-            // Debug.message("Ended getView for class " + cl);
-
-            return v;
-        }
+        return views.computeIfAbsent(cl, View::new);
     }
 
     /**
      * Remove from the view cache, all views of classes
-     * which were loaded by the given class loader.
+     * which were loaded by the given class loader.  The comments that
+     * the views have read are kept for reuse by later views of the same
+     * classes, if their files are unchanged.
      * This method is thread-safe.
      */
     public static void removeAll(ClassLoader loader)
     {
-        synchronized (views) {
-            Iterator<View> it = views.values().iterator();
-
-            while(it.hasNext()) {
-                View v = it.next();
-
-                if (v.getClassLoader() == loader) {
-                    it.remove();
+        views.values().removeIf(v -> {
+            if (v.getClassLoader() != loader) {
+                return false;
+            }
+            ClassComments cc = v.classComments;
+            if (cc != null && cc.stamp() != null) {
+                URL ctxtURL = v.getResource(".ctxt");
+                if (ctxtURL != null) {
+                    retiredComments.put(ctxtURL.toString(), cc);
                 }
             }
+            return true;
+        });
+    }
+
+    /**
+     * Remove from the view cache all views of classes which were loaded by the given
+     * class loader (if not null), and forget the comments kept for reuse from classes in
+     * the given directory.  Used when a project is closed.
+     * This method is thread-safe.
+     */
+    public static void removeProject(ClassLoader loader, File projectDir)
+    {
+        if (loader != null) {
+            views.values().removeIf(v -> v.getClassLoader() == loader);
         }
+        String dirURL = projectDir.toURI().toString();
+        retiredComments.keySet().removeIf(url -> url.startsWith(dirURL));
     }
 
     private View(Class<?> cl)
@@ -175,14 +209,21 @@ public class View
      * @return Type parameters. Empty array if none exist.
      */
     public  TypeParamView[] getTypeParams() {
-        if(typeParams == null) {            
-            List<GenTypeDeclTpar> genTypeParams = JavaUtils.getJavaUtils().getTypeParams(this.cl);            
-            typeParams = new TypeParamView[genTypeParams.size()];
-                for (int i = 0; i < typeParams.length; i++) {
-                typeParams[i] = new TypeParamView(this, genTypeParams.get(i));                
-            }            
+        TypeParamView[] result = typeParams;
+        if (result == null) {
+            synchronized (this) {
+                result = typeParams;
+                if (result == null) {
+                    List<GenTypeDeclTpar> genTypeParams = JavaUtils.getJavaUtils().getTypeParams(this.cl);
+                    result = new TypeParamView[genTypeParams.size()];
+                    for (int i = 0; i < result.length; i++) {
+                        result[i] = new TypeParamView(this, genTypeParams.get(i));
+                    }
+                    typeParams = result;
+                }
+            }
         }
-        return typeParams;
+        return result;
     }
     
 
@@ -192,24 +233,31 @@ public class View
      * up in the inheritance hierarchy are first in the array, with the latest 
      * redefinition last.
      */
-    public synchronized MethodView[] getAllMethods()
+    public MethodView[] getAllMethods()
     {
-        if(allMethods == null) {
-            HashMap<String,MemberElement> map = new HashMap<String,MemberElement>();
-            getAllMethods(map, 0);
-            
-            List<MemberElement> methods = new ArrayList<MemberElement>(map.values());
-            Collections.sort(methods, new ElementComparer());
-
-            int numMethods = methods.size();
-            allMethods = new MethodView[numMethods];
-            for(int i = 0; i < numMethods; i++) {
-                MemberElement elem = (MemberElement)methods.get(i);
-                allMethods[i] = (MethodView)elem.member;
+        MethodView[] result = allMethods;
+        if (result == null) {
+            synchronized (this) {
+                result = allMethods;
+                if (result == null) {
+                    HashMap<String,MemberElement> map = new HashMap<String,MemberElement>();
+                    getAllMethods(map, 0);
+
+                    List<MemberElement> methods = new ArrayList<MemberElement>(map.values());
+                    Collections.sort(methods, new ElementComparer());
+
+                    int numMethods = methods.size();
+                    result = new MethodView[numMethods];
+                    for(int i = 0; i < numMethods; i++) {
+                        MemberElement elem = (MemberElement)methods.get(i);
+                        result[i] = (MethodView)elem.member;
+                    }
+                    allMethods = result;
+                }
             }
         }
 
-        return allMethods;
+        return result;
     }
 
     /**
@@ -218,22 +266,29 @@ public class View
      **/
     public FieldView[] getAllFields()
     {
-        if(allFields == null) {
-            HashMap<String,MemberElement> map = new HashMap<String,MemberElement>();
-            getAllFields(map, 0);
-            
-            List<MemberElement> fields = new ArrayList<MemberElement>(map.values());
-            Collections.sort(fields, new ElementComparer());
-
-            int numFields = fields.size();
-            allFields = new FieldView[numFields];
-            for(int i = 0; i < numFields; i++) {
-                MemberElement elem = (MemberElement)fields.get(i);
-                allFields[i] = (FieldView)elem.member;
+        FieldView[] result = allFields;
+        if (result == null) {
+            synchronized (this) {
+                result = allFields;
+                if (result == null) {
+                    HashMap<String,MemberElement> map = new HashMap<String,MemberElement>();
+                    getAllFields(map, 0);
+
+                    List<MemberElement> fields = new ArrayList<MemberElement>(map.values());
+                    Collections.sort(fields, new ElementComparer());
+
+                    int numFields = fields.size();
+                    result = new FieldView[numFields];
+                    for(int i = 0; i < numFields; i++) {
+                        MemberElement elem = (MemberElement)fields.get(i);
+                        result[i] = (FieldView)elem.member;
+                    }
+                    allFields = result;
+                }
             }
         }
 
-        return allFields;
+        return result;
     }
 
     /**
@@ -276,9 +331,10 @@ public class View
      */
     protected int getAllMethods(HashMap<String,MemberElement> h, int methnum)
     {
-        if(allMethods != null) {
+        MethodView[] all = allMethods;
+        if(all != null) {
             // carefully copy from allMethods into h
-            methnum = addMembers(h, allMethods, methnum);
+            methnum = addMembers(h, all, methnum);
             return methnum;
         }
 
@@ -301,9 +357,10 @@ public class View
 
     protected int getAllFields(HashMap<String,MemberElement> h, int fieldnum)
     {
-        if(allFields != null) {
+        FieldView[] all = allFields;
+        if(all != null) {
             // carefully copy from allFields into h
-            fieldnum = addMembers(h, allFields, fieldnum);
+            fieldnum = addMembers(h, all, fieldnum);
             return fieldnum;
         }
 
@@ -333,43 +390,57 @@ public class View
 
     public MethodView[] getDeclaredMethods()
     {
-        if(methods == null) {
-            int count = 0;
-            try {
-                Method[] cl_methods = cl.getDeclaredMethods();
-                
-                for(int i = 0; i < cl_methods.length; i++) {
-                    if (!cl_methods[i].isSynthetic()) {
-                        count++;
-                    }
+        MethodView[] result = methods;
+        if (result == null) {
+            synchronized (this) {
+                result = methods;
+                if (result == null) {
+                    result = loadDeclaredMethods();
+                    methods = result;
                 }
-                methods = new MethodView[count];
-                
-                count = 0;
-                for(int i = 0; i < cl_methods.length; i++) {
-                    if (!cl_methods[i].isSynthetic()) {
-                        try {
-                            methods[count] = new MethodView(this, cl_methods[i]);
-                        }
-                        catch (Throwable t) {
-                            t.printStackTrace();
-                            if (t instanceof ClassNotFoundException) {
-                                throw (ClassNotFoundException) t;
-                            }
+            }
+        }
+        return result;
+    }
+
+    private MethodView[] loadDeclaredMethods()
+    {
+        MethodView[] methods;
+        int count = 0;
+        try {
+            Method[] cl_methods = cl.getDeclaredMethods();
+            
+            for(int i = 0; i < cl_methods.length; i++) {
+                if (!cl_methods[i].isSynthetic()) {
+                    count++;
+                }
+            }
+            methods = new MethodView[count];
+            
+            count = 0;
+            for(int i = 0; i < cl_methods.length; i++) {
+                if (!cl_methods[i].isSynthetic()) {
+                    try {
+                        methods[count] = new MethodView(this, cl_methods[i]);
+                    }
+                    catch (Throwable t) {
+                        t.printStackTrace();
+                        if (t instanceof ClassNotFoundException) {
+                            throw (ClassNotFoundException) t;
                         }
-                        count++;
                     }
+                    count++;
                 }
             }
-            catch (LinkageError le) {
-                // getDeclaredMethods can cause attempts for other classes to be loaded.
-                // This in turn can cause a LinkageError variant to be thrown. (For
-                // instance, NoClassDefFoundError).
-                methods = new MethodView[0];
-            }
-            catch (ClassNotFoundException cnfe) {
-                methods = new MethodView[0];
-            }
+        }
+        catch (LinkageError le) {
+            // getDeclaredMethods can cause attempts for other classes to be loaded.
+            // This in turn can cause a LinkageError variant to be thrown. (For
+            // instance, NoClassDefFoundError).
+            methods = new MethodView[0];
+        }
+        catch (ClassNotFoundException cnfe) {
+            methods = new MethodView[0];
         }
 
         return methods;
@@ -377,44 +448,56 @@ public class View
 
     public FieldView[] getDeclaredFields()
     {
-        if(fields == null)
-        {
-            try {
-                Field[] cl_fields= cl.getDeclaredFields();
-                fields = new FieldView[cl_fields.length];
-            
-                for(int i = 0; i < cl_fields.length; i++)
-                    fields[i] = new FieldView(this, cl_fields[i]);
-            }
-            catch (LinkageError le) {
-                // getDeclaredFields can cause attempts for other classes to be loaded.
-                // This in turn can cause a LinkageError variant to be thrown. (For
-                // instance, NoClassDefFoundError).
-                fields = new FieldView[0];
+        FieldView[] result = fields;
+        if (result == null) {
+            synchronized (this) {
+                result = fields;
+                if (result == null) {
+                    try {
+                        Field[] cl_fields= cl.getDeclaredFields();
+                        result = new FieldView[cl_fields.length];
+
+                        for(int i = 0; i < cl_fields.length; i++)
+                            result[i] = new FieldView(this, cl_fields[i]);
+                    }
+                    catch (LinkageError le) {
+                        // getDeclaredFields can cause attempts for other classes to be loaded.
+                        // This in turn can cause a LinkageError variant to be thrown. (For
+                        // instance, NoClassDefFoundError).
+                        result = new FieldView[0];
+                    }
+                    fields = result;
+                }
             }
         }
 
-        return fields;
+        return result;
     }
 
     public ConstructorView[] getConstructors()
     {
-        if(constructors == null)
-        {
-            try {
-                Constructor<?>[] cl_constrs = cl.getDeclaredConstructors();
-                constructors = new ConstructorView[cl_constrs.length];
-                
-                for(int i = 0; i < constructors.length; i++)
-                    constructors[i] = new ConstructorView(this, cl_constrs[i]);
-            }
-            catch (LinkageError le) {
-                // Class.getDeclaredConstructors() can throw various linkage errors
-                return new ConstructorView[0];
+        ConstructorView[] result = constructors;
+        if (result == null) {
+            synchronized (this) {
+                result = constructors;
+                if (result == null) {
+                    try {
+                        Constructor<?>[] cl_constrs = cl.getDeclaredConstructors();
+                        result = new ConstructorView[cl_constrs.length];
+
+                        for(int i = 0; i < result.length; i++)
+                            result[i] = new ConstructorView(this, cl_constrs[i]);
+                    }
+                    catch (LinkageError le) {
+                        // Class.getDeclaredConstructors() can throw various linkage errors
+                        return new ConstructorView[0];
+                    }
+                    constructors = result;
+                }
             }
         }
 
-        return constructors;
+        return result;
     }
 
     public Comment getComment()
@@ -428,23 +511,27 @@ public class View
         this.comment = comment;
     }
 
-    boolean comments_loaded = false;
+    volatile boolean comments_loaded = false;
     protected void loadComments()
     {
         if(comments_loaded)
             return;     // already loaded - nothing to do
 
-        comments_loaded = true;
+        synchronized (this) {
+            if (comments_loaded)
+                return;
 
-        // match the comments against this view's members
-        // -> put all members into a hashmap indexed by
-        // <member>.getSignature() (== <comment>.getTarget())
-        Map<String,MemberView> table = new HashMap<String,MemberView>();
-        addMembers(table, getAllFields());
-        addMembers(table, getConstructors());
-        addMembers(table, getAllMethods());
+            // match the comments against this view's members
+            // -> put all members into a hashmap indexed by
+            // <member>.getSignature() (== <comment>.getTarget())
+            Map<String,MemberView> table = new HashMap<String,MemberView>();
+            addMembers(table, getAllFields());
+            addMembers(table, getConstructors());
+            addMembers(table, getAllMethods());
 
-        loadClassComments(this, table);
+            loadClassComments(this, table);
+            comments_loaded = true;
+        }
     }
 
     protected void loadClassComments(View curview, Map<String,MemberView> table)
@@ -453,57 +540,113 @@ public class View
         if(curview.getSuper() != null)
             loadClassComments(curview.getSuper(), table);
 
-        CommentList comments = null;
-        String filename = curview.getQualifiedName().replace('.', '/') + ".ctxt";
+        // match up the comments read from the file with the members of this view
+        for (Comment c : curview.getClassComments()) {
+            if(c.getTarget().startsWith("class ") ||
+               c.getTarget().startsWith("interface ")) {
+                // we only want to set a class comment on our base class, not for
+                // our supers
+                if (curview == this)
+                    setComment(c);
+                continue;
+            }
 
-        try {
-            InputStream in = null;
+            MemberView m = table.get(c.getTarget());
 
-            if (curview.cl.getClassLoader() == null) {
-                in = ClassLoader.getSystemResourceAsStream(filename);
+            if(m == null) {
+                //Debug.message("No member found for " + c.getTarget() + " in context file of " + curview.getQualifiedName());
+                continue;
             }
             else {
-                in = curview.cl.getClassLoader().getResourceAsStream(filename);
+                //Debug.message("Found member for " + c.getTarget() + " in context file of " + curview.getQualifiedName());
+                m.setComment(c);
             }
+        }
+    }
 
-            if(in != null) {
-                comments = new CommentList();
-                comments.load(in);
-                in.close();
+    /**
+     * Get the comments from the context file of this view's class (not including its
+     * superclasses).  They are read on first use, or taken from the view of an earlier
+     * generation of the class if neither its class file nor its context file has changed.
+     */
+    private List<Comment> getClassComments()
+    {
+        ClassComments result = classComments;
+        if (result == null) {
+            synchronized (this) {
+                result = classComments;
+                if (result == null) {
+                    result = readClassComments();
+                    classComments = result;
+                }
             }
-            //else
-            //    Debug.message("Failed to load .ctxt file " + filename);
+        }
+        return result.comments();
+    }
 
-        } catch(Exception e) {
-            e.printStackTrace();
+    private ClassComments readClassComments()
+    {
+        URL ctxtURL = getResource(".ctxt");
+        if (ctxtURL == null) {
+            //Debug.message("Failed to load .ctxt file for " + getQualifiedName());
+            return new ClassComments(null, Collections.emptyList());
         }
 
-        if(comments != null) {
-            // match up the comments read from the file with the members of this view
-            for(Iterator<Comment> it = comments.getComments(); it.hasNext(); ) {
-                Comment c = it.next();
-                
-                if(c.getTarget().startsWith("class ") ||
-                   c.getTarget().startsWith("interface ")) {
-                    // we only want to set a class comment on our base class, not for
-                    // our supers
-                    if (curview == this)
-                        setComment(c);
-                    continue;
-                }
+        String stamp = getFileStamp(ctxtURL);
+        if (stamp != null) {
+            String classStamp = getFileStamp(getResource(".class"));
+            stamp = (classStamp == null) ? null : stamp + ";" + classStamp;
+        }
 
-                MemberView m = table.get(c.getTarget());
+        // Take any retired comments; if they are out of date, they never will be usable again:
+        ClassComments retired = retiredComments.remove(ctxtURL.toString());
+        if (stamp != null) {
+            if (retired != null && stamp.equals(retired.stamp())) {
+                return retired;
+            }
+        }
 
-                if(m == null) {
-                    //Debug.message("No member found for " + c.getTarget() + " in file " + filename);
-                    continue;
-                }
-                else {
-                    //Debug.message("Found member for " + c.getTarget() + " in file " + filename);
-                    m.setComment(c);
-                }
+        List<Comment> comments = new ArrayList<>();
+        try (InputStream in = ctxtURL.openStream()) {
+            CommentList commentList = new CommentList();
+            commentList.load(in);
+            for (Iterator<Comment> it = commentList.getComments(); it.hasNext(); ) {
+                comments.add(it.next());
             }
         }
+        catch(Exception e) {
+            e.printStackTrace();
+        }
+        return new ClassComments(stamp, Collections.unmodifiableList(comments));
+    }
+
+    /**
+     * Find a resource belonging to this view's class, named by the class name
+     * with the given suffix (e.g. ".ctxt").
+     */
+    private URL getResource(String suffix)
+    {
+        String filename = getQualifiedName().replace('.', '/') + suffix;
+        ClassLoader loader = cl.getClassLoader();
+        return (loader == null) ? ClassLoader.getSystemResource(filename) : loader.getResource(filename);
+    }
+
+    /**
+     * Get a string which changes whenever the file at the given URL does, or null if
+     * it is not a plain file (and so its changes cannot cheaply be detected).
+     */
+    private static String getFileStamp(URL url)
+    {
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            File file = new File(url.toURI());
+            return file.lastModified() + ":" + file.length();
+        }
+        catch (Exception e) {
+            return null;
+        }
     }
 
     private void addMembers(Map<String,MemberView> table, MemberView[] members)
@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program.
- Copyright (C) 2019,2020,2021,2022  Michael Kolling and John Rosenberg
+ Copyright (C) 2019,2020,2021,2022,2026  Michael Kolling and John Rosenberg
 
  This program is free software; you can redistribute it and/or
  modify it under the terms of the GNU General Public License 
@@ -71,6 +71,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.function.Consumer;
@@ -122,7 +123,7 @@ public class TestBasicEditorDisplay extends FXTest
             }
 
             @Override
-            public boolean breakpointToggleEvent(int lineNo, boolean set)
+            public boolean breakpointToggleEvent(int lineNo, boolean set, Map<String, String> properties)
             {
                 return false;
             }
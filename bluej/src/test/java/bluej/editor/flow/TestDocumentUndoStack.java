@@ -0,0 +1,256 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import bluej.editor.flow.gen.GenRandom;
+import com.pholser.junit.quickcheck.From;
+import com.pholser.junit.quickcheck.Property;
+import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
+import org.hamcrest.MatcherAssert;
+import org.hamcrest.Matchers;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the coalescing and memory capping of DocumentUndoStack.  The basic
+ * undo/redo behaviour is also tested in TestDocument.
+ */
+@RunWith(JUnitQuickcheck.class)
+public class TestDocumentUndoStack
+{
+    private static final String WORDS = "int x = foo(bar, 7);\n    return baz;\n";
+
+    /**
+     * Makes a random edit to the document: usually typing a character at the caret,
+     * sometimes a replacement elsewhere.  Returns the new caret position.
+     */
+    private static int randomEdit(Random r, Document document, int caret)
+    {
+        if (r.nextInt(10) < 8)
+        {
+            document.replaceText(caret, caret, Character.toString(WORDS.charAt(r.nextInt(WORDS.length()))));
+            return caret + 1;
+        }
+        else
+        {
+            int start = r.nextInt(document.getLength() + 1);
+            int end = Math.min(document.getLength(), start + r.nextInt(10));
+            String replacement = WORDS.substring(r.nextInt(WORDS.length() / 2)).substring(0, r.nextInt(5));
+            document.replaceText(start, end, replacement);
+            return start + replacement.length();
+        }
+    }
+
+    /**
+     * Checks that with typing coalesced, undo steps back through the states at the end of each
+     * undo entry, and redo steps forward through them again.
+     */
+    @Property(trials = 20, shrink = false)
+    public void propCoalescedUndoRedo(@From(GenRandom.class) Random r)
+    {
+        Document document = new HoleDocument();
+        DocumentUndoStack undoStack = new DocumentUndoStack(document);
+        undoStack.setCoalesceTyping(true);
+        // The content when the undo count was the list index:
+        List<String> states = new ArrayList<>();
+        states.add("");
+        int caret = 0;
+        for (int i = 0; i < 300; i++)
+        {
+            caret = randomEdit(r, document, caret);
+            int count = undoStack.canUndoCount();
+            // The count only stays the same if the edit was coalesced:
+            MatcherAssert.assertThat(count, Matchers.lessThanOrEqualTo(states.size()));
+            if (count == states.size())
+                states.add(document.getFullContent());
+            else
+                states.set(count, document.getFullContent());
+
+            if (r.nextInt(20) == 0)
+            {
+                // Undo and redo a few steps:
+                int steps = r.nextInt(count + 1);
+                for (int u = 1; u <= steps; u++)
+                {
+                    undoStack.undo();
+                    assertEquals(states.get(count - u), document.getFullContent());
+                }
+                for (int u = steps - 1; u >= 0; u--)
+                {
+                    undoStack.redo();
+                    assertEquals(states.get(count - u), document.getFullContent());
+                }
+                // Typing after an undo/redo must start a new entry:
+                caret = document.getLength();
+            }
+        }
+        // Typing should make one entry per word (plus one for the newline):
+        int before = undoStack.canUndoCount();
+        int end = document.getLength();
+        for (char c : "\nabcdefghij klmnopqrst".toCharArray())
+        {
+            document.replaceText(end, end, Character.toString(c));
+            end += 1;
+        }
+        assertEquals(before + 3, undoStack.canUndoCount());
+    }
+
+    /**
+     * Checks that the memory cap is kept to, and that the entries which remain after
+     * the oldest have been forgotten still undo correctly.
+     */
+    @Property(trials = 20, shrink = false)
+    public void propMemoryCap(@From(GenRandom.class) Random r)
+    {
+        long cap = 2000 + r.nextInt(4000);
+        Document document = new HoleDocument();
+        DocumentUndoStack undoStack = new DocumentUndoStack(document, cap);
+        undoStack.setCoalesceTyping(r.nextBoolean());
+        List<String> states = new ArrayList<>();
+        states.add("");
+        int caret = 0;
+        for (int i = 0; i < 1000; i++)
+        {
+            caret = randomEdit(r, document, caret);
+            states.add(document.getFullContent());
+            // Only the latest entry is kept if it's over the cap by itself:
+            assertTrue(undoStack.getEstimatedBytes() <= cap || undoStack.canUndoCount() == 1);
+        }
+        MatcherAssert.assertThat(undoStack.canUndoCount(), Matchers.greaterThan(0));
+        MatcherAssert.assertThat(undoStack.canUndoCount(), Matchers.lessThan(1000));
+
+        // Undo everything we can; the result must be one of the earlier states:
+        while (undoStack.canUndoCount() > 0)
+        {
+            undoStack.undo();
+        }
+        assertTrue(states.contains(document.getFullContent()));
+        // And redo must get us back to the end:
+        while (undoStack.canRedoCount() > 0)
+        {
+            undoStack.redo();
+        }
+        assertEquals(states.get(states.size() - 1), document.getFullContent());
+    }
+
+    /**
+     * Checks that once over the cap, the history is cut down to three quarters of it in
+     * one go, so that entries are only forgotten once in a while rather than on every change.
+     */
+    @Test
+    public void testEvictionInBatches()
+    {
+        long cap = 10_000;
+        Document document = new HoleDocument();
+        DocumentUndoStack undoStack = new DocumentUndoStack(document, cap);
+        int evictions = 0;
+        int prevCount = 0;
+        for (int i = 0; i < 2000; i++)
+        {
+            document.replaceText(document.getLength(), document.getLength(), "x");
+            int count = undoStack.canUndoCount();
+            if (count <= prevCount)
+            {
+                evictions += 1;
+                MatcherAssert.assertThat(undoStack.getEstimatedBytes(), Matchers.lessThanOrEqualTo(cap * 3 / 4));
+            }
+            MatcherAssert.assertThat(undoStack.getEstimatedBytes(), Matchers.lessThanOrEqualTo(cap));
+            prevCount = count;
+        }
+        // Each eviction frees a quarter of the cap, which is many entries' worth:
+        MatcherAssert.assertThat(evictions, Matchers.greaterThan(0));
+        MatcherAssert.assertThat(evictions, Matchers.lessThan(2000 / 20));
+        undoStack.undo();
+        assertEquals(1999, document.getLength());
+    }
+
+    /**
+     * Checks that a compound edit of many changes is a single entry.
+     */
+    @Test
+    public void testCompoundEdit()
+    {
+        Document document = new HoleDocument();
+        DocumentUndoStack undoStack = new DocumentUndoStack(document);
+        document.replaceText(0, 0, "a.b.c.d.e.f.g.h");
+        String original = document.getFullContent();
+        undoStack.compoundEdit(() -> {
+            for (int pos = original.length() - 2; pos > 0; pos -= 2)
+            {
+                document.replaceText(pos, pos + 1, "::");
+            }
+        });
+        assertEquals("a::b::c::d::e::f::g::h", document.getFullContent());
+        assertEquals(2, undoStack.canUndoCount());
+        undoStack.undo();
+        assertEquals(original, document.getFullContent());
+        undoStack.redo();
+        assertEquals("a::b::c::d::e::f::g::h", document.getFullContent());
+    }
+
+    /**
+     * A scripted editing session: typing a large file, followed by scattered edits and a bulk
+     * replacement.  Checks that the history's memory use stays proportional to the text typed
+     * (rather than to the number of keypresses), and within the cap.
+     */
+    @Test
+    public void testScriptedSessionMemory()
+    {
+        Random r = new Random(1);
+        long cap = 1024 * 1024;
+        Document document = new HoleDocument();
+        DocumentUndoStack undoStack = new DocumentUndoStack(document, cap);
+        undoStack.setCoalesceTyping(true);
+
+        // Type 100,000 characters:
+        int typed = 0;
+        while (typed < 100_000)
+        {
+            char c = WORDS.charAt(typed % WORDS.length());
+            document.replaceText(document.getLength(), document.getLength(), Character.toString(c));
+            typed += 1;
+        }
+        long afterTyping = undoStack.getEstimatedBytes();
+        // Each character is two bytes in the buffer; the rest is entry overhead, one per word:
+        MatcherAssert.assertThat(afterTyping, Matchers.lessThan(typed * 2L + typed * 12L));
+        MatcherAssert.assertThat(undoStack.canUndoCount(), Matchers.lessThan(typed / 2));
+
+        // Scattered edits:
+        for (int i = 0; i < 10_000; i++)
+        {
+            int start = r.nextInt(document.getLength());
+            document.replaceText(start, Math.min(document.getLength(), start + r.nextInt(5)), "xy");
+        }
+        MatcherAssert.assertThat(undoStack.getEstimatedBytes(), Matchers.lessThanOrEqualTo(cap));
+
+        // Bulk replacement of the whole content:
+        undoStack.compoundEdit(() -> document.replaceText(0, document.getLength(), document.getFullContent().replace("x", "xx")));
+        // This single entry may be bigger than the cap, but then it should be the only one:
+        assertTrue(undoStack.getEstimatedBytes() <= cap || undoStack.canUndoCount() == 1);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ This file is part of the BlueJ program.
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.editor.flow;
+
+import bluej.editor.flow.gen.GenRandom;
+import com.pholser.junit.quickcheck.From;
+import com.pholser.junit.quickcheck.Property;
+import com.pholser.junit.quickcheck.runner.JUnitQuickcheck;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks LineIndexedMap against a straightforward TreeMap implementation
+ * of the same operations.
+ */
+@RunWith(JUnitQuickcheck.class)
+public class TestLineIndexedMap
+{
+    @Property(trials = 50, shrink = false)
+    public void propSameAsTreeMap(@From(GenRandom.class) Random r)
+    {
+        LineIndexedMap<String> map = new LineIndexedMap<>();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        int maxLine = 1 + r.nextInt(500);
+
+        for (int i = 0; i < 400; i++)
+        {
+            int line = r.nextInt(maxLine);
+            switch (r.nextInt(6))
+            {
+                case 0:
+                case 1:
+                    String value = "v" + i;
+                    map.put(line, value);
+                    expected.put(line, value);
+                    break;
+                case 2:
+                    assertEquals(expected.remove(line), map.remove(line));
+                    break;
+                case 3:
+                {
+                    int count = r.nextInt(20);
+                    map.linesInserted(line, count);
+                    TreeMap<Integer, String> shifted = new TreeMap<>(expected.headMap(line));
+                    expected.tailMap(line).forEach((l, v) -> shifted.put(l + count, v));
+                    expected = shifted;
+                    break;
+                }
+                case 4:
+                {
+                    int count = r.nextInt(20);
+                    map.linesRemoved(line, count);
+                    TreeMap<Integer, String> shifted = new TreeMap<>(expected.headMap(line));
+                    expected.tailMap(line + count).forEach((l, v) -> shifted.put(l - count, v));
+                    expected = shifted;
+                    break;
+                }
+                case 5:
+                {
+                    int end = line + r.nextInt(20);
+                    map.removeRange(line, end);
+                    expected.subMap(line, true, end, true).clear();
+                    break;
+                }
+            }
+            checkSame(expected, map);
+        }
+    }
+
+    @Property(trials = 20, shrink = false)
+    public void propRange(@From(GenRandom.class) Random r)
+    {
+        LineIndexedMap<Integer> map = new LineIndexedMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        for (int i = 0; i < 200; i++)
+        {
+            int line = r.nextInt(1000);
+            map.put(line, i);
+            expected.put(line, i);
+        }
+        for (int i = 0; i < 50; i++)
+        {
+            int from = r.nextInt(1000);
+            int to = from + r.nextInt(100);
+            List<Integer> lines = new ArrayList<>();
+            map.forEachInRange(from, to, (l, v) -> {
+                lines.add(l);
+                assertEquals(expected.get(l), v);
+            });
+            assertEquals(new ArrayList<>(expected.subMap(from, true, to, true).keySet()), lines);
+            assertEquals(expected.subMap(from, true, to, true), new TreeMap<>(map.toMap(from, to)));
+        }
+    }
+
+    private static void checkSame(TreeMap<Integer, String> expected, LineIndexedMap<String> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        List<Entry<Integer, String>> actualEntries = new ArrayList<>();
+        actual.forEach((l, v) -> actualEntries.add(Map.entry(l, v)));
+        assertEquals(new ArrayList<>(expected.entrySet()), actualEntries);
+        for (Entry<Integer, String> e : expected.entrySet())
+        {
+            assertEquals(e.getValue(), actual.get(e.getKey()));
+        }
+    }
+}
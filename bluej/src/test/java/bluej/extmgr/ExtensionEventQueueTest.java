@@ -0,0 +1,202 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.extmgr;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import bluej.extensions2.event.ExtensionEvent;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the order in which an extension's queue passes on events, and its overflow policies.
+ */
+public class ExtensionEventQueueTest
+{
+    /**
+     * A numbered event.
+     */
+    private record TestEvent(int number) implements ExtensionEvent { }
+
+    // The tasks given to the executor, which are run when the test chooses:
+    private final List<Runnable> tasks = new ArrayList<>();
+    // The numbers of the events received by the extension:
+    private final List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+    private boolean onExecutorThread = false;
+
+    private ExtensionEventQueue makeQueue(int capacity, ExtensionEventQueue.OverflowPolicy policy)
+    {
+        return new ExtensionEventQueue("test", e -> received.add(((TestEvent) e).number()), tasks::add,
+                () -> onExecutorThread, capacity, policy);
+    }
+
+    private void runTasks()
+    {
+        while (! tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private static void addEvents(ExtensionEventQueue queue, int from, int to)
+    {
+        for (int i = from; i <= to; i++) {
+            queue.add(new TestEvent(i));
+        }
+    }
+
+    @Test
+    public void testOrder()
+    {
+        ExtensionEventQueue queue = makeQueue(100, ExtensionEventQueue.OverflowPolicy.WAIT);
+        addEvents(queue, 1, 5);
+        Assert.assertTrue(received.isEmpty());
+        // Only one task is needed to pass on all the events:
+        Assert.assertEquals(1, tasks.size());
+        runTasks();
+        Assert.assertEquals(List.of(1, 2, 3, 4, 5), received);
+
+        ExtensionEventQueue.Statistics statistics = queue.getStatistics();
+        Assert.assertEquals(5, statistics.delivered());
+        Assert.assertEquals(0, statistics.dropped());
+        Assert.assertTrue(statistics.getMaxLatencyMillis() >= statistics.getAverageLatencyMillis());
+    }
+
+    @Test
+    public void testDropOldest()
+    {
+        ExtensionEventQueue queue = makeQueue(2, ExtensionEventQueue.OverflowPolicy.DROP_OLDEST);
+        addEvents(queue, 1, 4);
+        runTasks();
+        Assert.assertEquals(List.of(3, 4), received);
+        Assert.assertEquals(2, queue.getStatistics().dropped());
+    }
+
+    @Test
+    public void testDropNewest()
+    {
+        ExtensionEventQueue queue = makeQueue(2, ExtensionEventQueue.OverflowPolicy.DROP_NEWEST);
+        addEvents(queue, 1, 4);
+        runTasks();
+        Assert.assertEquals(List.of(1, 2), received);
+        Assert.assertEquals(2, queue.getStatistics().dropped());
+    }
+
+    @Test
+    public void testWaitOnExecutorThread()
+    {
+        // On the executor's thread, a full queue is passed on straight away rather than waiting:
+        onExecutorThread = true;
+        ExtensionEventQueue queue = makeQueue(2, ExtensionEventQueue.OverflowPolicy.WAIT);
+        addEvents(queue, 1, 3);
+        Assert.assertEquals(List.of(1, 2), received);
+        runTasks();
+        Assert.assertEquals(List.of(1, 2, 3), received);
+        Assert.assertEquals(0, queue.getStatistics().dropped());
+    }
+
+    @Test
+    public void testDeliverNow()
+    {
+        ExtensionEventQueue queue = makeQueue(100, ExtensionEventQueue.OverflowPolicy.WAIT);
+        addEvents(queue, 1, 2);
+        onExecutorThread = true;
+        queue.deliverNow(new TestEvent(3));
+        Assert.assertEquals(List.of(1, 2, 3), received);
+        // The task given to the executor finds nothing left to do:
+        runTasks();
+        Assert.assertEquals(List.of(1, 2, 3), received);
+    }
+
+    @Test
+    public void testClose()
+    {
+        ExtensionEventQueue queue = makeQueue(100, ExtensionEventQueue.OverflowPolicy.WAIT);
+        addEvents(queue, 1, 2);
+        queue.close();
+        addEvents(queue, 3, 4);
+        runTasks();
+        Assert.assertTrue(received.isEmpty());
+    }
+
+    @Test
+    public void testSlowExtension() throws Exception
+    {
+        // An extension on another thread which doesn't handle events until released:
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            ExtensionEventQueue queue = new ExtensionEventQueue("slow", e -> {
+                try {
+                    release.await();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                received.add(((TestEvent) e).number());
+            }, executor, () -> false, 4, ExtensionEventQueue.OverflowPolicy.WAIT);
+
+            // The sender isn't held up while there is space in the queue:
+            addEvents(queue, 1, 3);
+            Assert.assertTrue(received.isEmpty());
+            release.countDown();
+
+            // Adding more waits for space, so none are dropped:
+            addEvents(queue, 4, 10);
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < 10 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), received);
+            Assert.assertEquals(0, queue.getStatistics().dropped());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testOwnThread() throws Exception
+    {
+        List<String> threads = Collections.synchronizedList(new ArrayList<>());
+        ExtensionEventQueue queue = ExtensionEventQueue.withOwnThread("own", e -> {
+            threads.add(Thread.currentThread().getName());
+            received.add(((TestEvent) e).number());
+        }, 10, ExtensionEventQueue.OverflowPolicy.WAIT);
+        Assert.assertTrue(queue.hasOwnThread());
+
+        // Delivering now from another thread waits for the queued events and the new one:
+        addEvents(queue, 1, 3);
+        queue.deliverNow(new TestEvent(4));
+        Assert.assertEquals(List.of(1, 2, 3, 4), received);
+        Assert.assertEquals(List.of("Extension events: own"), threads.stream().distinct().toList());
+
+        // Once closed, events are no longer delivered (and the sender doesn't wait):
+        queue.close();
+        queue.deliverNow(new TestEvent(5));
+        Assert.assertEquals(List.of(1, 2, 3, 4), received);
+    }
+}
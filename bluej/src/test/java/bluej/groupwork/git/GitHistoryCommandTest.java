@@ -0,0 +1,177 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.groupwork.git;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import bluej.groupwork.HistoryInfo;
+import bluej.groupwork.LogHistoryListener;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the Git history command passes on the history a page at a time,
+ * finds the changed files of each commit only once, and stops when cancelled.
+ */
+public class GitHistoryCommandTest
+{
+    private static final int COMMITS = GitHistoryCommand.PAGE_SIZE * 2 + 7;
+
+    private File workTree;
+    private GitRepository repository;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        workTree = Files.createTempDirectory("githistory").toFile();
+        try (Git git = Git.init().setDirectory(workTree).call()) {
+            for (int i = 0; i < COMMITS; i++) {
+                Files.writeString(workTree.toPath().resolve("C" + (i % 3) + ".java"), "class C { int i = " + i + "; }");
+                git.add().addFilepattern(".").call();
+                git.commit().setMessage("Commit " + i).setAuthor("Test", "test@example.com").setCommitter("Test", "test@example.com").call();
+            }
+        }
+        repository = new GitRepository(workTree, "file", workTree.toURI().toString(), null, null, null, "Test", "test@example.com");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        try (var paths = Files.walk(workTree.toPath())) {
+            paths.sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    /**
+     * A listener which records the pages, and the items whose files were passed on separately.
+     */
+    private static class PageRecorder implements LogHistoryListener
+    {
+        final List<List<HistoryInfo>> pages = new ArrayList<>();
+        final List<HistoryInfo> filesFound = new ArrayList<>();
+
+        @Override
+        public void logInfoAvailable(HistoryInfo logInfo)
+        {
+            Assert.fail("History should be passed on in pages");
+        }
+
+        @Override
+        public void logPageAvailable(List<HistoryInfo> page)
+        {
+            pages.add(page);
+        }
+
+        @Override
+        public void logFilesAvailable(List<HistoryInfo> infos)
+        {
+            filesFound.addAll(infos);
+        }
+    }
+
+    @Test
+    public void testPages()
+    {
+        PageRecorder recorder = new PageRecorder();
+        GitHistoryCommand command = new GitHistoryCommand(repository, recorder);
+        Assert.assertFalse(command.getResult().isError());
+
+        Assert.assertEquals(3, recorder.pages.size());
+        Assert.assertEquals(GitHistoryCommand.PAGE_SIZE, recorder.pages.get(0).size());
+        Assert.assertEquals(7, recorder.pages.get(2).size());
+        Assert.assertEquals(COMMITS, command.getFilesComputedCount());
+        Assert.assertEquals(COMMITS, recorder.filesFound.size());
+
+        // The most recent commit comes first:
+        HistoryInfo latest = recorder.pages.get(0).get(0);
+        int last = COMMITS - 1;
+        Assert.assertEquals("Commit " + last, latest.getComment());
+        Assert.assertTrue(latest.areFilesKnown());
+        Assert.assertEquals(List.of("C" + (last % 3) + ".java"), Arrays.asList(latest.getFiles()));
+
+        // The second time, the files are already known:
+        PageRecorder secondRecorder = new PageRecorder();
+        GitHistoryCommand secondCommand = new GitHistoryCommand(repository, secondRecorder);
+        Assert.assertFalse(secondCommand.getResult().isError());
+        Assert.assertEquals(0, secondCommand.getFilesComputedCount());
+        Assert.assertTrue(secondRecorder.filesFound.isEmpty());
+        Assert.assertEquals(3, secondRecorder.pages.size());
+        for (List<HistoryInfo> page : secondRecorder.pages) {
+            for (HistoryInfo info : page) {
+                Assert.assertTrue(info.areFilesKnown());
+                Assert.assertEquals(1, info.getFiles().length);
+            }
+        }
+        // The oldest commit added its file:
+        List<HistoryInfo> lastPage = secondRecorder.pages.get(2);
+        Assert.assertEquals(List.of("C0.java"), Arrays.asList(lastPage.get(lastPage.size() - 1).getFiles()));
+    }
+
+    @Test
+    public void testSeparateRepositories()
+    {
+        // The history window may make a new repository object each time it is opened:
+        GitHistoryCommand command = new GitHistoryCommand(repository, new PageRecorder());
+        Assert.assertFalse(command.getResult().isError());
+        Assert.assertEquals(COMMITS, command.getFilesComputedCount());
+
+        GitRepository secondRepository = new GitRepository(workTree, "file", workTree.toURI().toString(), null, null, null, "Test", "test@example.com");
+        PageRecorder secondRecorder = new PageRecorder();
+        GitHistoryCommand secondCommand = new GitHistoryCommand(secondRepository, secondRecorder);
+        Assert.assertFalse(secondCommand.getResult().isError());
+        Assert.assertEquals(0, secondCommand.getFilesComputedCount());
+        Assert.assertTrue(secondRecorder.filesFound.isEmpty());
+        Assert.assertEquals(3, secondRecorder.pages.size());
+    }
+
+    @Test
+    public void testCancel()
+    {
+        List<List<HistoryInfo>> pages = new ArrayList<>();
+        GitHistoryCommand[] command = new GitHistoryCommand[1];
+        command[0] = new GitHistoryCommand(repository, new LogHistoryListener() {
+            @Override
+            public void logInfoAvailable(HistoryInfo logInfo)
+            {
+                Assert.fail("History should be passed on in pages");
+            }
+
+            @Override
+            public void logPageAvailable(List<HistoryInfo> page)
+            {
+                pages.add(page);
+                command[0].cancel();
+            }
+        });
+        Assert.assertFalse(command[0].getResult().isError());
+        Assert.assertEquals(1, pages.size());
+        Assert.assertEquals(0, command[0].getFilesComputedCount());
+    }
+}
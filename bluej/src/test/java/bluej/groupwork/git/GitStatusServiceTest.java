@@ -0,0 +1,177 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.groupwork.git;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.StoredConfig;
+import org.eclipse.jgit.transport.RefSpec;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Git status service against working copies of a local bare repository,
+ * checking that its status is always the same as a full JGit status.
+ */
+public class GitStatusServiceTest
+{
+    private Path tempDir;
+    private File origin;
+    private Git work;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        tempDir = Files.createTempDirectory("gitstatus");
+        origin = tempDir.resolve("origin.git").toFile();
+        Git.init().setBare(true).setInitialBranch("main").setDirectory(origin).call().close();
+        work = cloneOrigin("work");
+        write(work, "A.java", "class A { }");
+        write(work, "src/B.java", "class B { }");
+        commitAndPush(work, "Initial");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        GitStatusService.close(work.getRepository().getWorkTree());
+        work.close();
+    }
+
+    private Git cloneOrigin(String name) throws Exception
+    {
+        Git git = Git.cloneRepository().setURI(origin.toURI().toString()).setDirectory(tempDir.resolve(name).toFile()).call();
+        // Cloning an empty repository doesn't set up the branch, or its tracking branch:
+        if (git.getRepository().resolve(Constants.HEAD) == null) {
+            git.getRepository().updateRef(Constants.HEAD).link("refs/heads/main");
+        }
+        StoredConfig config = git.getRepository().getConfig();
+        config.setString("branch", "main", "remote", "origin");
+        config.setString("branch", "main", "merge", "refs/heads/main");
+        config.save();
+        return git;
+    }
+
+    private static void write(Git git, String path, String content) throws IOException
+    {
+        Path file = git.getRepository().getWorkTree().toPath().resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private static void commitAndPush(Git git, String message) throws Exception
+    {
+        git.add().addFilepattern(".").call();
+        git.commit().setMessage(message).setAuthor("Test", "test@example.com").setCommitter("Test", "test@example.com").call();
+        git.push().setRefSpecs(new RefSpec("refs/heads/main:refs/heads/main")).call();
+    }
+
+    /**
+     * Check that the service's status is the same as JGit's.
+     */
+    private void assertStatus(GitStatusService service) throws Exception
+    {
+        GitStatusService.LocalStatus actual = service.getLocalStatus();
+        Status expected = work.status().call();
+        Assert.assertEquals("Missing", new TreeSet<>(expected.getMissing()), actual.getMissing());
+        Assert.assertEquals("Removed", new TreeSet<>(expected.getRemoved()), actual.getRemoved());
+        Assert.assertEquals("Uncommitted", new TreeSet<>(expected.getUncommittedChanges()), actual.getUncommittedChanges());
+        Assert.assertEquals("Untracked", new TreeSet<>(expected.getUntracked()), actual.getUntracked());
+        Assert.assertEquals("Untracked folders", new TreeSet<>(expected.getUntrackedFolders()), actual.getUntrackedFolders());
+        Assert.assertEquals("Conflicting", new TreeSet<>(expected.getConflicting()), actual.getConflicting());
+    }
+
+    @Test
+    public void testLocalStatus() throws Exception
+    {
+        GitStatusService service = GitStatusService.getService(work.getRepository().getWorkTree());
+        assertStatus(service);
+        Assert.assertEquals(1, service.getFullRefreshCount());
+
+        write(work, "A.java", "class A { int x; }");
+        assertStatus(service);
+        write(work, "C.java", "class C { }");
+        assertStatus(service);
+        write(work, "newdir/sub/D.java", "class D { }");
+        assertStatus(service);
+        Files.delete(work.getRepository().getWorkTree().toPath().resolve("src/B.java"));
+        assertStatus(service);
+        write(work, "newdir/sub/E.java", "class E { }");
+        assertStatus(service);
+        Set<String> untracked = service.getLocalStatus().getUntracked();
+        Assert.assertTrue(untracked.toString(), untracked.contains("newdir/sub/E.java"));
+        int fullRefreshes = service.getFullRefreshCount();
+        // Only the first status should have been a full one, unless the files can't be watched:
+        Assert.assertTrue(fullRefreshes == 1 || service.getIncrementalRefreshCount() == 0);
+
+        // Changing the index means a full status:
+        work.add().addFilepattern("C.java").call();
+        assertStatus(service);
+        write(work, ".gitignore", "*.class\n");
+        write(work, "A.class", "");
+        assertStatus(service);
+
+        commitAndPush(work, "Second");
+        assertStatus(service);
+    }
+
+    @Test
+    public void testRemoteStatus() throws Exception
+    {
+        GitStatusService service = GitStatusService.getService(work.getRepository().getWorkTree());
+        GitStatusService.RemoteStatus status = service.getRemoteStatus();
+        Assert.assertEquals(0, status.getBehindCount());
+        Assert.assertFalse(status.isAheadOnly());
+        Assert.assertTrue(status.getRemoteDiffs().isEmpty());
+        // Nothing has changed, so the comparison is kept:
+        Assert.assertSame(status, service.getRemoteStatus());
+        Assert.assertEquals(1, service.getRemoteRefreshCount());
+
+        try (Git other = cloneOrigin("other")) {
+            write(other, "F.java", "class F { }");
+            commitAndPush(other, "Add F");
+        }
+        work.fetch().call();
+        status = service.getRemoteStatus();
+        Assert.assertEquals(2, service.getRemoteRefreshCount());
+        Assert.assertEquals(1, status.getBehindCount());
+        Assert.assertEquals(1, status.getRemoteDiffs().size());
+        Assert.assertEquals("F.java", GitUtilities.getFileNameFromDiff(status.getRemoteDiffs().get(0)));
+
+        write(work, "G.java", "class G { }");
+        work.add().addFilepattern("G.java").call();
+        work.commit().setMessage("Add G").setAuthor("Test", "test@example.com").setCommitter("Test", "test@example.com").call();
+        status = service.getRemoteStatus();
+        Assert.assertEquals(3, service.getRemoteRefreshCount());
+        Assert.assertEquals("G.java", GitUtilities.getFileNameFromDiff(status.getLocalDiffs().get(0)));
+    }
+}
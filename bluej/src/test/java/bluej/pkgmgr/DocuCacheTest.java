@@ -0,0 +1,108 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that the documentation cache recognises documentation generated from unchanged
+ * sources, and forgets class documentation when project documentation is generated (and
+ * vice versa).
+ */
+public class DocuCacheTest
+{
+    private Path projectDir;
+    private File docDir;
+    private File sourceA;
+    private File sourceB;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        projectDir = Files.createTempDirectory("docucache");
+        docDir = projectDir.resolve("doc").toFile();
+        docDir.mkdir();
+        sourceA = projectDir.resolve("A.java").toFile();
+        sourceB = projectDir.resolve("B.java").toFile();
+        Files.writeString(sourceA.toPath(), "/** A */ public class A { }");
+        Files.writeString(sourceB.toPath(), "/** B */ public class B { }");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        try (var paths = Files.walk(projectDir)) {
+            paths.sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void testHash() throws Exception
+    {
+        String hash = DocuCache.hash("-author", List.of(sourceA, sourceB));
+        Assert.assertEquals(hash, DocuCache.hash("-author", List.of(sourceA, sourceB)));
+        Assert.assertNotEquals(hash, DocuCache.hash("-version", List.of(sourceA, sourceB)));
+        Assert.assertNotEquals(hash, DocuCache.hash("-author", List.of(sourceA)));
+
+        Files.writeString(sourceB.toPath(), "/** Changed */ public class B { }");
+        Assert.assertNotEquals(hash, DocuCache.hash("-author", List.of(sourceA, sourceB)));
+    }
+
+    @Test
+    public void testClassAndProject() throws Exception
+    {
+        File docA = new File(docDir, "A.html");
+        File docB = new File(docDir, "B.html");
+        String hashA = DocuCache.hash("", List.of(sourceA));
+        String hashB = DocuCache.hash("", List.of(sourceB));
+        String projectHash = DocuCache.hash("", List.of(sourceA, sourceB));
+
+        DocuCache cache = new DocuCache(docDir);
+        Assert.assertFalse(cache.isClassUpToDate(docA, hashA));
+        cache.recordClass(docA, hashA);
+        cache.recordClass(docB, hashB);
+        Assert.assertTrue(cache.isClassUpToDate(docA, hashA));
+        Assert.assertFalse(cache.isClassUpToDate(docA, hashB));
+
+        // The record is kept on disk:
+        cache = new DocuCache(docDir);
+        Assert.assertTrue(cache.isClassUpToDate(docB, hashB));
+
+        // Generating the project's documentation replaces the classes' pages:
+        cache.recordProject(projectHash);
+        Assert.assertTrue(cache.isProjectUpToDate(projectHash));
+        Assert.assertFalse(cache.isClassUpToDate(docA, hashA));
+
+        // And generating a class's documentation replaces one of the project's pages:
+        cache.recordClass(docA, hashA);
+        Assert.assertFalse(cache.isProjectUpToDate(projectHash));
+        Assert.assertTrue(new DocuCache(docDir).isClassUpToDate(docA, hashA));
+    }
+}
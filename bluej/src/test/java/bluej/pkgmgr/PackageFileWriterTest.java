@@ -0,0 +1,135 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that package files are only written when their properties change, and that
+ * a replaced file keeps its permissions and symbolic link.
+ */
+public class PackageFileWriterTest
+{
+    private Path dir;
+    private File file;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        dir = Files.createTempDirectory("pkgwriter");
+        file = dir.resolve("package.bluej").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        try (var paths = Files.walk(dir)) {
+            paths.sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static Properties props(String value)
+    {
+        Properties props = new Properties();
+        props.setProperty("package.name", "test");
+        props.setProperty("target1.x", value);
+        return props;
+    }
+
+    private static Properties load(Path path) throws Exception
+    {
+        Properties props = new Properties();
+        try (var in = Files.newInputStream(path)) {
+            props.load(in);
+        }
+        return props;
+    }
+
+    @Test
+    public void testUnchangedNotWritten() throws Exception
+    {
+        Assert.assertTrue(PackageFileWriter.store(props("10"), "BlueJ package file", file));
+        byte[] original = Files.readAllBytes(file.toPath());
+        FileTime oldTime = FileTime.fromMillis(1000000000000L);
+        Files.setLastModifiedTime(file.toPath(), oldTime);
+
+        // The header and date comments differ, but the properties are the same:
+        Assert.assertFalse(PackageFileWriter.store(props("10"), "Another header", file));
+        Assert.assertArrayEquals(original, Files.readAllBytes(file.toPath()));
+        Assert.assertEquals(oldTime, Files.getLastModifiedTime(file.toPath()));
+    }
+
+    @Test
+    public void testChangedReplaced() throws Exception
+    {
+        Assert.assertTrue(PackageFileWriter.store(props("10"), "BlueJ package file", file));
+        Assert.assertTrue(PackageFileWriter.store(props("20"), "BlueJ package file", file));
+        Assert.assertEquals("20", load(file.toPath()).getProperty("target1.x"));
+        // No temporary files left behind:
+        try (var paths = Files.list(dir)) {
+            Assert.assertEquals(1, paths.count());
+        }
+    }
+
+    @Test
+    public void testPermissionsKept() throws Exception
+    {
+        Assume.assumeTrue(dir.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        PackageFileWriter.store(props("10"), "BlueJ package file", file);
+        Set<PosixFilePermission> shared = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(file.toPath(), shared);
+
+        Assert.assertTrue(PackageFileWriter.store(props("20"), "BlueJ package file", file));
+        Assert.assertEquals(shared, Files.getPosixFilePermissions(file.toPath()));
+    }
+
+    @Test
+    public void testSymbolicLinkKept() throws Exception
+    {
+        Path target = dir.resolve("real.bluej");
+        Path link = file.toPath();
+        PackageFileWriter.store(props("10"), "BlueJ package file", target.toFile());
+        try {
+            Files.createSymbolicLink(link, target.getFileName());
+        }
+        catch (UnsupportedOperationException | java.io.IOException e) {
+            Assume.assumeNoException(e);
+        }
+
+        Assert.assertTrue(PackageFileWriter.store(props("20"), "BlueJ package file", file));
+        Assert.assertTrue(Files.isSymbolicLink(link));
+        Assert.assertEquals("20", load(target).getProperty("target1.x"));
+    }
+}
@@ -0,0 +1,317 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.pkgmgr;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Tests the planning of parallel rebuilds, and checks that a parallel rebuild of a
+ * generated project produces the same classes as a serial rebuild.
+ */
+public class ParallelRebuildTest
+{
+    private static final int LANES = 3;
+
+    @Test
+    public void testCyclesCompiledTogether()
+    {
+        // A -> B -> C -> B, D -> A, E independent:
+        Map<String, List<String>> deps = new HashMap<>();
+        deps.put("A", List.of("B"));
+        deps.put("B", List.of("C"));
+        deps.put("C", List.of("B"));
+        deps.put("D", List.of("A", "X"));
+        deps.put("E", List.of());
+        ParallelRebuild<String> rebuild = new ParallelRebuild<>(deps.keySet(), deps::get, LANES);
+        Assert.assertEquals(4, rebuild.getComponentCount());
+
+        List<List<String>> order = runInOrder(rebuild, deps);
+        List<String> flat = order.stream().flatMap(List::stream).collect(Collectors.toList());
+        Assert.assertEquals(Set.of("A", "B", "C", "D", "E"), new HashSet<>(flat));
+        Assert.assertEquals(5, flat.size());
+        // B and C must be in the same batch:
+        Assert.assertEquals(indexOfBatchWith(order, "B"), indexOfBatchWith(order, "C"));
+    }
+
+    @Test
+    public void testBatchesShared()
+    {
+        // Two independent chains of ten classes, and ten independent classes:
+        Map<String, List<String>> deps = new LinkedHashMap<>();
+        for (int i = 0; i < 10; i++) {
+            deps.put("A" + i, i == 0 ? List.of() : List.of("A" + (i - 1)));
+            deps.put("B" + i, i == 0 ? List.of() : List.of("B" + (i - 1)));
+            deps.put("C" + i, List.of());
+        }
+        ParallelRebuild<String> rebuild = new ParallelRebuild<>(deps.keySet(), deps::get, LANES);
+        Assert.assertEquals(30, rebuild.getComponentCount());
+        // Each chain can be compiled in one batch, at the same time as the other:
+        List<List<String>> order = runInOrder(rebuild, deps);
+        Assert.assertEquals(LANES, order.size());
+        Assert.assertEquals(indexOfBatchWith(order, "A0"), indexOfBatchWith(order, "A9"));
+        Assert.assertEquals(indexOfBatchWith(order, "B0"), indexOfBatchWith(order, "B9"));
+    }
+
+    @Test
+    public void testFailureSkipsDependents()
+    {
+        Map<String, List<String>> deps = new LinkedHashMap<>();
+        deps.put("A", List.of());
+        deps.put("B", List.of("A"));
+        deps.put("C", List.of("B"));
+        deps.put("D", List.of());
+        ParallelRebuild<String> rebuild = new ParallelRebuild<>(deps.keySet(), deps::get, 2);
+        ParallelRebuild.Batch<String> first = rebuild.nextBatch();
+        ParallelRebuild.Batch<String> second = rebuild.nextBatch();
+        Assert.assertNull(rebuild.nextBatch());
+        Assert.assertNotEquals(first.getLane(), second.getLane());
+        Assert.assertEquals(List.of("A", "B"), first.getTargets());
+        Assert.assertEquals(List.of("D"), second.getTargets());
+
+        Assert.assertEquals(List.of("C"), rebuild.batchFinished(first, false));
+        Assert.assertTrue(rebuild.batchFinished(second, true).isEmpty());
+        Assert.assertNull(rebuild.nextBatch());
+        Assert.assertTrue(rebuild.isFinished());
+    }
+
+    /**
+     * Hands out batches until none are available, then finishes them, until the rebuild
+     * is over, checking that each class's dependencies are compiled before it or with it.
+     */
+    private static List<List<String>> runInOrder(ParallelRebuild<String> rebuild, Map<String, List<String>> deps)
+    {
+        List<List<String>> order = new ArrayList<>();
+        Set<String> compiled = new HashSet<>();
+        while (! rebuild.isFinished()) {
+            List<ParallelRebuild.Batch<String>> out = new ArrayList<>();
+            for (ParallelRebuild.Batch<String> batch = rebuild.nextBatch(); batch != null; batch = rebuild.nextBatch()) {
+                for (String target : batch.getTargets()) {
+                    for (String dependency : deps.get(target)) {
+                        Assert.assertTrue(target, compiled.contains(dependency) || batch.getTargets().contains(dependency)
+                                || ! deps.containsKey(dependency));
+                    }
+                }
+                out.add(batch);
+                order.add(batch.getTargets());
+            }
+            Assert.assertFalse(out.isEmpty());
+            for (ParallelRebuild.Batch<String> batch : out) {
+                rebuild.batchFinished(batch, true);
+                compiled.addAll(batch.getTargets());
+            }
+        }
+        return order;
+    }
+
+    private static int indexOfBatchWith(List<List<String>> order, String target)
+    {
+        for (int i = 0; i < order.size(); i++) {
+            if (order.get(i).contains(target)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void testMatchesSerialRebuild() throws Exception
+    {
+        Path serialDir = Files.createTempDirectory("serial");
+        Path parallelDir = Files.createTempDirectory("parallel");
+        Map<String, List<String>> deps = generateProject(serialDir, 120, 4);
+        generateProject(parallelDir, 120, 4);
+
+        Assert.assertTrue(compile(serialDir, deps.keySet()));
+        Assert.assertTrue(compileInParallel(parallelDir, deps));
+
+        Map<Path, byte[]> serialClasses = classFiles(serialDir);
+        Map<Path, byte[]> parallelClasses = classFiles(parallelDir);
+        Assert.assertEquals(deps.size(), serialClasses.size());
+        Assert.assertEquals(serialClasses.keySet(), parallelClasses.keySet());
+        for (Path classFile : serialClasses.keySet()) {
+            Assert.assertArrayEquals(classFile.toString(), serialClasses.get(classFile), parallelClasses.get(classFile));
+        }
+    }
+
+    /**
+     * Times serial and parallel rebuilds of a generated 1000-class project.  This takes a
+     * while, so is only run if the bluej.benchmark property is set.
+     */
+    @Test
+    public void testBenchmark() throws Exception
+    {
+        Assume.assumeTrue(Boolean.getBoolean("bluej.benchmark"));
+        for (int run = 0; run < 3; run++) {
+            Path serialDir = Files.createTempDirectory("serial");
+            Path parallelDir = Files.createTempDirectory("parallel");
+            Map<String, List<String>> deps = generateProject(serialDir, 1000, 10);
+            generateProject(parallelDir, 1000, 10);
+
+            long start = System.nanoTime();
+            Assert.assertTrue(compile(serialDir, deps.keySet()));
+            long serial = System.nanoTime() - start;
+            start = System.nanoTime();
+            Assert.assertTrue(compileInParallel(parallelDir, deps));
+            long parallel = System.nanoTime() - start;
+            System.out.println("Rebuild of " + deps.size() + " classes: serial " + serial / 1000000 + "ms, parallel ("
+                    + LANES + " lanes) " + parallel / 1000000 + "ms");
+        }
+    }
+
+    /**
+     * Writes the sources of a project with the given number of classes, spread over the
+     * given number of packages, with dependencies (including some cycles) between them.
+     * The same classes are generated each time.
+     * 
+     * @return  The dependencies of each class (by qualified name)
+     */
+    private static Map<String, List<String>> generateProject(Path dir, int classCount, int packageCount) throws IOException
+    {
+        Random random = new Random(42);
+        Map<String, List<String>> deps = new LinkedHashMap<>();
+        String[] names = new String[classCount];
+        for (int i = 0; i < classCount; i++) {
+            names[i] = "p" + (i % packageCount) + ".C" + i;
+        }
+        for (int i = 0; i < classCount; i++) {
+            List<String> uses = new ArrayList<>();
+            String superclass = null;
+            if (i > 0 && random.nextInt(4) == 0) {
+                superclass = names[random.nextInt(i)];
+                uses.add(superclass);
+            }
+            int useCount = i == 0 ? 0 : random.nextInt(4);
+            for (int u = 0; u < useCount; u++) {
+                String used = names[random.nextInt(i)];
+                if (! uses.contains(used)) {
+                    uses.add(used);
+                }
+            }
+            // Some classes refer to the next one, which (as it may refer back) can make a cycle:
+            if (i + 1 < classCount && random.nextInt(10) == 0) {
+                uses.add(names[i + 1]);
+            }
+            deps.put(names[i], uses);
+
+            StringBuilder source = new StringBuilder();
+            source.append("package p").append(i % packageCount).append(";\n\n");
+            source.append("public class C").append(i);
+            if (superclass != null) {
+                source.append(" extends ").append(superclass);
+            }
+            source.append("\n{\n    public int value").append(i).append("() { return ").append(i).append("; }\n");
+            for (int u = 0; u < uses.size(); u++) {
+                source.append("    public int use").append(u).append("(").append(uses.get(u)).append(" other) { return other.hashCode() + ")
+                        .append(i).append("; }\n");
+            }
+            source.append("}\n");
+            Path file = dir.resolve(names[i].replace('.', File.separatorChar) + ".java");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, source);
+        }
+        return deps;
+    }
+
+    /**
+     * Compiles the given classes in the given directory, in the way that BlueJ does: the
+     * directory is the source path, class path and output directory.
+     */
+    private static boolean compile(Path dir, Set<String> classes) throws IOException
+    {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+            List<File> dirList = List.of(dir.toFile());
+            fileManager.setLocation(StandardLocation.SOURCE_PATH, dirList);
+            fileManager.setLocation(StandardLocation.CLASS_PATH, dirList);
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, dirList);
+            List<File> sources = classes.stream().map(c -> dir.resolve(c.replace('.', File.separatorChar) + ".java").toFile())
+                    .collect(Collectors.toList());
+            return compiler.getTask(null, fileManager, null, List.of("-g"), null, fileManager.getJavaFileObjectsFromFiles(sources)).call();
+        }
+    }
+
+    private static boolean compileInParallel(Path dir, Map<String, List<String>> deps) throws Exception
+    {
+        ParallelRebuild<String> rebuild = new ParallelRebuild<>(deps.keySet(), deps::get, LANES);
+        ExecutorService executor = Executors.newFixedThreadPool(LANES);
+        try {
+            CompletionService<ParallelRebuild.Batch<String>> completion = new ExecutorCompletionService<>(executor);
+            Set<Integer> lanesOut = new HashSet<>();
+            boolean successful = true;
+            while (! rebuild.isFinished()) {
+                for (ParallelRebuild.Batch<String> batch = rebuild.nextBatch(); batch != null; batch = rebuild.nextBatch()) {
+                    ParallelRebuild.Batch<String> thisBatch = batch;
+                    Assert.assertTrue(lanesOut.add(thisBatch.getLane()));
+                    completion.submit(() -> compile(dir, new HashSet<>(thisBatch.getTargets())) ? thisBatch : null);
+                }
+                ParallelRebuild.Batch<String> batch = completion.take().get();
+                if (batch == null) {
+                    successful = false;
+                    break;
+                }
+                lanesOut.remove(batch.getLane());
+                rebuild.batchFinished(batch, true);
+            }
+            return successful;
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Map<Path, byte[]> classFiles(Path dir) throws IOException
+    {
+        Map<Path, byte[]> classFiles = new HashMap<>();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".class")).collect(Collectors.toList())) {
+                classFiles.put(dir.relativize(file), Files.readAllBytes(file));
+            }
+        }
+        return classFiles;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ This file is part of the BlueJ program. 
+ Copyright (C) 2026  Michael Kolling and John Rosenberg
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package bluej.views;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that views are discarded with their class loader, and that the comments of
+ * unchanged classes are reused by the views of the next class loader.
+ */
+public class ViewTest
+{
+    /** A class to load from a temporary directory, using a fresh class loader each time */
+    public static class Sample
+    {
+        public int sample()
+        {
+            return 0;
+        }
+    }
+
+    private Path classDir;
+    private File ctxtFile;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        classDir = Files.createTempDirectory("viewtest");
+        String path = Sample.class.getName().replace('.', '/');
+        File classFile = classDir.resolve(path + ".class").toFile();
+        classFile.getParentFile().mkdirs();
+        try (InputStream in = Sample.class.getResourceAsStream("/" + path + ".class")) {
+            Files.write(classFile.toPath(), in.readAllBytes());
+        }
+        ctxtFile = classDir.resolve(path + ".ctxt").toFile();
+        writeComment("First comment");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        try (var paths = Files.walk(classDir)) {
+            paths.sorted((a, b) -> b.compareTo(a)).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private void writeComment(String text) throws Exception
+    {
+        Files.writeString(ctxtFile.toPath(), "numComments=1\n"
+                + "comment0.target=int sample()\n"
+                + "comment0.text=" + text + "\n");
+    }
+
+    private URLClassLoader newLoader() throws Exception
+    {
+        // No parent other than the bootstrap loader, so that the sample class is loaded afresh:
+        return new URLClassLoader(new URL[] {classDir.toUri().toURL()}, null);
+    }
+
+    private static MethodView getSampleMethod(ClassLoader loader) throws Exception
+    {
+        View view = View.getView(loader.loadClass(Sample.class.getName()));
+        for (MethodView method : view.getDeclaredMethods()) {
+            if (method.getName().equals("sample")) {
+                return method;
+            }
+        }
+        Assert.fail("Method not found");
+        return null;
+    }
+
+    @Test
+    public void testViewsPerLoader() throws Exception
+    {
+        try (URLClassLoader loader = newLoader()) {
+            Class<?> cl = loader.loadClass(Sample.class.getName());
+            View view = View.getView(cl);
+            Assert.assertSame(view, View.getView(cl));
+            Assert.assertSame(view.getAllMethods(), view.getAllMethods());
+
+            View.removeAll(loader);
+            Assert.assertNotSame(view, View.getView(cl));
+            View.removeAll(loader);
+        }
+    }
+
+    @Test
+    public void testCommentsReused() throws Exception
+    {
+        Comment first;
+        try (URLClassLoader loader = newLoader()) {
+            first = getSampleMethod(loader).getComment();
+            Assert.assertEquals("First comment", first.getText());
+            View.removeAll(loader);
+        }
+
+        try (URLClassLoader loader = newLoader()) {
+            // The files are unchanged, so the comment can be reused:
+            Assert.assertSame(first, getSampleMethod(loader).getComment());
+            View.removeAll(loader);
+        }
+
+        writeComment("Second comment, which is longer");
+        try (URLClassLoader loader = newLoader()) {
+            Assert.assertEquals("Second comment, which is longer", getSampleMethod(loader).getComment().getText());
+            View.removeAll(loader);
+        }
+    }
+
+    @Test
+    public void testRetiredCommentsTakenOnce() throws Exception
+    {
+        Comment first;
+        try (URLClassLoader loader = newLoader()) {
+            first = getSampleMethod(loader).getComment();
+            View.removeAll(loader);
+        }
+
+        try (URLClassLoader loader2 = newLoader(); URLClassLoader loader3 = newLoader()) {
+            Assert.assertSame(first, getSampleMethod(loader2).getComment());
+            // The second generation took the comments, so a third generation loaded alongside
+            // it must read them afresh:
+            Assert.assertNotSame(first, getSampleMethod(loader3).getComment());
+            View.removeAll(loader2);
+            View.removeAll(loader3);
+        }
+    }
+
+    @Test
+    public void testProjectClosed() throws Exception
+    {
+        Comment first;
+        try (URLClassLoader loader = newLoader()) {
+            first = getSampleMethod(loader).getComment();
+            View.removeAll(loader);
+        }
+        View.removeProject(null, classDir.toFile());
+
+        try (URLClassLoader loader = newLoader()) {
+            Comment second = getSampleMethod(loader).getComment();
+            Assert.assertNotSame(first, second);
+            Assert.assertEquals("First comment", second.getText());
+            View.removeProject(loader, classDir.toFile());
+            // The view was removed along with the loader:
+            Assert.assertNotSame(second, getSampleMethod(loader).getComment());
+            View.removeAll(loader);
+        }
+    }
+}
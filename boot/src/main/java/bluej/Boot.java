@@ -1,6 +1,6 @@
 /*
  This file is part of the BlueJ program. 
- Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024  Michael Kolling and John Rosenberg
+ Copyright (C) 1999-2009,2010,2011,2012,2013,2014,2015,2016,2017,2018,2019,2020,2021,2022,2023,2024,2026  Michael Kolling and John Rosenberg
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -35,7 +35,9 @@ import java.lang.reflect.InvocationTargetException;
 import java.net.*;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -61,7 +63,7 @@ public class Boot
     // executed to change them here and elsewhere where needed.
     public static final String BLUEJ_VERSION = "5.4.2";
     public static final String GREENFOOT_VERSION = "3.9.0";
-    public static final String GREENFOOT_API_VERSION = "3.1.0";
+    public static final String GREENFOOT_API_VERSION = "3.2.0";
 
     public static final String BLUEJ_VERSION_TITLE = "BlueJ " + BLUEJ_VERSION;
     
@@ -115,6 +117,11 @@ public class Boot
     
     public static String[] cmdLineArgs;      // Command line arguments
 
+    // The time (from System.nanoTime) at which each boot phase finished, in order.  These are
+    // logged by bluej.utility.StartupMonitor once logging has been set up:
+    @OnThread(value = Tag.Any, requireSynchronized = true)
+    private static final Map<String, Long> bootPhaseTimes = new LinkedHashMap<>();
+
     // ---- instance part ----
     private final Properties commandLineProps; //Properties specified a the command line (-....)
     private File javaHomeDir;   // The value returned by System.getProperty
@@ -165,6 +172,7 @@ public class Boot
      */
     public static void main(String[] args)
     {
+        recordBootPhase("launched");
         cmdLineArgs = args;
         Application.launch(App.class, args);
     }
@@ -296,6 +304,7 @@ public class Boot
         
         try {
             instance = new Boot(commandLineProps, image);
+            recordBootPhase("splash window shown");
             instance.bootBluej();
         }
         catch (Throwable t) {
@@ -324,6 +333,24 @@ public class Boot
         return instance;
     }
 
+    /**
+     * Record that the given phase of booting has just finished.
+     */
+    @OnThread(Tag.Any)
+    private static synchronized void recordBootPhase(String phase)
+    {
+        bootPhaseTimes.put(phase, System.nanoTime());
+    }
+
+    /**
+     * Get the time (from System.nanoTime) at which each boot phase finished, in order.
+     */
+    @OnThread(Tag.Any)
+    public static synchronized Map<String, Long> getBootPhaseTimes()
+    {
+        return new LinkedHashMap<>(bootPhaseTimes);
+    }
+
     /**
      * Returns the BlueJ library directory.
      *
@@ -549,9 +576,11 @@ public class Boot
         initializeBoot();
         try {
             URLClassLoader runtimeLoader = new URLClassLoader(runtimeClassPath, bootLoader);
+            recordBootPhase("runtime class loader created");
  
             // Construct a bluej.Main object. This starts BlueJ "proper".
             Class<?> mainClass = Class.forName("bluej.Main", true, runtimeLoader);
+            recordBootPhase("main class loaded");
             mainClass.getDeclaredConstructor(ClassLoader.class).newInstance(runtimeLoader);
             
         } catch (ClassNotFoundException | InstantiationException | NoSuchMethodException 
@@ -705,6 +734,7 @@ public class Boot
         @Override
         @OnThread(value = Tag.FXPlatform, ignoreParent = true)
         public void start(Stage s) throws Exception {
+            recordBootPhase("JavaFX started");
             Platform.setImplicitExit(false);
             s.setTitle("BlueJ");
             new Thread(() -> subMain(), "subMain thread").start();
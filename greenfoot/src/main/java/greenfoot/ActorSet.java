@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2005-2009,2011  Poul Henriksen and Michael Kolling 
+ Copyright (C) 2005-2009,2011,2026  Poul Henriksen and Michael Kolling 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -25,24 +25,75 @@ import threadchecker.OnThread;
 import threadchecker.Tag;
 
 import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
- * This is an ordered set. 
+ * This is an ordered set. Actors are iterated in the order they were added.
+ * 
+ * <p>The actors are held in a dense array in iteration order, alongside an
+ * array of their sequence numbers. An open-addressing hash table (with linear
+ * probing) of sequence numbers maps each actor to its index in the dense
+ * arrays, so adding an actor does not allocate.
+ * 
+ * <p>Removing an actor leaves a tombstone (null) in the dense array, which
+ * iteration skips. Once tombstones outnumber the actors, the arrays are
+ * compacted, keeping the order; this keeps removal amortised O(1).
  * 
  * @author Davin McCall
  */
 public class ActorSet extends AbstractSet<Actor>
 {
-    private ListNode listHeadTail = new ListNode();
+    private static final int MIN_CAPACITY = 8;
     
-    private ListNode [] hashMap = new ListNode[0];
+    /** The actors in iteration order, with null for removed actors */
+    private Actor [] actors;
+    /** The sequence numbers of the actors, at the same indices */
+    private int [] sequenceNumbers;
+    /** The number of used entries (including tombstones) in the dense arrays */
+    private int end = 0;
+    
+    /**
+     * Hash table of dense array index + 1, with 0 for an empty slot. Its
+     * length is a power of two, at least twice the length of the dense arrays.
+     */
+    private int [] hashTable;
+    private int hashShift;
     
     private int numActors = 0;
     
+    /** Number of times the dense arrays have been compacted, for iterators */
+    private int compactions = 0;
+    
     /** Sum of sequence numbers of contained actors */
     private int myHashCode = 0;
 
+    /**
+     * Construct an empty ActorSet.
+     */
+    public ActorSet()
+    {
+        this(MIN_CAPACITY);
+    }
+    
+    /**
+     * Construct an empty ActorSet with room for the given number of actors.
+     */
+    public ActorSet(int expectedSize)
+    {
+        allocate(Math.max(MIN_CAPACITY, expectedSize));
+    }
+    
+    private void allocate(int capacity)
+    {
+        actors = new Actor[capacity];
+        sequenceNumbers = new int[capacity];
+        int tableBits = 32 - Integer.numberOfLeadingZeros(capacity * 2 - 1);
+        hashTable = new int[1 << tableBits];
+        hashShift = 32 - tableBits;
+    }
 
     @OnThread(value = Tag.Simulation, ignoreParent = true)
     @Override
@@ -50,53 +101,106 @@ public class ActorSet extends AbstractSet<Actor>
     {
         return myHashCode;
     }
+    
+    /**
+     * Get the hash table slot at which to start looking for a sequence number.
+     */
+    private int hashSlot(int seq)
+    {
+        // Fibonacci hashing spreads consecutive sequence numbers over the table
+        return (seq * 0x9E3779B9) >>> hashShift;
+    }
 
     @OnThread(value = Tag.Simulation, ignoreParent = true)
     @Override
     public boolean add(Actor actor)
     {
-        if (containsActor(actor)) {
-            return false;
-        }
-        
-        numActors++;
-        ListNode newNode = new ListNode(actor, listHeadTail.prev);
-        
         int seq = ActorVisitor.getSequenceNumber(actor);
-        if (numActors >= 2 * hashMap.length) {
-            // grow the hashmap
-            resizeHashmap();
+        int mask = hashTable.length - 1;
+        int slot = hashSlot(seq);
+        for (int entry = hashTable[slot]; entry != 0; entry = hashTable[slot]) {
+            if (actors[entry - 1] == actor) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
         }
-        else {
-            int hash = seq % hashMap.length;
-            ListNode hashHead = hashMap[hash];
-            hashMap[hash] = newNode;
-            newNode.setHashListHead(hashHead);
+        
+        if (end == actors.length) {
+            makeRoom(numActors + 1);
+            // The table has been rebuilt, so find the slot again:
+            mask = hashTable.length - 1;
+            slot = hashSlot(seq);
+            while (hashTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
         }
         
+        actors[end] = actor;
+        sequenceNumbers[end] = seq;
+        hashTable[slot] = ++end;
+        numActors++;
         myHashCode += seq;
         return true;
     }
 
-    private void resizeHashmap()
+    @OnThread(value = Tag.Simulation, ignoreParent = true)
+    @Override
+    public boolean addAll(Collection<? extends Actor> c)
     {
-        hashMap = new ListNode[numActors];
-        ListNode currentActor = listHeadTail.next;
-        while (currentActor != listHeadTail) {
-            int seq = ActorVisitor.getSequenceNumber(currentActor.actor);
-            int hash = seq % numActors;
-            ListNode hashHead = hashMap[hash];
-            hashMap[hash] = currentActor;
-            currentActor.setHashListHead(hashHead);
-            
-            currentActor = currentActor.next;
+        if (end + c.size() > actors.length) {
+            makeRoom(numActors + c.size());
         }
+        return super.addAll(c);
+    }
+    
+    /**
+     * Make room in the dense arrays for at least the given number of actors,
+     * compacting them if there are enough tombstones, or growing them otherwise.
+     */
+    private void makeRoom(int required)
+    {
+        Actor [] oldActors = actors;
+        int [] oldSequenceNumbers = sequenceNumbers;
+        int oldEnd = end;
+        if (required > actors.length * 3 / 4) {
+            allocate(Math.max(required, actors.length * 2));
+        }
+        else if (required < actors.length / 4 && actors.length > MIN_CAPACITY) {
+            allocate(Math.max(MIN_CAPACITY, required * 2));
+        }
+        else {
+            // Just compact (the hash table must still be rebuilt):
+            hashTable = new int[hashTable.length];
+        }
+        
+        end = 0;
+        for (int i = 0; i < oldEnd; i++) {
+            if (oldActors[i] != null) {
+                actors[end] = oldActors[i];
+                sequenceNumbers[end] = oldSequenceNumbers[i];
+                end++;
+            }
+        }
+        // Clear any tombstones left over when compacting in place:
+        for (int i = end; i < oldEnd && actors == oldActors; i++) {
+            actors[i] = null;
+        }
+        
+        int mask = hashTable.length - 1;
+        for (int i = 0; i < end; i++) {
+            int slot = hashSlot(sequenceNumbers[i]);
+            while (hashTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            hashTable[slot] = i + 1;
+        }
+        compactions++;
     }
 
     @OnThread(value = Tag.Simulation, ignoreParent = true)
     public boolean containsActor(Actor actor)
     {
-        return getActorNode(actor) != null; 
+        return findSlot(actor) != -1; 
     }
 
     @OnThread(value = Tag.Simulation, ignoreParent = true)
@@ -111,68 +215,62 @@ public class ActorSet extends AbstractSet<Actor>
     }
     
     /**
-     * Get the list node for an actor (null if the actor is not in the set).
+     * Get the hash table slot for an actor (-1 if the actor is not in the set).
      */
-    private ListNode getActorNode(Actor actor)
+    private int findSlot(Actor actor)
     {
-        if (hashMap.length == 0) {
-            return null;
-        }
-        
-        int seq = ActorVisitor.getSequenceNumber(actor);
-        int hash = seq % hashMap.length;
-        ListNode hashHead = hashMap[hash];
-        
-        if (hashHead == null) {
-            return null;
-        }
-        else if (hashHead.actor == actor) {
-            return hashHead;
-        }
-        
-        ListNode curNode = hashHead.nextHash;
-        while (curNode != hashHead) {
-            if (curNode.actor == actor) {
-                return curNode;
+        int mask = hashTable.length - 1;
+        int slot = hashSlot(ActorVisitor.getSequenceNumber(actor));
+        for (int entry = hashTable[slot]; entry != 0; entry = hashTable[slot]) {
+            if (actors[entry - 1] == actor) {
+                return slot;
             }
-            curNode = curNode.nextHash;
+            slot = (slot + 1) & mask;
         }
-        
-        return null;
+        return -1;
     }
 
     public boolean remove(Actor actor)
     {
-        ListNode actorNode = getActorNode(actor);
-        
-        if (actorNode != null) {
-            remove(actorNode);
-            myHashCode -= ActorVisitor.getSequenceNumber(actor);
-            return true;
-        }
-        else {
+        int slot = findSlot(actor);
+        if (slot == -1) {
             return false;
         }
+        
+        removeSlot(slot);
+        if (end - numActors > numActors && end > MIN_CAPACITY) {
+            // Mostly tombstones; compact so that iteration doesn't have to skip them
+            makeRoom(numActors);
+        }
+        return true;
     }
     
-    private void remove(ListNode actorNode)
+    /**
+     * Remove the actor in the given hash table slot, leaving a tombstone in
+     * the dense arrays.
+     */
+    private void removeSlot(int slot)
     {
-        int seq = ActorVisitor.getSequenceNumber(actorNode.actor);
-        int hash = seq % hashMap.length;
-        if (hashMap[hash] == actorNode) {
-            hashMap[hash] = actorNode.nextHash;
-            if (hashMap[hash] == actorNode) {
-                // The circular list had only one element
-                hashMap[hash] = null;
-            }
-        }
-        
-        actorNode.remove();
+        int index = hashTable[slot] - 1;
+        myHashCode -= sequenceNumbers[index];
+        actors[index] = null;
         numActors--;
-        if (numActors <= hashMap.length / 2) {
-            // shrink the hashMap
-            resizeHashmap();
+        
+        // Shift back any later entries in the probe sequence which would no
+        // longer be found once this slot is empty:
+        int mask = hashTable.length - 1;
+        int gap = slot;
+        int next = (slot + 1) & mask;
+        while (hashTable[next] != 0) {
+            int home = hashSlot(sequenceNumbers[hashTable[next] - 1]);
+            // Move the entry if its home slot is not between the gap and its slot:
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                hashTable[gap] = hashTable[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
         }
+        hashTable[gap] = 0;
     }
 
     @OnThread(value = Tag.Simulation, ignoreParent = true)
@@ -189,95 +287,75 @@ public class ActorSet extends AbstractSet<Actor>
         return new ActorSetIterator();
     }
     
-    @OnThread(Tag.Simulation)
-    private class ListNode
-    {
-        Actor actor;
-        ListNode next;
-        ListNode prev;
-        
-        // The node also appears in a linked list representing the hash bucket 
-        ListNode nextHash;
-        ListNode prevHash;
-        
-        public ListNode()
-        {
-            // actor, next, prev = null: this is the head/tail node
-            next = this;
-            prev = this;
-        }
-        
-        /**
-         * Create a new list node and insert it at the tail of the list.
-         * @param actor
-         * @param listTail
-         */
-        public ListNode(Actor actor, ListNode listTail)
-        {
-            this.actor = actor;
-            next = listTail.next;
-            prev = listTail;
-            listTail.next = this;
-            next.prev = this;
-        }
-        
-        /**
-         * Set this node as the new head node in a hash bucket list.
-         * @param oldHead  The original head node in the bucket
-         */
-        public void setHashListHead(ListNode oldHead)
-        {
-            if (oldHead == null) {
-                nextHash = this;
-                prevHash = this;
-            }
-            else {
-                nextHash = oldHead;
-                prevHash = oldHead.prevHash;
-                oldHead.prevHash = this;
-                prevHash.nextHash = this;
-            }
-        }
-        
-        public void remove()
-        {
-            next.prev = prev;
-            prev.next = next;
-            nextHash.prevHash = prevHash;
-            prevHash.nextHash = nextHash;
-        }
-    }
-    
     @OnThread(Tag.Simulation)
     private class ActorSetIterator implements Iterator<Actor>
     {
-        ListNode currentNode;
-        
-        public ActorSetIterator()
-        {
-            currentNode = listHeadTail;
-        }
+        /** Index in the dense arrays of the next actor to check */
+        int nextIndex = 0;
+        /** Index of the actor last returned by next(), or -1 */
+        int currentIndex = -1;
+        Actor current;
+        int expectedCompactions = compactions;
 
         @OnThread(value = Tag.Simulation, ignoreParent = true)
         @Override
         public boolean hasNext()
         {
-            return currentNode.next != listHeadTail;
+            checkForCompaction();
+            while (nextIndex < end && actors[nextIndex] == null) {
+                nextIndex++;
+            }
+            return nextIndex < end;
         }
 
         @OnThread(value = Tag.Simulation, ignoreParent = true)
         @Override
         public Actor next()
         {
-            currentNode = currentNode.next;
-            return currentNode.actor;
+            if (! hasNext()) {
+                throw new NoSuchElementException();
+            }
+            currentIndex = nextIndex++;
+            current = actors[currentIndex];
+            return current;
         }
 
         @OnThread(value = Tag.Simulation, ignoreParent = true)
         @Override
         public void remove()
         {
-            ActorSet.this.remove(currentNode);
+            checkForCompaction();
+            if (currentIndex == -1 || actors[currentIndex] == null) {
+                throw new IllegalStateException();
+            }
+            // Don't compact here, so that the iteration can continue:
+            removeSlot(findSlot(current));
+            currentIndex = -1;
+        }
+        
+        /**
+         * If the set has been compacted since the last call, find our place
+         * again: just after the actor last returned.
+         */
+        private void checkForCompaction()
+        {
+            if (compactions == expectedCompactions) {
+                return;
+            }
+            expectedCompactions = compactions;
+            if (current == null) {
+                if (nextIndex != 0) {
+                    throw new ConcurrentModificationException();
+                }
+                return;
+            }
+            int slot = findSlot(current);
+            if (slot == -1) {
+                // The actor we were at has gone, so we don't know where we are
+                throw new ConcurrentModificationException();
+            }
+            currentIndex = hashTable[slot] - 1;
+            nextIndex = currentIndex + 1;
         }
     }
 }
@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2005-2009,2010,2011,2012,2013,2014,2015,2016,2017,2019  Poul Henriksen and Michael Kolling
+ Copyright (C) 2005-2009,2010,2011,2012,2013,2014,2015,2016,2017,2019,2026  Poul Henriksen and Michael Kolling
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -23,12 +23,12 @@ package greenfoot;
 
 import greenfoot.util.GraphicsUtilities;
 import greenfoot.util.GreenfootUtil;
+import greenfoot.util.TextRasterCache;
 
 import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Composite;
-import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
@@ -83,6 +83,12 @@ public class GreenfootImage
      */
     private int transparency = 255;
 
+    /**
+     * The graphics object used for all drawing operations while a drawing session
+     * is in progress (see beginDrawing()), or null if there is no session.
+     */
+    private Graphics2D sessionGraphics;
+
     /**
      * Create an image from an image file. Supported file formats are JPEG, GIF
      * and PNG.
@@ -185,14 +191,9 @@ public class GreenfootImage
      */
     GreenfootImage(String string, int size, Color foreground, Color background, Color outline)
     {
-        String[] lines = GraphicsUtilities.splitLines(string);
-        GraphicsUtilities.MultiLineStringDimensions d = GraphicsUtilities.getMultiLineStringDimensions(lines, Font.BOLD, size);
-        image = GraphicsUtilities.createCompatibleTranslucentImage(d.getWidth(), d.getHeight());
-        Graphics2D g = (Graphics2D)image.getGraphics();
-        g.setColor(background == null ? new Color(0, 0, 0, 0) : background);
-        g.fillRect(0, 0, image.getWidth(), image.getHeight());
-        GraphicsUtilities.drawOutlinedText(g, d, foreground, outline);
-        g.dispose();
+        // The rendered text is shared with the cache, so must be copied before being modified:
+        image = TextRasterCache.getInstance().getTextImage(string, size, foreground, background, outline);
+        copyOnWrite = true;
     }
     
     /**
@@ -248,6 +249,7 @@ public class GreenfootImage
      */
     void createClone(GreenfootImage cachedImage)
     {
+        endDrawing();
         this.copyOnWrite = true;
         this.image = cachedImage.image;
         copyStates(cachedImage, this);
@@ -313,6 +315,8 @@ public class GreenfootImage
         if (image == null) {
             throw new IllegalArgumentException("Image must not be null.");
         }
+        // The session graphics (if any) draws on the old image:
+        endDrawing();
         this.image = getBufferedImage(image);
         copyOnWrite = false;
     }
@@ -327,23 +331,76 @@ public class GreenfootImage
      */
     public BufferedImage getAwtImage()
     {
+        // The caller may draw on the image with their own graphics, so we
+        // shouldn't keep any session graphics set up with our state:
+        endDrawing();
         ensureWritableImage();
         return image;
     }
     
     /**
-     * Remember to call dispose() when no longer using the graphics object.
+     * Remember to call releaseGraphics() when no longer using the graphics object.
+     * During a drawing session, this returns the session's graphics object.
      */
     private Graphics2D getGraphics()
     {
+        if (sessionGraphics != null) {
+            return sessionGraphics;
+        }
         if (copyOnWrite) {
-        ensureWritableImage();
+            ensureWritableImage();
         }
         Graphics2D graphics = image.createGraphics();
         initGraphics(graphics);
         return graphics;
     }
 
+    /**
+     * Releases a graphics object obtained from getGraphics().  The session graphics
+     * object is kept for further drawing; any other is disposed.
+     */
+    private void releaseGraphics(Graphics2D graphics)
+    {
+        if (graphics != sessionGraphics) {
+            graphics.dispose();
+        }
+    }
+
+    /**
+     * Begin a drawing session on this image.  Setting up for drawing takes some time, and
+     * usually each drawing method (such as fillRect or drawLine) does it again.  During a
+     * session, all the drawing methods share the same set-up, which is much faster if you
+     * make many drawing calls in a row (for example, drawing thousands of shapes in each
+     * act() call).
+     * 
+     * <p>The session lasts until endDrawing() is called, or until this image is drawn
+     * (for example, on the screen, or onto another image).  After that, drawing still works
+     * as normal, just without the speed-up.  It is fine to call beginDrawing() again when a
+     * session is already in progress.
+     * 
+     * @since 3.9.1
+     */
+    public void beginDrawing()
+    {
+        if (sessionGraphics == null) {
+            sessionGraphics = getGraphics();
+        }
+    }
+
+    /**
+     * End the current drawing session (see beginDrawing()).  It is fine to call this if
+     * there is no session in progress.
+     * 
+     * @since 3.9.1
+     */
+    public void endDrawing()
+    {
+        if (sessionGraphics != null) {
+            sessionGraphics.dispose();
+            sessionGraphics = null;
+        }
+    }
+
     /**
      * Initialises the graphics. Should be called whenever we have created a
      * graphics for this image.
@@ -442,9 +499,9 @@ public class GreenfootImage
      */
     public void fill()
     {
-        Graphics g = getGraphics();
+        Graphics2D g = getGraphics();
         g.fillRect(0, 0, getWidth(), getHeight());
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -458,7 +515,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         image.drawImage(g, x, y, null, true);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -469,6 +526,10 @@ public class GreenfootImage
      */
     void drawImage(Graphics2D g, int x, int y, ImageObserver observer, boolean useTransparency)
     {
+        // Being drawn ends the drawing session (unless we are drawing onto ourselves):
+        if (g != sessionGraphics) {
+            endDrawing();
+        }
         Composite oldComposite = null;
         if(useTransparency) {
             float opacity = getTransparency() / 255f;
@@ -495,6 +556,9 @@ public class GreenfootImage
     public void setFont(greenfoot.Font f)
     {
         currentFont = f;
+        if (sessionGraphics != null && f != null) {
+            sessionGraphics.setFont(f.getFontObject());
+        }
     }
     
     /**
@@ -521,6 +585,9 @@ public class GreenfootImage
         if (color == null)
             throw new NullPointerException("Cannot set color of GreenfootImage to null");
         currentColor = color;
+        if (sessionGraphics != null) {
+            sessionGraphics.setColor(color.getColorObject());
+        }
     }
 
     /**
@@ -559,6 +626,110 @@ public class GreenfootImage
         setRGBAt(x, y, color.getColorObject().getRGB());
     }
 
+    /**
+     * Copy the colors of a rectangle of pixels into an array.  Each color is an int in ARGB
+     * format: the alpha, red, green and blue values (each 0 to 255) in the top to bottom
+     * bytes.  The pixels are stored row by row, so pixel (x + i, y + j) is stored at index
+     * (j * width + i).
+     * 
+     * <p>This is much faster than calling getColorAt for each pixel.
+     * 
+     * @param x The horizontal coordinate of the rectangle's top-left pixel.
+     * @param y The vertical coordinate of the rectangle's top-left pixel.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param pixels The array to store the colors in.  Must have at least width * height items.
+     * @throws IndexOutOfBoundsException If the rectangle is not within the image bounds.
+     * @throws IllegalArgumentException If the array is too small.
+     * @since 3.9.1
+     */
+    public void getPixels(int x, int y, int width, int height, int[] pixels)
+    {
+        checkPixelRegion(x, y, width, height, pixels);
+        if (width == 0 || height == 0) {
+            return;
+        }
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            // The data is already in the right format, so we can copy it straight out:
+            image.getRaster().getDataElements(x, y, width, height, pixels);
+        }
+        else {
+            image.getRGB(x, y, width, height, pixels, 0, width);
+        }
+    }
+
+    /**
+     * Set the colors of a rectangle of pixels from an array.  The array is in the same format
+     * as for getPixels.
+     * 
+     * <p>This is much faster than calling setColorAt for each pixel.
+     * 
+     * @param x The horizontal coordinate of the rectangle's top-left pixel.
+     * @param y The vertical coordinate of the rectangle's top-left pixel.
+     * @param width The width of the rectangle.
+     * @param height The height of the rectangle.
+     * @param pixels The colors to set.  Must have at least width * height items.
+     * @throws IndexOutOfBoundsException If the rectangle is not within the image bounds.
+     * @throws IllegalArgumentException If the array is too small.
+     * @since 3.9.1
+     */
+    public void setPixels(int x, int y, int width, int height, int[] pixels)
+    {
+        checkPixelRegion(x, y, width, height, pixels);
+        if (width == 0 || height == 0) {
+            return;
+        }
+        ensureWritableImage();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB) {
+            image.getRaster().setDataElements(x, y, width, height, pixels);
+        }
+        else {
+            image.setRGB(x, y, width, height, pixels, 0, width);
+        }
+    }
+
+    /**
+     * Get the colors of all the pixels in the image, in the format described in getPixels.
+     * 
+     * @return A new array with getWidth() * getHeight() items.
+     * @since 3.9.1
+     */
+    public int[] getPixels()
+    {
+        int[] pixels = new int[getWidth() * getHeight()];
+        getPixels(0, 0, getWidth(), getHeight(), pixels);
+        return pixels;
+    }
+
+    /**
+     * Set the colors of all the pixels in the image, from an array in the format described
+     * in getPixels.
+     * 
+     * @param pixels The colors to set.  Must have at least getWidth() * getHeight() items.
+     * @throws IllegalArgumentException If the array is too small.
+     * @since 3.9.1
+     */
+    public void setPixels(int[] pixels)
+    {
+        setPixels(0, 0, getWidth(), getHeight(), pixels);
+    }
+
+    private void checkPixelRegion(int x, int y, int width, int height, int[] pixels)
+    {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Width and height must not be negative. They were: "
+                    + width + " and " + height);
+        }
+        if (x < 0 || y < 0 || x + width > getWidth() || y + height > getHeight()) {
+            throw new IndexOutOfBoundsException("Rectangle (" + x + ", " + y + ", " + width + ", " + height
+                    + ") is not within the image, which is " + getWidth() + " by " + getHeight());
+        }
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel array has " + pixels.length
+                    + " items, but needs at least " + (width * height));
+        }
+    }
+
     /**
      * Set the transparency of the image.
      * 
@@ -649,7 +820,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.fillRect(x, y, width, height);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -659,7 +830,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.clearRect(0, 0, getWidth(), getHeight());
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -678,7 +849,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawRect(x, y, width, height);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -701,7 +872,7 @@ public class GreenfootImage
             g.drawString(lines[i], x, y + (i * height));
         }
         
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -714,7 +885,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.draw(shape);
-        g.dispose();
+        releaseGraphics(g);
     }
 
 
@@ -733,7 +904,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.fillOval(x, y, width, height);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -751,7 +922,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawOval(x, y, width, height);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -778,7 +949,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.fillPolygon(xPoints, yPoints, nPoints);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -802,7 +973,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawPolygon(xPoints, yPoints, nPoints);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -818,7 +989,7 @@ public class GreenfootImage
     {
         Graphics2D g = getGraphics();
         g.drawLine(x1, y1, x2, y2);
-        g.dispose();
+        releaseGraphics(g);
     }
 
     /**
@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2005-2009  Poul Henriksen and Michael Kolling 
+ Copyright (C) 2005-2009,2026  Poul Henriksen and Michael Kolling 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -50,7 +50,7 @@ public class TreeActorSet extends AbstractSet<Actor>
      */
     public TreeActorSet()
     {
-        subSets = new LinkedList<ActorSet>();
+        subSets = new ArrayList<ActorSet>();
         generalSet = new ActorSet();
         subSets.add(generalSet);
         
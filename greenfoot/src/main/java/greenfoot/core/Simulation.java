@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2005-2010,2011,2012,2013,2014,2016,2019,2021,2023  Poul Henriksen and Michael Kolling
+ Copyright (C) 2005-2010,2011,2012,2013,2014,2016,2019,2021,2023,2026  Poul Henriksen and Michael Kolling
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -31,6 +31,7 @@ import greenfoot.event.SimulationListener.SyncEvent;
 import greenfoot.event.WorldEvent;
 import greenfoot.event.WorldListener;
 import greenfoot.util.HDTimer;
+import greenfoot.util.RateCounter;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
@@ -99,6 +100,33 @@ public class Simulation extends Thread
     private long lastDelayTime;
     private long delay; // the speed translated into delay (nanoseconds)
 
+    /**
+     * The name of the project property which selects the scheduling used while running.
+     * With fixed-rate scheduling (the default), acts are scheduled at fixed intervals
+     * from each other, and the world is painted at most MIN_PAINT_INTERVAL apart, skipping
+     * paints while behind schedule.  Otherwise ("false"), the delay is measured from the
+     * end of the previous act, and the world is painted after every act unless it was
+     * painted very recently.
+     */
+    public static final String FIXED_RATE_PROPERTY = "simulation.fixedRate";
+    /** The shortest time between paints while running: roughly a display refresh. */
+    private static final long MIN_PAINT_INTERVAL = 16_666_667L;
+    /** The longest time between paints while running, even if behind schedule. */
+    private static final long MAX_PAINT_INTERVAL = 100_000_000L;
+    /** If more than this far behind schedule, start a new schedule rather than catching up. */
+    private static final long MAX_CATCH_UP = 250_000_000L;
+
+    /** Whether to use fixed-rate scheduling */
+    @OnThread(Tag.Any)
+    private volatile boolean fixedRate = true;
+    /** When the most recent act was due, for fixed-rate scheduling */
+    private long lastActDue;
+    /** When the world was last painted by the fixed-rate scheduler */
+    private long lastRunPaint;
+    /** The achieved act rate, while running */
+    @OnThread(Tag.Any)
+    private final RateCounter actRate = new RateCounter();
+
     /**
      * Lock to synchronize access to the two fields: delaying and interruptDelay
      */
@@ -362,6 +390,7 @@ public class Simulation extends Thread
                     try {
                         simulationWait();
                         lastDelayTime = System.nanoTime();
+                        lastActDue = lastDelayTime;
                     }
                     catch (InterruptedException e1) {
                         // Swallow the interrupt
@@ -396,6 +425,7 @@ public class Simulation extends Thread
     {
         isRunning = true;
         lastDelayTime = System.nanoTime();
+        lastActDue = lastDelayTime;
         fireSimulationEventSync(SyncEvent.STARTED);
         World world = worldHandler.getWorld();
         if (world != null) {
@@ -560,7 +590,10 @@ public class Simulation extends Thread
             throw interruptedException;
         }
         
-        // printUpdateRate(System.nanoTime());
+        if (isRunning)
+        {
+            actRate.count();
+        }
 
         repaintIfNeeded();
 
@@ -595,7 +628,23 @@ public class Simulation extends Thread
      */
     private void repaintIfNeeded()
     {
-        paintRemote(false);
+        if (!fixedRate || !isRunning)
+        {
+            paintRemote(false);
+            return;
+        }
+
+        // Paint no more often than the display can show.  If we are behind schedule
+        // (the next act is already due), skip painting so that the acts can catch up,
+        // but not for so long that the display appears to freeze:
+        long now = System.nanoTime();
+        long sincePaint = now - lastRunPaint;
+        boolean behind = delay > 0 && now > lastActDue + delay;
+        if (sincePaint >= MAX_PAINT_INTERVAL || (sincePaint >= MIN_PAINT_INTERVAL && !behind))
+        {
+            lastRunPaint = now;
+            paintRemote(true);
+        }
     }
     
     protected void paintRemote(boolean forcePaint)
@@ -604,21 +653,22 @@ public class Simulation extends Thread
     }
 
     /**
-     * Debug output to print the rate at which updates are performed
-     * (acts/second).
+     * Get the achieved rate of acts (per second) while running, or zero if not running.
      */
-    /*
-    private void printUpdateRate(long currentTime)
+    @OnThread(Tag.Any)
+    public float getActRate()
     {
-        //updates++;
+        return actRate.getRate();
+    }
 
-        long timeSinceUpdate = currentTime - lastUpdate;
-        if (timeSinceUpdate > 3000000000L) {
-            lastUpdate = currentTime;
-            //updates = 0;
-        }
+    /**
+     * Set whether to use fixed-rate scheduling while running (see FIXED_RATE_PROPERTY).
+     */
+    @OnThread(Tag.Any)
+    public void setFixedRate(boolean fixedRate)
+    {
+        this.fixedRate = fixedRate;
     }
-    */
 
     // Public methods etc.
 
@@ -954,8 +1004,8 @@ public class Simulation extends Thread
     private void delay()
     {
         long currentTime = System.nanoTime();
-        long timeElapsed = currentTime - lastDelayTime;
-        long actualDelay = Math.max(delay - timeElapsed, 0L);
+        long delayEnd = delayEnd(currentTime);
+        long actualDelay = Math.max(delayEnd - currentTime, 0L);
         
         synchronized (this)
         {
@@ -968,6 +1018,7 @@ public class Simulation extends Thread
                     if (paused || abort)
                     {
                         lastDelayTime = currentTime;
+                        lastActDue = currentTime;
                         return; // return... without delay
                     }
                 }
@@ -997,12 +1048,15 @@ public class Simulation extends Thread
                 }
             }
 
+            // The delay may have changed if we were interrupted by a speed change:
             currentTime = System.nanoTime();
-            timeElapsed = currentTime - lastDelayTime;
-            actualDelay = delay - timeElapsed;
+            delayEnd = delayEnd(currentTime);
+            actualDelay = delayEnd - currentTime;
         }
 
         lastDelayTime = currentTime;
+        // If the delay was cut short, the schedule restarts from now:
+        lastActDue = Math.min(delayEnd, currentTime);
         synchronized (interruptLock)
         {
             Thread.interrupted(); // clear interrupt, in case we were interrupted just after the delay
@@ -1012,6 +1066,26 @@ public class Simulation extends Thread
         fireSimulationEventSync(SyncEvent.DELAY_LOOP_COMPLETED);
     }
 
+    /**
+     * Work out when the current delay between acts should end.  With fixed-rate
+     * scheduling, this is measured from when the previous act was due (rather than
+     * when it happened), so that small oversleeps don't accumulate and time lost to a
+     * slow act is made up by the following ones, unless we are too far behind.
+     */
+    private long delayEnd(long currentTime)
+    {
+        if (!fixedRate)
+        {
+            return lastDelayTime + delay;
+        }
+        long due = lastActDue + delay;
+        if (currentTime - due > MAX_CATCH_UP)
+        {
+            due = currentTime;
+        }
+        return due;
+    }
+
     /**
      * Abort the simulation. It abruptly stops what is running and ends the
      * simulation thread, and it is not possible to start it again.
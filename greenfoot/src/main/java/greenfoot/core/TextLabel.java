@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2013,2014  Poul Henriksen and Michael Kolling 
+ Copyright (C) 2013,2014,2026  Poul Henriksen and Michael Kolling 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -21,11 +21,11 @@
  */
 package greenfoot.core;
 
-import greenfoot.util.GraphicsUtilities;
+import greenfoot.util.TextRasterCache;
 
 import java.awt.Color;
-import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
 
 /**
  * Representation for text labels appearing on the world.
@@ -37,8 +37,8 @@ public class TextLabel
     private final int xpos;
     private final int ypos;
     private final String text;
-    private final String[] lines;
-    private GraphicsUtilities.MultiLineStringDimensions dimensions;
+    /** The rendered text, shared with the TextRasterCache; kept while the label exists */
+    private BufferedImage raster;
     
     /**
      * Construct a TextLabel with the given text and position.
@@ -46,7 +46,6 @@ public class TextLabel
     public TextLabel(String s, int xpos, int ypos)
     {
         text = s;
-        lines = GraphicsUtilities.splitLines(text);
         this.xpos = xpos;
         this.ypos = ypos;
     }
@@ -58,20 +57,16 @@ public class TextLabel
      */
     public void draw(Graphics2D g, int cellsize)
     {
-        if (dimensions == null) {
-            dimensions = GraphicsUtilities.getMultiLineStringDimensions(lines, Font.BOLD, 25.0);
+        if (raster == null) {
+            raster = TextRasterCache.getInstance().getTextImage(text, 25.0, Color.WHITE, null, Color.BLACK);
         }
         
         // Position of base line:
-        int ydraw = ypos * cellsize - dimensions.getHeight() / 2 + cellsize / 2;
+        int ydraw = ypos * cellsize - raster.getHeight() / 2 + cellsize / 2;
         
-        int xdraw = xpos * cellsize - dimensions.getWidth() / 2 + cellsize / 2;
+        int xdraw = xpos * cellsize - raster.getWidth() / 2 + cellsize / 2;
         
-        g.translate(xdraw, ydraw);
-        
-        GraphicsUtilities.drawOutlinedText(g, dimensions, Color.WHITE, Color.BLACK);
-        
-        g.translate(-xdraw, -ydraw);
+        g.drawImage(raster, xdraw, ydraw, null);
     }
     
     /**
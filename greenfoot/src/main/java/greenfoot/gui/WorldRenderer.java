@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2018  Poul Henriksen and Michael Kolling 
+ Copyright (C) 2018,2026  Poul Henriksen and Michael Kolling 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -29,6 +29,7 @@ import greenfoot.World;
 import greenfoot.WorldVisitor;
 import greenfoot.core.TextLabel;
 import greenfoot.util.GreenfootUtil;
+import greenfoot.util.TextRasterCache;
 import threadchecker.OnThread;
 import threadchecker.Tag;
 
@@ -86,6 +87,7 @@ public class WorldRenderer
             WorldVisitor.paintDebug(drawWorld, g2);
             paintWorldText(g2, drawWorld);
         }
+        TextRasterCache.getInstance().endFrame();
     }
 
     /**
@@ -179,20 +181,11 @@ public class WorldRenderer
             return;
         }
 
-        // Set up rendering context:
-        Font origFont = g.getFont();
-        Color orig = g.getColor();
-        Object origAntiAliasing = g.getRenderingHint(RenderingHints.KEY_ANTIALIASING);
-
+        // Each label keeps its rendered text, so unchanged labels are not rendered again:
         int cellsize = WorldVisitor.getCellSize(drawWorld);
         for (TextLabel label : labels) {
             label.draw(g, cellsize);
         }
-
-        // Restore graphics context state:
-        g.setFont(origFont);
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, origAntiAliasing);
-        g.setColor(orig);
     }    
     
     /**
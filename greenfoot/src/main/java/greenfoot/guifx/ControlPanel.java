@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2018,2019  Poul Henriksen and Michael Kolling 
+ Copyright (C) 2018,2019,2026  Poul Henriksen and Michael Kolling 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -22,6 +22,7 @@
 package greenfoot.guifx;
 
 import bluej.Config;
+import bluej.utility.Utility;
 import bluej.utility.javafx.JavaFXUtil;
 import greenfoot.core.Simulation;
 import greenfoot.guifx.GreenfootStage.State;
@@ -72,6 +73,7 @@ public class ControlPanel extends GridPane
     private static final String RUN_BUTTON_TEXT = Config.getString("controls.run.button");
     private static final String RUN_BUTTON_TOOLTIP_TEXT = Config.getString("controls.run.shortDescription");
     private static final String PAUSE_BUTTON_TOOLTIP_TEXT = Config.getString("controls.pause.shortDescription");
+    private static final String SPEED_TOOLTIP_TEXT = Config.getString("controls.speedSlider.tooltip");
     
     private final Node run_icon = makeRunIcon();
     private final Node pause_icon = makePauseIcon();
@@ -136,7 +138,7 @@ public class ControlPanel extends GridPane
         speedSlider.setMajorTickUnit( max / 2 );
         speedSlider.setMinorTickCount(1);
         speedSlider.setBlockIncrement(20);
-        speedSlider.setTooltip(new Tooltip(Config.getString("controls.speedSlider.tooltip")));
+        speedSlider.setTooltip(new Tooltip(SPEED_TOOLTIP_TEXT));
         speedSlider.setFocusTraversable(false);
         speedSlider.setMaxWidth(150.0);
         speedSlider.setDisable(true);
@@ -241,6 +243,29 @@ public class ControlPanel extends GridPane
         speedSlider.setValue(simSpeed);
     }
 
+    /**
+     * Show the achieved act and paint rates in the speed slider's tooltip.
+     * 
+     * @param actRate  The acts per second while running, or zero if not running
+     * @param paintRate  The frames painted per second
+     */
+    public void setSimulationRates(float actRate, float paintRate)
+    {
+        // Only round to whole numbers if the rate is large enough:
+        String acts = actRate >= 10 ? Integer.toString(Math.round(actRate)) : String.format("%.1f", actRate);
+        String text = SPEED_TOOLTIP_TEXT;
+        if (actRate > 0)
+        {
+            text += "\n" + Utility.mergeStrings(Config.getString("controls.speedSlider.rates"),
+                    new String[] {acts, Integer.toString(Math.round(paintRate))});
+        }
+        // As with the run/pause button, only change the tooltip if needed:
+        if (!speedSlider.getTooltip().getText().equals(text))
+        {
+            speedSlider.getTooltip().setText(text);
+        }
+    }
+
     /**
      * Locks the controls: hides the act button and the speed slider.
      */
@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2017,2018,2019,2019,2020,2021,2022,2023,2024  Poul Henriksen and Michael Kolling
+ Copyright (C) 2017,2018,2019,2019,2020,2021,2022,2023,2024,2026  Poul Henriksen and Michael Kolling
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -2926,6 +2926,16 @@ public class GreenfootStage extends Stage implements FXCompileObserver,
         settingSpeedFromSimulation = false;
     }
 
+    /**
+     * Called with the latest achieved act and paint rates from the debug VM.
+     * @param actRate  The acts per second while running, or zero if not running
+     * @param paintRate  The frames painted per second
+     */
+    public void setSimulationRates(float actRate, float paintRate)
+    {
+        controlPanel.setSimulationRates(actRate, paintRate);
+    }
+
     /**
      * Show the readme file for this project in an editor window.
      */
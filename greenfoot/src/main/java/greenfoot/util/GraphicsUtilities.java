@@ -49,6 +49,8 @@ import java.awt.RenderingHints;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.imageio.ImageIO;
 
 /**
@@ -338,6 +340,9 @@ public class GraphicsUtilities {
         }
     }
 
+    /** The fonts chosen by setFontOfPixelHeight, keyed by style and target size */
+    private static final Map<String, Font> pixelHeightFonts = new ConcurrentHashMap<>();
+
     /**
      * Sets the font on the given graphics context to have the given style and target size
      * @param g
@@ -346,6 +351,16 @@ public class GraphicsUtilities {
      */
     private static void setFontOfPixelHeight(Graphics2D g, int style, double targetSize)
     {
+        // Finding the font size takes many font derivations, so remember the result.  The
+        // graphics context always comes from getMultiLineStringDimensions, so the font
+        // render context (and hence the result) is the same each time.
+        String key = style + ":" + targetSize;
+        Font cached = pixelHeightFonts.get(key);
+        if (cached != null) {
+            g.setFont(cached);
+            return;
+        }
+        
         // Likely DPI ranges for a monitor: 120 to 500 pixels per inch (via wikipedia)
         // An inch is 72 points, so range is something like 1 pixel per point to 8 pixels per point
         // So we explore from 1 point, up to the desired pixel size in points.
@@ -367,7 +382,7 @@ public class GraphicsUtilities {
             }
         }
         g.setFont(font);
-    
+        pixelHeightFonts.put(key, font);
     }
 
     // Splits lines by newlines, and strips \r:
@@ -0,0 +1,80 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.util;
+
+/**
+ * Measures how often something happens (e.g. acts or paints), in events per second,
+ * averaged over periods of about a second.  A gap of more than two seconds between
+ * events (e.g. while the simulation is paused) starts the measurement afresh, so
+ * rates of less than one event every two seconds are reported as zero.
+ * 
+ * <p>Events should always be counted from the same thread, but the rate may be
+ * read from any thread.
+ */
+public class RateCounter
+{
+    private static final long PERIOD = 1_000_000_000L;
+    private static final long MAX_GAP = 2 * PERIOD;
+
+    // Only accessed from the counting thread:
+    private int count;
+    private long periodStart = System.nanoTime();
+
+    private volatile long lastEventTime = periodStart;
+    private volatile float rate;
+
+    /**
+     * Counts one event.
+     */
+    public void count()
+    {
+        long now = System.nanoTime();
+        long sinceLast = now - lastEventTime;
+        lastEventTime = now;
+        if (sinceLast > MAX_GAP) {
+            // Start a new period from this event, rather than averaging the gap in:
+            count = 0;
+            periodStart = now;
+            rate = 0.0f;
+            return;
+        }
+        count++;
+        long elapsed = now - periodStart;
+        if (elapsed >= PERIOD) {
+            rate = count * 1e9f / elapsed;
+            count = 0;
+            periodStart = now;
+        }
+    }
+
+    /**
+     * Gets the rate, in events per second, over the most recent complete period.
+     * If there have been no events for a while, the rate is zero.
+     */
+    public float getRate()
+    {
+        if (System.nanoTime() - lastEventTime > MAX_GAP) {
+            return 0.0f;
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.util;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+
+/**
+ * A cache of rendered text, so that text which is drawn repeatedly (such as a score shown
+ * with World.showText, or made into an image each frame with the GreenfootImage text
+ * constructor) is only laid out and rasterized once.  The least recently used entries are
+ * evicted once the cache holds too many entries or too many pixels.
+ * 
+ * <p>The returned images are shared, and must not be modified.
+ * 
+ * <p>The cache also measures the time spent rasterizing text in each frame.  A frame ends
+ * each time endFrame() is called (by the world renderer); rasterizing outside of painting,
+ * e.g. in act(), counts towards the following frame.
+ * 
+ * <p>All methods are thread-safe.
+ */
+public class TextRasterCache
+{
+    private static final int MAX_ENTRIES = 256;
+    private static final long MAX_PIXELS = 4_000_000L;
+
+    private static final TextRasterCache instance = new TextRasterCache(MAX_ENTRIES, MAX_PIXELS);
+
+    private final int maxEntries;
+    private final long maxPixels;
+
+    /** The cached images, in least recently used order */
+    private final LinkedHashMap<Key, BufferedImage> images;
+    private long pixels = 0;
+
+    // Statistics:
+    private long frameNanos = 0;
+    private long totalNanos = 0;
+    private long maxFrameNanos = 0;
+    private long frames = 0;
+
+    /**
+     * Create a cache which holds at most the given number of entries and pixels.
+     * Outside of tests, the shared instance should be used.
+     */
+    TextRasterCache(int maxEntries, long maxPixels)
+    {
+        this.maxEntries = maxEntries;
+        this.maxPixels = maxPixels;
+        this.images = new LinkedHashMap<>(maxEntries, 0.75f, true);
+    }
+
+    /**
+     * Get the cache instance.
+     */
+    public static TextRasterCache getInstance()
+    {
+        return instance;
+    }
+
+    /**
+     * Get an image of the given text, split into lines at newlines which are drawn
+     * horizontally-centred, in a bold font.
+     * 
+     * @param text  The text to draw
+     * @param size  The height in pixels of each line of text
+     * @param foreground  The colour of the text (black if null)
+     * @param background  The colour of the image behind the text (transparent if null)
+     * @param outline  The colour of the outline drawn around the text (none if null)
+     * @return  The image, which must not be modified
+     */
+    public BufferedImage getTextImage(String text, double size, Color foreground, Color background, Color outline)
+    {
+        Key key = new Key(text, size, foreground, background, outline);
+        synchronized (this) {
+            BufferedImage image = images.get(key);
+            if (image != null) {
+                return image;
+            }
+        }
+
+        // Rasterize outside the lock, so that the renderer isn't held up by a long text;
+        // if two threads race to render the same text, both get an equivalent image.
+        long start = System.nanoTime();
+        BufferedImage image = render(text, size, foreground, background, outline);
+        long elapsed = System.nanoTime() - start;
+
+        synchronized (this) {
+            frameNanos += elapsed;
+            BufferedImage old = images.put(key, image);
+            if (old != null) {
+                pixels -= (long) old.getWidth() * old.getHeight();
+            }
+            pixels += (long) image.getWidth() * image.getHeight();
+            Iterator<BufferedImage> i = images.values().iterator();
+            while ((images.size() > maxEntries || pixels > maxPixels) && i.hasNext()) {
+                BufferedImage evicted = i.next();
+                if (evicted != image) {
+                    pixels -= (long) evicted.getWidth() * evicted.getHeight();
+                    i.remove();
+                }
+            }
+        }
+        return image;
+    }
+
+    private static BufferedImage render(String text, double size, Color foreground, Color background, Color outline)
+    {
+        String[] lines = GraphicsUtilities.splitLines(text);
+        GraphicsUtilities.MultiLineStringDimensions d = GraphicsUtilities.getMultiLineStringDimensions(lines, Font.BOLD, size);
+        BufferedImage image = GraphicsUtilities.createCompatibleTranslucentImage(d.getWidth(), d.getHeight());
+        Graphics2D g = (Graphics2D)image.getGraphics();
+        g.setColor(background == null ? new Color(0, 0, 0, 0) : background);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        GraphicsUtilities.drawOutlinedText(g, d, foreground, outline);
+        g.dispose();
+        return image;
+    }
+
+    /**
+     * Mark the end of a frame, for the statistics.  Frames in which no text was
+     * rasterized are not counted.
+     */
+    public synchronized void endFrame()
+    {
+        if (frameNanos != 0) {
+            frames++;
+            totalNanos += frameNanos;
+            maxFrameNanos = Math.max(maxFrameNanos, frameNanos);
+            frameNanos = 0;
+        }
+    }
+
+    /**
+     * Get the average time spent rasterizing text, in microseconds, over the frames in
+     * which any text was rasterized.
+     */
+    public synchronized float getAverageFrameMicros()
+    {
+        return frames == 0 ? 0.0f : totalNanos / 1000.0f / frames;
+    }
+
+    /**
+     * Get the longest time spent rasterizing text in a single frame, in microseconds.
+     */
+    public synchronized float getMaxFrameMicros()
+    {
+        return maxFrameNanos / 1000.0f;
+    }
+
+    /**
+     * The cache key: everything which affects the rendered text.
+     */
+    private static class Key
+    {
+        private final String text;
+        private final double size;
+        private final Color foreground;
+        private final Color background;
+        private final Color outline;
+        private final int hash;
+
+        public Key(String text, double size, Color foreground, Color background, Color outline)
+        {
+            this.text = text;
+            this.size = size;
+            this.foreground = foreground;
+            this.background = background;
+            this.outline = outline;
+            this.hash = Objects.hash(text, size, foreground, background, outline);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (! (o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return hash == k.hash && size == k.size && text.equals(k.text)
+                    && Objects.equals(foreground, k.foreground) && Objects.equals(background, k.background)
+                    && Objects.equals(outline, k.outline);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2018  Poul Henriksen and Michael Kolling 
+ Copyright (C) 2018,2026  Poul Henriksen and Michael Kolling 
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -35,6 +35,8 @@ public class Command
      * Key events.  Followed by one integer which is the key code
      * (using the JavaFX KeyCode enum's ordinal method), then the rest
      * are integer codepoints from the string of the key text.
+     * These and the mouse events are sent via the input ring (see
+     * InputEventRing) rather than with the other commands.
      */
     public static final int KEY_DOWN = 1;
     public static final int KEY_UP = 2;
@@ -73,6 +75,7 @@ public class Command
     public static final int COMMAND_DISCARD_WORLD = 29;
     public static final int COMMAND_SET_SPEED = 30;
 
+    // Like key and mouse events, these are sent via the input ring (see InputEventRing):
     public static final int COMMAND_WORLD_FOCUS_GAINED = 40;
     public static final int COMMAND_WORLD_FOCUS_LOST = 41;
     
@@ -0,0 +1,293 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.vmcomm;
+
+import threadchecker.OnThread;
+import threadchecker.Tag;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+
+/**
+ * A single-producer, single-consumer ring buffer of input events (keyboard, mouse and
+ * focus events), living in its own region of the shared memory file.  The server VM
+ * writes events and the debug VM reads them; neither side takes a lock, so input is
+ * not held up by the frame transfer protocol (see VMCommsMain).
+ *
+ * <p>The region consists of a header followed by CAPACITY fixed-size slots.  The header
+ * holds (as int positions):
+ * <ul>
+ * <li>Pos 0: the number of events written so far (only written by the producer).
+ * <li>Pos 16: the number of events consumed so far (only written by the consumer).
+ *     (The two counts are on separate cache lines.)
+ * <li>Pos 18 and 19: the total latency, in microseconds, of all consumed events (a long).
+ * <li>Pos 20: the largest latency, in microseconds, of any consumed event.
+ * <li>Pos 21: the number of consumed mouse moves/drags which were coalesced
+ *     with a later one, and so not delivered.
+ * </ul>
+ *
+ * <p>Event number N is in slot (N % CAPACITY).  Each slot holds:
+ * <ul>
+ * <li>Pos 0: the event's sequence number (N).
+ * <li>Pos 1: the event type: one of the key, mouse or focus constants in Command.
+ * <li>Pos 2 and 3: the time the event was sent, in microseconds since the epoch (a long).
+ *     Wall-clock time is used, since System.nanoTime values can't be compared across VMs.
+ * <li>Pos 4: the number of data integers (D).
+ * <li>Pos 5 to 5+D excl: the data, as described in Command.
+ * </ul>
+ *
+ * <p>A slot is written before the write count is published (with release semantics),
+ * and the consumer reads the write count (with acquire semantics) before reading slots;
+ * likewise the other way round for the consumed count, so that a slot is not overwritten
+ * until it has been read.
+ */
+public class InputEventRing
+{
+    /** The number of event slots.  Must be a power of two. */
+    private static final int CAPACITY = 1024;
+    private static final int SLOT_INTS = 16;
+    private static final int SLOT_HEADER_INTS = 5;
+    /** The largest number of data integers in an event; longer key text is truncated. */
+    public static final int MAX_DATA = SLOT_INTS - SLOT_HEADER_INTS;
+    private static final int HEADER_INTS = 32;
+    /** The size in bytes of the region used by the ring buffer */
+    public static final int SIZE_BYTES = (HEADER_INTS + CAPACITY * SLOT_INTS) * 4;
+
+    // Byte offsets of the header fields:
+    private static final int WRITE_COUNT = 0;
+    private static final int READ_COUNT = 16 * 4;
+    private static final int TOTAL_LATENCY = 18 * 4;
+    private static final int MAX_LATENCY = 20 * 4;
+    private static final int COALESCED = 21 * 4;
+
+    private static final VarHandle INT_HANDLE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    /**
+     * Receives events from drain().
+     */
+    public static interface EventHandler
+    {
+        /**
+         * Handle one event.
+         * @param type  The event type
+         * @param data  The event's data (only valid during the call)
+         * @param dataLength  The number of items in data which are valid
+         */
+        @OnThread(Tag.Worker)
+        void handleEvent(int type, int[] data, int dataLength);
+    }
+
+    private final ByteBuffer buffer;
+    // The producer's and consumer's own copies of their counts:
+    private int written;
+    private int read;
+    // Reused to pass data to the EventHandler:
+    private final int[] eventData = new int[MAX_DATA];
+
+    /**
+     * Create a ring buffer on the given region, which must be SIZE_BYTES long.  The
+     * region is taken to be in its current state (all zero for a new ring).
+     */
+    @OnThread(Tag.Any)
+    public InputEventRing(ByteBuffer region)
+    {
+        this.buffer = region.order(ByteOrder.nativeOrder());
+        reset();
+    }
+
+    /**
+     * Re-read the counts from the region, after it has been cleared.
+     */
+    @OnThread(Tag.Any)
+    public synchronized void reset()
+    {
+        written = (int) INT_HANDLE.getAcquire(buffer, WRITE_COUNT);
+        read = (int) INT_HANDLE.getAcquire(buffer, READ_COUNT);
+    }
+
+    private static int slotOffset(int sequence)
+    {
+        return (HEADER_INTS + (sequence & (CAPACITY - 1)) * SLOT_INTS) * 4;
+    }
+
+    /**
+     * Get the current time in microseconds since the epoch.
+     */
+    @OnThread(Tag.Any)
+    public static long currentTimeMicros()
+    {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1000;
+    }
+
+    // ---------- Producer side ----------
+
+    /**
+     * Write an event into the ring, if there is space.  Must only be called by the producer.
+     *
+     * @param type  The event type
+     * @param timestamp  The time at which the event occurred (see currentTimeMicros)
+     * @param data  The event data; at most MAX_DATA items
+     * @return  true if the event was written, false if the ring is full.
+     */
+    @OnThread(Tag.Any)
+    public synchronized boolean offer(int type, long timestamp, int[] data)
+    {
+        int consumed = (int) INT_HANDLE.getAcquire(buffer, READ_COUNT);
+        if (written - consumed >= CAPACITY)
+        {
+            return false;
+        }
+        int slot = slotOffset(written);
+        buffer.putInt(slot, written);
+        buffer.putInt(slot + 4, type);
+        buffer.putLong(slot + 8, timestamp);
+        int length = Math.min(data.length, MAX_DATA);
+        buffer.putInt(slot + 16, length);
+        for (int i = 0; i < length; i++)
+        {
+            buffer.putInt(slot + 20 + i * 4, data[i]);
+        }
+        written += 1;
+        INT_HANDLE.setRelease(buffer, WRITE_COUNT, written);
+        return true;
+    }
+
+    /**
+     * Get the total number of events consumed so far.
+     */
+    @OnThread(Tag.Any)
+    public int getConsumedCount()
+    {
+        return (int) INT_HANDLE.getAcquire(buffer, READ_COUNT);
+    }
+
+    /**
+     * Get the total latency (time from being sent to being consumed) of all consumed events,
+     * in microseconds.
+     */
+    @OnThread(Tag.Any)
+    public long getTotalLatencyMicros()
+    {
+        return buffer.getLong(TOTAL_LATENCY);
+    }
+
+    /**
+     * Get the largest latency of any consumed event, in microseconds.
+     */
+    @OnThread(Tag.Any)
+    public int getMaxLatencyMicros()
+    {
+        return buffer.getInt(MAX_LATENCY);
+    }
+
+    /**
+     * Get the number of mouse moves and drags which were not delivered because a later
+     * one superseded them.
+     */
+    @OnThread(Tag.Any)
+    public int getCoalescedCount()
+    {
+        return buffer.getInt(COALESCED);
+    }
+
+    // ---------- Consumer side ----------
+
+    /**
+     * Pass all available events to the handler, in order, then mark them as consumed.
+     * A mouse move which is immediately followed by another mouse move (or a drag followed
+     * by a drag with the same button) is skipped, since only the latest position matters.
+     * Must only be called by the consumer.
+     *
+     * @return  The number of events read (including any which were skipped).
+     */
+    @OnThread(Tag.Worker)
+    public int drain(EventHandler handler)
+    {
+        int available = (int) INT_HANDLE.getAcquire(buffer, WRITE_COUNT);
+        if (available == read)
+        {
+            return 0;
+        }
+        long now = currentTimeMicros();
+        long totalLatency = buffer.getLong(TOTAL_LATENCY);
+        int maxLatency = buffer.getInt(MAX_LATENCY);
+        int coalesced = buffer.getInt(COALESCED);
+        int count = available - read;
+
+        for (; read != available; read++)
+        {
+            int slot = slotOffset(read);
+            if (buffer.getInt(slot) != read)
+            {
+                // Shouldn't happen (the slot hasn't been written yet?).  Skip it, rather than
+                // deliver an event twice:
+                continue;
+            }
+            int type = buffer.getInt(slot + 4);
+            int latency = (int) Math.max(0L, Math.min(Integer.MAX_VALUE, now - buffer.getLong(slot + 8)));
+            totalLatency += latency;
+            maxLatency = Math.max(maxLatency, latency);
+
+            if (read + 1 != available && supersededBy(slot, slotOffset(read + 1)))
+            {
+                coalesced += 1;
+                continue;
+            }
+
+            int length = Math.min(buffer.getInt(slot + 16), MAX_DATA);
+            for (int i = 0; i < length; i++)
+            {
+                eventData[i] = buffer.getInt(slot + 20 + i * 4);
+            }
+            handler.handleEvent(type, eventData, length);
+        }
+
+        buffer.putLong(TOTAL_LATENCY, totalLatency);
+        buffer.putInt(MAX_LATENCY, maxLatency);
+        buffer.putInt(COALESCED, coalesced);
+        INT_HANDLE.setRelease(buffer, READ_COUNT, read);
+        return count;
+    }
+
+    /**
+     * Check whether the event in the given slot is a mouse move or drag which is made
+     * redundant by the event in the following slot.
+     */
+    private boolean supersededBy(int slot, int nextSlot)
+    {
+        int type = buffer.getInt(slot + 4);
+        if (type != Command.MOUSE_MOVED && type != Command.MOUSE_DRAGGED)
+        {
+            return false;
+        }
+        if (buffer.getInt(nextSlot + 4) != type)
+        {
+            return false;
+        }
+        // A drag must be with the same button (data item 2):
+        return type == Command.MOUSE_MOVED || buffer.getInt(slot + 28) == buffer.getInt(nextSlot + 28);
+    }
+}
@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2018,2021,2024 Poul Henriksen and Michael Kolling
+ Copyright (C) 2018,2021,2024,2026 Poul Henriksen and Michael Kolling
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -30,7 +30,9 @@ import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -79,6 +81,10 @@ public class VMCommsMain implements Closeable
     // The acquisition order is B-->A, A-->C, and C-->B. This ensures that there can never
     // be deadlock. No process holds all three locks at once and each process always holds at
     // least one lock.
+    //
+    // Keyboard, mouse and focus events don't use this protocol: they are sent through a
+    // lock-free ring buffer (see InputEventRing) which occupies the end of the file, after
+    // the debug VM "put" area.
 
     public static final int DEFAULT_MAPPED_SIZE = 20_000_000;
     public static final int USER_AREA_OFFSET = 0x1000; // offset in 4-byte chunks; 16KB worth.
@@ -89,6 +95,16 @@ public class VMCommsMain implements Closeable
     
     public static final int SYNC_AREA_OFFSET_BYTES = 0;
     public static final int SYNC_AREA_SIZE_BYTES = 4;
+
+    /**
+     * Get the offset in bytes of the input event ring buffer, which is at the end of the
+     * file.  This is also the end of the debug VM "put" area.
+     */
+    @OnThread(Tag.Any)
+    public static int getInputRingOffsetBytes(int fileSize)
+    {
+        return fileSize - InputEventRing.SIZE_BYTES;
+    }
     
     private final int fileSize;
     private File shmFile;
@@ -97,6 +113,29 @@ public class VMCommsMain implements Closeable
     private IntBuffer sharedMemory;
     private FileLock putLock;
     private FileLock syncLock;
+    private final InputEventRing inputRing;
+    /** Input events waiting for space in the input ring (e.g. while the debug VM is suspended) */
+    private final Deque<InputEvent> pendingInput = new ArrayDeque<>();
+    /** The number of input events sent to the current debug VM, and how many were coalesced before sending */
+    private int inputEventsSent = 0;
+    private int inputEventsCoalesced = 0;
+
+    /**
+     * An input event which is waiting to be written to the input ring.
+     */
+    private static class InputEvent
+    {
+        private final int type;
+        private final long timestamp;
+        private int[] data;
+
+        private InputEvent(int type, long timestamp, int[] data)
+        {
+            this.type = type;
+            this.timestamp = timestamp;
+            this.data = data;
+        }
+    }
 
     // Needs to be AtomicInteger because it's modified from multiple threads:
     private final AtomicInteger lastSeq = new AtomicInteger(0);
@@ -134,6 +173,12 @@ public class VMCommsMain implements Closeable
 
     private boolean delayLoop;
     private boolean vmReadyForInvocations = false;
+    // The achieved act and paint rates (per second) reported by the debug VM:
+    private float actRate;
+    private float paintRate;
+    // Text rasterization time per frame (microseconds) reported by the debug VM:
+    private float textFrameMicros;
+    private float maxTextFrameMicros;
     private int askId = -1;
     private boolean workerWaiting = false;
 
@@ -151,7 +196,9 @@ public class VMCommsMain implements Closeable
         shmFile.deleteOnExit();
         fc = new RandomAccessFile(shmFile, "rw").getChannel();
         sharedMemoryByte = fc.map(MapMode.READ_WRITE, 0, fileSize);
-        sharedMemory = sharedMemoryByte.asIntBuffer();
+        int inputRingOffset = getInputRingOffsetBytes(fileSize);
+        sharedMemory = sharedMemoryByte.slice(0, inputRingOffset).asIntBuffer();
+        inputRing = new InputEventRing(sharedMemoryByte.slice(inputRingOffset, InputEventRing.SIZE_BYTES));
         
         // Obtain the put-area lock right from the start:
         putLock = fc.lock(SERVER_AREA_OFFSET_BYTES, SERVER_AREA_SIZE_BYTES, false);
@@ -177,6 +224,10 @@ public class VMCommsMain implements Closeable
     @OnThread(value = Tag.FXPlatform, ignoreParent = true)
     public void close()
     {
+        synchronized (this)
+        {
+            logStatistics();
+        }
         try
         {
             fc.close();
@@ -330,6 +381,7 @@ public class VMCommsMain implements Closeable
         }
 
         stage.setLastUserExecutionStartTime(lastExecStartTime, delayLoop);
+        stage.setSimulationRates(actRate, paintRate);
             
         checkingIO = false;
         
@@ -357,7 +409,7 @@ public class VMCommsMain implements Closeable
         try
         {
             putLock.release();
-            fileLock = sharedMemoryLock.lock(USER_AREA_OFFSET_BYTES, fileSize - USER_AREA_OFFSET_BYTES, false);
+            fileLock = sharedMemoryLock.lock(USER_AREA_OFFSET_BYTES, getInputRingOffsetBytes(fileSize) - USER_AREA_OFFSET_BYTES, false);
             syncLock.release();
 
             int seq = sharedMemory.get(USER_AREA_OFFSET);
@@ -444,6 +496,10 @@ public class VMCommsMain implements Closeable
                     delayLoop = delayLoopStatus == 1;
                     int vmReadyStatus = sharedMemory.get();
                     vmReadyForInvocations = vmReadyStatus == 1;
+                    actRate = Float.intBitsToFloat(sharedMemory.get());
+                    paintRate = Float.intBitsToFloat(sharedMemory.get());
+                    textFrameMicros = Float.intBitsToFloat(sharedMemory.get());
+                    maxTextFrameMicros = Float.intBitsToFloat(sharedMemory.get());
                 }
             }
         }
@@ -479,6 +535,8 @@ public class VMCommsMain implements Closeable
         // To avoid consuming close to 100% CPU, we wait on the animation timer:
         synchronized (this)
         {
+            // Take the chance to send any input events which didn't fit before:
+            flushPendingInput();
             try
             {
                 workerWaiting = true;
@@ -585,18 +643,22 @@ public class VMCommsMain implements Closeable
      * 
      * @param eventType   The event type
      * @param keyCode     The key code, from KeyEvent.getCode()
-     * @param keyText     The key text, from KeyEvent.getText()
+     * @param keyText     The key text, from KeyEvent.getText().  Only the first
+     *                    InputEventRing.MAX_DATA - 1 (currently 10) codepoints are sent.
      */
     public synchronized void sendKeyEvent(int eventType, KeyCode keyCode, String keyText)
     {
-        int[] textCodePoints = keyText.codePoints().toArray();
+        // The text must fit in an input ring slot, after the key code, so anything beyond
+        // the first InputEventRing.MAX_DATA - 1 codepoints is dropped.  The text of a key
+        // event is a single key's text, so in practice it is never that long:
+        int[] textCodePoints = keyText.codePoints().limit(InputEventRing.MAX_DATA - 1).toArray();
 
         // Ordinal from KeyCode, followed by text codepoints:
         int[] data = new int[textCodePoints.length + 1];
         data[0] = keyCode.ordinal();
         System.arraycopy(textCodePoints, 0, data, 1, textCodePoints.length);
         
-        pendingCommands.add(new Command(eventType, data));
+        sendInputEvent(eventType, data);
     }
     
     /**
@@ -610,7 +672,73 @@ public class VMCommsMain implements Closeable
      */
     public synchronized void sendMouseEvent(int eventType, int x, int y, int button, int clickCount)
     {
-        pendingCommands.add(new Command(eventType, x, y, button, clickCount));
+        sendInputEvent(eventType, new int[] {x, y, button, clickCount});
+    }
+
+    /**
+     * Send an input event via the input ring.  If the ring is full, the event is kept
+     * until there is space; a mouse move waiting for space replaces an earlier one.
+     */
+    private void sendInputEvent(int eventType, int[] data)
+    {
+        long timestamp = InputEventRing.currentTimeMicros();
+        if (pendingInput.isEmpty() && inputRing.offer(eventType, timestamp, data))
+        {
+            inputEventsSent += 1;
+            return;
+        }
+
+        InputEvent last = pendingInput.peekLast();
+        if (eventType == MOUSE_MOVED && last != null && last.type == MOUSE_MOVED)
+        {
+            // Keep the earlier timestamp, so that the latency reflects the wait:
+            last.data = data;
+            inputEventsCoalesced += 1;
+        }
+        else
+        {
+            pendingInput.addLast(new InputEvent(eventType, timestamp, data));
+        }
+        flushPendingInput();
+    }
+
+    /**
+     * Write as many waiting input events to the input ring as will fit.
+     */
+    private void flushPendingInput()
+    {
+        while (!pendingInput.isEmpty())
+        {
+            InputEvent event = pendingInput.peekFirst();
+            if (!inputRing.offer(event.type, event.timestamp, event.data))
+            {
+                return;
+            }
+            pendingInput.removeFirst();
+            inputEventsSent += 1;
+        }
+    }
+
+    /**
+     * Log statistics about input events sent to the current debug VM, and about its
+     * text rendering, if there were any.
+     */
+    private void logStatistics()
+    {
+        if (maxTextFrameMicros > 0)
+        {
+            Debug.log("Text rasterization per frame: average " + Math.round(textFrameMicros)
+                    + "us, maximum " + Math.round(maxTextFrameMicros) + "us");
+        }
+        int consumed = inputRing.getConsumedCount();
+        if (consumed > 0)
+        {
+            Debug.log("Input events: " + inputEventsSent + " sent (" + inputEventsCoalesced
+                    + " more coalesced before sending), " + consumed + " received ("
+                    + inputRing.getCoalescedCount() + " of them coalesced), average latency "
+                    + (inputRing.getTotalLatencyMicros() / consumed) + "us, maximum latency "
+                    + inputRing.getMaxLatencyMicros() + "us");
+        }
     }
 
     /**
@@ -645,7 +773,13 @@ public class VMCommsMain implements Closeable
             }
         }
         lastSeq.addAndGet(1000);
-        pendingCommands.clear();        
+        pendingCommands.clear();
+        logStatistics();
+        pendingInput.clear();
+        inputEventsSent = 0;
+        inputEventsCoalesced = 0;
+        textFrameMicros = 0;
+        maxTextFrameMicros = 0;
         setSpeedCommandCount = 0;
         lastAnswer = -1;
         previousStoppedWithErrorCount = 0;
@@ -654,6 +788,7 @@ public class VMCommsMain implements Closeable
         // Zero the buffer:
         sharedMemoryByte.position(0);
         sharedMemoryByte.put(new byte[fileSize], 0, fileSize);
+        inputRing.reset();
         vmReadyForInvocations = false;
     }
 
@@ -663,7 +798,8 @@ public class VMCommsMain implements Closeable
      */
     public synchronized void worldFocusChanged(boolean focused)
     {
-        pendingCommands.add(new Command(focused ? COMMAND_WORLD_FOCUS_GAINED : COMMAND_WORLD_FOCUS_LOST));
+        // Sent as an input event, so that it stays in order with key events:
+        sendInputEvent(focused ? COMMAND_WORLD_FOCUS_GAINED : COMMAND_WORLD_FOCUS_LOST, new int[0]);
     }
 
     /**
@@ -1,6 +1,6 @@
 /*
  This file is part of the Greenfoot program. 
- Copyright (C) 2005-2009,2010,2011,2012,2013,2014,2015,2016,2018,2019,2021,2024  Poul Henriksen and Michael Kolling
+ Copyright (C) 2005-2009,2010,2011,2012,2013,2014,2015,2016,2018,2019,2021,2024,2026  Poul Henriksen and Michael Kolling
  
  This program is free software; you can redistribute it and/or 
  modify it under the terms of the GNU General Public License 
@@ -30,6 +30,8 @@ import greenfoot.core.WorldHandler;
 import greenfoot.gui.WorldRenderer;
 import greenfoot.gui.input.KeyboardManager;
 import greenfoot.gui.input.mouse.MousePollingManager;
+import greenfoot.util.RateCounter;
+import greenfoot.util.TextRasterCache;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseButton;
 import threadchecker.OnThread;
@@ -48,6 +50,7 @@ import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Lives on the Simulation VM (aka debug VM), and handles communications with the server
@@ -107,7 +110,7 @@ public class VMCommsSimulation
      *        GreenfootStage.COMMAND_RUN just has the command type integer and no more, whereas
      *        mouse events have four integers.
      *
-     * Debug VM area (10M - 16kb): [Positions relative to beginning]
+     * Debug VM area (up to the input ring): [Positions relative to beginning]
      * 
      * Pos 0: Sequence index when the current (included) image was painted (the image is included
      *        unchanged in subsequent frames).
@@ -128,6 +131,18 @@ public class VMCommsSimulation
      *              If awaiting, it is count (P) of following codepoints which make up prompt.
      * Pos 11+(W*H) to 11+(W*H)+P excl: codepoints making up ask prompt.
      * Pos 11+(W*H)+P: 1 if the the delay loop is currently running, or 0 otherwise.
+     * Pos 12+(W*H)+P: 1 if the debug VM is ready for invocations, or 0 otherwise.
+     * Pos 13+(W*H)+P: The achieved act rate while running, in acts per second, as float bits
+     *                 (see Float.floatToIntBits), or zero if not running.
+     * Pos 14+(W*H)+P: The achieved paint rate, in frames per second, as float bits.
+     * Pos 15+(W*H)+P: The average time spent rasterizing text per frame (over frames with
+     *                 any), in microseconds, as float bits.
+     * Pos 16+(W*H)+P: The longest time spent rasterizing text in a frame, in microseconds,
+     *                 as float bits.
+     *
+     * Input ring (the last InputEventRing.SIZE_BYTES of the file): keyboard, mouse and
+     * focus events from the server VM.  This is not covered by the file locks; see
+     * InputEventRing for its format.
      */
     private final IntBuffer sharedMemory;
     private int seq = 1;
@@ -149,6 +164,18 @@ public class VMCommsSimulation
     // Size of the shared memory file
     private final int fileSize;
     private final AtomicBoolean userVMReadyForInvocations = new AtomicBoolean(false);
+    private final InputEventRing inputRing;
+    /** The thread which reads the input ring; woken after each exchange with the server VM */
+    private final Thread inputThread;
+    /** How long the input thread keeps polling after the last input */
+    private static final long INPUT_ACTIVE_NANOS = 250_000_000L;
+    /** How often the input thread polls while input is arriving */
+    private static final long INPUT_POLL_NANOS = 1_000_000L;
+    /** The longest the input thread waits while idle, in case it is not woken */
+    private static final long INPUT_IDLE_NANOS = 500_000_000L;
+    /** The achieved rate of painting frames */
+    @OnThread(Tag.Any)
+    private final RateCounter paintRate = new RateCounter();
 
     /**
      * Construct a VMCommsSimulation.
@@ -168,10 +195,41 @@ public class VMCommsSimulation
             shmFileChannel = new RandomAccessFile(shmFilePath, "rw").getChannel();
             this.fileSize = fileSize;
             MappedByteBuffer mbb = shmFileChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
-            sharedMemory = mbb.asIntBuffer();
+            // The world image must not overflow into the input ring:
+            int inputRingOffset = VMCommsMain.getInputRingOffsetBytes(fileSize);
+            sharedMemory = mbb.slice(0, inputRingOffset).asIntBuffer();
+            inputRing = new InputEventRing(mbb.slice(inputRingOffset, InputEventRing.SIZE_BYTES));
             putLock = shmFileChannel.lock(VMCommsMain.USER_AREA_OFFSET_BYTES,
-                    fileSize - VMCommsMain.USER_AREA_OFFSET_BYTES, false);
+                    inputRingOffset - VMCommsMain.USER_AREA_OFFSET_BYTES, false);
             
+            inputThread = new Thread("VMCommsInput") {
+                @OnThread(value = Tag.Worker,ignoreParent = true)
+                public void run()
+                {
+                    long lastInput = System.nanoTime() - INPUT_ACTIVE_NANOS;
+                    while (true)
+                    {
+                        if (Simulation.getInstance() != null && WorldHandler.getInstance() != null
+                                && inputRing.drain(VMCommsSimulation.this::handleInputEvent) > 0)
+                        {
+                            lastInput = System.nanoTime();
+                        }
+                        else if (System.nanoTime() - lastInput < INPUT_ACTIVE_NANOS)
+                        {
+                            // Input is arriving, so poll often to handle it quickly:
+                            LockSupport.parkNanos(INPUT_POLL_NANOS);
+                        }
+                        else
+                        {
+                            // Idle; wait until doInterVMComms wakes us after the next exchange
+                            // with the server VM (once per frame), so that input arriving now
+                            // is seen no later than it would be via the command channel:
+                            LockSupport.parkNanos(INPUT_IDLE_NANOS);
+                        }
+                    }
+                }
+            };
+
             new Thread("VMCommsSimulation") {
                 @OnThread(value = Tag.Worker,ignoreParent = true)
                 public void run()
@@ -182,6 +240,8 @@ public class VMCommsSimulation
                     }
                 }
             }.start();
+
+            inputThread.start();
         }
         catch (IOException e)
         {
@@ -243,6 +303,7 @@ public class VMCommsSimulation
             }
             
             worldRenderer.renderWorld(world, worldImage);
+            paintRate.count();
             
             BufferedImage oldImage = worldImageForSending.getAndSet(worldImage);
             // If there was an old image waiting which we've overwritten, put it back in our queue of old images:
@@ -391,6 +452,12 @@ public class VMCommsSimulation
                 sharedMemory.put(delayLoopEntered ? 1 : 0);
                 sharedMemory.put(userVMReadyForInvocations.get() ? 1 : 0);
             }
+            Simulation simulation = Simulation.getInstance();
+            sharedMemory.put(Float.floatToIntBits(simulation == null ? 0.0f : simulation.getActRate()));
+            sharedMemory.put(Float.floatToIntBits(paintRate.getRate()));
+            TextRasterCache textCache = TextRasterCache.getInstance();
+            sharedMemory.put(Float.floatToIntBits(textCache.getAverageFrameMicros()));
+            sharedMemory.put(Float.floatToIntBits(textCache.getMaxFrameMicros()));
 
             putLock.release();
 
@@ -400,8 +467,11 @@ public class VMCommsSimulation
             
             fileLock.release();
             putLock = shmFileChannel.lock(VMCommsMain.USER_AREA_OFFSET_BYTES,
-                    fileSize - VMCommsMain.USER_AREA_OFFSET_BYTES, false);
+                    VMCommsMain.getInputRingOffsetBytes(fileSize) - VMCommsMain.USER_AREA_OFFSET_BYTES, false);
             syncLock.release();
+
+            // Let an idle input thread check for input which arrived during this frame:
+            LockSupport.unpark(inputThread);
         }
         catch (IOException ex)
         {
@@ -467,106 +537,117 @@ public class VMCommsSimulation
             int commandLength = sharedMemory.get();
             int data[] = new int[commandLength];
             sharedMemory.get(data);
-            if (Command.isKeyEvent(data[0]))
+            // Keyboard, mouse and focus events arrive via the input ring instead (see handleInputEvent):
+            switch (data[0])
             {
-                KeyboardManager keyboardManager = WorldHandler.getInstance().getKeyboardManager();
-                KeyCode keyCode = KeyCode.values()[data[1]];
-                String keyText = new String(data, 2, data.length - 2);
-                switch(data[0])
-                {
-                    case Command.KEY_DOWN:
-                        keyboardManager.keyPressed(keyCode, keyText);
-                        break;
-                    case Command.KEY_UP:
-                        keyboardManager.keyReleased(keyCode, keyText);
-                        break;
-                    case Command.KEY_TYPED:
-                        keyboardManager.keyTyped(keyCode, keyText);
-                        break;
-                }
+                case Command.COMMAND_RUN:
+                    Simulation.getInstance().setPaused(false);
+                    break;
+                case Command.COMMAND_PAUSE:
+                    Simulation.getInstance().setPaused(true);
+                    break;
+                case Command.COMMAND_ACT:
+                    Simulation.getInstance().runOnce();
+                    break;
+                case Command.COMMAND_INSTANTIATE_WORLD:
+                    String className = new String(data, 1, data.length - 1);
+                    WorldHandler.getInstance().instantiateNewWorld(className);
+                    break;
+                case Command.COMMAND_DISCARD_WORLD:
+                    WorldHandler.getInstance().discardWorld();
+                    break;
+                case Command.COMMAND_CONTINUE_DRAG:
+                    // Will be drag-ID, X, Y:
+                    WorldHandler.getInstance().continueDragging(data[1], data[2], data[3]);
+                    break;
+                case Command.COMMAND_END_DRAG:
+                    // Will be drag-ID, cell X, cell Y:
+                    WorldHandler.getInstance().finishDrag(data[1], data[2], data[3]);
+                    break;
+                case Command.COMMAND_ANSWERED:
+                    // Store the codepoints we received:
+                    answer[0] = new String(data, 1, data.length - 1);
+                    break;
+                case Command.COMMAND_PROPERTY_CHANGED:
+                    int keyLength = data[1];
+                    String key = new String(data, 2, keyLength);
+                    int valueLength = data[2+keyLength];
+                    String value = valueLength < 0 ? null : new String(data, 3 + keyLength, valueLength);
+                    projectProperties.propertyChangedOnServerVM(key, value);
+                    if (key.equals(Simulation.FIXED_RATE_PROPERTY))
+                    {
+                        Simulation.getInstance().setFixedRate(!"false".equals(value));
+                    }
+                    break;
+                case Command.COMMAND_SET_SPEED:
+                    Simulation.getInstance().setSpeed(data[1]);
+                    break;
             }
-            else if (Command.isMouseEvent(data[0]))
+        }
+        return lastSeqID;
+    }
+
+    /**
+     * Handle a keyboard, mouse or focus event received from the server VM via the input ring.
+     */
+    @OnThread(Tag.Worker)
+    private void handleInputEvent(int type, int[] data, int dataLength)
+    {
+        if (Command.isKeyEvent(type))
+        {
+            KeyboardManager keyboardManager = WorldHandler.getInstance().getKeyboardManager();
+            KeyCode keyCode = KeyCode.values()[data[0]];
+            String keyText = new String(data, 1, dataLength - 1);
+            switch (type)
             {
-                int x = data[1];
-                int y = data[2];
-                int button = data[3];
-                int clickCount = data[4];
-                MousePollingManager mouseManager = WorldHandler.getInstance().getMouseManager();
-                switch (data[0])
-                {
-                    case Command.MOUSE_CLICKED:
-                        mouseManager.mouseClicked(x, y, MouseButton.values()[button], clickCount);
-                        break;
-                    case Command.MOUSE_PRESSED:
-                        mouseManager.mousePressed(x, y, MouseButton.values()[button]);
-                        break;
-                    case Command.MOUSE_RELEASED:
-                        mouseManager.mouseReleased(x, y, MouseButton.values()[button]);
-                        break;
-                    case Command.MOUSE_DRAGGED:
-                        mouseManager.mouseDragged(x, y, MouseButton.values()[button]);
-                        break;
-                    case Command.MOUSE_MOVED:
-                        mouseManager.mouseMoved(x, y);
-                        break;
-                    case Command.MOUSE_EXITED:
-                        mouseManager.mouseExited();
-                        break;
-                }
+                case Command.KEY_DOWN:
+                    keyboardManager.keyPressed(keyCode, keyText);
+                    break;
+                case Command.KEY_UP:
+                    keyboardManager.keyReleased(keyCode, keyText);
+                    break;
+                case Command.KEY_TYPED:
+                    keyboardManager.keyTyped(keyCode, keyText);
+                    break;
             }
-            else
+        }
+        else if (Command.isMouseEvent(type))
+        {
+            int x = data[0];
+            int y = data[1];
+            int button = data[2];
+            int clickCount = data[3];
+            MousePollingManager mouseManager = WorldHandler.getInstance().getMouseManager();
+            switch (type)
             {
-                // Commands which are not keyboard or mouse events:
-                switch (data[0])
-                {
-                    case Command.COMMAND_RUN:
-                        Simulation.getInstance().setPaused(false);
-                        break;
-                    case Command.COMMAND_PAUSE:
-                        Simulation.getInstance().setPaused(true);
-                        break;
-                    case Command.COMMAND_ACT:
-                        Simulation.getInstance().runOnce();
-                        break;
-                    case Command.COMMAND_INSTANTIATE_WORLD:
-                        String className = new String(data, 1, data.length - 1);
-                        WorldHandler.getInstance().instantiateNewWorld(className);
-                        break;
-                    case Command.COMMAND_DISCARD_WORLD:
-                        WorldHandler.getInstance().discardWorld();
-                        break;
-                    case Command.COMMAND_CONTINUE_DRAG:
-                        // Will be drag-ID, X, Y:
-                        WorldHandler.getInstance().continueDragging(data[1], data[2], data[3]);
-                        break;
-                    case Command.COMMAND_END_DRAG:
-                        // Will be drag-ID, cell X, cell Y:
-                        WorldHandler.getInstance().finishDrag(data[1], data[2], data[3]);
-                        break;
-                    case Command.COMMAND_ANSWERED:
-                        // Store the codepoints we received:
-                        answer[0] = new String(data, 1, data.length - 1);
-                        break;
-                    case Command.COMMAND_PROPERTY_CHANGED:
-                        int keyLength = data[1];
-                        String key = new String(data, 2, keyLength);
-                        int valueLength = data[2+keyLength];
-                        String value = valueLength < 0 ? null : new String(data, 3 + keyLength, valueLength);
-                        projectProperties.propertyChangedOnServerVM(key, value);
-                        break;
-                    case Command.COMMAND_SET_SPEED:
-                        Simulation.getInstance().setSpeed(data[1]);
-                        break;
-                    case Command.COMMAND_WORLD_FOCUS_GAINED:
-                        WorldHandler.getInstance().worldFocusChanged(true);
-                        break;
-                    case Command.COMMAND_WORLD_FOCUS_LOST:
-                        WorldHandler.getInstance().worldFocusChanged(false);
-                        break;
-                }
+                case Command.MOUSE_CLICKED:
+                    mouseManager.mouseClicked(x, y, MouseButton.values()[button], clickCount);
+                    break;
+                case Command.MOUSE_PRESSED:
+                    mouseManager.mousePressed(x, y, MouseButton.values()[button]);
+                    break;
+                case Command.MOUSE_RELEASED:
+                    mouseManager.mouseReleased(x, y, MouseButton.values()[button]);
+                    break;
+                case Command.MOUSE_DRAGGED:
+                    mouseManager.mouseDragged(x, y, MouseButton.values()[button]);
+                    break;
+                case Command.MOUSE_MOVED:
+                    mouseManager.mouseMoved(x, y);
+                    break;
+                case Command.MOUSE_EXITED:
+                    mouseManager.mouseExited();
+                    break;
             }
         }
-        return lastSeqID;
+        else if (type == Command.COMMAND_WORLD_FOCUS_GAINED)
+        {
+            WorldHandler.getInstance().worldFocusChanged(true);
+        }
+        else if (type == Command.COMMAND_WORLD_FOCUS_LOST)
+        {
+            WorldHandler.getInstance().worldFocusChanged(false);
+        }
     }
 
     /**
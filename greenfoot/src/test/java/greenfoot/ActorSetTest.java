@@ -0,0 +1,212 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.util.GreenfootUtil;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests ActorSet and TreeActorSet, including with large numbers of actors in act
+ * order and paint order (which can also be timed; see testBenchmark).
+ */
+public class ActorSetTest extends TestCase
+{
+    public static class OtherObject extends TestObject
+    {
+        public OtherObject()
+        {
+            super(1, 1);
+        }
+    }
+
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+    }
+
+    private static List<Actor> createActors(int count)
+    {
+        List<Actor> actors = new ArrayList<Actor>(count);
+        for (int i = 0; i < count; i++) {
+            actors.add(i % 3 == 0 ? new OtherObject() : new TestObject(1, 1));
+        }
+        return actors;
+    }
+
+    private static void assertSameOrder(Iterable<Actor> expected, Iterable<Actor> actual)
+    {
+        Iterator<Actor> e = expected.iterator();
+        Iterator<Actor> a = actual.iterator();
+        while (e.hasNext()) {
+            assertTrue(a.hasNext());
+            assertTrue(e.next() == a.next());
+        }
+        assertFalse(a.hasNext());
+    }
+
+    public void testAgainstLinkedHashSet()
+    {
+        List<Actor> actors = createActors(500);
+        ActorSet set = new ActorSet();
+        LinkedHashSet<Actor> expected = new LinkedHashSet<Actor>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            Actor actor = actors.get(random.nextInt(actors.size()));
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(actor), set.remove(actor));
+            }
+            else {
+                assertEquals(expected.add(actor), set.add(actor));
+            }
+            assertEquals(expected.size(), set.size());
+            assertEquals(expected.contains(actor), set.containsActor(actor));
+        }
+        assertSameOrder(expected, set);
+    }
+
+    public void testIteratorRemove()
+    {
+        List<Actor> actors = createActors(100);
+        ActorSet set = new ActorSet();
+        set.addAll(actors);
+        for (Iterator<Actor> i = set.iterator(); i.hasNext(); ) {
+            if (i.next() instanceof OtherObject) {
+                i.remove();
+            }
+        }
+        List<Actor> expected = new ArrayList<Actor>();
+        for (Actor actor : actors) {
+            if (! (actor instanceof OtherObject)) {
+                expected.add(actor);
+            }
+        }
+        assertSameOrder(expected, set);
+        for (Actor actor : actors) {
+            assertEquals(! (actor instanceof OtherObject), set.containsActor(actor));
+        }
+    }
+
+    public void testIterateWhileCompacting()
+    {
+        List<Actor> actors = createActors(64);
+        ActorSet set = new ActorSet();
+        set.addAll(actors);
+        Iterator<Actor> i = set.iterator();
+        assertTrue(i.next() == actors.get(0));
+        // Remove enough of the later actors to compact the set:
+        for (int n = 1; n < 48; n++) {
+            set.remove(actors.get(n));
+        }
+        for (int n = 48; n < 64; n++) {
+            assertTrue(i.next() == actors.get(n));
+        }
+        assertFalse(i.hasNext());
+    }
+
+    public void testClassOrder()
+    {
+        List<Actor> actors = createActors(30);
+        TreeActorSet set = new TreeActorSet();
+        set.addAll(actors);
+        set.setClassOrder(false, OtherObject.class);
+        Iterator<Actor> i = set.iterator();
+        for (int n = 0; n < 10; n++) {
+            assertTrue(i.next() == actors.get(n * 3));
+        }
+        while (i.hasNext()) {
+            assertTrue(i.next() instanceof TestObject);
+        }
+        assertEquals(30, set.size());
+    }
+
+    /**
+     * Adds the given number of actors to sets in act order and in paint order, iterates
+     * over both ten times, and removes half of the actors again.
+     * 
+     * @return  the times taken (in nanoseconds) to add, iterate and remove.
+     */
+    private static long[] addIterateRemove(int count)
+    {
+        List<Actor> actors = createActors(count);
+        TreeActorSet actOrder = new TreeActorSet();
+        actOrder.setClassOrder(false, OtherObject.class);
+        TreeActorSet paintOrder = new TreeActorSet();
+        paintOrder.setClassOrder(true, OtherObject.class, TestObject.class);
+
+        long start = System.nanoTime();
+        for (Actor actor : actors) {
+            actOrder.add(actor);
+            paintOrder.add(actor);
+        }
+        long added = System.nanoTime();
+        long total = 0;
+        for (int pass = 0; pass < 10; pass++) {
+            for (Actor actor : actOrder) {
+                total += ActorVisitor.getSequenceNumber(actor);
+            }
+            for (Actor actor : paintOrder) {
+                total -= ActorVisitor.getSequenceNumber(actor);
+            }
+        }
+        long iterated = System.nanoTime();
+        for (int n = 0; n < count; n += 2) {
+            actOrder.remove(actors.get(n));
+            paintOrder.remove(actors.get(n));
+        }
+        long removed = System.nanoTime();
+
+        assertEquals(0, total);
+        assertEquals(count / 2, actOrder.size());
+        assertEquals(count / 2, paintOrder.size());
+        return new long[] {added - start, iterated - added, removed - iterated};
+    }
+
+    public void testManyActors()
+    {
+        addIterateRemove(5000);
+    }
+
+    /**
+     * Times the sets with 10,000 and 100,000 actors.  This takes a while, so is only
+     * run if the bluej.benchmark property is set.
+     */
+    public void testBenchmark()
+    {
+        if (!Boolean.getBoolean("bluej.benchmark")) {
+            return;
+        }
+        for (int count : new int[] {10000, 100000}) {
+            long[] times = addIterateRemove(count);
+            System.out.println("Actor sets of " + count + " actors: added in " + times[0] / 1000000
+                    + "ms, 10 iterations in " + times[1] / 1000000
+                    + "ms, half removed in " + times[2] / 1000000 + "ms");
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ This file is part of the Greenfoot program.
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot;
+
+import greenfoot.util.GreenfootUtil;
+import junit.framework.TestCase;
+
+/**
+ * Tests the drawing sessions and bulk pixel access of GreenfootImage.
+ */
+public class GreenfootImageTest extends TestCase
+{
+    @Override
+    protected void setUp()
+        throws Exception
+    {
+        GreenfootUtil.initialise(new TestUtilDelegate());
+    }
+
+    public void testDrawingSession()
+    {
+        GreenfootImage image = new GreenfootImage(20, 10);
+        image.beginDrawing();
+        image.setColor(Color.RED);
+        image.fillRect(0, 0, 10, 10);
+        // Changing the color must affect the session's drawing:
+        image.setColor(Color.BLUE);
+        image.fillRect(10, 0, 10, 10);
+        image.endDrawing();
+        assertEquals(Color.RED, image.getColorAt(5, 5));
+        assertEquals(Color.BLUE, image.getColorAt(15, 5));
+
+        // Drawing still works after the session has ended:
+        image.setColor(Color.GREEN);
+        image.drawLine(0, 0, 19, 0);
+        assertEquals(Color.GREEN, image.getColorAt(15, 0));
+    }
+
+    public void testSessionEndsWhenImageReplaced()
+    {
+        GreenfootImage image = new GreenfootImage(10, 10);
+        image.beginDrawing();
+        image.scale(20, 20);
+        image.setColor(Color.RED);
+        image.fillRect(15, 15, 5, 5);
+        assertEquals(Color.RED, image.getColorAt(17, 17));
+    }
+
+    public void testSessionDoesNotAffectCopies()
+    {
+        GreenfootImage image = new GreenfootImage(10, 10);
+        image.beginDrawing();
+        image.setColor(Color.RED);
+        image.fill();
+        GreenfootImage copy = new GreenfootImage(image);
+        image.setColor(Color.BLUE);
+        image.fill();
+        image.endDrawing();
+        assertEquals(Color.RED, copy.getColorAt(5, 5));
+        assertEquals(Color.BLUE, image.getColorAt(5, 5));
+    }
+
+    public void testPixels()
+    {
+        GreenfootImage image = new GreenfootImage(4, 3);
+        int[] pixels = new int[12];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | i;
+        }
+        image.setPixels(pixels);
+        assertEquals(new Color(0, 0, 6), image.getColorAt(2, 1));
+
+        int[] region = new int[4];
+        image.getPixels(1, 1, 2, 2, region);
+        assertEquals(0xFF000005, region[0]);
+        assertEquals(0xFF000006, region[1]);
+        assertEquals(0xFF000009, region[2]);
+        assertEquals(0xFF00000A, region[3]);
+
+        image.setPixels(3, 2, 1, 1, new int[] {0x80112233});
+        assertEquals(new Color(0x11, 0x22, 0x33, 0x80), image.getColorAt(3, 2));
+        assertEquals(0x80112233, image.getPixels()[11]);
+    }
+
+    public void testPixelsCopyOnWrite()
+    {
+        GreenfootImage image = new GreenfootImage(2, 2);
+        image.setPixels(new int[] {0xFFFF0000, 0xFFFF0000, 0xFFFF0000, 0xFFFF0000});
+        GreenfootImage clone = image.getCopyOnWriteClone();
+        clone.setPixels(0, 0, 1, 1, new int[] {0xFF0000FF});
+        assertEquals(Color.BLUE, clone.getColorAt(0, 0));
+        assertEquals(Color.RED, image.getColorAt(0, 0));
+    }
+
+    public void testPixelBounds()
+    {
+        GreenfootImage image = new GreenfootImage(4, 3);
+        try {
+            image.getPixels(3, 0, 2, 1, new int[2]);
+            fail();
+        }
+        catch (IndexOutOfBoundsException e) {
+            // Expected
+        }
+        try {
+            image.setPixels(0, 0, 2, 2, new int[3]);
+            fail();
+        }
+        catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ This file is part of the Greenfoot program.
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+
+ This program is free software; you can redistribute it and/or
+ modify it under the terms of the GNU General Public License
+ as published by the Free Software Foundation; either version 2
+ of the License, or (at your option) any later version.
+
+ This program is distributed in the hope that it will be useful,
+ but WITHOUT ANY WARRANTY; without even the implied warranty of
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ GNU General Public License for more details.
+
+ You should have received a copy of the GNU General Public License
+ along with this program; if not, write to the Free Software
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+
+ This file is subject to the Classpath exception as provided in the
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.util;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests that the text raster cache reuses images of identical text, renders changed
+ * text afresh, and stays within its bounds.
+ */
+public class TextRasterCacheTest extends TestCase
+{
+    public void testHit()
+    {
+        TextRasterCache cache = new TextRasterCache(10, 1_000_000L);
+        BufferedImage image = cache.getTextImage("Score: 10", 20.0, Color.WHITE, null, Color.BLACK);
+        assertSame(image, cache.getTextImage("Score: 10", 20.0, Color.WHITE, null, Color.BLACK));
+        assertSame(image, cache.getTextImage(new String("Score: 10"), 20.0, new Color(255, 255, 255), null, Color.BLACK));
+    }
+
+    public void testMiss()
+    {
+        TextRasterCache cache = new TextRasterCache(10, 1_000_000L);
+        BufferedImage image = cache.getTextImage("Score: 10", 20.0, Color.WHITE, null, Color.BLACK);
+        assertNotSame(image, cache.getTextImage("Score: 11", 20.0, Color.WHITE, null, Color.BLACK));
+        assertNotSame(image, cache.getTextImage("Score: 10", 21.0, Color.WHITE, null, Color.BLACK));
+        assertNotSame(image, cache.getTextImage("Score: 10", 20.0, Color.RED, null, Color.BLACK));
+        assertNotSame(image, cache.getTextImage("Score: 10", 20.0, Color.WHITE, Color.BLUE, Color.BLACK));
+        assertNotSame(image, cache.getTextImage("Score: 10", 20.0, Color.WHITE, null, null));
+        // None of those should have replaced the original:
+        assertSame(image, cache.getTextImage("Score: 10", 20.0, Color.WHITE, null, Color.BLACK));
+    }
+
+    public void testEntryBound()
+    {
+        TextRasterCache cache = new TextRasterCache(3, 1_000_000L);
+        BufferedImage first = cache.getTextImage("0", 20.0, Color.WHITE, null, null);
+        BufferedImage second = cache.getTextImage("1", 20.0, Color.WHITE, null, null);
+        cache.getTextImage("2", 20.0, Color.WHITE, null, null);
+        // Use the first, so that the second is now the least recently used:
+        assertSame(first, cache.getTextImage("0", 20.0, Color.WHITE, null, null));
+        cache.getTextImage("3", 20.0, Color.WHITE, null, null);
+        assertSame(first, cache.getTextImage("0", 20.0, Color.WHITE, null, null));
+        assertNotSame(second, cache.getTextImage("1", 20.0, Color.WHITE, null, null));
+    }
+
+    public void testPixelBound()
+    {
+        // Room for about one image of this size:
+        BufferedImage probe = new TextRasterCache(10, 1_000_000L).getTextImage("Probe", 20.0, Color.WHITE, null, null);
+        long imagePixels = (long) probe.getWidth() * probe.getHeight();
+        TextRasterCache cache = new TextRasterCache(10, imagePixels * 3 / 2);
+
+        BufferedImage first = cache.getTextImage("Aaaaa", 20.0, Color.WHITE, null, null);
+        BufferedImage second = cache.getTextImage("Bbbbb", 20.0, Color.WHITE, null, null);
+        // The newest image is always kept:
+        assertSame(second, cache.getTextImage("Bbbbb", 20.0, Color.WHITE, null, null));
+        assertNotSame(first, cache.getTextImage("Aaaaa", 20.0, Color.WHITE, null, null));
+    }
+}
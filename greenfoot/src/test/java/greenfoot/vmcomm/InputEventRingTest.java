@@ -0,0 +1,121 @@
+/*
+ This file is part of the Greenfoot program. 
+ Copyright (C) 2026  Poul Henriksen and Michael Kolling
+ 
+ This program is free software; you can redistribute it and/or 
+ modify it under the terms of the GNU General Public License 
+ as published by the Free Software Foundation; either version 2 
+ of the License, or (at your option) any later version. 
+ 
+ This program is distributed in the hope that it will be useful, 
+ but WITHOUT ANY WARRANTY; without even the implied warranty of 
+ MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the 
+ GNU General Public License for more details. 
+ 
+ You should have received a copy of the GNU General Public License 
+ along with this program; if not, write to the Free Software 
+ Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA. 
+ 
+ This file is subject to the Classpath exception as provided in the  
+ LICENSE.txt file that accompanied this code.
+ */
+package greenfoot.vmcomm;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the input event ring buffer, with the producer and consumer in the same VM.
+ */
+public class InputEventRingTest extends TestCase
+{
+    private ByteBuffer region;
+    private InputEventRing producer;
+    private InputEventRing consumer;
+    private List<String> received;
+
+    @Override
+    protected void setUp()
+    {
+        region = ByteBuffer.allocateDirect(InputEventRing.SIZE_BYTES);
+        producer = new InputEventRing(region.duplicate());
+        consumer = new InputEventRing(region.duplicate());
+        received = new ArrayList<>();
+    }
+
+    private int drain()
+    {
+        return consumer.drain((type, data, length) -> received.add(type + ":" + Arrays.toString(Arrays.copyOf(data, length))));
+    }
+
+    public void testInOrder()
+    {
+        long now = InputEventRing.currentTimeMicros();
+        assertTrue(producer.offer(Command.KEY_DOWN, now, new int[] {5, 'a'}));
+        assertTrue(producer.offer(Command.MOUSE_PRESSED, now, new int[] {1, 2, 0, 1}));
+        assertTrue(producer.offer(Command.COMMAND_WORLD_FOCUS_LOST, now, new int[0]));
+        assertEquals(3, drain());
+        assertEquals(Arrays.asList(Command.KEY_DOWN + ":[5, 97]", Command.MOUSE_PRESSED + ":[1, 2, 0, 1]",
+                Command.COMMAND_WORLD_FOCUS_LOST + ":[]"), received);
+        assertEquals(0, drain());
+        assertEquals(3, producer.getConsumedCount());
+    }
+
+    public void testCoalesceMoves()
+    {
+        long now = InputEventRing.currentTimeMicros();
+        for (int i = 0; i < 10; i++) {
+            producer.offer(Command.MOUSE_MOVED, now, new int[] {i, i, 0, 0});
+        }
+        producer.offer(Command.MOUSE_DRAGGED, now, new int[] {1, 1, 0, 0});
+        // Different button, so not coalesced:
+        producer.offer(Command.MOUSE_DRAGGED, now, new int[] {2, 2, 1, 0});
+        producer.offer(Command.MOUSE_DRAGGED, now, new int[] {3, 3, 1, 0});
+        producer.offer(Command.MOUSE_MOVED, now, new int[] {4, 4, 0, 0});
+        assertEquals(14, drain());
+        assertEquals(Arrays.asList(Command.MOUSE_MOVED + ":[9, 9, 0, 0]", Command.MOUSE_DRAGGED + ":[1, 1, 0, 0]",
+                Command.MOUSE_DRAGGED + ":[3, 3, 1, 0]", Command.MOUSE_MOVED + ":[4, 4, 0, 0]"), received);
+        assertEquals(10, producer.getCoalescedCount());
+    }
+
+    public void testFullAndWrap()
+    {
+        long now = InputEventRing.currentTimeMicros();
+        int written = 0;
+        while (producer.offer(Command.KEY_TYPED, now, new int[] {written})) {
+            written++;
+        }
+        assertTrue(written > 0);
+        assertEquals(written, drain());
+        // Now there's space again, and the slots are reused:
+        for (int i = 0; i < written; i++) {
+            assertTrue(producer.offer(Command.KEY_UP, now, new int[] {i}));
+        }
+        received.clear();
+        assertEquals(written, drain());
+        assertEquals(Command.KEY_UP + ":[" + (written - 1) + "]", received.get(written - 1));
+    }
+
+    public void testLatencyAndReset()
+    {
+        producer.offer(Command.KEY_DOWN, InputEventRing.currentTimeMicros() - 5000, new int[] {1});
+        drain();
+        assertTrue(producer.getMaxLatencyMicros() >= 5000);
+        assertTrue(producer.getTotalLatencyMicros() >= 5000);
+
+        // Clearing the region (as when the debug VM restarts) and resetting starts again:
+        for (int i = 0; i < InputEventRing.SIZE_BYTES; i++) {
+            region.put(i, (byte) 0);
+        }
+        producer.reset();
+        InputEventRing newConsumer = new InputEventRing(region.duplicate());
+        producer.offer(Command.KEY_UP, InputEventRing.currentTimeMicros(), new int[] {2});
+        received.clear();
+        assertEquals(1, newConsumer.drain((type, data, length) -> received.add(type + ":" + data[0])));
+        assertEquals(Arrays.asList(Command.KEY_UP + ":2"), received);
+    }
+}